@@ -0,0 +1,311 @@
+package com.huggingsoft.pilot_main.datagen;
+
+import com.hsoft.model.entities.v1.Client;
+import com.hsoft.model.entities.v1.PasswordResetToken;
+import com.hsoft.model.entities.v1.Product;
+import com.hsoft.model.entities.v1.Provider;
+import com.hsoft.model.entities.v1.Transaction;
+import com.hsoft.model.entities.v1.TransactionItem;
+import com.hsoft.model.entities.v1.User;
+import com.huggingsoft.pilot_main.datagen.TenantGenerator.ItemRow;
+import com.huggingsoft.pilot_main.datagen.TenantGenerator.PartyRow;
+import com.huggingsoft.pilot_main.datagen.TenantGenerator.ProductRow;
+import com.huggingsoft.pilot_main.datagen.TenantGenerator.TransactionRow;
+import com.huggingsoft.pilot_main.datagen.TenantGenerator.UserRow;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates synthetic tenants (see {@link TenantGenerator}) and bulk-loads them into PostgreSQL with COPY.
+ * <p>
+ * Table and column names come from the Hibernate mapping of the {@code hs-model-pilot} entities; the tables must
+ * exist (start the application once, or pass {@code -Ddatagen.schema=update}). Each tenant's users and catalogue
+ * are loaded first, then its transactions in chunks of days, several chunks in parallel, each chunk in one
+ * database transaction on its own connection: transactions first, then their items. Tenants are added to
+ * whatever the database holds; use a new {@code datagen.prefix} for another batch. Users get the password
+ * {@value #PASSWORD}.
+ * <p>
+ * Run it with {@code ./gradlew datagen}, configured with system properties (defaults in brackets):
+ * {@code -Ddatagen.tenants} [1], {@code .products} [5000], {@code .clients} [500], {@code .providers} [40],
+ * {@code .sub-users} [5], {@code .years} [2], {@code .transactions} (per tenant) [1000000],
+ * {@code .purchase-ratio} [0.05], {@code .zipf-exponent} (SKU popularity) [1.1], {@code .max-items} [12],
+ * {@code .yearly-growth} [0.15], {@code .threads} [available processors], {@code .chunk-days} [7], {@code .seed} [42],
+ * {@code .prefix} [datagen], {@code .zone} [America/Guatemala], {@code .schema} [none|update] and
+ * {@code .url} / {@code .username} / {@code .password} [spring.datasource.* from application.properties].
+ */
+public final class DatasetGenerator {
+
+    static final String PASSWORD = "datagen-password";
+
+    /** Generator settings; see the class comment. */
+    record Options(int tenants, int products, int clients, int providers, int subUsers, int years, long transactions,
+                   double purchaseRatio, double zipfExponent, int maxItems, double yearlyGrowth, int threads,
+                   int chunkDays, long seed, String prefix, String zone, boolean updateSchema,
+                   String url, String username, String password) {
+
+        static Options fromSystemProperties() throws IOException {
+            Properties application = new Properties();
+            try (InputStream in = DatasetGenerator.class.getResourceAsStream("/application.properties")) {
+                if (in != null) application.load(in);
+            }
+            return new Options(
+                    Integer.getInteger("datagen.tenants", 1),
+                    Integer.getInteger("datagen.products", 5000),
+                    Integer.getInteger("datagen.clients", 500),
+                    Integer.getInteger("datagen.providers", 40),
+                    Integer.getInteger("datagen.sub-users", 5),
+                    Integer.getInteger("datagen.years", 2),
+                    Long.getLong("datagen.transactions", 1_000_000),
+                    Double.parseDouble(System.getProperty("datagen.purchase-ratio", "0.05")),
+                    Double.parseDouble(System.getProperty("datagen.zipf-exponent", "1.1")),
+                    Integer.getInteger("datagen.max-items", 12),
+                    Double.parseDouble(System.getProperty("datagen.yearly-growth", "0.15")),
+                    Integer.getInteger("datagen.threads", Runtime.getRuntime().availableProcessors()),
+                    Integer.getInteger("datagen.chunk-days", 7),
+                    Long.getLong("datagen.seed", 42),
+                    System.getProperty("datagen.prefix", "datagen"),
+                    System.getProperty("datagen.zone", "America/Guatemala"),
+                    "update".equalsIgnoreCase(System.getProperty("datagen.schema", "none")),
+                    System.getProperty("datagen.url", application.getProperty("spring.datasource.url")),
+                    System.getProperty("datagen.username", application.getProperty("spring.datasource.username")),
+                    System.getProperty("datagen.password", application.getProperty("spring.datasource.password")));
+        }
+    }
+
+    private final Options options;
+    private final TenantGenerator generator;
+    private final AtomicLong transactionRows = new AtomicLong();
+    private final AtomicLong itemRows = new AtomicLong();
+
+    private TableCopy<UserRow> users;
+    private TableCopy<ProductRow> products;
+    private TableCopy<PartyRow> clients;
+    private TableCopy<PartyRow> providers;
+    private TableCopy<TransactionRow> transactions;
+    private TableCopy<ItemRow> items;
+    private List<String> tableNames;
+
+    private DatasetGenerator(Options options) {
+        this.options = options;
+        this.generator = new TenantGenerator(options);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new DatasetGenerator(Options.fromSystemProperties()).run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Generating %d tenant(s) into %s: %d products, %d clients, %d providers, %d sub-users, "
+                        + "%d transactions over %d year(s) each%n", options.tenants(), options.url(), options.products(),
+                options.clients(), options.providers(), options.subUsers(), options.transactions(), options.years());
+        resolveTables();
+        String passwordHash = new BCryptPasswordEncoder().encode(PASSWORD);
+        long started = System.nanoTime();
+
+        List<TenantGenerator.Chunk> chunks = new ArrayList<>();
+        for (int t = 0; t < options.tenants(); t++) {
+            TenantGenerator.Tenant tenant = generator.catalogue(t, passwordHash);
+            loadCatalogue(tenant);
+            chunks.addAll(generator.chunks(tenant));
+        }
+        System.out.printf("Catalogues loaded in %.1f s; loading %d chunks of transactions on %d threads%n",
+                seconds(started), chunks.size(), options.threads());
+
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (TenantGenerator.Chunk chunk : chunks) {
+                futures.add(pool.submit(() -> {
+                    loadChunk(chunk);
+                    return null;
+                }));
+            }
+            int done = 0;
+            for (Future<?> future : futures) {
+                future.get(); // Fails fast on the first failed chunk
+                if (++done % Math.max(1, futures.size() / 20) == 0 || done == futures.size()) {
+                    System.out.printf("  %d/%d chunks, %,d transactions, %,d items, %.0f rows/s%n", done, futures.size(),
+                            transactionRows.get(), itemRows.get(), (transactionRows.get() + itemRows.get()) / seconds(started));
+                }
+            }
+        } catch (ExecutionException e) {
+            pool.shutdownNow();
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            for (String table : tableNames) {
+                statement.execute("ANALYZE " + table);
+            }
+        }
+        System.out.printf("Done in %.1f s: %,d transactions and %,d items%n", seconds(started), transactionRows.get(), itemRows.get());
+    }
+
+    private void loadCatalogue(TenantGenerator.Tenant tenant) throws SQLException, IOException {
+        try (Connection connection = connect()) {
+            try (TableCopy<UserRow>.Sink sink = users.open(connection)) {
+                sink.write(tenant.owner());
+            }
+            try (TableCopy<UserRow>.Sink sink = users.open(connection)) { // Sub-users reference the owner
+                tenant.subUsers().forEach(sink::write);
+            }
+            try (TableCopy<ProductRow>.Sink sink = products.open(connection)) {
+                tenant.products().forEach(sink::write);
+            }
+            try (TableCopy<PartyRow>.Sink sink = clients.open(connection)) {
+                tenant.clients().forEach(sink::write);
+            }
+            try (TableCopy<PartyRow>.Sink sink = providers.open(connection)) {
+                tenant.providers().forEach(sink::write);
+            }
+            connection.commit();
+        }
+    }
+
+    private void loadChunk(TenantGenerator.Chunk chunk) throws SQLException, IOException {
+        try (Connection connection = connect()) {
+            // Same chunk generated twice: items must follow their transactions, and nothing is buffered
+            TableCopy<TransactionRow>.Sink transactionSink = transactions.open(connection);
+            try (transactionSink) {
+                generator.transactions(chunk, transactionSink::write, item -> {});
+            }
+            TableCopy<ItemRow>.Sink itemSink = items.open(connection);
+            try (itemSink) {
+                generator.transactions(chunk, transaction -> {}, itemSink::write);
+            }
+            connection.commit();
+            transactionRows.addAndGet(transactionSink.rows());
+            itemRows.addAndGet(itemSink.rows());
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(options.url(), options.username(), options.password());
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET synchronous_commit = off"); // A lost tail on crash is fine for generated data
+        }
+        return connection;
+    }
+
+    private void resolveTables() {
+        Configuration configuration = new Configuration()
+                .setProperty(AvailableSettings.DIALECT, PostgreSQLDialect.class.getName());
+        if (options.updateSchema()) {
+            configuration.setProperty(AvailableSettings.JAKARTA_JDBC_URL, options.url())
+                    .setProperty(AvailableSettings.JAKARTA_JDBC_USER, options.username())
+                    .setProperty(AvailableSettings.JAKARTA_JDBC_PASSWORD, options.password())
+                    .setProperty(AvailableSettings.HBM2DDL_AUTO, "update");
+        } else {
+            configuration.setProperty("hibernate.boot.allow_jdbc_metadata_access", "false"); // Mapping only
+        }
+        for (Class<?> entity : List.of(User.class, Product.class, Client.class, Provider.class,
+                Transaction.class, TransactionItem.class, PasswordResetToken.class)) {
+            configuration.addAnnotatedClass(entity);
+        }
+        try (SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) configuration.buildSessionFactory()) {
+            Map<String, Object> emptyContext = Map.of();
+            EntityTable userTable = EntityTable.of(sessionFactory, User.class);
+            users = new TableCopy<UserRow>(userTable, UserRow::id)
+                    .column(UserRow::parentId, "parentUser")
+                    .column(UserRow::username, "username")
+                    .column(UserRow::email, "email")
+                    .column(UserRow::passwordHash, "passwordHash")
+                    .column(UserRow::companyName, "companyName")
+                    .column(row -> true, "isActive", "active")
+                    .column(row -> emptyContext, "context")
+                    .column(UserRow::createdAt, "createdAt")
+                    .column(UserRow::createdAt, "updatedAt");
+
+            EntityTable productTable = EntityTable.of(sessionFactory, Product.class);
+            products = new TableCopy<ProductRow>(productTable, ProductRow::id)
+                    .column(ProductRow::userId, "user")
+                    .column(ProductRow::sku, "sku")
+                    .column(ProductRow::name, "name")
+                    .column(ProductRow::description, "description")
+                    .column(ProductRow::category, "category")
+                    .column(ProductRow::purchasePrice, "purchasePrice")
+                    .column(ProductRow::salePrice, "salePrice")
+                    .column(ProductRow::stock, "currentStock")
+                    .column(row -> "unidad", "unitOfMeasure")
+                    .column(row -> true, "isActive", "active")
+                    .column(row -> emptyContext, "context")
+                    .column(ProductRow::createdAt, "createdAt")
+                    .column(ProductRow::createdAt, "updatedAt");
+
+            EntityTable clientTable = EntityTable.of(sessionFactory, Client.class);
+            clients = party(clientTable);
+            EntityTable providerTable = EntityTable.of(sessionFactory, Provider.class);
+            providers = party(providerTable);
+
+            EntityTable transactionTable = EntityTable.of(sessionFactory, Transaction.class);
+            transactions = new TableCopy<TransactionRow>(transactionTable, TransactionRow::id)
+                    .column(TransactionRow::userId, "user")
+                    .column(TransactionRow::createdBy, "createdByUser")
+                    .column(TransactionRow::clientId, "client")
+                    .column(TransactionRow::providerId, "provider")
+                    .column(TransactionRow::type, "transactionType")
+                    .column(TransactionRow::status, "status")
+                    .column(TransactionRow::date, "transactionDate")
+                    .column(TransactionRow::referenceNumber, "referenceNumber")
+                    .column(TransactionRow::totalAmount, "totalAmount")
+                    .column(row -> emptyContext, "context")
+                    .column(TransactionRow::date, "createdAt")
+                    .column(TransactionRow::date, "updatedAt");
+
+            EntityTable itemTable = EntityTable.of(sessionFactory, TransactionItem.class);
+            items = new TableCopy<ItemRow>(itemTable, ItemRow::id)
+                    .column(ItemRow::transactionId, "transaction")
+                    .column(ItemRow::productId, "product")
+                    .column(ItemRow::quantity, "quantity")
+                    .column(ItemRow::unitPrice, "unitPrice")
+                    .column(ItemRow::subtotal, "subtotal")
+                    .column(row -> emptyContext, "context")
+                    .column(ItemRow::createdAt, "createdAt")
+                    .column(ItemRow::createdAt, "updatedAt");
+
+            tableNames = List.of(userTable.name(), productTable.name(), clientTable.name(), providerTable.name(),
+                    transactionTable.name(), itemTable.name());
+        }
+    }
+
+    private static TableCopy<PartyRow> party(EntityTable table) {
+        return new TableCopy<PartyRow>(table, PartyRow::id)
+                .column(PartyRow::userId, "user")
+                .column(PartyRow::name, "name")
+                .column(PartyRow::nit, "nit")
+                .column(PartyRow::email, "email")
+                .column(PartyRow::phone, "phone")
+                .column(PartyRow::address, "address")
+                .column(row -> true, "isActive", "active")
+                .column(row -> Map.of(), "context")
+                .column(PartyRow::createdAt, "createdAt")
+                .column(PartyRow::createdAt, "updatedAt");
+    }
+
+    private static double seconds(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1e9;
+    }
+}
@@ -0,0 +1,32 @@
+package com.huggingsoft.pilot_main.datagen;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+
+import java.util.Set;
+
+/**
+ * Physical table, identifier column and attribute columns of an entity, resolved from its Hibernate mapping,
+ * so the generated rows follow the {@code hs-model-pilot} entities whatever their naming.
+ */
+record EntityTable(String name, String id, AbstractEntityPersister persister, Set<String> attributes) {
+
+    static EntityTable of(SessionFactoryImplementor sessionFactory, Class<?> entity) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory
+                .getMappingMetamodel().getEntityDescriptor(entity);
+        return new EntityTable(persister.getTableName(), persister.getIdentifierColumnNames()[0], persister,
+                Set.of(persister.getPropertyNames()));
+    }
+
+    /**
+     * @return The column of the first of {@code candidates} the entity maps, or null if it maps none of them.
+     */
+    String column(String... candidates) {
+        for (String attribute : candidates) {
+            if (attributes.contains(attribute)) {
+                return persister.getPropertyColumnNames(attribute)[0];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.huggingsoft.pilot_main.datagen;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Shape of retail sales over time: a December peak and a slow first quarter, busy Fridays and Saturdays,
+ * quiet Sundays, lunch and after-work hour peaks, and steady year-over-year growth.
+ */
+final class Seasonality {
+
+    // January..December
+    private static final double[] MONTH = {0.85, 0.80, 0.90, 0.95, 1.00, 0.95, 0.95, 1.00, 0.95, 1.00, 1.15, 1.50};
+    // Monday..Sunday
+    private static final double[] WEEKDAY = {0.90, 0.95, 1.00, 1.00, 1.15, 1.30, 0.70};
+    // 00..23; the store is closed at night
+    private static final double[] HOUR = {0, 0, 0, 0, 0, 0, 0.2, 0.5, 0.9, 1.1, 1.3, 1.6, 1.8, 1.5, 1.1, 1.0,
+            1.1, 1.4, 1.6, 1.3, 0.8, 0.4, 0.1, 0};
+    private static final double[] HOUR_CUMULATIVE = cumulative(HOUR);
+
+    private Seasonality() {
+        // Utility class
+    }
+
+    /**
+     * Splits {@code total} transactions over {@code days} in proportion to their weight; the counts add up to
+     * {@code total} exactly.
+     *
+     * @param yearlyGrowth Relative growth per year, e.g. 0.15 for 15%.
+     */
+    static int[] allocate(long total, List<LocalDate> days, double yearlyGrowth) {
+        double[] weights = new double[days.size()];
+        double sum = 0;
+        LocalDate first = days.getFirst();
+        for (int i = 0; i < weights.length; i++) {
+            LocalDate day = days.get(i);
+            double years = ChronoUnit.DAYS.between(first, day) / 365.25;
+            weights[i] = MONTH[day.getMonthValue() - 1] * WEEKDAY[day.getDayOfWeek().getValue() - 1]
+                    * Math.pow(1 + yearlyGrowth, years);
+            sum += weights[i];
+        }
+        int[] counts = new int[weights.length];
+        double cumulative = 0;
+        long allocated = 0;
+        for (int i = 0; i < weights.length; i++) {
+            cumulative += weights[i] / sum * total;
+            long upTo = i == weights.length - 1 ? total : Math.round(cumulative);
+            counts[i] = (int) (upTo - allocated);
+            allocated = upTo;
+        }
+        return counts;
+    }
+
+    /** A second of the day, following the hourly profile. */
+    static int secondOfDay(RandomGenerator random) {
+        double roll = random.nextDouble();
+        int hour = 0;
+        while (hour < 23 && HOUR_CUMULATIVE[hour] <= roll) {
+            hour++;
+        }
+        return hour * 3600 + random.nextInt(3600);
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double sum = 0;
+        for (double weight : weights) sum += weight;
+        double[] cumulative = new double[weights.length];
+        double running = 0;
+        for (int i = 0; i < weights.length; i++) {
+            running += weights[i];
+            cumulative[i] = running / sum;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,129 @@
+package com.huggingsoft.pilot_main.datagen;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Streams rows of one entity table into PostgreSQL with {@code COPY ... FROM STDIN} (text format).
+ * <p>
+ * Columns are declared by entity attribute; an attribute the entity does not map is left out, so the column
+ * keeps its default. Values are rendered as PostgreSQL text input: maps as JSON, enums by name (as the
+ * entities map them), timestamps in ISO-8601.
+ *
+ * @param <T> Row type.
+ */
+final class TableCopy<T> {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final EntityTable table;
+    private final List<String> columns = new ArrayList<>();
+    private final List<Function<T, Object>> values = new ArrayList<>();
+
+    TableCopy(EntityTable table, Function<T, Object> id) {
+        this.table = table;
+        columns.add(table.id());
+        values.add(id);
+    }
+
+    /** Adds the column of the first mapped attribute among {@code attributes}; ignored if none is mapped. */
+    TableCopy<T> column(Function<T, Object> value, String... attributes) {
+        String column = table.column(attributes);
+        if (column != null && !columns.contains(column)) {
+            columns.add(column);
+            values.add(value);
+        }
+        return this;
+    }
+
+    String sql() {
+        return "COPY " + table.name() + " (" + String.join(", ", columns) + ") FROM STDIN";
+    }
+
+    /** Starts a COPY on {@code connection}; rows are sent as the buffer fills and committed with the connection. */
+    Sink open(Connection connection) throws SQLException {
+        return new Sink(new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql(), 1 << 16));
+    }
+
+    final class Sink implements AutoCloseable {
+        private final Writer writer;
+        private long rows;
+
+        private Sink(PGCopyOutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        void write(T row) {
+            try {
+                for (int i = 0; i < values.size(); i++) {
+                    if (i > 0) writer.write('\t');
+                    writeValue(values.get(i).apply(row));
+                }
+                writer.write('\n');
+                rows++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+            String text = switch (value) {
+                case null -> null;
+                case BigDecimal decimal -> decimal.toPlainString();
+                case Boolean bool -> bool ? "t" : "f";
+                case Enum<?> constant -> constant.name();
+                case Map<?, ?> map -> json(map);
+                default -> value.toString();
+            };
+            if (text == null) {
+                writer.write("\\N");
+                return;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '\\' -> writer.write("\\\\");
+                    case '\t' -> writer.write("\\t");
+                    case '\n' -> writer.write("\\n");
+                    case '\r' -> writer.write("\\r");
+                    default -> writer.write(c);
+                }
+            }
+        }
+
+        /** Ends the COPY. */
+        @Override
+        public void close() throws IOException {
+            writer.close(); // Flushes, then PGCopyOutputStream.close() ends the COPY
+        }
+
+        long rows() {
+            return rows;
+        }
+    }
+
+    private static String json(Map<?, ?> map) {
+        if (map.isEmpty()) return "{}";
+        try {
+            return JSON.writeValueAsString(map);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.huggingsoft.pilot_main.datagen;
+
+import com.hsoft.model.types.v1.TransactionStatus;
+import com.hsoft.model.types.v1.TransactionType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Generates the rows of synthetic tenants: a main user with sub-users, a catalogue, clients, providers, and
+ * {@code years} of sales and purchases.
+ * <p>
+ * Products and clients are picked with Zipfian skew, and transactions follow {@link Seasonality}. Everything is
+ * derived from the seed, tenant and chunk index, so {@link #transactions} produces the same rows on every call:
+ * transactions and their items are streamed in two passes without keeping a chunk in memory.
+ */
+final class TenantGenerator {
+
+    record UserRow(UUID id, UUID parentId, String username, String email, String passwordHash, String companyName,
+                   OffsetDateTime createdAt) {}
+
+    record ProductRow(UUID id, UUID userId, String sku, String name, String description, String category,
+                      BigDecimal purchasePrice, BigDecimal salePrice, int stock, OffsetDateTime createdAt) {}
+
+    /** A client or a provider. */
+    record PartyRow(UUID id, UUID userId, String name, String nit, String email, String phone, String address,
+                    OffsetDateTime createdAt) {}
+
+    record TransactionRow(UUID id, UUID userId, UUID createdBy, UUID clientId, UUID providerId, TransactionType type,
+                          TransactionStatus status, OffsetDateTime date, String referenceNumber, BigDecimal totalAmount) {}
+
+    record ItemRow(UUID id, UUID transactionId, UUID productId, int quantity, BigDecimal unitPrice, BigDecimal subtotal,
+                   OffsetDateTime createdAt) {}
+
+    /** Everything of one tenant but its transactions; kept in memory while those are generated. */
+    record Tenant(int index, UserRow owner, List<UserRow> subUsers, List<ProductRow> products,
+                  List<PartyRow> clients, List<PartyRow> providers) {}
+
+    /** Consecutive days of one tenant, generated and loaded together in one database transaction. */
+    record Chunk(Tenant tenant, int index, List<LocalDate> days, int[] counts) {
+
+        long transactions() {
+            long sum = 0;
+            for (int count : counts) sum += count;
+            return sum;
+        }
+    }
+
+    private static final String[] NOUNS = {"Arroz", "Frijol", "Azucar", "Aceite", "Cafe", "Leche", "Harina", "Pasta",
+            "Jabon", "Detergente", "Galletas", "Sal", "Atun", "Sardina", "Avena", "Cereal", "Salsa", "Mayonesa",
+            "Papel", "Servilletas", "Shampoo", "Cloro", "Refresco", "Agua", "Jugo", "Chocolate", "Consome", "Te",
+            "Cuaderno", "Lapicero", "Bateria", "Foco", "Cemento", "Clavos", "Pintura", "Tornillos"};
+    private static final String[] BRANDS = {"Don Pedro", "La Abuela", "Sol", "Del Valle", "Maravilla", "El Gallo",
+            "Suli", "Ideal", "Campestre", "Real", "Progreso", "Victoria", "San Miguel", "Santa Ana"};
+    private static final String[] SIZES = {"250 g", "500 g", "1 kg", "2 kg", "500 ml", "1 l", "2 l", "12 u", "caja 24 u"};
+    private static final String[] FIRST_NAMES = {"Ana", "Carlos", "Maria", "Jose", "Lucia", "Juan", "Sofia", "Luis",
+            "Elena", "Miguel", "Carmen", "Pedro", "Rosa", "Jorge", "Marta", "Diego"};
+    private static final String[] LAST_NAMES = {"Garcia", "Lopez", "Perez", "Morales", "Hernandez", "Castillo",
+            "Ramirez", "Mendez", "Gonzalez", "Rodriguez", "Cruz", "Reyes", "Ortiz", "Flores"};
+    private static final double CLIENT_EXPONENT = 0.8;
+
+    private final DatasetGenerator.Options options;
+    private final ZoneId zone;
+    private final ZipfSampler productRanks;
+    private final ZipfSampler clientRanks;
+    private final List<LocalDate> days = new ArrayList<>();
+
+    TenantGenerator(DatasetGenerator.Options options) {
+        this.options = options;
+        this.zone = ZoneId.of(options.zone());
+        this.productRanks = new ZipfSampler(options.products(), options.zipfExponent());
+        this.clientRanks = options.clients() > 0 ? new ZipfSampler(options.clients(), CLIENT_EXPONENT) : null;
+        LocalDate today = LocalDate.now(zone);
+        for (LocalDate day = today.minusYears(options.years()); day.isBefore(today); day = day.plusDays(1)) {
+            days.add(day);
+        }
+    }
+
+    Tenant catalogue(int index, String passwordHash) {
+        SplittableRandom random = new SplittableRandom(options.seed() * 1_000_003L + index);
+        OffsetDateTime since = days.getFirst().minusDays(30).atStartOfDay(zone).toOffsetDateTime();
+        String username = options.prefix() + "-" + index;
+
+        UserRow owner = new UserRow(randomId(random), null, username, username + "@datagen.local", passwordHash,
+                "Comercial " + pick(random, LAST_NAMES) + " " + index, since);
+        List<UserRow> subUsers = new ArrayList<>(options.subUsers());
+        for (int i = 0; i < options.subUsers(); i++) {
+            String subUsername = username + "-user-" + i;
+            subUsers.add(new UserRow(randomId(random), owner.id(), subUsername, subUsername + "@datagen.local",
+                    passwordHash, owner.companyName(), since.plusDays(random.nextInt(365))));
+        }
+
+        List<ProductRow> products = new ArrayList<>(options.products());
+        for (int i = 0; i < options.products(); i++) {
+            String noun = pick(random, NOUNS);
+            String name = noun + " " + pick(random, BRANDS) + " " + pick(random, SIZES);
+            // Log-normal-ish prices: mostly cheap staples, a few expensive items
+            BigDecimal cost = BigDecimal.valueOf(Math.exp(random.nextDouble(1.0, 6.5))).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal price = cost.multiply(BigDecimal.valueOf(random.nextDouble(1.15, 1.6))).setScale(2, RoundingMode.HALF_UP);
+            products.add(new ProductRow(randomId(random), owner.id(), String.format("SKU-%07d", i), name,
+                    name + " - presentacion " + (1 + random.nextInt(3)), noun, cost, price, random.nextInt(500),
+                    since.plusDays(random.nextInt(Math.max(1, days.size())))));
+        }
+
+        List<PartyRow> clients = new ArrayList<>(options.clients());
+        for (int i = 0; i < options.clients(); i++) {
+            String name = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES) + " " + pick(random, LAST_NAMES);
+            clients.add(new PartyRow(randomId(random), owner.id(), name,
+                    random.nextInt(10) < 3 ? "CF" : String.format("%07d-%d", 1_000_000 + random.nextInt(9_000_000), random.nextInt(10)),
+                    "cliente" + i + "@" + username + ".local", String.format("5%07d", random.nextInt(10_000_000)),
+                    (1 + random.nextInt(20)) + " calle " + (1 + random.nextInt(30)) + "-" + random.nextInt(99) + ", zona " + (1 + random.nextInt(21)),
+                    since.plusDays(random.nextInt(Math.max(1, days.size())))));
+        }
+
+        List<PartyRow> providers = new ArrayList<>(options.providers());
+        for (int i = 0; i < options.providers(); i++) {
+            providers.add(new PartyRow(randomId(random), owner.id(), "Distribuidora " + pick(random, BRANDS) + " " + i + ", S.A.",
+                    String.format("%07d-%d", 1_000_000 + random.nextInt(9_000_000), random.nextInt(10)),
+                    "ventas" + i + "@proveedor.local", String.format("2%07d", random.nextInt(10_000_000)),
+                    "Km " + (5 + random.nextInt(40)) + " carretera al " + (random.nextBoolean() ? "Pacifico" : "Atlantico"),
+                    since));
+        }
+        return new Tenant(index, owner, subUsers, products, clients, providers);
+    }
+
+    /** Splits the tenant's transactions over days ({@link Seasonality}) and groups the days into chunks. */
+    List<Chunk> chunks(Tenant tenant) {
+        int[] counts = Seasonality.allocate(options.transactions(), days, options.yearlyGrowth());
+        List<Chunk> chunks = new ArrayList<>();
+        for (int from = 0; from < days.size(); from += options.chunkDays()) {
+            int to = Math.min(days.size(), from + options.chunkDays());
+            int[] chunkCounts = new int[to - from];
+            System.arraycopy(counts, from, chunkCounts, 0, chunkCounts.length);
+            chunks.add(new Chunk(tenant, chunks.size(), days.subList(from, to), chunkCounts));
+        }
+        return chunks;
+    }
+
+    /**
+     * Generates the transactions of a chunk and their items, in date order.
+     */
+    void transactions(Chunk chunk, Consumer<TransactionRow> transactions, Consumer<ItemRow> items) {
+        Tenant tenant = chunk.tenant();
+        SplittableRandom random = new SplittableRandom((options.seed() * 1_000_003L + tenant.index()) * 1_000_003L + chunk.index());
+        boolean hasPurchases = !tenant.providers().isEmpty() && options.purchaseRatio() > 0;
+        int sequence = 0;
+        for (int d = 0; d < chunk.days().size(); d++) {
+            long dayStart = chunk.days().get(d).atStartOfDay(zone).toEpochSecond();
+            int[] seconds = new int[chunk.counts()[d]];
+            for (int i = 0; i < seconds.length; i++) {
+                seconds[i] = Seasonality.secondOfDay(random);
+            }
+            Arrays.sort(seconds);
+            for (int second : seconds) {
+                long epochSecond = dayStart + second;
+                OffsetDateTime date = OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone);
+                long millis = epochSecond * 1000 + random.nextInt(1000);
+                boolean purchase = hasPurchases && random.nextDouble() < options.purchaseRatio();
+                UUID transactionId = timeOrderedId(millis, random);
+                String reference = (purchase ? "OC-" : "FAC-") + tenant.index() + "-" + chunk.index() + "-" + sequence++;
+
+                BigDecimal total = BigDecimal.ZERO;
+                for (int n = itemCount(random); n > 0; n--) {
+                    ProductRow product = tenant.products().get(productRanks.sample(random));
+                    int quantity = purchase ? 12 * (1 + random.nextInt(10)) : (random.nextInt(10) < 7 ? 1 : 2 + random.nextInt(5));
+                    BigDecimal unitPrice = purchase ? product.purchasePrice() : product.salePrice();
+                    BigDecimal subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
+                    total = total.add(subtotal);
+                    items.accept(new ItemRow(timeOrderedId(millis, random), transactionId, product.id(), quantity, unitPrice, subtotal, date));
+                }
+
+                UserRow creator = tenant.subUsers().isEmpty() || random.nextInt(10) < 3
+                        ? tenant.owner() : tenant.subUsers().get(random.nextInt(tenant.subUsers().size()));
+                if (purchase) {
+                    PartyRow provider = tenant.providers().get(random.nextInt(tenant.providers().size()));
+                    transactions.accept(new TransactionRow(transactionId, tenant.owner().id(), creator.id(), null, provider.id(),
+                            TransactionType.PURCHASE, TransactionStatus.COMPLETED, date, reference, total));
+                } else {
+                    PartyRow client = tenant.clients().isEmpty() ? null : tenant.clients().get(clientRanks.sample(random));
+                    TransactionStatus status = random.nextInt(100) < 3 ? TransactionStatus.CANCELLED : TransactionStatus.COMPLETED;
+                    transactions.accept(new TransactionRow(transactionId, tenant.owner().id(), creator.id(),
+                            client == null ? null : client.id(), null, TransactionType.SALE, status, date, reference, total));
+                }
+            }
+        }
+    }
+
+    // 1 item in ~40% of tickets, decreasing geometrically, capped at maxItems
+    private int itemCount(SplittableRandom random) {
+        int count = 1;
+        while (count < options.maxItems() && random.nextDouble() < 0.6) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static UUID randomId(SplittableRandom random) {
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L; // Version 4
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /** Version 7 UUID for the given time, like {@code UuidV7}, so rows land in index order of their dates. */
+    private static UUID timeOrderedId(long millis, SplittableRandom random) {
+        long msb = (millis << 16) | 0x7000L | random.nextInt(0x1000);
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
@@ -0,0 +1,83 @@
+package com.huggingsoft.pilot_main.benchmarks;
+
+import com.hsoft.model.entities.v1.User;
+import com.huggingsoft.pilot_main.service.utils.JwtService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of issuing a token at login and of the per-request work of authenticating with it:
+ * parsing the subject, then validating it against the loaded user (which parses the token again).
+ * <p>
+ * {@link JwtService} is created by Spring, so {@code @Value} injection and {@code init()} run as in the application.
+ * <pre>./gradlew jmh -PjmhInclude=JwtServiceBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtServiceBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private JwtService jwtService;
+    private User user;
+    private UserDetails userDetails;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "jwt.secret", Base64.getEncoder().encodeToString("benchmark-secret-benchmark-secret-0123456789".getBytes()),
+                "jwt.expiration-ms", "3600000")));
+        context.register(JwtService.class);
+        context.refresh();
+        jwtService = context.getBean(JwtService.class);
+
+        user = new User();
+        user.setUsername("benchmark.user@example.com");
+        userDetails = org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
+                .password("n/a").authorities("ROLE_USER").build();
+        token = jwtService.generateToken(user);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, userDetails);
+    }
+
+    /** Subject lookup followed by validation, as done once per authenticated request. */
+    @Benchmark
+    public boolean authenticateRequest() {
+        String username = jwtService.extractUsername(token);
+        return username != null && jwtService.isTokenValid(token, userDetails);
+    }
+}
@@ -0,0 +1,176 @@
+package com.huggingsoft.pilot_main.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.hsoft.model.dto.v1.products.ProductResponseDTO;
+import com.hsoft.model.dto.v1.transactions.TransactionDetailResponseDTO;
+import com.hsoft.model.entities.v1.Client;
+import com.hsoft.model.entities.v1.Product;
+import com.hsoft.model.entities.v1.Transaction;
+import com.hsoft.model.entities.v1.TransactionItem;
+import com.hsoft.model.entities.v1.User;
+import com.hsoft.model.mappers.ProductMapper;
+import com.hsoft.model.mappers.TransactionMapper;
+import com.hsoft.model.types.v1.TransactionStatus;
+import com.hsoft.model.types.v1.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost of the two heaviest responses - a product page and a transaction detail -
+ * as JSON, Smile and CBOR. Payload sizes are printed once per trial.
+ * <p>
+ * DTOs are produced by the real MapStruct mappers from synthetic entities, and the mappers are
+ * configured like the application's (Boot's {@link Jackson2ObjectMapperBuilder} defaults, dates as ISO strings).
+ * <pre>./gradlew jmh -PjmhInclude=SerializationBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+    /** Wire shape of a serialized {@code Page}; only the content is of interest when decoding. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PageBody(List<ProductResponseDTO> content, long totalElements, int totalPages) {}
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"50", "500"})
+    public int pageSize;
+
+    private ObjectMapper mapper;
+    private PageImpl<ProductResponseDTO> productPage;
+    private TransactionDetailResponseDTO transactionDetail;
+    private byte[] productPageBytes;
+    private byte[] transactionDetailBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS); // As Boot configures it
+        mapper = switch (format) {
+            case "json" -> builder.build();
+            case "smile" -> builder.factory(new SmileFactory()).build();
+            case "cbor" -> builder.factory(new CBORFactory()).build();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext("com.hsoft.model.mappers")) {
+            ProductMapper productMapper = context.getBean(ProductMapper.class);
+            TransactionMapper transactionMapper = context.getBean(TransactionMapper.class);
+
+            User owner = new User();
+            List<Product> products = new ArrayList<>(pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                products.add(product(owner, i));
+            }
+            productPage = new PageImpl<>(products.stream().map(productMapper::productToProductResponseDTO).toList(),
+                    PageRequest.of(0, pageSize), pageSize * 20L);
+            transactionDetail = transactionMapper.transactionToTransactionDetailResponseDTO(transaction(owner, products));
+        }
+
+        productPageBytes = mapper.writeValueAsBytes(productPage);
+        transactionDetailBytes = mapper.writeValueAsBytes(transactionDetail);
+        System.out.printf("%n[%s, %d items] product page: %d bytes, transaction detail: %d bytes%n",
+                format, pageSize, productPageBytes.length, transactionDetailBytes.length);
+    }
+
+    @Benchmark
+    public byte[] encodeProductPage() throws Exception {
+        return mapper.writeValueAsBytes(productPage);
+    }
+
+    @Benchmark
+    public PageBody decodeProductPage() throws Exception {
+        return mapper.readValue(productPageBytes, PageBody.class);
+    }
+
+    @Benchmark
+    public byte[] encodeTransactionDetail() throws Exception {
+        return mapper.writeValueAsBytes(transactionDetail);
+    }
+
+    @Benchmark
+    public TransactionDetailResponseDTO decodeTransactionDetail() throws Exception {
+        return mapper.readValue(transactionDetailBytes, TransactionDetailResponseDTO.class);
+    }
+
+    // --- Synthetic data ---
+
+    private static Product product(User owner, int i) {
+        Product product = new Product();
+        product.setProductId(UUID.randomUUID());
+        product.setUser(owner);
+        product.setSku("SKU-" + String.format("%06d", i));
+        product.setName("Producto de prueba " + i);
+        product.setDescription("Descripcion del producto " + i + " con algo de texto libre para el catalogo");
+        product.setPurchasePrice(BigDecimal.valueOf(1000 + i * 7L, 2));
+        product.setSalePrice(BigDecimal.valueOf(1500 + i * 11L, 2));
+        product.setCurrentStock(i % 250);
+        product.setUnitOfMeasure("unidad");
+        product.setCategory("Categoria " + (i % 12));
+        product.setActive(true);
+        product.setContext(new HashMap<>(Map.of("color", "rojo", "shelf", "A" + (i % 40))));
+        product.setUpdatedAt(OffsetDateTime.now());
+        return product;
+    }
+
+    private static Transaction transaction(User owner, List<Product> products) {
+        Client client = new Client();
+        client.setClientId(UUID.randomUUID());
+        client.setUser(owner);
+        client.setName("Cliente de prueba");
+        client.setNit("1234567-8");
+
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(UUID.randomUUID());
+        transaction.setUser(owner);
+        transaction.setCreatedByUser(owner);
+        transaction.setClient(client);
+        transaction.setTransactionType(TransactionType.SALE);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transaction.setTransactionDate(OffsetDateTime.now());
+        transaction.setReferenceNumber("FAC-000123");
+        transaction.setContext(new HashMap<>());
+
+        List<TransactionItem> items = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Product product : products.subList(0, Math.min(products.size(), 40))) {
+            TransactionItem item = new TransactionItem();
+            item.setTransaction(transaction);
+            item.setProduct(product);
+            item.setQuantity(3);
+            item.setUnitPrice(product.getSalePrice());
+            item.setContext(new HashMap<>());
+            items.add(item);
+            total = total.add(product.getSalePrice().multiply(BigDecimal.valueOf(3)));
+        }
+        transaction.setItems(items);
+        transaction.setTotalAmount(total);
+        return transaction;
+    }
+}
@@ -0,0 +1,112 @@
+package com.huggingsoft.pilot_main.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time from launching the application to its first HTTP response, per startup mode:
+ * {@code baseline} (plain JVM start), {@code cds} (class data sharing archive), {@code aot} (Spring AOT
+ * initialization) and {@code aot-cds} (both).
+ * <p>
+ * Every invocation starts a fresh JVM on the extracted application and polls {@code /actuator/health} until any
+ * response arrives (a 503 while the database is down counts: the server is up). The application needs its database
+ * as usual. Prepare the artefacts first; the AOT modes need a jar built with {@code -Paot}:
+ * <pre>./gradlew cdsArchive -Paot
+ * ./gradlew jmh -Paot -PjmhInclude=StartupBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StartupBenchmark {
+
+    @Param({"baseline", "cds", "aot", "aot-cds"})
+    public String mode;
+
+    @Param("build/startup/application")
+    public String applicationDir;
+
+    @Param("18081")
+    public int port;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private List<String> command;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path dir = Path.of(applicationDir).toAbsolutePath();
+        Path jar;
+        try (Stream<Path> files = Files.list(dir)) {
+            jar = files.filter(file -> file.toString().endsWith(".jar")).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + dir + "; run ./gradlew cdsArchive"));
+        }
+        command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        if (mode.contains("cds")) {
+            Path archive = dir.resolve("application.jsa");
+            if (!Files.exists(archive)) {
+                throw new IllegalStateException("No CDS archive " + archive + "; run ./gradlew cdsArchive");
+            }
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        if (mode.startsWith("aot")) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.addAll(List.of("-jar", jar.toString(), "--server.port=" + port));
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws Exception {
+        process = new ProcessBuilder(command)
+                .directory(new File(applicationDir))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .timeout(Duration.ofSeconds(5)).GET().build();
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with status " + process.exitValue() + " in mode " + mode);
+            }
+            try {
+                return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (ConnectException e) {
+                Thread.sleep(5); // Not listening yet
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            process = null;
+        }
+    }
+}
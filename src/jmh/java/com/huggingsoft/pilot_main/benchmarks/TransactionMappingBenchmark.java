@@ -0,0 +1,112 @@
+package com.huggingsoft.pilot_main.benchmarks;
+
+import com.hsoft.model.dto.v1.transactions.TransactionDetailResponseDTO;
+import com.hsoft.model.dto.v1.transactions.TransactionSummaryResponseDTO;
+import com.hsoft.model.entities.v1.Client;
+import com.hsoft.model.entities.v1.Product;
+import com.hsoft.model.entities.v1.Transaction;
+import com.hsoft.model.entities.v1.TransactionItem;
+import com.hsoft.model.entities.v1.User;
+import com.hsoft.model.mappers.TransactionMapper;
+import com.hsoft.model.types.v1.TransactionStatus;
+import com.hsoft.model.types.v1.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapStruct mapping of a transaction to its detail and summary responses, by number of items.
+ * The detail mapping walks every item and its product, so its cost should grow linearly with the item count.
+ * <pre>./gradlew jmh -PjmhInclude=TransactionMappingBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionMappingBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int itemCount;
+
+    private TransactionMapper transactionMapper;
+    private Transaction transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // MapStruct implementations are stateless; keeping them after the context is closed is safe
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext("com.hsoft.model.mappers")) {
+            transactionMapper = context.getBean(TransactionMapper.class);
+        }
+        transaction = transaction(new User(), itemCount);
+    }
+
+    @Benchmark
+    public TransactionDetailResponseDTO toDetail() {
+        return transactionMapper.transactionToTransactionDetailResponseDTO(transaction);
+    }
+
+    @Benchmark
+    public TransactionSummaryResponseDTO toSummary() {
+        return transactionMapper.transactionToTransactionSummaryResponseDTO(transaction);
+    }
+
+    // --- Synthetic data ---
+
+    private static Transaction transaction(User owner, int itemCount) {
+        Client client = new Client();
+        client.setClientId(UUID.randomUUID());
+        client.setUser(owner);
+        client.setName("Cliente de prueba");
+        client.setNit("1234567-8");
+
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(UUID.randomUUID());
+        transaction.setUser(owner);
+        transaction.setCreatedByUser(owner);
+        transaction.setClient(client);
+        transaction.setTransactionType(TransactionType.SALE);
+        transaction.setStatus(TransactionStatus.COMPLETED);
+        transaction.setTransactionDate(OffsetDateTime.now());
+        transaction.setReferenceNumber("FAC-000123");
+        transaction.setContext(new HashMap<>(Map.of("channel", "pos")));
+
+        List<TransactionItem> items = new ArrayList<>(itemCount);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < itemCount; i++) {
+            Product product = new Product();
+            product.setProductId(UUID.randomUUID());
+            product.setUser(owner);
+            product.setSku("SKU-" + String.format("%06d", i));
+            product.setName("Producto de prueba " + i);
+            product.setSalePrice(BigDecimal.valueOf(1500 + i * 11L, 2));
+
+            TransactionItem item = new TransactionItem();
+            item.setTransaction(transaction);
+            item.setProduct(product);
+            item.setQuantity(1 + i % 5);
+            item.setUnitPrice(product.getSalePrice());
+            item.setContext(new HashMap<>());
+            item.calculateSubtotal();
+            items.add(item);
+            total = total.add(item.getSubtotal());
+        }
+        transaction.setItems(items);
+        transaction.setTotalAmount(total);
+        return transaction;
+    }
+}
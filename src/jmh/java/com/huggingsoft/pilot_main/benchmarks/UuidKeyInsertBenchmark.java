@@ -0,0 +1,114 @@
+package com.huggingsoft.pilot_main.benchmarks;
+
+import com.huggingsoft.pilot_main.shared.UuidV7;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput and index size of random (v4) versus time-ordered (v7) UUID primary keys,
+ * on a scratch table shaped like transaction_items, with and without pgjdbc batch rewriting.
+ * Index and table sizes are printed after each trial.
+ * <p>
+ * Needs a PostgreSQL instance (defaults to the application's local database):
+ * <pre>./gradlew jmh -PjmhInclude=UuidKeyInsertBenchmark -Dbench.jdbc-url=... -Dbench.user=... -Dbench.password=...</pre>
+ * Differences grow with table size: the v4 index stops fitting in shared buffers long before the v7 one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UuidKeyInsertBenchmark {
+
+    private static final int ROWS_PER_INVOCATION = 1_000;
+
+    @Param({"v4", "v7"})
+    public String keyType;
+
+    @Param({"true", "false"})
+    public boolean rewriteBatchedInserts;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private String table;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String url = System.getProperty("bench.jdbc-url", "jdbc:postgresql://localhost:5432/postgres");
+        Properties properties = new Properties();
+        properties.setProperty("user", System.getProperty("bench.user", "myuser"));
+        properties.setProperty("password", System.getProperty("bench.password", "mypassword"));
+        properties.setProperty("reWriteBatchedInserts", Boolean.toString(rewriteBatchedInserts));
+        connection = DriverManager.getConnection(url, properties);
+
+        table = "bench_items_" + keyType + (rewriteBatchedInserts ? "_rw" : "");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP TABLE IF EXISTS " + table);
+            ddl.execute("CREATE UNLOGGED TABLE " + table + " (id uuid PRIMARY KEY, transaction_id uuid NOT NULL, " +
+                    "product_id uuid NOT NULL, quantity int NOT NULL, unit_price numeric(12,2) NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("INSERT INTO " + table +
+                " (id, transaction_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?, ?)");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public void insertBatch() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID transactionId = nextId();
+        for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+            if (i % 5 == 0) transactionId = nextId(); // ~5 items per transaction
+            insert.setObject(1, nextId());
+            insert.setObject(2, transactionId);
+            insert.setObject(3, new UUID(random.nextLong(), random.nextLong()));
+            insert.setInt(4, random.nextInt(1, 10));
+            insert.setBigDecimal(5, BigDecimal.valueOf(random.nextInt(100, 100_000), 2));
+            insert.addBatch();
+            if ((i + 1) % 50 == 0) insert.executeBatch(); // Same as hibernate.jdbc.batch_size
+        }
+        insert.executeBatch();
+        connection.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        connection.setAutoCommit(true);
+        try (Statement query = connection.createStatement()) {
+            query.execute("VACUUM ANALYZE " + table);
+            try (ResultSet rs = query.executeQuery("SELECT count(*), pg_relation_size('" + table + "'), " +
+                    "pg_relation_size('" + table + "_pkey') FROM " + table)) {
+                rs.next();
+                long rows = rs.getLong(1);
+                long pkeyBytes = rs.getLong(3);
+                System.out.printf("%n[%s, rewrite=%s] rows=%d table=%d KiB pkey=%d KiB (%.1f bytes/row)%n",
+                        keyType, rewriteBatchedInserts, rows, rs.getLong(2) / 1024, pkeyBytes / 1024,
+                        rows == 0 ? 0.0 : (double) pkeyBytes / rows);
+            }
+            query.execute("DROP TABLE IF EXISTS " + table);
+        }
+        connection.close();
+    }
+
+    private UUID nextId() {
+        return "v7".equals(keyType) ? UuidV7.next() : UUID.randomUUID();
+    }
+}
@@ -0,0 +1,99 @@
+package com.huggingsoft.pilot_main.service.impl;
+
+import com.huggingsoft.pilot_main.repository.TransactionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java-side folding of a sales report in {@link ReportServiceImpl}: the per-sub-range partial results
+ * (live and archived rows) are merged into one total, or into one total per client.
+ * <p>
+ * The database does the grouping, so the inputs are one row per client and sub-range; {@code ranges}
+ * mirrors the number of sub-ranges a long report is split into.
+ * <pre>./gradlew jmh -PjmhInclude=ReportMergeBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReportMergeBenchmark {
+
+    @Param({"1", "12"})
+    public int ranges;
+
+    @Param({"10", "1000"})
+    public int clients;
+
+    private List<List<TransactionRepository.AmountTotals>> totalsPartials;
+    private List<List<TransactionRepository.ClientAmountTotals>> clientPartials;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<UUID> clientIds = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            clientIds.add(UUID.randomUUID());
+        }
+        totalsPartials = new ArrayList<>(ranges);
+        clientPartials = new ArrayList<>(ranges);
+        for (int r = 0; r < ranges; r++) {
+            totalsPartials.add(List.of(new Row(null, BigDecimal.valueOf(123_456_78L + r, 2), 400L + r),
+                    new Row(null, BigDecimal.valueOf(9_876_54L + r, 2), 30L + r))); // Live + archived
+            List<TransactionRepository.ClientAmountTotals> rows = new ArrayList<>(clients);
+            for (int c = 0; c < clients; c++) {
+                rows.add(new Row(clientIds.get(c), BigDecimal.valueOf(10_000L + c * 13L + r, 2), 1L + c % 7));
+            }
+            clientPartials.add(rows);
+        }
+    }
+
+    @Benchmark
+    public ReportServiceImpl.SalesTotals mergeTotals() {
+        ReportServiceImpl.SalesTotals totals = null;
+        for (List<TransactionRepository.AmountTotals> partial : totalsPartials) {
+            totals = ReportServiceImpl.mergeTotals(totals, partial);
+        }
+        return totals;
+    }
+
+    @Benchmark
+    public Map<UUID, BigDecimal> mergeClientTotals() {
+        Map<UUID, BigDecimal> totals = null;
+        for (List<TransactionRepository.ClientAmountTotals> partial : clientPartials) {
+            totals = ReportServiceImpl.mergeClientTotals(totals, partial);
+        }
+        return totals;
+    }
+
+    /** Stands in for the Spring Data projection proxies returned by the repository. */
+    private record Row(UUID clientId, BigDecimal totalAmount, Long transactionCount)
+            implements TransactionRepository.ClientAmountTotals {
+
+        @Override
+        public UUID getClientId() {
+            return clientId;
+        }
+
+        @Override
+        public BigDecimal getTotalAmount() {
+            return totalAmount;
+        }
+
+        @Override
+        public Long getTransactionCount() {
+            return transactionCount;
+        }
+    }
+}
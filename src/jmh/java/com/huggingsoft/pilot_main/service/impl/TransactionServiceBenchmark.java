@@ -0,0 +1,134 @@
+package com.huggingsoft.pilot_main.service.impl;
+
+import com.hsoft.model.entities.v1.Client;
+import com.hsoft.model.entities.v1.PasswordResetToken;
+import com.hsoft.model.entities.v1.Product;
+import com.hsoft.model.entities.v1.Provider;
+import com.hsoft.model.entities.v1.Transaction;
+import com.hsoft.model.entities.v1.TransactionItem;
+import com.hsoft.model.entities.v1.User;
+import com.hsoft.model.types.v1.TransactionStatus;
+import com.hsoft.model.types.v1.TransactionType;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of the in-memory parts of {@link TransactionServiceImpl}: totalling a transaction's items, and
+ * turning the list filters into a criteria predicate (building the {@link Specification} chain, then
+ * resolving it against the JPA metamodel as {@code findAll(spec, pageable)} does for every page request).
+ * <p>
+ * Lives in the service's package to reach its package-private helpers. The criteria builder comes from a
+ * Hibernate {@link SessionFactory} booted over the real entity mappings without a database connection.
+ * <pre>./gradlew jmh -PjmhInclude=TransactionServiceBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransactionServiceBenchmark {
+
+    /** A transaction with {@code itemCount} items, subtotals already calculated. */
+    @State(Scope.Benchmark)
+    public static class Items {
+
+        @Param({"1", "10", "100"})
+        public int itemCount;
+
+        Transaction transaction;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            transaction = new Transaction();
+            List<TransactionItem> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                TransactionItem item = new TransactionItem();
+                item.setTransaction(transaction);
+                item.setQuantity(1 + i % 5);
+                item.setUnitPrice(BigDecimal.valueOf(1500 + i * 11L, 2));
+                item.calculateSubtotal();
+                items.add(item);
+            }
+            transaction.setItems(items);
+        }
+    }
+
+    private SessionFactory sessionFactory;
+    private CriteriaBuilder criteriaBuilder;
+    private User mainUser;
+    private UUID clientId;
+    private OffsetDateTime dateFrom;
+    private OffsetDateTime dateTo;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configuration configuration = new Configuration()
+                .setProperty(AvailableSettings.DIALECT, PostgreSQLDialect.class.getName())
+                .setProperty("hibernate.boot.allow_jdbc_metadata_access", "false"); // Boot without a database
+        for (Class<?> entity : List.of(User.class, Product.class, Client.class, Provider.class,
+                Transaction.class, TransactionItem.class, PasswordResetToken.class)) {
+            configuration.addAnnotatedClass(entity);
+        }
+        sessionFactory = configuration.buildSessionFactory();
+        criteriaBuilder = sessionFactory.getCriteriaBuilder();
+
+        mainUser = new User();
+        mainUser.setUserId(UUID.randomUUID());
+        clientId = UUID.randomUUID();
+        dateTo = OffsetDateTime.now();
+        dateFrom = dateTo.minusMonths(3);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public BigDecimal calculateTransactionTotal(Items items) {
+        TransactionServiceImpl.calculateTransactionTotal(items.transaction);
+        return items.transaction.getTotalAmount();
+    }
+
+    /** The default list request: only the tenant filter. */
+    @Benchmark
+    public Predicate unfilteredPredicate() {
+        return toPredicate(TransactionServiceImpl.buildTransactionSpecification(
+                mainUser, null, null, null, null, null, null, null));
+    }
+
+    /** Every filter set, including the case-insensitive reference number search. */
+    @Benchmark
+    public Predicate fullyFilteredPredicate() {
+        return toPredicate(TransactionServiceImpl.buildTransactionSpecification(
+                mainUser, TransactionType.SALE, TransactionStatus.COMPLETED, clientId, null, dateFrom, dateTo, "FAC-0001"));
+    }
+
+    private Predicate toPredicate(Specification<Transaction> spec) {
+        CriteriaQuery<Transaction> query = criteriaBuilder.createQuery(Transaction.class);
+        Root<Transaction> root = query.from(Transaction.class);
+        return spec.toPredicate(root, query, criteriaBuilder);
+    }
+}
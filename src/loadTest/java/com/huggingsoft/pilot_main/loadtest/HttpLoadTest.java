@@ -0,0 +1,227 @@
+package com.huggingsoft.pilot_main.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hsoft.model.dto.v1.transactions.TransactionCreateRequestDTO;
+import com.hsoft.model.dto.v1.transactions.TransactionItemCreateRequestDTO;
+import com.huggingsoft.pilot_main.repository.ClientRepository;
+import com.huggingsoft.pilot_main.repository.ProductRepository;
+import com.huggingsoft.pilot_main.repository.TransactionRepository;
+import com.huggingsoft.pilot_main.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end HTTP load test: boots the application on a random port against the PostgreSQL configured in
+ * application.properties (tables are created if missing), seeds one realistic tenant, then drives scripted
+ * scenarios over HTTP at open-model arrival rates (see {@link OpenModelDriver}). Nothing leaves the machine.
+ * <p>
+ * Scenarios: {@code login}, {@code search} (catalogue search and typeahead), {@code checkout} (a sale via
+ * {@code POST /transactions/sales}), {@code listing} (transaction pages, sometimes filtered) and {@code report}
+ * (sales report by client over one to twelve months). Throughput, latency percentiles and error rates per scenario
+ * are printed and written as JSON to {@code build/reports/load/results.json}; the test fails if any scenario's
+ * error rate exceeds {@code load.max-error-rate}. Login rate limiting is disabled: every request comes from one IP.
+ * <p>
+ * Run it with {@code ./gradlew loadTest}, tuning it with system properties:
+ * {@code -Dload.duration-seconds=60 -Dload.warmup-seconds=15 -Dload.rate-multiplier=1.0
+ * -Dload.rates=login:2,search:20,checkout:10,listing:10,report:0.5 -Dload.max-in-flight=500
+ * -Dload.max-error-rate=0.01 -Dload.seed.products=5000 -Dload.seed.clients=300 -Dload.seed.history=20000}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.hibernate.ddl-auto=update", "rate-limit.enabled=false"})
+class HttpLoadTest {
+
+    @LocalServerPort private int port;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ClientRepository clientRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private final Duration duration = Duration.ofSeconds(Long.getLong("load.duration-seconds", 60));
+    private final Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 15));
+    private final double rateMultiplier = Double.parseDouble(System.getProperty("load.rate-multiplier", "1.0"));
+    private final Map<String, Double> rates = parseRates(System.getProperty("load.rates",
+            "login:2,search:20,checkout:10,listing:10,report:0.5"));
+    private final int maxInFlight = Integer.getInteger("load.max-in-flight", 500);
+    private final double maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+    private final Path reportDir = Path.of(System.getProperty("load.report-dir", "build/reports/load"));
+
+    private LoadTenantSeeder.Tenant tenant;
+
+    @Test
+    void scenariosStayWithinErrorBudgetAtTargetRates() throws Exception {
+        tenant = new LoadTenantSeeder(userRepository, productRepository, clientRepository, transactionRepository,
+                passwordEncoder, new TransactionTemplate(transactionManager)).seed(
+                Integer.getInteger("load.seed.products", 5000),
+                Integer.getInteger("load.seed.clients", 300),
+                Integer.getInteger("load.seed.history", 20_000));
+
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("login", rate("login"), this::login));
+        scenarios.add(new Scenario("search", rate("search"), this::search));
+        scenarios.add(new Scenario("checkout", rate("checkout"), this::checkout));
+        scenarios.add(new Scenario("listing", rate("listing"), this::listing));
+        scenarios.add(new Scenario("report", rate("report"), this::report));
+
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        List<ScenarioStats.Result> results = new OpenModelDriver(httpClient, warmup, duration, maxInFlight).run(scenarios);
+
+        printReport(results);
+        writeReport(results);
+        List<String> failing = results.stream()
+                .filter(result -> result.errorRate() > maxErrorRate)
+                .map(result -> String.format("%s: %.2f%% errors %s", result.scenario(), result.errorRate() * 100, result.errorsByCause()))
+                .toList();
+        assertTrue(failing.isEmpty(), "Error rate above " + maxErrorRate * 100 + "% for:\n" + String.join("\n", failing));
+    }
+
+    // --- Scenarios ---
+
+    private HttpRequest login() {
+        return post("/api/v1/auth/login",
+                Map.of("usernameOrEmail", LoadTenantSeeder.USERNAME, "password", LoadTenantSeeder.PASSWORD));
+    }
+
+    private HttpRequest search() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String term = tenant.searchTerms().get(random.nextInt(tenant.searchTerms().size()));
+        if (random.nextBoolean()) {
+            // Typeahead: the user is still typing
+            return get("/api/v1/products/suggest?limit=10&q=" + encode(term.substring(0, Math.min(term.length(), 2 + random.nextInt(3)))));
+        }
+        return get("/api/v1/products?page=0&size=20&search=" + encode(term));
+    }
+
+    private HttpRequest checkout() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<TransactionItemCreateRequestDTO> items = new ArrayList<>();
+        for (int n = 1 + random.nextInt(5); n > 0; n--) {
+            TransactionItemCreateRequestDTO item = new TransactionItemCreateRequestDTO();
+            item.setProductId(tenant.productIds().get(LoadTenantSeeder.skewed(random, tenant.productIds().size())));
+            item.setQuantity(1 + random.nextInt(3));
+            item.setUnitPrice(BigDecimal.valueOf(100 + random.nextInt(10_000), 2));
+            items.add(item);
+        }
+        TransactionCreateRequestDTO request = new TransactionCreateRequestDTO();
+        request.setClientId(tenant.clientIds().get(LoadTenantSeeder.skewed(random, tenant.clientIds().size())));
+        request.setItems(items);
+        request.setReferenceNumber("LOAD-" + UUID.randomUUID().toString().substring(0, 8));
+        return post("/api/v1/transactions/sales", request);
+    }
+
+    private HttpRequest listing() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder path = new StringBuilder("/api/v1/transactions?size=20&sort=transactionDate,desc&page=")
+                .append(random.nextInt(10) < 8 ? 0 : random.nextInt(1, 20)); // Mostly the first page
+        if (random.nextInt(4) == 0) {
+            path.append("&clientId=").append(tenant.clientIds().get(LoadTenantSeeder.skewed(random, tenant.clientIds().size())));
+        }
+        return get(path.toString());
+    }
+
+    private HttpRequest report() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        OffsetDateTime to = OffsetDateTime.now();
+        OffsetDateTime from = to.minusMonths(random.nextInt(1, 13));
+        return get("/api/v1/reports/sales?groupBy=client&dateFrom=" + encode(from.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME))
+                + "&dateTo=" + encode(to.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)));
+    }
+
+    // --- HTTP helpers ---
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body) {
+        try {
+            return HttpRequest.newBuilder(uri(path)).timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    // --- Reporting ---
+
+    private double rate(String scenario) {
+        return rates.getOrDefault(scenario, 0.0) * rateMultiplier;
+    }
+
+    private void printReport(List<ScenarioStats.Result> results) {
+        StringBuilder report = new StringBuilder("\n=== HTTP load test report ===\n");
+        report.append(String.format("warmup=%ds duration=%ds rateMultiplier=%.2f maxInFlight=%d%n",
+                warmup.toSeconds(), duration.toSeconds(), rateMultiplier, maxInFlight));
+        for (ScenarioStats.Result result : results) {
+            report.append(String.format("%-9s target=%6.1f/s actual=%6.1f/s n=%-7d errors=%5.2f%% p50=%7.1fms p90=%7.1fms p99=%7.1fms p99.9=%7.1fms max=%7.1fms%n",
+                    result.scenario(), result.targetRate(), result.throughput(), result.requests(), result.errorRate() * 100,
+                    result.p50Ms(), result.p90Ms(), result.p99Ms(), result.p999Ms(), result.maxMs()));
+            result.errorsByCause().forEach((cause, count) -> report.append("          ").append(cause).append(" x").append(count).append('\n'));
+        }
+        System.out.println(report);
+    }
+
+    private void writeReport(List<ScenarioStats.Result> results) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", OffsetDateTime.now().toString());
+        report.put("warmupSeconds", warmup.toSeconds());
+        report.put("durationSeconds", duration.toSeconds());
+        report.put("rateMultiplier", rateMultiplier);
+        report.put("maxInFlight", maxInFlight);
+        report.put("scenarios", results);
+        Files.createDirectories(reportDir);
+        Path file = reportDir.resolve("results.json");
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        System.out.println("Load test results written to " + file.toAbsolutePath());
+    }
+
+    private static Map<String, Double> parseRates(String spec) {
+        Map<String, Double> parsed = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            parsed.put(kv[0].strip().toLowerCase(), Double.parseDouble(kv[1].strip()));
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,196 @@
+package com.huggingsoft.pilot_main.loadtest;
+
+import com.hsoft.model.entities.v1.Client;
+import com.hsoft.model.entities.v1.Product;
+import com.hsoft.model.entities.v1.Transaction;
+import com.hsoft.model.entities.v1.TransactionItem;
+import com.hsoft.model.entities.v1.User;
+import com.hsoft.model.types.v1.TransactionStatus;
+import com.hsoft.model.types.v1.TransactionType;
+import com.huggingsoft.pilot_main.repository.ClientRepository;
+import com.huggingsoft.pilot_main.repository.ProductRepository;
+import com.huggingsoft.pilot_main.repository.TransactionRepository;
+import com.huggingsoft.pilot_main.repository.UserRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Seeds the tenant the load test runs as: the placeholder principal the services resolve, with a catalogue,
+ * clients and two years of sales history, so listings, searches and reports touch realistically sized data.
+ * <p>
+ * Seeding is skipped when the tenant already holds the load catalogue, so repeated runs reuse the data. The
+ * user's password is (re)set to {@link #PASSWORD} for the login scenario. Data is deterministic for a given size.
+ */
+final class LoadTenantSeeder {
+
+    static final String USERNAME = "dummyUser"; // The placeholder principal the services resolve
+    static final String PASSWORD = "load-test-password";
+
+    private static final String SKU_PREFIX = "LOAD-";
+    private static final String CLIENT_PREFIX = "Load client ";
+    private static final int CHUNK = 500;
+    private static final String[] NOUNS = {"Arroz", "Frijol", "Azucar", "Aceite", "Cafe", "Leche", "Harina", "Pasta",
+            "Jabon", "Detergente", "Galletas", "Sal", "Atun", "Sardina", "Avena", "Cereal", "Salsa", "Mayonesa",
+            "Papel", "Servilletas", "Shampoo", "Cloro", "Refresco", "Agua", "Jugo", "Chocolate", "Consome", "Te"};
+    private static final String[] BRANDS = {"Don Pedro", "La Abuela", "Sol", "Del Valle", "Maravilla", "El Gallo",
+            "Suli", "Ideal", "Campestre", "Real"};
+    private static final String[] SIZES = {"250 g", "500 g", "1 kg", "2 kg", "500 ml", "1 l", "2 l", "12 u"};
+
+    /** Identifiers the scenarios draw from. */
+    record Tenant(List<UUID> productIds, List<UUID> clientIds, List<String> searchTerms) {}
+
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final ClientRepository clientRepository;
+    private final TransactionRepository transactionRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
+
+    LoadTenantSeeder(UserRepository userRepository, ProductRepository productRepository, ClientRepository clientRepository,
+                     TransactionRepository transactionRepository, PasswordEncoder passwordEncoder,
+                     TransactionTemplate transactionTemplate) {
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.clientRepository = clientRepository;
+        this.transactionRepository = transactionRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    Tenant seed(int products, int clients, int historyTransactions) {
+        User user = transactionTemplate.execute(status -> {
+            User tenant = userRepository.findByUsernameIgnoreCase(USERNAME).orElseGet(() -> {
+                User created = new User();
+                created.setUsername(USERNAME);
+                created.setEmail(USERNAME + "@load.local");
+                created.setContext(new HashMap<>());
+                return created;
+            });
+            tenant.setPasswordHash(passwordEncoder.encode(PASSWORD));
+            tenant.setActive(true);
+            return userRepository.save(tenant);
+        });
+
+        if (!productRepository.existsByUserAndSkuIgnoreCase(user, sku(0))) {
+            System.out.printf("Seeding load tenant: %d products, %d clients, %d past sales%n", products, clients, historyTransactions);
+            long started = System.nanoTime();
+            List<Product> catalogue = seedProducts(user, products);
+            List<Client> clientList = seedClients(user, clients);
+            seedHistory(user, catalogue, clientList, historyTransactions);
+            System.out.printf("Seeded in %.1f s%n", (System.nanoTime() - started) / 1e9);
+        }
+
+        List<UUID> productIds = new ArrayList<>();
+        Set<String> searchTerms = new LinkedHashSet<>();
+        for (ProductRepository.SearchEntry entry : productRepository.findActiveSearchEntriesByUserId(user.getUserId())) {
+            if (entry.getSku().startsWith(SKU_PREFIX)) {
+                productIds.add(entry.getProductId());
+                searchTerms.add(entry.getName().substring(0, entry.getName().indexOf(' ')).toLowerCase());
+            }
+        }
+        List<UUID> clientIds = clientRepository.findByUser(user, PageRequest.of(0, Math.max(clients, 1) * 2)).stream()
+                .filter(client -> client.getName().startsWith(CLIENT_PREFIX))
+                .map(Client::getClientId)
+                .toList();
+        return new Tenant(productIds, clientIds, List.copyOf(searchTerms));
+    }
+
+    private List<Product> seedProducts(User user, int count) {
+        Random random = new Random(42);
+        List<Product> saved = new ArrayList<>(count);
+        for (int from = 0; from < count; from += CHUNK) {
+            List<Product> chunk = new ArrayList<>(CHUNK);
+            for (int i = from; i < Math.min(count, from + CHUNK); i++) {
+                Product product = new Product();
+                product.setUser(user);
+                product.setSku(sku(i));
+                product.setName(NOUNS[random.nextInt(NOUNS.length)] + " " + BRANDS[random.nextInt(BRANDS.length)]
+                        + " " + SIZES[random.nextInt(SIZES.length)]);
+                product.setCategory(product.getName().substring(0, product.getName().indexOf(' ')));
+                BigDecimal cost = BigDecimal.valueOf(500 + random.nextInt(20_000), 2);
+                product.setPurchasePrice(cost);
+                product.setSalePrice(cost.multiply(BigDecimal.valueOf(13, 1)).setScale(2, RoundingMode.HALF_UP));
+                product.setCurrentStock(1_000_000); // Checkouts must not run out of stock during a run
+                product.setUnitOfMeasure("unidad");
+                product.setActive(true);
+                product.setContext(new HashMap<>());
+                chunk.add(product);
+            }
+            saved.addAll(transactionTemplate.execute(status -> productRepository.saveAll(chunk)));
+        }
+        return saved;
+    }
+
+    private List<Client> seedClients(User user, int count) {
+        List<Client> chunk = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Client client = new Client();
+            client.setUser(user);
+            client.setName(CLIENT_PREFIX + i);
+            client.setNit(i % 4 == 0 ? "CF" : String.format("%07d-%d", 1_000_000 + i, i % 10));
+            client.setActive(true);
+            chunk.add(client);
+        }
+        return transactionTemplate.execute(status -> clientRepository.saveAll(chunk));
+    }
+
+    // Sales spread over the last two years; popular products and regular clients get most of them
+    private void seedHistory(User user, List<Product> products, List<Client> clients, int count) {
+        if (products.isEmpty() || clients.isEmpty()) return;
+        Random random = new Random(7);
+        OffsetDateTime now = OffsetDateTime.now();
+        for (int from = 0; from < count; from += CHUNK) {
+            List<Transaction> chunk = new ArrayList<>(CHUNK);
+            for (int i = from; i < Math.min(count, from + CHUNK); i++) {
+                Transaction transaction = new Transaction();
+                transaction.setUser(user);
+                transaction.setCreatedByUser(user);
+                transaction.setClient(clients.get(skewed(random, clients.size())));
+                transaction.setTransactionType(TransactionType.SALE);
+                transaction.setStatus(random.nextInt(50) == 0 ? TransactionStatus.CANCELLED : TransactionStatus.COMPLETED);
+                transaction.setTransactionDate(now.minusMinutes(random.nextInt(2 * 365 * 24 * 60)));
+                transaction.setReferenceNumber(String.format("FAC-%08d", i));
+                transaction.setContext(new HashMap<>());
+                List<TransactionItem> items = new ArrayList<>();
+                BigDecimal total = BigDecimal.ZERO;
+                for (int n = 1 + random.nextInt(5); n > 0; n--) {
+                    Product product = products.get(skewed(random, products.size()));
+                    TransactionItem item = new TransactionItem();
+                    item.setTransaction(transaction);
+                    item.setProduct(product);
+                    item.setQuantity(1 + random.nextInt(6));
+                    item.setUnitPrice(product.getSalePrice());
+                    item.setContext(new HashMap<>());
+                    item.calculateSubtotal();
+                    items.add(item);
+                    total = total.add(item.getSubtotal());
+                }
+                transaction.setItems(items);
+                transaction.setTotalAmount(total);
+                chunk.add(transaction);
+            }
+            transactionTemplate.executeWithoutResult(status -> transactionRepository.saveAll(chunk));
+        }
+    }
+
+    /** An index in {@code [0, size)} biased towards 0 (roughly the top 10% draw half of the picks). */
+    static int skewed(Random random, int size) {
+        return (int) (size * Math.pow(random.nextDouble(), 3));
+    }
+
+    private static String sku(int i) {
+        return SKU_PREFIX + String.format("%06d", i);
+    }
+}
@@ -0,0 +1,96 @@
+package com.huggingsoft.pilot_main.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives scenarios at open-model arrival rates: each scenario has a scheduling thread that draws exponential
+ * inter-arrival times and sends requests asynchronously, so a slow server gets more concurrent requests instead
+ * of fewer (as with real clients) rather than slowing the load down.
+ * <p>
+ * Arrivals during the warm-up are sent but not recorded. Requests in flight are capped over all scenarios;
+ * arrivals beyond the cap are dropped and counted as errors, which keeps an overloaded run bounded.
+ */
+final class OpenModelDriver {
+
+    private final HttpClient httpClient;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelDriver(HttpClient httpClient, Duration warmup, Duration duration, int maxInFlight) {
+        this.httpClient = httpClient;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Runs all scenarios concurrently for the warm-up plus the measured duration, then waits for outstanding responses.
+     *
+     * @return One result per scenario, in the given order.
+     */
+    List<ScenarioStats.Result> run(List<Scenario> scenarios) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        List<ScenarioStats> stats = new ArrayList<>();
+        List<Thread> schedulers = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            ScenarioStats scenarioStats = new ScenarioStats(scenario);
+            stats.add(scenarioStats);
+            schedulers.add(Thread.ofPlatform().name("load-" + scenario.name())
+                    .start(() -> schedule(scenario, scenarioStats, start, measureFrom, end)));
+        }
+        for (Thread scheduler : schedulers) {
+            scheduler.join();
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+        double measuredSeconds = duration.toNanos() / 1e9;
+        return stats.stream().map(s -> s.summarize(measuredSeconds)).toList();
+    }
+
+    private void schedule(Scenario scenario, ScenarioStats stats, long start, long measureFrom, long end) {
+        if (scenario.ratePerSecond() <= 0) return;
+        double meanGapNanos = 1e9 / scenario.ratePerSecond();
+        long next = start;
+        while (true) {
+            next += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos);
+            if (next - end >= 0) return;
+            long wait;
+            while ((wait = next - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = next - measureFrom >= 0;
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                if (measured) stats.recordDropped();
+                continue;
+            }
+            long intended = next;
+            HttpRequest request = scenario.request().get();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                inFlight.decrementAndGet();
+                if (!measured) return;
+                long latency = System.nanoTime() - intended;
+                if (error != null) {
+                    stats.recordFailure(error, latency);
+                } else {
+                    stats.recordResponse(response.statusCode(), latency);
+                }
+            });
+        }
+    }
+}
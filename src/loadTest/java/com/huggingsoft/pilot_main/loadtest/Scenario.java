@@ -0,0 +1,14 @@
+package com.huggingsoft.pilot_main.loadtest;
+
+import java.net.http.HttpRequest;
+import java.util.function.Supplier;
+
+/**
+ * One scripted user action, issued at a fixed mean arrival rate whatever the response times are (open model).
+ *
+ * @param name          Name used in the report.
+ * @param ratePerSecond Mean arrivals per second; arrivals follow a Poisson process.
+ * @param request       Builds the next request; called on the scenario's scheduling thread.
+ */
+record Scenario(String name, double ratePerSecond, Supplier<HttpRequest> request) {
+}
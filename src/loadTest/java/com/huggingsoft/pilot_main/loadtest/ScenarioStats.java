@@ -0,0 +1,81 @@
+package com.huggingsoft.pilot_main.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes of one scenario during the measured window. Thread-safe: responses complete on the HTTP client's threads.
+ * <p>
+ * Latency is measured from the arrival's scheduled time, not from when it was actually sent, so queueing in the
+ * driver or the client is counted (no coordinated omission). Non-2xx responses, I/O failures and arrivals dropped
+ * because too many requests were in flight are all errors.
+ */
+final class ScenarioStats {
+
+    private final Scenario scenario;
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    private final LongAdder succeeded = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    ScenarioStats(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    void recordResponse(int status, long latencyNanos) {
+        latencies.add(latencyNanos);
+        if (status >= 200 && status < 300) {
+            succeeded.increment();
+        } else {
+            recordError("HTTP " + status);
+        }
+    }
+
+    void recordFailure(Throwable error, long latencyNanos) {
+        latencies.add(latencyNanos);
+        Throwable root = error;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        recordError(root.getClass().getSimpleName());
+    }
+
+    void recordDropped() {
+        recordError("dropped (max in flight)");
+    }
+
+    private void recordError(String cause) {
+        errors.computeIfAbsent(cause, c -> new LongAdder()).increment();
+    }
+
+    Result summarize(double measuredSeconds) {
+        List<Long> sorted;
+        synchronized (latencies) {
+            sorted = new ArrayList<>(latencies);
+        }
+        Collections.sort(sorted);
+        Map<String, Long> errorsByCause = new TreeMap<>();
+        errors.forEach((cause, count) -> errorsByCause.put(cause, count.sum()));
+        long failed = errorsByCause.values().stream().mapToLong(Long::longValue).sum();
+        long requests = succeeded.sum() + failed;
+        return new Result(scenario.name(), scenario.ratePerSecond(), requests, failed,
+                requests / measuredSeconds, requests == 0 ? 0 : (double) failed / requests,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), percentile(sorted, 1.0), errorsByCause);
+    }
+
+    private static double percentile(List<Long> sortedNanos, double p) {
+        if (sortedNanos.isEmpty()) return 0;
+        int index = (int) Math.ceil(p * sortedNanos.size()) - 1;
+        return sortedNanos.get(Math.max(0, index)) / 1e6;
+    }
+
+    /** Summary of one scenario; latencies in milliseconds. */
+    record Result(String scenario, double targetRate, long requests, long errors, double throughput, double errorRate,
+                  double p50Ms, double p90Ms, double p99Ms, double p999Ms, double maxMs, Map<String, Long> errorsByCause) {
+    }
+}
@@ -5,11 +5,15 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.config.BootstrapMode;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableJpaRepositories(basePackages = "com.huggingsoft.pilot_main.repository")
+// Repositories are created once the context is refreshed, so the EntityManagerFactory can build in the background
+@EnableJpaRepositories(basePackages = "com.huggingsoft.pilot_main.repository", bootstrapMode = BootstrapMode.DEFERRED)
 @EntityScan(basePackages = {"com.hsoft.model.entities"})
 @ComponentScan(basePackages = {"com.huggingsoft.pilot_main", "com.hsoft.model"})
+@EnableScheduling
 public class PilotMainApplication {
 
 	public static void main(String[] args) {
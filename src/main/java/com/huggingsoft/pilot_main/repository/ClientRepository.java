@@ -2,12 +2,18 @@ package com.huggingsoft.pilot_main.repository;
 
 import com.hsoft.model.entities.v1.Client;
 import com.hsoft.model.entities.v1.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -31,4 +37,25 @@ public interface ClientRepository extends JpaRepository<Client, UUID>, JpaSpecif
     // Optional: Add existsByUserAndNit if strict uniqueness (excluding C/F) needs checking here.
     // boolean existsByUserAndNitIgnoreCaseAndNitNot(User user, String nit, String cfNitValue);
 
+    /**
+     * Returns only the last update timestamp of a client owned by the given user.
+     * Used to answer conditional requests (ETags) without loading or mapping the entity.
+     *
+     * @param clientId The client ID.
+     * @param userId   The owning main user ID.
+     * @return The updatedAt timestamp, or empty if not found or owned by another user.
+     */
+    @Query("SELECT c.updatedAt FROM Client c WHERE c.clientId = :clientId AND c.user.userId = :userId")
+    Optional<OffsetDateTime> findUpdatedAtByIdAndUserId(@Param("clientId") UUID clientId, @Param("userId") UUID userId);
+
+    /**
+     * Loads a client and locks its row until the transaction ends (SELECT ... FOR UPDATE).
+     * Used by updates, so the If-Match check and the write see the same version.
+     *
+     * @param clientId The client ID.
+     * @return The locked client, or empty if not found.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Client c WHERE c.clientId = :clientId")
+    Optional<Client> findByIdForUpdate(@Param("clientId") UUID clientId);
 }
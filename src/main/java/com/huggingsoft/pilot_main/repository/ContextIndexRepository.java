@@ -0,0 +1,94 @@
+package com.huggingsoft.pilot_main.repository;
+
+import com.hsoft.model.entities.v1.Client;
+import com.hsoft.model.entities.v1.Product;
+import com.hsoft.model.entities.v1.Transaction;
+import com.hsoft.model.entities.v1.TransactionItem;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the {@code jsonb_path_ops} GIN indexes on the {@code context} columns, which serve the
+ * {@code context.<key>} containment filters of the list endpoints.
+ * <p>
+ * The entities live in hs-model-pilot, so table and column names are resolved from the Hibernate mapping
+ * rather than written into a schema script. That happens on the first {@link #indexes()} call, inside the
+ * maintenance job: at startup it would wait for the deferred EntityManagerFactory build. Indexes are built with {@code CONCURRENTLY}, which
+ * cannot run inside a transaction: call these methods without one.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ContextIndexRepository {
+
+    /** Lifecycle of an index; an interrupted concurrent build leaves an {@code INVALID} index behind. */
+    public enum State { MISSING, INVALID, VALID }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private volatile List<ContextIndex> indexes;
+
+    public List<ContextIndex> indexes() {
+        List<ContextIndex> resolved = indexes;
+        if (resolved == null) {
+            SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+            resolved = Stream.of(Product.class, Client.class, Transaction.class, TransactionItem.class)
+                    .map(entity -> ContextIndex.of(sessionFactory, entity))
+                    .toList();
+            indexes = resolved; // Concurrent first calls resolve the same mapping
+        }
+        return resolved;
+    }
+
+    public State state(ContextIndex index) {
+        List<Boolean> valid = jdbcTemplate.queryForList("SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(:name)",
+                new MapSqlParameterSource("name", index.qualifiedName()), Boolean.class);
+        return valid.isEmpty() ? State.MISSING : valid.get(0) ? State.VALID : State.INVALID;
+    }
+
+    /**
+     * Builds an index without blocking writes to its table. Blocks until the build is complete.
+     */
+    public void create(ContextIndex index) {
+        jdbcTemplate.getJdbcTemplate().execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index.name() +
+                " ON " + index.table() + " USING gin (" + index.column() + " jsonb_path_ops)");
+    }
+
+    /**
+     * Drops an index without blocking access to its table.
+     */
+    public void drop(ContextIndex index) {
+        jdbcTemplate.getJdbcTemplate().execute("DROP INDEX CONCURRENTLY IF EXISTS " + index.qualifiedName());
+    }
+
+    /**
+     * A GIN index on the {@code context} column of an entity's table.
+     *
+     * @param table  Physical table name, possibly schema-qualified.
+     * @param column The {@code context} column.
+     * @param name   Index name (indexes live in their table's schema).
+     */
+    public record ContextIndex(String table, String column, String name) {
+
+        static ContextIndex of(SessionFactoryImplementor sessionFactory, Class<?> entity) {
+            AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory
+                    .getMappingMetamodel().getEntityDescriptor(entity);
+            String table = persister.getTableName();
+            String unqualified = table.substring(table.lastIndexOf('.') + 1).replace("\"", "");
+            return new ContextIndex(table, persister.getPropertyColumnNames("context")[0], unqualified + "_context_gin");
+        }
+
+        String qualifiedName() {
+            int dot = table.lastIndexOf('.');
+            return dot < 0 ? name : table.substring(0, dot + 1) + name;
+        }
+    }
+}
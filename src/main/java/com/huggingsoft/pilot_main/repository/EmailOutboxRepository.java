@@ -0,0 +1,95 @@
+package com.huggingsoft.pilot_main.repository;
+
+import com.huggingsoft.pilot_main.service.mail.OutboundEmail;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC access to the {@code email_outbox} table.
+ * <p>
+ * {@link #enqueue} joins the caller's transaction so the email is committed (or rolled back) together with
+ * the operation that produced it. Dispatch statements run in auto-commit and are safe to run from several
+ * instances at once.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmailOutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds an email to the outbox, due immediately.
+     */
+    public void enqueue(String recipient, String subject, String htmlBody) {
+        jdbcTemplate.update("INSERT INTO email_outbox (recipient, subject, html_body) VALUES (?, ?, ?)",
+                recipient, subject, htmlBody);
+    }
+
+    /**
+     * Claims up to {@code limit} due emails: their next attempt is pushed {@code inFlight} into the future and
+     * their attempt count incremented, so other dispatchers skip them. If this instance dies mid-delivery they
+     * become due again after {@code inFlight} (delivery is at-least-once).
+     *
+     * @return The claimed emails, oldest due first.
+     */
+    public List<OutboundEmail> claimDue(int limit, Duration inFlight) {
+        return jdbcTemplate.query("UPDATE email_outbox o SET attempts = o.attempts + 1, " +
+                        "next_attempt_at = now() + ? * interval '1 millisecond' " +
+                        "FROM (SELECT id FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= now() " +
+                        "  ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) due " +
+                        "WHERE o.id = due.id " +
+                        "RETURNING o.id, o.recipient, o.subject, o.html_body, o.attempts",
+                (rs, i) -> new OutboundEmail(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5)),
+                inFlight.toMillis(), limit);
+    }
+
+    /**
+     * Marks emails as sent and drops their bodies.
+     */
+    public void markSent(Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        jdbcTemplate.update("UPDATE email_outbox SET status = 'SENT', sent_at = now(), html_body = NULL, last_error = NULL " +
+                "WHERE id = ANY(?)", (Object) ids.toArray(Long[]::new));
+    }
+
+    /**
+     * Schedules another attempt after {@code delay}.
+     */
+    public void reschedule(long id, Duration delay, String error) {
+        jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = now() + ? * interval '1 millisecond', last_error = ? " +
+                "WHERE id = ?", delay.toMillis(), error, id);
+    }
+
+    /**
+     * Schedules another attempt after {@code delay} and gives back the attempt just claimed, for failures that
+     * were not the email's fault.
+     */
+    public void release(long id, Duration delay, String error) {
+        jdbcTemplate.update("UPDATE email_outbox SET attempts = GREATEST(attempts - 1, 0), " +
+                "next_attempt_at = now() + ? * interval '1 millisecond', last_error = ? WHERE id = ?",
+                delay.toMillis(), error, id);
+    }
+
+    /**
+     * Gives up on an email; it stays in the outbox (with its body) for inspection or manual requeueing.
+     */
+    public void markDead(long id, String error) {
+        jdbcTemplate.update("UPDATE email_outbox SET status = 'DEAD', last_error = ? WHERE id = ?", error, id);
+    }
+
+    /**
+     * Deletes up to {@code limit} emails sent before {@code cutoff}.
+     *
+     * @return The number of rows deleted.
+     */
+    public int deleteSentBefore(OffsetDateTime cutoff, int limit) {
+        return jdbcTemplate.update("DELETE FROM email_outbox WHERE id IN (SELECT id FROM email_outbox " +
+                "WHERE status = 'SENT' AND sent_at < ? LIMIT ?)", cutoff, limit);
+    }
+}
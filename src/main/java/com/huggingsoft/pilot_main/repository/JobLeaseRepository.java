@@ -0,0 +1,59 @@
+package com.huggingsoft.pilot_main.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+/**
+ * Time-limited, database-backed leases on named jobs ({@code job_leases}).
+ * <p>
+ * A lease is taken with a single upsert that only succeeds when the current lease has expired or already
+ * belongs to the caller, so exactly one node holds it at a time. Leases expire on their own, which covers
+ * nodes that die while holding one. Statements run in auto-commit (no surrounding transaction needed).
+ */
+@Repository
+@RequiredArgsConstructor
+public class JobLeaseRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes the lease of a job if it is free (or expired, or already held by {@code owner}).
+     *
+     * @return true if {@code owner} now holds the lease.
+     */
+    public boolean tryAcquire(String jobName, String owner, Duration duration) {
+        return !jdbcTemplate.queryForList("INSERT INTO job_leases (job_name, owner, lease_until, last_started_at) " +
+                        "VALUES (?, ?, now() + ? * interval '1 millisecond', now()) " +
+                        "ON CONFLICT (job_name) DO UPDATE SET owner = EXCLUDED.owner, lease_until = EXCLUDED.lease_until, " +
+                        "last_started_at = EXCLUDED.last_started_at " +
+                        "WHERE job_leases.lease_until < now() OR job_leases.owner = EXCLUDED.owner " +
+                        "RETURNING job_name",
+                String.class, jobName, owner, duration.toMillis()).isEmpty();
+    }
+
+    /**
+     * Extends a lease held by {@code owner}.
+     *
+     * @return false if the lease was lost (expired and taken by another node).
+     */
+    public boolean renew(String jobName, String owner, Duration duration) {
+        return jdbcTemplate.update("UPDATE job_leases SET lease_until = now() + ? * interval '1 millisecond' " +
+                "WHERE job_name = ? AND owner = ?", duration.toMillis(), jobName, owner) == 1;
+    }
+
+    /**
+     * Releases a lease held by {@code owner} and records the outcome of the run. The job stays blocked until
+     * {@code minimumInterval} after the run started, so nodes firing the same schedule slightly later skip it.
+     *
+     * @param error The failure message, or null when the run succeeded.
+     */
+    public void release(String jobName, String owner, Duration minimumInterval, long durationMs, long rows, String error) {
+        jdbcTemplate.update("UPDATE job_leases SET owner = NULL, " +
+                        "lease_until = greatest(now(), last_started_at + ? * interval '1 millisecond'), last_finished_at = now(), " +
+                        "last_duration_ms = ?, last_rows = ?, last_error = ? WHERE job_name = ? AND owner = ?",
+                minimumInterval.toMillis(), durationMs, rows, error, jobName, owner);
+    }
+}
@@ -2,11 +2,13 @@ package com.huggingsoft.pilot_main.repository;
 
 import com.hsoft.model.entities.v1.PasswordResetToken;
 import com.hsoft.model.entities.v1.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional; // For delete methods
 
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -53,4 +55,14 @@ public interface PasswordResetTokenRepository extends JpaRepository<PasswordRese
     @Transactional // Required for delete operations derived from method name
     long deleteByExpiryDateBefore(OffsetDateTime now);
 
+    /**
+     * Finds tokens whose expiry date is before the specified timestamp, limited by the page size.
+     * Used by the cleanup job to delete expired tokens in bounded chunks (with {@code deleteAllInBatch}).
+     *
+     * @param now      The timestamp indicating the cutoff for expired tokens.
+     * @param pageable The chunk size (first page only).
+     * @return Up to the page size of expired tokens.
+     */
+    List<PasswordResetToken> findByExpiryDateBefore(OffsetDateTime now, Pageable pageable);
+
 }
@@ -0,0 +1,348 @@
+package com.huggingsoft.pilot_main.repository;
+
+import com.hsoft.model.entities.v1.Product;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Set-based (JDBC) operations on products for bulk workloads that would be far too slow
+ * entity by entity. Must be called within a transaction: the JDBC statements share the
+ * JPA transaction's connection.
+ * <p>
+ * Table and column names are resolved from the Hibernate mapping of {@link Product} on first use (not at
+ * startup, where it would wait for the deferred JPA bootstrap), so the SQL follows the entity model instead of hard-coding its physical naming.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductBulkRepository {
+
+    /** Staging columns a CSV import may fill, in the order of the import template. */
+    public static final List<String> IMPORT_COLUMNS = List.of(
+            "sku", "name", "description", "purchase_price", "sale_price", "current_stock", "unit_of_measure", "category");
+
+    private static final String STAGING_TABLE = "product_import";
+    private static final int SKU_LOCK_CLASS = 0x534b55; // "SKU": first key of the two-key advisory lock space
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private volatile ProductTable products;
+
+    private ProductTable products() {
+        ProductTable resolved = products;
+        if (resolved == null) {
+            resolved = ProductTable.resolve(entityManagerFactory);
+            products = resolved; // Concurrent first calls resolve the same mapping
+        }
+        return resolved;
+    }
+
+    /**
+     * Imports products from CSV rows (without header) whose fields are the given staging columns.
+     * <ol>
+     *     <li>COPY streams the rows into a temporary staging table (dropped at commit).</li>
+     *     <li>One UPDATE validates every row: required fields, numeric formats, duplicate SKUs within
+     *     the file and SKUs the user already has (case-insensitive).</li>
+     *     <li>One INSERT ... SELECT creates the valid rows.</li>
+     * </ol>
+     * The last two steps run under the tenant's SKU lock ({@link #lockSkus}), so a concurrent import or product
+     * save cannot add one of the validated SKUs before the insert.
+     *
+     * @param userId    The owning main user ID.
+     * @param columns   Staging columns (from {@link #IMPORT_COLUMNS}) in CSV field order.
+     * @param csv       The CSV rows, positioned after the header line.
+     * @param maxErrors Maximum number of rejected rows to return.
+     * @return Row counts and the first {@code maxErrors} rejected rows.
+     */
+    public ImportOutcome importCsv(UUID userId, List<String> columns, Reader csv, int maxErrors) {
+        // Line numbers start at 2: line 1 is the header
+        jdbcTemplate.execute("CREATE TEMP TABLE " + STAGING_TABLE + " (" +
+                "line_no bigint GENERATED ALWAYS AS IDENTITY (START WITH 2), " +
+                "sku text, name text, description text, purchase_price text, sale_price text, " +
+                "current_stock text, unit_of_measure text, category text, error text) ON COMMIT DROP");
+
+        String copy = "COPY " + STAGING_TABLE + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copy, csv);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read the uploaded CSV", e);
+            }
+        });
+        jdbcTemplate.execute("ANALYZE " + STAGING_TABLE);
+
+        lockSkus(userId); // Held until commit: nothing else adds SKUs for this user between check and insert
+        jdbcTemplate.update("UPDATE " + STAGING_TABLE + " s SET error = v.error FROM (" +
+                "SELECT i.line_no, CASE " +
+                "WHEN coalesce(btrim(i.sku), '') = '' THEN 'SKU is required' " +
+                "WHEN coalesce(btrim(i.name), '') = '' THEN 'Name is required' " +
+                "WHEN coalesce(btrim(i.sale_price), '') !~ '^[0-9]{1,15}(\\.[0-9]{1,4})?$' " +
+                "  THEN 'Sale price must be a non-negative number' " +
+                "WHEN coalesce(btrim(i.purchase_price), '') !~ '^([0-9]{1,15}(\\.[0-9]{1,4})?)?$' " +
+                "  THEN 'Purchase price must be a non-negative number' " +
+                "WHEN coalesce(btrim(i.current_stock), '') !~ '^([0-9]{1,9})?$' " +
+                "  THEN 'Current stock must be a non-negative integer' " +
+                "WHEN row_number() OVER (PARTITION BY lower(btrim(i.sku)) ORDER BY i.line_no) > 1 " +
+                "  THEN 'Duplicate SKU in file' " +
+                "WHEN existing.sku_key IS NOT NULL THEN 'SKU already exists' " +
+                "END AS error " +
+                "FROM " + STAGING_TABLE + " i " +
+                "LEFT JOIN (SELECT DISTINCT lower(p." + products().sku() + ") AS sku_key FROM " + products().table() + " p " +
+                "  WHERE p." + products().user() + " = ?) existing ON existing.sku_key = lower(btrim(i.sku))" +
+                ") v WHERE s.line_no = v.line_no AND v.error IS NOT NULL", userId);
+
+        jdbcTemplate.update(insertValidRows(), userId);
+
+        ImportOutcome counts = jdbcTemplate.queryForObject(
+                "SELECT count(*), count(*) FILTER (WHERE error IS NULL) FROM " + STAGING_TABLE,
+                (rs, i) -> new ImportOutcome(rs.getLong(1), rs.getLong(2), List.of()));
+        List<RejectedRow> rejected = jdbcTemplate.query(
+                "SELECT line_no, btrim(sku), error FROM " + STAGING_TABLE + " WHERE error IS NOT NULL ORDER BY line_no LIMIT ?",
+                (rs, i) -> new RejectedRow(rs.getLong(1), rs.getString(2), rs.getString(3)), maxErrors);
+        return new ImportOutcome(counts.totalRows(), counts.importedRows(), rejected);
+    }
+
+    /**
+     * Serializes SKU writes of a user until the current transaction ends (a transaction-scoped advisory lock).
+     * There is no unique index on (user, lower(sku)): whoever checks that a SKU is free and then writes it must
+     * hold this lock, or two concurrent writers can both pass the check.
+     */
+    public void lockSkus(UUID userId) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?, hashtext(?))", SKU_LOCK_CLASS, userId.toString());
+    }
+
+    /**
+     * Changes the sale price of every selected product by a percentage, rounded to each price's own scale.
+     * Products whose price would become negative are left unchanged.
+     */
+    public UpdateOutcome adjustSalePricesByPercent(UUID userId, Selection selection, BigDecimal percent) {
+        return update(userId, selection, products().salePrice(),
+                "round(p." + products().salePrice() + " * (1 + ?::numeric / 100), scale(p." + products().salePrice() + "))",
+                percent, true);
+    }
+
+    /**
+     * Adds an amount (may be negative) to the sale price of every selected product.
+     * Products whose price would become negative are left unchanged.
+     */
+    public UpdateOutcome adjustSalePricesByAmount(UUID userId, Selection selection, BigDecimal amount) {
+        return update(userId, selection, products().salePrice(),
+                "round(p." + products().salePrice() + " + ?::numeric, scale(p." + products().salePrice() + "))",
+                amount, true);
+    }
+
+    public UpdateOutcome updateCategory(UUID userId, Selection selection, String category) {
+        return update(userId, selection, products().category(), "?::text", category, false);
+    }
+
+    public UpdateOutcome updateActive(UUID userId, Selection selection, boolean active) {
+        return update(userId, selection, products().active(), "?::boolean", active, false);
+    }
+
+    /**
+     * Applies stock corrections in one statement. Each correction sets an absolute level when
+     * {@code absoluteCounts[i]} is non-null, otherwise adds {@code adjustments[i]}. The selected rows are
+     * locked first, and nothing is written unless every product exists for the user and no level
+     * would become negative; check {@link StockCorrection#applied()}.
+     *
+     * @param userId         The owning main user ID.
+     * @param productIds     Product IDs, without duplicates.
+     * @param adjustments    Relative changes, aligned with productIds (null where an absolute count is given).
+     * @param absoluteCounts Counted levels, aligned with productIds (null where an adjustment is given).
+     * @return One row per product found, with its previous and resulting level.
+     */
+    public List<StockCorrection> correctStock(UUID userId, List<UUID> productIds, List<Integer> adjustments,
+                                              List<Integer> absoluteCounts) {
+        String stock = products().currentStock();
+        String touch = products().updatedAt() != null ? ", " + products().updatedAt() + " = now()" : "";
+        String sql = "WITH input AS (" +
+                "SELECT * FROM unnest(?, ?, ?) AS c(product_id, adjustment, absolute_count)" +
+                "), target AS (" +
+                "SELECT p." + products().id() + " AS id, p." + products().sku() + " AS sku, p." + stock + " AS previous_stock, " +
+                "coalesce(c.absolute_count, p." + stock + " + c.adjustment) AS new_stock " +
+                "FROM " + products().table() + " p JOIN input c ON c.product_id = p." + products().id() + " " +
+                "WHERE p." + products().user() + " = ? FOR UPDATE OF p" +
+                "), valid AS (" +
+                "SELECT NOT EXISTS (SELECT 1 FROM target WHERE new_stock < 0) " +
+                "AND (SELECT count(*) FROM target) = (SELECT count(*) FROM input) AS ok" +
+                "), updated AS (" +
+                "UPDATE " + products().table() + " p SET " + stock + " = t.new_stock" + touch + " FROM target t, valid " +
+                "WHERE valid.ok AND p." + products().id() + " = t.id RETURNING p." + products().id() +
+                ") SELECT t.id, t.sku, t.previous_stock, t.new_stock, EXISTS (SELECT 1 FROM updated) AS applied FROM target t";
+        return jdbcTemplate.query(sql,
+                (rs, i) -> new StockCorrection(rs.getObject(1, UUID.class), rs.getString(2), rs.getInt(3), rs.getInt(4),
+                        rs.getBoolean(5)),
+                sqlArray("uuid", productIds), sqlArray("integer", adjustments), sqlArray("integer", absoluteCounts), userId);
+    }
+
+    /**
+     * One statement: the target CTE computes the new value of every selected row, the UPDATE applies it
+     * where it differs (and, for prices, is not negative), and both sets are counted.
+     */
+    private UpdateOutcome update(UUID userId, Selection selection, String column, String newValue, Object newValueArg,
+                                 boolean nonNegative) {
+        List<Object> args = new ArrayList<>();
+        args.add(newValueArg);
+        args.add(userId);
+        String where = selectionPredicate(selection, args);
+        String touch = products().updatedAt() != null ? ", " + products().updatedAt() + " = now()" : "";
+        String sql = "WITH target AS (" +
+                "SELECT p." + products().id() + " AS id, " + newValue + " AS new_value FROM " + products().table() + " p " +
+                "WHERE p." + products().user() + " = ?" + where +
+                "), updated AS (" +
+                "UPDATE " + products().table() + " p SET " + column + " = t.new_value" + touch + " FROM target t " +
+                "WHERE p." + products().id() + " = t.id AND p." + column + " IS DISTINCT FROM t.new_value" +
+                (nonNegative ? " AND t.new_value >= 0" : "") +
+                " RETURNING p." + products().id() +
+                ") SELECT (SELECT count(*) FROM target), (SELECT count(*) FROM updated)";
+        return jdbcTemplate.queryForObject(sql, (rs, i) -> new UpdateOutcome(rs.getLong(1), rs.getLong(2)), args.toArray());
+    }
+
+    // Same semantics as the product list filters; criteria are ANDed
+    private String selectionPredicate(Selection selection, List<Object> args) {
+        StringBuilder where = new StringBuilder();
+        if (selection.category() != null) {
+            where.append(" AND lower(p.").append(products().category()).append(") = lower(?)");
+            args.add(selection.category());
+        }
+        if (selection.active() != null) {
+            where.append(" AND p.").append(products().active()).append(" = ?");
+            args.add(selection.active());
+        }
+        if (selection.search() != null) {
+            String pattern = "%" + selection.search().toLowerCase(Locale.ROOT) + "%";
+            where.append(" AND (lower(p.").append(products().name()).append(") LIKE ? OR lower(p.")
+                    .append(products().sku()).append(") LIKE ?)");
+            args.add(pattern);
+            args.add(pattern);
+        }
+        if (selection.ids() != null) {
+            where.append(" AND p.").append(products().id()).append(" = ANY(?)");
+            args.add(sqlArray("uuid", selection.ids()));
+        }
+        return where.toString();
+    }
+
+    // Binds a collection as a typed SQL array (for = ANY(?) and unnest(?)); elements may be null
+    static SqlParameterValue sqlArray(String elementType, Collection<?> values) {
+        return new SqlParameterValue(Types.ARRAY, new AbstractSqlTypeValue() {
+            @Override
+            protected Object createTypeValue(Connection connection, int sqlType, String typeName) throws SQLException {
+                return connection.createArrayOf(elementType, values.toArray());
+            }
+        });
+    }
+
+    private String insertValidRows() {
+        List<String> targets = new ArrayList<>(List.of(products().id(), products().user(), products().sku(), products().name(),
+                products().description(), products().purchasePrice(), products().salePrice(), products().currentStock(),
+                products().unitOfMeasure(), products().category(), products().active()));
+        List<String> values = new ArrayList<>(List.of("gen_random_uuid()", "?", "btrim(i.sku)", "btrim(i.name)",
+                "nullif(btrim(i.description), '')",
+                "coalesce(nullif(btrim(i.purchase_price), '')::numeric, 0)",
+                "btrim(i.sale_price)::numeric",
+                "coalesce(nullif(btrim(i.current_stock), '')::int, 0)",
+                "coalesce(nullif(btrim(i.unit_of_measure), ''), 'unidad')",
+                "nullif(btrim(i.category), '')",
+                "true"));
+        if (products().createdAt() != null) { targets.add(products().createdAt()); values.add("now()"); }
+        if (products().updatedAt() != null) { targets.add(products().updatedAt()); values.add("now()"); }
+        if (products().context() != null) { targets.add(products().context()); values.add("'{}'"); }
+        return "INSERT INTO " + products().table() + " (" + String.join(", ", targets) + ") " +
+                "SELECT " + String.join(", ", values) + " FROM " + STAGING_TABLE + " i " +
+                "WHERE i.error IS NULL ORDER BY i.line_no";
+    }
+
+    /**
+     * Result of {@link #importCsv}.
+     *
+     * @param totalRows    Rows read from the CSV.
+     * @param importedRows Products created.
+     * @param rejected     The first rejected rows, by line number.
+     */
+    public record ImportOutcome(long totalRows, long importedRows, List<RejectedRow> rejected) {}
+
+    /**
+     * A row that was not imported.
+     */
+    public record RejectedRow(long line, String sku, String error) {}
+
+    /**
+     * Products to change in a bulk update; null criteria are ignored.
+     */
+    public record Selection(String category, Boolean active, String search, Collection<UUID> ids) {}
+
+    /**
+     * Result of a bulk update.
+     *
+     * @param matched Products matching the selection.
+     * @param updated Products actually changed.
+     */
+    public record UpdateOutcome(long matched, long updated) {}
+
+    /**
+     * A product's stock before and after a correction.
+     *
+     * @param applied Whether the batch was written (false when any product was missing or would go negative).
+     */
+    public record StockCorrection(UUID productId, String sku, int previousStock, int newStock, boolean applied) {}
+
+    /**
+     * Physical names of the product table and the columns used by bulk statements.
+     * Optional columns are null when the entity does not map the attribute.
+     */
+    record ProductTable(String table, String id, String user, String sku, String name, String description,
+                        String purchasePrice, String salePrice, String currentStock, String unitOfMeasure,
+                        String category, String active, String createdAt, String updatedAt, String context) {
+
+        static ProductTable resolve(EntityManagerFactory entityManagerFactory) {
+            AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getMappingMetamodel()
+                    .getEntityDescriptor(Product.class);
+            Set<String> attributes = Set.of(persister.getPropertyNames());
+            return new ProductTable(
+                    persister.getTableName(),
+                    persister.getIdentifierColumnNames()[0],
+                    column(persister, "user"),
+                    column(persister, "sku"),
+                    column(persister, "name"),
+                    column(persister, "description"),
+                    column(persister, "purchasePrice"),
+                    column(persister, "salePrice"),
+                    column(persister, "currentStock"),
+                    column(persister, "unitOfMeasure"),
+                    column(persister, "category"),
+                    column(persister, "isActive"),
+                    attributes.contains("createdAt") ? column(persister, "createdAt") : null,
+                    attributes.contains("updatedAt") ? column(persister, "updatedAt") : null,
+                    attributes.contains("context") ? column(persister, "context") : null);
+        }
+
+        private static String column(AbstractEntityPersister persister, String attribute) {
+            return persister.getPropertyColumnNames(attribute)[0];
+        }
+    }
+}
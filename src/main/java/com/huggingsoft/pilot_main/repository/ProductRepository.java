@@ -2,13 +2,20 @@ package com.huggingsoft.pilot_main.repository;
 
 import com.hsoft.model.entities.v1.Product;
 import com.hsoft.model.entities.v1.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -49,4 +56,110 @@ public interface ProductRepository extends JpaRepository<Product, UUID>, JpaSpec
      */
     List<Product> findByUserAndProductIdIn(User user, List<UUID> productIds);
 
+    /**
+     * Loads the fields needed by the in-memory search index for every active product of a user.
+     * Uses a projection so no Product entities are hydrated.
+     *
+     * @param userId The owning main user ID.
+     * @return One entry per active product.
+     */
+    @Query("SELECT p.productId AS productId, p.sku AS sku, p.name AS name, p.salePrice AS salePrice " +
+            "FROM Product p WHERE p.user.userId = :userId AND p.isActive = true")
+    List<SearchEntry> findActiveSearchEntriesByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Loads the SKU, price and stock of every product of a user that has a SKU.
+     * Uses a projection so no Product entities are hydrated.
+     *
+     * @param userId The owning main user ID.
+     * @return One entry per product with a SKU.
+     */
+    @Query("SELECT p.productId AS productId, p.sku AS sku, p.salePrice AS salePrice, p.currentStock AS currentStock " +
+            "FROM Product p WHERE p.user.userId = :userId AND p.sku IS NOT NULL")
+    List<SkuEntry> findSkuEntriesByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Loads the search index fields of one active product of a user.
+     * Used to refresh a single index entry after a change on another instance.
+     *
+     * @param productId The product ID.
+     * @param userId    The owning main user ID.
+     * @return The entry, or empty if the product is inactive, deleted or owned by another user.
+     */
+    @Query("SELECT p.productId AS productId, p.sku AS sku, p.name AS name, p.salePrice AS salePrice " +
+            "FROM Product p WHERE p.productId = :productId AND p.user.userId = :userId AND p.isActive = true")
+    Optional<SearchEntry> findActiveSearchEntryById(@Param("productId") UUID productId, @Param("userId") UUID userId);
+
+    /**
+     * Loads the SKU, price and stock of one product of a user that has a SKU.
+     * Used to refresh a single SKU index entry after a change on another instance.
+     *
+     * @param productId The product ID.
+     * @param userId    The owning main user ID.
+     * @return The entry, or empty if the product has no SKU, is deleted or owned by another user.
+     */
+    @Query("SELECT p.productId AS productId, p.sku AS sku, p.salePrice AS salePrice, p.currentStock AS currentStock " +
+            "FROM Product p WHERE p.productId = :productId AND p.user.userId = :userId AND p.sku IS NOT NULL")
+    Optional<SkuEntry> findSkuEntryById(@Param("productId") UUID productId, @Param("userId") UUID userId);
+
+    /**
+     * Loads the stock level of every active product of a user.
+     * Used for stock stream snapshots; no Product entities are hydrated.
+     *
+     * @param userId The owning main user ID.
+     * @return One entry per active product.
+     */
+    @Query("SELECT p.productId AS productId, p.currentStock AS currentStock " +
+            "FROM Product p WHERE p.user.userId = :userId AND p.isActive = true")
+    List<StockLevel> findActiveStockLevelsByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Returns only the last update timestamp of a product owned by the given user.
+     * Used to answer conditional requests (ETags) without loading or mapping the entity.
+     *
+     * @param productId The product ID.
+     * @param userId    The owning main user ID.
+     * @return The updatedAt timestamp, or empty if not found or owned by another user.
+     */
+    @Query("SELECT p.updatedAt FROM Product p WHERE p.productId = :productId AND p.user.userId = :userId")
+    Optional<OffsetDateTime> findUpdatedAtByIdAndUserId(@Param("productId") UUID productId, @Param("userId") UUID userId);
+
+    /**
+     * Loads a product and locks its row until the transaction ends (SELECT ... FOR UPDATE).
+     * Used by updates, so the If-Match check and the write see the same version.
+     *
+     * @param productId The product ID.
+     * @return The locked product, or empty if not found.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.productId = :productId")
+    Optional<Product> findByIdForUpdate(@Param("productId") UUID productId);
+
+    /**
+     * Projection used to build the product search index.
+     */
+    interface SearchEntry {
+        UUID getProductId();
+        String getSku();
+        String getName();
+        BigDecimal getSalePrice();
+    }
+
+    /**
+     * Projection used to load the SKU lookup index.
+     */
+    interface SkuEntry {
+        UUID getProductId();
+        String getSku();
+        BigDecimal getSalePrice();
+        int getCurrentStock();
+    }
+
+    /**
+     * Projection used for stock stream snapshots.
+     */
+    interface StockLevel {
+        UUID getProductId();
+        int getCurrentStock();
+    }
 }
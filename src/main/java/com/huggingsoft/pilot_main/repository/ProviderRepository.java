@@ -2,12 +2,18 @@ package com.huggingsoft.pilot_main.repository;
 
 import com.hsoft.model.entities.v1.Provider;
 import com.hsoft.model.entities.v1.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -38,4 +44,26 @@ public interface ProviderRepository extends JpaRepository<Provider, UUID>, JpaSp
      * @return A Page of providers belonging to the user.
      */
     Page<Provider> findByUser(User user, Pageable pageable);
+
+    /**
+     * Returns only the last update timestamp of a provider owned by the given user.
+     * Used to answer conditional requests (ETags) without loading or mapping the entity.
+     *
+     * @param providerId The provider ID.
+     * @param userId     The owning main user ID.
+     * @return The updatedAt timestamp, or empty if not found or owned by another user.
+     */
+    @Query("SELECT p.updatedAt FROM Provider p WHERE p.providerId = :providerId AND p.user.userId = :userId")
+    Optional<OffsetDateTime> findUpdatedAtByIdAndUserId(@Param("providerId") UUID providerId, @Param("userId") UUID userId);
+
+    /**
+     * Loads a provider and locks its row until the transaction ends (SELECT ... FOR UPDATE).
+     * Used by updates, so the If-Match check and the write see the same version.
+     *
+     * @param providerId The provider ID.
+     * @return The locked provider, or empty if not found.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Provider p WHERE p.providerId = :providerId")
+    Optional<Provider> findByIdForUpdate(@Param("providerId") UUID providerId);
 }
@@ -0,0 +1,184 @@
+package com.huggingsoft.pilot_main.repository;
+
+import com.hsoft.model.entities.v1.Client;
+import com.hsoft.model.entities.v1.PasswordResetToken;
+import com.hsoft.model.entities.v1.Product;
+import com.hsoft.model.entities.v1.Provider;
+import com.hsoft.model.entities.v1.Transaction;
+import com.hsoft.model.entities.v1.TransactionItem;
+import com.hsoft.model.entities.v1.User;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Removes the data of a deleted tenant (main account) in small batches, and keeps the purge's
+ * progress in {@code tenant_purge}. Must be called within a transaction.
+ * <p>
+ * Each {@link Step} deletes one kind of row, children before parents, so no batch relies on
+ * cascades or waits on foreign key checks over millions of rows. Table and column names are
+ * resolved from the Hibernate mapping by the first purge.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TenantPurgeRepository {
+
+    /** Purge steps in execution order. */
+    public enum Step {
+        TRANSACTION_ITEMS, TRANSACTIONS, ARCHIVED_TRANSACTIONS, PRODUCTS, CLIENTS, PROVIDERS,
+        RESET_TOKENS, SUB_USERS, MAIN_USER;
+
+        /** The step after this one, or null after the last. */
+        public Step next() {
+            Step[] steps = values();
+            return ordinal() + 1 < steps.length ? steps[ordinal() + 1] : null;
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private volatile Map<Step, String> deleteStatements;
+
+    private Map<Step, String> deleteStatements() {
+        Map<Step, String> resolved = deleteStatements;
+        if (resolved == null) {
+            resolved = resolveStatements();
+            deleteStatements = resolved; // Concurrent first calls resolve the same statements
+        }
+        return resolved;
+    }
+
+    private Map<Step, String> resolveStatements() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Table items = Table.of(sessionFactory, TransactionItem.class, "transaction");
+        Table transactions = Table.of(sessionFactory, Transaction.class, "user");
+        Table products = Table.of(sessionFactory, Product.class, "user");
+        Table clients = Table.of(sessionFactory, Client.class, "user");
+        Table providers = Table.of(sessionFactory, Provider.class, "user");
+        Table tokens = Table.of(sessionFactory, PasswordResetToken.class, "user");
+        Table users = Table.of(sessionFactory, User.class, "parentUser");
+
+        Map<Step, String> statements = new EnumMap<>(Step.class);
+        statements.put(Step.TRANSACTION_ITEMS, deleteWhereIdIn(items, "SELECT i." + items.id() + " FROM " + items.name() + " i " +
+                "JOIN " + transactions.name() + " t ON t." + transactions.id() + " = i." + items.owner() +
+                " WHERE t." + transactions.owner() + " = :tenant"));
+        statements.put(Step.TRANSACTIONS, deleteOwnedBy(transactions));
+        statements.put(Step.ARCHIVED_TRANSACTIONS, "DELETE FROM transaction_archive WHERE transaction_id IN (" +
+                "SELECT transaction_id FROM transaction_archive WHERE user_id = :tenant LIMIT :limit)");
+        statements.put(Step.PRODUCTS, deleteOwnedBy(products));
+        statements.put(Step.CLIENTS, deleteOwnedBy(clients));
+        statements.put(Step.PROVIDERS, deleteOwnedBy(providers));
+        statements.put(Step.RESET_TOKENS, deleteWhereIdIn(tokens, "SELECT k." + tokens.id() + " FROM " + tokens.name() + " k " +
+                "JOIN " + users.name() + " u ON u." + users.id() + " = k." + tokens.owner() +
+                " WHERE u." + users.id() + " = :tenant OR u." + users.owner() + " = :tenant"));
+        statements.put(Step.SUB_USERS, deleteOwnedBy(users));
+        statements.put(Step.MAIN_USER, "DELETE FROM " + users.name() + " WHERE " + users.id() + " = :tenant");
+        return statements;
+    }
+
+    /**
+     * Registers a tenant for purging. Registering an already registered tenant has no effect.
+     *
+     * @param tenantId The main user ID.
+     */
+    public void requestPurge(UUID tenantId) {
+        jdbcTemplate.update("INSERT INTO tenant_purge (tenant_id, step) VALUES (:tenant, :step) ON CONFLICT DO NOTHING",
+                new MapSqlParameterSource("tenant", tenantId).addValue("step", Step.values()[0].name()));
+    }
+
+    /**
+     * Claims the oldest unfinished purge nobody else holds, for {@code lease}. A purge whose holder died
+     * (or failed) becomes claimable again once its lease expires.
+     *
+     * @param lease How long the claim lasts unless renewed by {@link #recordProgress}.
+     * @return The claimed purge, or empty if there is nothing to do.
+     */
+    public Optional<PurgeState> claimNext(Duration lease) {
+        return jdbcTemplate.query("UPDATE tenant_purge SET lease_until = now() + :lease * interval '1 millisecond', " +
+                                "attempts = attempts + 1, updated_at = now() " +
+                                "WHERE tenant_id = (SELECT tenant_id FROM tenant_purge " +
+                                "  WHERE finished_at IS NULL AND (lease_until IS NULL OR lease_until < now()) " +
+                                "  ORDER BY requested_at LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+                                "RETURNING tenant_id, step, deleted_rows, attempts",
+                        new MapSqlParameterSource("lease", lease.toMillis()),
+                        (rs, i) -> new PurgeState(rs.getObject(1, UUID.class), Step.valueOf(rs.getString(2)),
+                                rs.getLong(3), rs.getInt(4)))
+                .stream().findFirst();
+    }
+
+    /**
+     * Deletes the next batch of rows of one step.
+     *
+     * @return The number of rows deleted; fewer than {@code limit} means the step is complete.
+     */
+    public int deleteBatch(Step step, UUID tenantId, int limit) {
+        return jdbcTemplate.update(deleteStatements().get(step),
+                new MapSqlParameterSource("tenant", tenantId).addValue("limit", limit));
+    }
+
+    /**
+     * Records deleted rows and the step to resume at, and renews the lease.
+     */
+    public void recordProgress(UUID tenantId, Step step, int deleted, Duration lease) {
+        jdbcTemplate.update("UPDATE tenant_purge SET step = :step, deleted_rows = deleted_rows + :deleted, " +
+                        "lease_until = now() + :lease * interval '1 millisecond', last_error = NULL, updated_at = now() " +
+                        "WHERE tenant_id = :tenant",
+                new MapSqlParameterSource("tenant", tenantId).addValue("step", step.name())
+                        .addValue("deleted", deleted).addValue("lease", lease.toMillis()));
+    }
+
+    /**
+     * Marks a purge as finished.
+     */
+    public void finish(UUID tenantId, int deleted) {
+        jdbcTemplate.update("UPDATE tenant_purge SET deleted_rows = deleted_rows + :deleted, lease_until = NULL, " +
+                        "last_error = NULL, updated_at = now(), finished_at = now() WHERE tenant_id = :tenant",
+                new MapSqlParameterSource("tenant", tenantId).addValue("deleted", deleted));
+    }
+
+    /**
+     * Records a failed attempt; the purge is retried (from its last recorded step) after {@code retryAfter}.
+     */
+    public void recordFailure(UUID tenantId, String error, Duration retryAfter) {
+        jdbcTemplate.update("UPDATE tenant_purge SET last_error = :error, " +
+                        "lease_until = now() + :retry * interval '1 millisecond', updated_at = now() WHERE tenant_id = :tenant",
+                new MapSqlParameterSource("tenant", tenantId).addValue("error", error).addValue("retry", retryAfter.toMillis()));
+    }
+
+    private static String deleteOwnedBy(Table table) {
+        return deleteWhereIdIn(table, "SELECT " + table.id() + " FROM " + table.name() + " WHERE " + table.owner() + " = :tenant");
+    }
+
+    private static String deleteWhereIdIn(Table table, String selection) {
+        return "DELETE FROM " + table.name() + " WHERE " + table.id() + " IN (" + selection + " LIMIT :limit)";
+    }
+
+    /**
+     * Progress of a claimed purge.
+     */
+    public record PurgeState(UUID tenantId, Step step, long deletedRows, int attempts) {}
+
+    /**
+     * Physical table, identifier column and owning foreign key column of an entity.
+     */
+    private record Table(String name, String id, String owner) {
+
+        static Table of(SessionFactoryImplementor sessionFactory, Class<?> entity, String ownerAttribute) {
+            AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory
+                    .getMappingMetamodel().getEntityDescriptor(entity);
+            return new Table(persister.getTableName(), persister.getIdentifierColumnNames()[0],
+                    persister.getPropertyColumnNames(ownerAttribute)[0]);
+        }
+    }
+}
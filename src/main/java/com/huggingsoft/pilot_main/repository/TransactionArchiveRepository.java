@@ -0,0 +1,193 @@
+package com.huggingsoft.pilot_main.repository;
+
+import com.hsoft.model.entities.v1.Transaction;
+import com.hsoft.model.entities.v1.TransactionItem;
+import com.hsoft.model.types.v1.TransactionStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Moves closed transactions (with their items) between the live tables and {@code transaction_archive},
+ * and reads archived ones back. Must be called within a transaction.
+ * <p>
+ * Archived rows are stored as {@code to_jsonb} of the original table rows. They are read back with
+ * {@code jsonb_populate_record} against the <em>current</em> live row types and hydrated as regular
+ * entities, so columns added after archiving read as null and dropped columns are ignored.
+ * Aggregates over the archive live in {@link TransactionRepository} next to their live counterparts.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionArchiveRepository {
+
+    /** Statuses after which a transaction can no longer change and may be archived. */
+    public static final List<TransactionStatus> CLOSED_STATUSES = List.of(TransactionStatus.COMPLETED, TransactionStatus.CANCELLED);
+
+    private static final String ARCHIVE_TABLE = "transaction_archive";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private volatile TransactionTables tables;
+
+    // Resolved by the first call; the EntityManagerFactory may still be building at startup
+    private TransactionTables tables() {
+        TransactionTables resolved = tables;
+        if (resolved == null) {
+            resolved = TransactionTables.resolve(entityManagerFactory);
+            tables = resolved; // Concurrent first calls resolve the same mapping
+        }
+        return resolved;
+    }
+
+    /**
+     * Moves up to {@code limit} of the oldest closed transactions dated before {@code cutoff}, with their items,
+     * into the archive in a single statement. Rows locked by concurrent work are skipped and picked up by a later
+     * batch, so sales and cancellations never wait on the archiver.
+     *
+     * @param cutoff Transactions dated strictly before this instant are eligible.
+     * @param limit  Maximum number of transactions to move.
+     * @return The number of transactions moved.
+     */
+    public int archiveBatch(OffsetDateTime cutoff, int limit) {
+        TransactionTables t = tables();
+        // Enumerations are mapped by name, so the status column compares as text
+        String statuses = CLOSED_STATUSES.stream().map(s -> "'" + s.name() + "'").collect(Collectors.joining(", "));
+        return jdbcTemplate.update("WITH batch AS (" +
+                "SELECT t." + t.id() + " AS id FROM " + t.table() + " t " +
+                "WHERE t." + t.date() + " < ? AND t." + t.status() + "::text IN (" + statuses + ") " +
+                "ORDER BY t." + t.date() + " LIMIT ? FOR UPDATE SKIP LOCKED" +
+                "), moved_items AS (" +
+                "DELETE FROM " + t.itemTable() + " i USING batch b WHERE i." + t.itemTransaction() + " = b.id RETURNING i.*" +
+                "), moved AS (" +
+                "DELETE FROM " + t.table() + " t USING batch b WHERE t." + t.id() + " = b.id RETURNING t.*" +
+                ") INSERT INTO " + ARCHIVE_TABLE + " (transaction_id, user_id, client_id, transaction_type, status, " +
+                "transaction_date, total_amount, transaction, items) " +
+                "SELECT m." + t.id() + ", m." + t.user() + ", m." + t.client() + ", m." + t.type() + "::text, " +
+                "m." + t.status() + "::text, m." + t.date() + ", coalesce(m." + t.totalAmount() + ", 0), to_jsonb(m), " +
+                "coalesce((SELECT jsonb_agg(to_jsonb(i)) FROM moved_items i WHERE i." + t.itemTransaction() + " = m." + t.id() + "), '[]') " +
+                "FROM moved m", cutoff, limit);
+    }
+
+    /**
+     * Loads an archived transaction with its items as read-only entities of the current persistence context.
+     * Associations (client, provider, users, products) resolve against the live tables as usual.
+     *
+     * @param transactionId The transaction ID.
+     * @return The archived transaction, or empty if it is not archived.
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<Transaction> findArchived(UUID transactionId) {
+        List<Transaction> found = entityManager.createNativeQuery("SELECT r.* FROM " + ARCHIVE_TABLE + " a " +
+                        "CROSS JOIN LATERAL jsonb_populate_record(NULL::" + tables().table() + ", a.transaction) r " +
+                        "WHERE a.transaction_id = ?1", Transaction.class)
+                .setParameter(1, transactionId)
+                .getResultList();
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Transaction transaction = found.get(0);
+        List<TransactionItem> items = entityManager.createNativeQuery("SELECT r.* FROM " + ARCHIVE_TABLE + " a " +
+                        "CROSS JOIN LATERAL jsonb_populate_recordset(NULL::" + tables().itemTable() + ", a.items) r " +
+                        "WHERE a.transaction_id = ?1", TransactionItem.class)
+                .setParameter(1, transactionId)
+                .getResultList();
+
+        Session session = entityManager.unwrap(Session.class);
+        session.setReadOnly(transaction, true);
+        items.forEach(item -> session.setReadOnly(item, true));
+        // The live items table has no rows for it any more; fill the (empty) collection from the archive instead
+        transaction.getItems().addAll(items);
+        return Optional.of(transaction);
+    }
+
+    /**
+     * Returns the last update timestamp of an archived transaction owned by the given user.
+     *
+     * @param transactionId The transaction ID.
+     * @param userId        The owning main user ID.
+     * @return The updatedAt timestamp, or empty if not archived or owned by another user.
+     */
+    public Optional<OffsetDateTime> findArchivedUpdatedAt(UUID transactionId, UUID userId) {
+        return jdbcTemplate.query("SELECT r." + tables().updatedAt() + " FROM " + ARCHIVE_TABLE + " a " +
+                                "CROSS JOIN LATERAL jsonb_populate_record(NULL::" + tables().table() + ", a.transaction) r " +
+                                "WHERE a.transaction_id = ? AND a.user_id = ?",
+                        (rs, i) -> rs.getObject(1, OffsetDateTime.class), transactionId, userId)
+                .stream().findFirst();
+    }
+
+    /**
+     * Counts the archived transactions of a tenant that reference a client. Archived rows keep their foreign keys
+     * without constraints, so deleting a client must check them as well as the live transactions.
+     */
+    public long countArchivedByClient(UUID userId, UUID clientId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + ARCHIVE_TABLE + " WHERE user_id = ? AND client_id = ?",
+                Long.class, userId, clientId);
+    }
+
+    /**
+     * Counts the archived transactions of a tenant that reference a provider. Reads the tenant's archived
+     * documents; acceptable for the rare delete it guards.
+     */
+    public long countArchivedByProvider(UUID userId, UUID providerId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + ARCHIVE_TABLE + " WHERE user_id = ? " +
+                        "AND transaction @> jsonb_build_object('" + tables().provider() + "', ?::uuid)",
+                Long.class, userId, providerId);
+    }
+
+    /**
+     * Counts the archived transactions of a tenant with an item of a product. Reads the tenant's archived
+     * documents; acceptable for the rare delete it guards.
+     */
+    public long countArchivedByProduct(UUID userId, UUID productId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + ARCHIVE_TABLE + " WHERE user_id = ? " +
+                        "AND items @> jsonb_build_array(jsonb_build_object('" + tables().itemProduct() + "', ?::uuid))",
+                Long.class, userId, productId);
+    }
+
+    /**
+     * Physical names of the live transaction and item tables, resolved from the Hibernate mapping.
+     */
+    record TransactionTables(String table, String id, String user, String client, String provider, String type,
+                             String status, String date, String totalAmount, String updatedAt, String itemTable,
+                             String itemTransaction, String itemProduct) {
+
+        static TransactionTables resolve(EntityManagerFactory entityManagerFactory) {
+            SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+            AbstractEntityPersister transactions = (AbstractEntityPersister) sessionFactory
+                    .getMappingMetamodel().getEntityDescriptor(Transaction.class);
+            AbstractEntityPersister items = (AbstractEntityPersister) sessionFactory
+                    .getMappingMetamodel().getEntityDescriptor(TransactionItem.class);
+            return new TransactionTables(
+                    transactions.getTableName(),
+                    transactions.getIdentifierColumnNames()[0],
+                    column(transactions, "user"),
+                    column(transactions, "client"),
+                    column(transactions, "provider"),
+                    column(transactions, "transactionType"),
+                    column(transactions, "status"),
+                    column(transactions, "transactionDate"),
+                    column(transactions, "totalAmount"),
+                    column(transactions, "updatedAt"),
+                    items.getTableName(),
+                    column(items, "transaction"),
+                    column(items, "product"));
+        }
+
+        private static String column(AbstractEntityPersister persister, String attribute) {
+            return persister.getPropertyColumnNames(attribute)[0];
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.huggingsoft.pilot_main.repository;
 
 import com.hsoft.model.entities.v1.TransactionItem;
+import com.hsoft.model.types.v1.TransactionStatus;
+import com.hsoft.model.types.v1.TransactionType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -33,4 +38,33 @@ public interface TransactionItemRepository extends JpaRepository<TransactionItem
      */
     long countByProductProductId(UUID productId);
 
+    /**
+     * Sums the quantities per product for a user's transactions of the given type since a point in time,
+     * ignoring transactions in the excluded status (typically CANCELLED).
+     * Used to rank search suggestions by recent sales.
+     *
+     * @param userId   The owning main user ID.
+     * @param type     The transaction type (e.g., SALE).
+     * @param excluded Transactions in this status are ignored.
+     * @param since    Inclusive lower bound of the transaction date.
+     * @return One row per product with the summed quantity.
+     */
+    @Query("""
+            SELECT i.product.productId AS productId, SUM(i.quantity) AS quantity
+            FROM TransactionItem i
+            WHERE i.transaction.user.userId = :userId AND i.transaction.transactionType = :type
+              AND i.transaction.status <> :excluded AND i.transaction.transactionDate >= :since
+            GROUP BY i.product.productId
+            """)
+    List<ProductQuantity> sumQuantitiesByProductSince(@Param("userId") UUID userId, @Param("type") TransactionType type,
+                                                      @Param("excluded") TransactionStatus excluded,
+                                                      @Param("since") OffsetDateTime since);
+
+    /**
+     * Projection for a summed quantity per product.
+     */
+    interface ProductQuantity {
+        UUID getProductId();
+        Long getQuantity();
+    }
 }
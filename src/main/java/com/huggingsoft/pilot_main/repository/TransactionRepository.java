@@ -2,13 +2,22 @@ package com.huggingsoft.pilot_main.repository;
 
 import com.hsoft.model.entities.v1.Transaction;
 import com.hsoft.model.entities.v1.User;
+import com.hsoft.model.types.v1.TransactionType;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -32,6 +41,14 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>,
     Page<Transaction> findByUser(User user, Pageable pageable);
 
 
+    /**
+     * Finds a page of transactions matching a specification, with the associations the summary
+     * mapping reads fetched in the same query (to-one joins, so paging stays in the database).
+     */
+    @Override
+    @EntityGraph(attributePaths = {"client", "provider", "createdByUser"})
+    Page<Transaction> findAll(Specification<Transaction> spec, Pageable pageable);
+
     /**
      * Finds a transaction by its ID, potentially fetching related entities eagerly.
      * Uses an EntityGraph to define which associations to fetch to avoid N+1 problems
@@ -55,9 +72,123 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>,
     @EntityGraph(attributePaths = {"client", "provider", "createdByUser"}) // Example smaller graph
     Optional<Transaction> findById(UUID transactionId);
 
+    /**
+     * Sums the total amount and counts the transactions of a given type for a user
+     * within the half-open range [from, to). Aggregation runs in the database so
+     * no Transaction entities are hydrated.
+     *
+     * @param user The owning user account.
+     * @param type The transaction type to aggregate (e.g., SALE).
+     * @param from Inclusive lower bound of the transaction date.
+     * @param to   Exclusive upper bound of the transaction date.
+     * @return The aggregated totals (zero amount and count when nothing matches).
+     */
+    @Query("""
+            SELECT COALESCE(SUM(t.totalAmount), 0) AS totalAmount, COUNT(t) AS transactionCount
+            FROM Transaction t
+            WHERE t.user = :user AND t.transactionType = :type
+              AND t.transactionDate >= :from AND t.transactionDate < :to
+            """)
+    AmountTotals sumTotalsBetween(@Param("user") User user, @Param("type") TransactionType type,
+                                  @Param("from") OffsetDateTime from, @Param("to") OffsetDateTime to);
+
+    /**
+     * Same as {@link #sumTotalsBetween} but grouped by client. Transactions without
+     * a client are excluded.
+     *
+     * @param user The owning user account.
+     * @param type The transaction type to aggregate (e.g., SALE).
+     * @param from Inclusive lower bound of the transaction date.
+     * @param to   Exclusive upper bound of the transaction date.
+     * @return One row per client with its aggregated totals.
+     */
+    @Query("""
+            SELECT t.client.clientId AS clientId, SUM(t.totalAmount) AS totalAmount, COUNT(t) AS transactionCount
+            FROM Transaction t
+            WHERE t.user = :user AND t.transactionType = :type AND t.client IS NOT NULL
+              AND t.transactionDate >= :from AND t.transactionDate < :to
+            GROUP BY t.client.clientId
+            """)
+    List<ClientAmountTotals> sumTotalsByClientBetween(@Param("user") User user, @Param("type") TransactionType type,
+                                                      @Param("from") OffsetDateTime from, @Param("to") OffsetDateTime to);
+
+    /**
+     * Archive counterpart of {@link #sumTotalsBetween}: aggregates transactions moved to
+     * {@code transaction_archive} (see {@link TransactionArchiveRepository}).
+     *
+     * @param userId The owning main user ID.
+     * @param type   The transaction type name (e.g., "SALE").
+     * @param from   Inclusive lower bound of the transaction date.
+     * @param to     Exclusive upper bound of the transaction date.
+     * @return The aggregated totals (zero amount and count when nothing matches).
+     */
+    @Query(value = """
+            SELECT COALESCE(SUM(a.total_amount), 0) AS totalAmount, COUNT(*) AS transactionCount
+            FROM transaction_archive a
+            WHERE a.user_id = :userId AND a.transaction_type = :type
+              AND a.transaction_date >= :from AND a.transaction_date < :to
+            """, nativeQuery = true)
+    AmountTotals sumArchivedTotalsBetween(@Param("userId") UUID userId, @Param("type") String type,
+                                          @Param("from") OffsetDateTime from, @Param("to") OffsetDateTime to);
+
+    /**
+     * Archive counterpart of {@link #sumTotalsByClientBetween}. Transactions without a client are excluded.
+     *
+     * @param userId The owning main user ID.
+     * @param type   The transaction type name (e.g., "SALE").
+     * @param from   Inclusive lower bound of the transaction date.
+     * @param to     Exclusive upper bound of the transaction date.
+     * @return One row per client with its aggregated totals.
+     */
+    @Query(value = """
+            SELECT a.client_id AS clientId, SUM(a.total_amount) AS totalAmount, COUNT(*) AS transactionCount
+            FROM transaction_archive a
+            WHERE a.user_id = :userId AND a.transaction_type = :type AND a.client_id IS NOT NULL
+              AND a.transaction_date >= :from AND a.transaction_date < :to
+            GROUP BY a.client_id
+            """, nativeQuery = true)
+    List<ClientAmountTotals> sumArchivedTotalsByClientBetween(@Param("userId") UUID userId, @Param("type") String type,
+                                                              @Param("from") OffsetDateTime from, @Param("to") OffsetDateTime to);
+
     // Note: Methods like countByClient or countByProvider can be derived or implemented
     // using Specifications if needed for deletion checks (checking for conflicts).
     // long countByClientId(UUID clientId);
     // long countByProviderId(UUID providerId);
 
+    /**
+     * Returns only the last update timestamp of a transaction owned by the given user.
+     * Used to answer conditional requests (ETags) without loading or mapping the entity.
+     *
+     * @param transactionId The transaction ID.
+     * @param userId        The owning main user ID.
+     * @return The updatedAt timestamp, or empty if not found or owned by another user.
+     */
+    @Query("SELECT t.updatedAt FROM Transaction t WHERE t.transactionId = :transactionId AND t.user.userId = :userId")
+    Optional<OffsetDateTime> findUpdatedAtByIdAndUserId(@Param("transactionId") UUID transactionId, @Param("userId") UUID userId);
+
+    /**
+     * Loads a transaction and locks its row until the transaction ends (SELECT ... FOR UPDATE).
+     * Used by updates, so the If-Match check and the write see the same version.
+     *
+     * @param transactionId The transaction ID.
+     * @return The locked transaction, or empty if not found.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.transactionId = :transactionId")
+    Optional<Transaction> findByIdForUpdate(@Param("transactionId") UUID transactionId);
+
+    /**
+     * Projection for aggregated transaction amounts.
+     */
+    interface AmountTotals {
+        BigDecimal getTotalAmount();
+        Long getTransactionCount();
+    }
+
+    /**
+     * Projection for aggregated transaction amounts of a single client.
+     */
+    interface ClientAmountTotals extends AmountTotals {
+        UUID getClientId();
+    }
 }
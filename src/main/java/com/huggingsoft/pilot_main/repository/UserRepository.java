@@ -5,6 +5,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -73,4 +76,15 @@ public interface UserRepository extends JpaRepository<User, UUID>, JpaSpecificat
      * @return A Page of sub-users matching the criteria.
      */
     Page<User> findByParentUserAndIsActive(User parentUser, boolean isActive, Pageable pageable);
+
+    /**
+     * Deactivates a main user and all of its sub-users in one statement.
+     * Used when a tenant is deleted, before its data is purged in the background.
+     *
+     * @param mainUserId The main user ID.
+     * @return The number of users deactivated.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.isActive = false WHERE u.userId = :mainUserId OR u.parentUser.userId = :mainUserId")
+    int deactivateTenant(@Param("mainUserId") UUID mainUserId);
 }
@@ -0,0 +1,26 @@
+package com.huggingsoft.pilot_main.repository.configurations;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryBuilderCustomizer;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * Builds the JPA {@code EntityManagerFactory} in the background while the rest of the context starts.
+ * <p>
+ * Building the Hibernate metamodel over the hs-model-pilot entities is one of the slowest parts of startup.
+ * Repositories are bootstrapped in {@code DEFERRED} mode (see {@code PilotMainApplication}), so nothing waits
+ * for the factory until the context is refreshed, except beans that use it while initializing. Boot applies the
+ * same customization itself, but only when it configures the repositories; here they are declared explicitly.
+ */
+@Configuration
+public class JpaBootstrapConfig {
+
+    @Bean
+    public EntityManagerFactoryBuilderCustomizer backgroundEntityManagerFactoryBootstrap(
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) AsyncTaskExecutor executor) {
+        return builder -> builder.setBootstrapExecutor(executor);
+    }
+}
@@ -0,0 +1,28 @@
+package com.huggingsoft.pilot_main.repository.configurations;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers PostgreSQL JSONB operators that HQL and the Criteria API have no syntax for.
+ * <p>
+ * {@code jsonb_contains(column, document)} renders as {@code column @> cast(document as jsonb)}, with the
+ * document bound as a JSON string parameter. Containment is the operator served by the
+ * {@code jsonb_path_ops} GIN indexes on the {@code context} columns (see {@code ContextIndexJob}).
+ * Registered through {@code META-INF/services}.
+ */
+public class JsonbFunctionContributor implements FunctionContributor {
+
+    public static final String JSONB_CONTAINS = "jsonb_contains";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(JSONB_CONTAINS, "(?1 @> cast(?2 as jsonb))")
+                .setExactArgumentCount(2)
+                .setInvariantType(functionContributions.getTypeConfiguration()
+                        .getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN))
+                .register();
+    }
+}
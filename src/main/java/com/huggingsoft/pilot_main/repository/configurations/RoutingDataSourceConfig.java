@@ -0,0 +1,88 @@
+package com.huggingsoft.pilot_main.repository.configurations;
+
+import com.huggingsoft.pilot_main.repository.routing.ReadReplicaProperties;
+import com.huggingsoft.pilot_main.repository.routing.ReadReplicaRoutingDataSource;
+import com.huggingsoft.pilot_main.repository.routing.Workload;
+import com.huggingsoft.pilot_main.repository.routing.WorkloadRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured DataSource with routing over several pools:
+ * <ul>
+ *   <li>one Hikari pool per {@link Workload} on the primary ({@code oltp} configured under
+ *       {@code spring.datasource.hikari.*}, {@code reporting} and {@code background} under
+ *       {@code workloads.<name>.hikari.*}), each with its own size, timeouts and {@code hikaricp.*} metrics;</li>
+ *   <li>when {@code replicas.enabled=true}, a {@link ReadReplicaRoutingDataSource} in front of them:
+ *       {@code @Transactional(readOnly = true)} work (finders, reports) runs on the replicas.</li>
+ * </ul>
+ * To try replicas locally, run a second PostgreSQL as a streaming standby of the first
+ * ({@code pg_basebackup -R}) on another port, set {@code replicas.pools[0].url} to it and compare
+ * {@code datasource.routing} metrics; stopping the standby sends reads back to the primary.
+ */
+@Configuration
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public class RoutingDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource oltpDataSource(DataSourceProperties properties) {
+        return pool(properties, "oltp");
+    }
+
+    @Bean
+    @ConfigurationProperties("workloads.reporting.hikari")
+    public HikariDataSource reportingDataSource(DataSourceProperties properties) {
+        return pool(properties, "reporting");
+    }
+
+    @Bean
+    @ConfigurationProperties("workloads.background.hikari")
+    public HikariDataSource backgroundDataSource(DataSourceProperties properties) {
+        return pool(properties, "background");
+    }
+
+    @Bean
+    public WorkloadRoutingDataSource workloadRoutingDataSource(DataSourceProperties properties) {
+        return new WorkloadRoutingDataSource(Map.of(
+                Workload.Type.OLTP, oltpDataSource(properties),
+                Workload.Type.REPORTING, reportingDataSource(properties),
+                Workload.Type.BACKGROUND, backgroundDataSource(properties)));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "replicas", name = "enabled", havingValue = "true")
+    public ReadReplicaRoutingDataSource readReplicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                                     ReadReplicaProperties replicaProperties,
+                                                                     MeterRegistry meterRegistry) {
+        return new ReadReplicaRoutingDataSource(workloadRoutingDataSource(dataSourceProperties), replicaProperties,
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties,
+                                 ObjectProvider<ReadReplicaRoutingDataSource> readReplicaRouting) {
+        DataSource target = readReplicaRouting.getIfAvailable(() -> workloadRoutingDataSource(properties));
+        // Defers the routing decision to the first statement, when the transaction's read-only flag is known
+        return new LazyConnectionDataSourceProxy(target);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName(name);
+        return pool;
+    }
+}
@@ -0,0 +1,80 @@
+package com.huggingsoft.pilot_main.repository.configurations;
+
+import com.hsoft.model.entities.v1.Transaction;
+import com.hsoft.model.entities.v1.TransactionItem;
+import com.huggingsoft.pilot_main.shared.UuidV7;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.mapping.KeyValue;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.SimpleValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Switches the primary keys of the append-heavy entities to time-ordered {@link UuidV7} values.
+ * <p>
+ * The entities live in hs-model-pilot, so instead of changing their mapping annotations an
+ * {@link Integrator} replaces the identifier generator on the boot model before the session
+ * factory builds its generators. Only entities with a UUID identifier are touched. IDs are still
+ * assigned before the INSERT, so JDBC batching keeps working (see {@code hibernate.jdbc.*}).
+ */
+@Configuration
+public class UuidV7IdentifierConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(UuidV7IdentifierConfig.class);
+
+    /** Entities receiving time-ordered keys. */
+    static final Set<Class<?>> TIME_ORDERED_ENTITIES = Set.of(Transaction.class, TransactionItem.class);
+
+    @Bean
+    public HibernatePropertiesCustomizer uuidV7IdentifierCustomizer() {
+        return properties -> properties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> List.of(new UuidV7Integrator()));
+    }
+
+    static final class UuidV7Integrator implements Integrator {
+
+        @Override
+        public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+            for (PersistentClass entity : metadata.getEntityBindings()) {
+                if (!TIME_ORDERED_ENTITIES.contains(entity.getMappedClass())) continue;
+                KeyValue identifier = entity.getIdentifier();
+                if (identifier instanceof SimpleValue value && UUID.class.equals(value.getType().getReturnedClass())) {
+                    value.setCustomIdGeneratorCreator(context -> new UuidV7Generator());
+                    log.info("Using time-ordered UUIDv7 identifiers for {}", entity.getEntityName());
+                } else {
+                    log.warn("Entity {} does not have a UUID identifier; keeping its generator", entity.getEntityName());
+                }
+            }
+        }
+    }
+
+    static final class UuidV7Generator implements BeforeExecutionGenerator {
+
+        @Override
+        public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+            return UuidV7.next();
+        }
+
+        @Override
+        public EnumSet<EventType> getEventTypes() {
+            return EventTypeSets.INSERT_ONLY;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.huggingsoft.pilot_main.repository.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Pins the current thread's read-only transactions to the primary (see {@link ReadReplicaRoutingDataSource}).
+ * <p>
+ * For reads that must see a commit that just happened without a caller to make them sticky, e.g. a cache
+ * refreshed from an invalidation: a lagging replica would return the old row, and nothing would correct it
+ * later. The connection is chosen at a transaction's first statement, so set the hint before that.
+ */
+public final class PrimaryReads {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private PrimaryReads() {
+    }
+
+    /**
+     * Runs {@code work} with its reads on the primary.
+     */
+    public static <T> T call(Supplier<T> work) {
+        Boolean previous = ACTIVE.get();
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                ACTIVE.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs {@code work} with its reads on the primary.
+     */
+    public static void run(Runnable work) {
+        call(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    static boolean active() {
+        return ACTIVE.get() != null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.huggingsoft.pilot_main.repository.routing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas for read-only transactions ({@code replicas.*}).
+ *
+ * @param enabled          Master switch; when off, everything runs on the primary.
+ * @param stickyWindow     How long after a caller's write its reads stay on the primary.
+ * @param maxLag           Replicas further behind than this are not used.
+ * @param lagCheckInterval How often replica lag is measured.
+ * @param pools            The replicas.
+ */
+@ConfigurationProperties(prefix = "replicas")
+public record ReadReplicaProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("5s") Duration stickyWindow,
+        @DefaultValue("2s") Duration maxLag,
+        @DefaultValue("2s") Duration lagCheckInterval,
+        List<Pool> pools) {
+
+    public ReadReplicaProperties {
+        pools = pools != null ? List.copyOf(pools) : List.of();
+    }
+
+    /**
+     * @param url               JDBC URL of the standby.
+     * @param username          Defaults to the primary's.
+     * @param password          Defaults to the primary's.
+     * @param maximumPoolSize   Connections kept to this replica.
+     * @param connectionTimeout How long to wait for a connection before falling back to the primary.
+     */
+    public record Pool(String url, String username, String password,
+                       @DefaultValue("10") int maximumPoolSize,
+                       @DefaultValue("2s") Duration connectionTimeout) {}
+}
@@ -0,0 +1,220 @@
+package com.huggingsoft.pilot_main.repository.routing;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends connections of read-only transactions to a replica and everything else to the primary
+ * (the workload pools, see {@link WorkloadRoutingDataSource}).
+ * <p>
+ * Must sit behind a {@code LazyConnectionDataSourceProxy}: the transaction manager opens its connection
+ * before the transaction is marked read-only, and the proxy defers the choice to the first statement.
+ * A read-only transaction goes to the primary anyway when
+ * <ul>
+ *   <li>the caller wrote within the sticky window (read-your-writes, see {@link ReadYourWritesTracker}),</li>
+ *   <li>the thread asked for the primary ({@link PrimaryReads}; background reads that must see the latest
+ *       commit have no caller to be sticky),</li>
+ *   <li>no replica is healthy: every replica's lag is measured on an interval and a replica further behind
+ *       than the maximum lag, not streaming from the primary, or not answering, is skipped until it catches
+ *       up, or</li>
+ *   <li>the chosen replica cannot hand out a connection within its (short) connection timeout.</li>
+ * </ul>
+ * Healthy replicas are used round-robin.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    // Lag is zero when the standby has replayed everything it received (an idle primary sends nothing new).
+    // That only holds while the WAL receiver is streaming: a disconnected standby replays up to the last
+    // received LSN and would report zero forever, so the receiver's pid and status are returned too.
+    // Non-superusers see the status only with pg_read_all_stats; the pid is always visible.
+    private static final String LAG_QUERY = "SELECT pg_is_in_recovery(), r.pid IS NOT NULL, r.status, " +
+            "CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END::bigint " +
+            "FROM (SELECT 1) AS one LEFT JOIN pg_stat_wal_receiver r ON true";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReadYourWritesTracker readYourWrites;
+    private final long maxLagMs;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final Counter primaryWrites;
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+
+    public ReadReplicaRoutingDataSource(DataSource primary, ReadReplicaProperties properties,
+                                        String defaultUsername, String defaultPassword, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.readYourWrites = new ReadYourWritesTracker(properties.stickyWindow());
+        this.maxLagMs = properties.maxLag().toMillis();
+        this.replicas = new ArrayList<>();
+        for (ReadReplicaProperties.Pool pool : properties.pools()) {
+            Replica replica = new Replica("replica-" + replicas.size(), createPool(pool, "replica-" + replicas.size(),
+                    defaultUsername, defaultPassword, meterRegistry));
+            Gauge.builder("datasource.replica.lag", replica.lagMs, AtomicLong::get)
+                    .tag("replica", replica.name).baseUnit("milliseconds")
+                    .description("Replication lag of a read replica; -1 when it cannot be measured")
+                    .register(meterRegistry);
+            replicas.add(replica);
+        }
+        this.primaryWrites = routed(meterRegistry, "primary", "write");
+        this.primaryReads = routed(meterRegistry, "primary", "read");
+        this.replicaReads = routed(meterRegistry, "replica", "read");
+        log.info("Routing read-only transactions to {} replica(s); max lag {} ms, sticky window {}",
+                replicas.size(), maxLagMs, properties.stickyWindow());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readYourWrites.writing();
+            primaryWrites.increment();
+            return primary.getConnection();
+        }
+        Replica replica = PrimaryReads.active() || readYourWrites.recentlyWrote() ? null : pickReplica();
+        if (replica != null) {
+            try {
+                Connection connection = replica.pool.getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.healthy = false; // Until the next successful lag check
+                log.warn("Replica {} did not hand out a connection; using the primary", replica.name, e);
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Replica pools have fixed credentials; a caller with its own goes to the primary
+        readYourWrites.writing();
+        primaryWrites.increment();
+        return primary.getConnection(username, password);
+    }
+
+    private Replica pickReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Measures every replica's lag and updates which replicas are used.
+     */
+    @Scheduled(fixedDelayString = "${replicas.lag-check-interval:2s}")
+    public void checkReplicas() {
+        readYourWrites.sweep();
+        for (Replica replica : replicas) {
+            boolean wasHealthy = replica.healthy;
+            try (Connection connection = replica.pool.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+                rs.next();
+                boolean standby = rs.getBoolean(1);
+                if (!standby && !replica.warnedNotStandby) {
+                    log.warn("Replica {} is not a standby; writes to the primary may never reach it", replica.name);
+                    replica.warnedNotStandby = true;
+                }
+                boolean receiverRunning = rs.getBoolean(2);
+                String receiverStatus = rs.getString(3);
+                if (standby && receiverRunning && receiverStatus == null && !replica.warnedNoStatus) {
+                    log.warn("Replica {} hides its WAL receiver status; grant pg_read_all_stats to its user, " +
+                            "it is not used until then", replica.name);
+                    replica.warnedNoStatus = true;
+                }
+                if (standby && !"streaming".equals(receiverStatus)) {
+                    replica.lagMs.set(-1); // Its replay position says nothing about the primary
+                    replica.healthy = false;
+                    if (wasHealthy) {
+                        log.warn("Replica {} is not streaming from the primary ({}); reading from the primary",
+                                replica.name, receiverRunning ? receiverStatus : "no WAL receiver");
+                    }
+                    continue;
+                }
+                long lag = rs.getLong(4);
+                replica.lagMs.set(lag);
+                replica.healthy = lag <= maxLagMs;
+                if (wasHealthy && !replica.healthy) {
+                    log.warn("Replica {} is {} ms behind; reading from the primary until it catches up", replica.name, lag);
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.lagMs.set(-1);
+                replica.healthy = false;
+                if (wasHealthy) {
+                    log.warn("Lag check of replica {} failed; reading from the primary", replica.name, e);
+                }
+            }
+            if (!wasHealthy && replica.healthy) {
+                log.info("Replica {} is in use ({} ms behind)", replica.name, replica.lagMs.get());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    private static HikariDataSource createPool(ReadReplicaProperties.Pool pool, String name,
+                                               String defaultUsername, String defaultPassword, MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(pool.url());
+        config.setUsername(pool.username() != null ? pool.username() : defaultUsername);
+        config.setPassword(pool.password() != null ? pool.password() : defaultPassword);
+        config.setMaximumPoolSize(pool.maximumPoolSize());
+        config.setConnectionTimeout(pool.connectionTimeout().toMillis());
+        config.setReadOnly(true);
+        config.setInitializationFailTimeout(-1); // Start even if the replica is down; lag checks keep it unused
+        config.setMetricRegistry(meterRegistry);
+        return new HikariDataSource(config);
+    }
+
+    private static Counter routed(MeterRegistry meterRegistry, String target, String kind) {
+        return Counter.builder("datasource.routing").tag("target", target).tag("kind", kind)
+                .description("Connections handed out by the read-replica router")
+                .register(meterRegistry);
+    }
+
+    private static final class Replica {
+        final String name;
+        final HikariDataSource pool;
+        final AtomicLong lagMs = new AtomicLong(-1);
+        volatile boolean healthy; // Unused until the first lag check succeeds
+        volatile boolean warnedNotStandby;
+        volatile boolean warnedNoStatus;
+
+        Replica(String name, HikariDataSource pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+    }
+}
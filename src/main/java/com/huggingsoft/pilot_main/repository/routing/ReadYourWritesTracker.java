@@ -0,0 +1,83 @@
+package com.huggingsoft.pilot_main.repository.routing;
+
+import com.huggingsoft.pilot_main.shared.RequestContext;
+import com.huggingsoft.pilot_main.shared.RequestContextHolder;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers who wrote recently, so their reads can stay on the primary until replicas have caught up.
+ * <p>
+ * Callers are identified by the authenticated principal or, while requests are not authenticated yet,
+ * by their Authorization header; work outside a request (scheduled jobs) is not tracked. The window
+ * starts when the writing transaction commits. Tracking is per instance.
+ */
+final class ReadYourWritesTracker {
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>(); // Caller key -> commit time (nanoTime)
+    private final long windowNanos;
+
+    ReadYourWritesTracker(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Records that the current caller writes; effective once the current transaction (if any) commits.
+     */
+    void writing() {
+        String key = currentCallerKey();
+        if (key == null || windowNanos <= 0) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    lastWrites.put(key, System.nanoTime());
+                }
+            });
+        } else {
+            lastWrites.put(key, System.nanoTime());
+        }
+    }
+
+    /**
+     * Whether the current caller wrote within the window.
+     */
+    boolean recentlyWrote() {
+        String key = currentCallerKey();
+        if (key == null) return false;
+        Long writtenAt = lastWrites.get(key);
+        if (writtenAt == null) return false;
+        if (System.nanoTime() - writtenAt < windowNanos) return true;
+        lastWrites.remove(key, writtenAt);
+        return false;
+    }
+
+    /**
+     * Forgets writes older than the window.
+     */
+    void sweep() {
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(writtenAt -> now - writtenAt >= windowNanos);
+    }
+
+    private static String currentCallerKey() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        RequestContext context = RequestContextHolder.getContext();
+        if (context != null && context.getAuthorizationHeader() != null) {
+            // Only a hash is kept; a collision merely sends someone's reads to the primary
+            return "auth:" + Integer.toHexString(context.getAuthorizationHeader().hashCode());
+        }
+        return null;
+    }
+}
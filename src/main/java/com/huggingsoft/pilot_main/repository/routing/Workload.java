@@ -0,0 +1,32 @@
+package com.huggingsoft.pilot_main.repository.routing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares which connection pool a service method (or every method of a class) uses, so that slow work
+ * cannot take connections from latency-sensitive requests. Methods without it use {@link Type#OLTP}.
+ * <p>
+ * Applied by {@link WorkloadAspect} around the transaction, so it only affects connections opened within
+ * the call; a method joining a caller's transaction keeps the caller's connection. Work handed to other
+ * threads must be wrapped with {@link WorkloadContext#callAs}.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Workload {
+
+    Type value();
+
+    enum Type {
+        /** Short interactive requests (checkout, lookups). */
+        OLTP,
+        /** Long-running reads: reports and exports. */
+        REPORTING,
+        /** Scheduled jobs and bulk imports. */
+        BACKGROUND
+    }
+}
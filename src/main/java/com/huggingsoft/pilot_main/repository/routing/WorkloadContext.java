@@ -0,0 +1,58 @@
+package com.huggingsoft.pilot_main.repository.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * The {@link Workload.Type} of the current thread.
+ */
+public final class WorkloadContext {
+
+    private static final ThreadLocal<Workload.Type> CURRENT = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    /**
+     * The current workload; {@link Workload.Type#OLTP} unless set.
+     */
+    public static Workload.Type current() {
+        Workload.Type type = CURRENT.get();
+        return type != null ? type : Workload.Type.OLTP;
+    }
+
+    /**
+     * Runs {@code work} as {@code type} and restores the previous workload afterwards.
+     */
+    public static <T> T callAs(Workload.Type type, Supplier<T> work) {
+        Workload.Type previous = set(type);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Runs {@code work} as {@code type} and restores the previous workload afterwards.
+     */
+    public static void runAs(Workload.Type type, Runnable work) {
+        callAs(type, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    static Workload.Type set(Workload.Type type) {
+        Workload.Type previous = CURRENT.get();
+        CURRENT.set(type);
+        return previous;
+    }
+
+    static void restore(Workload.Type previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
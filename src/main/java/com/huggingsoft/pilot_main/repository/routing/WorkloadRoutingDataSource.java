@@ -0,0 +1,38 @@
+package com.huggingsoft.pilot_main.repository.routing;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Hands out connections from the pool of the current {@link Workload} (see {@link WorkloadContext}).
+ * Every workload needs a pool; sizes and timeouts are set per pool, so a burst of reports waits for
+ * reporting connections instead of exhausting the OLTP pool.
+ */
+public class WorkloadRoutingDataSource extends AbstractDataSource {
+
+    private final Map<Workload.Type, DataSource> pools;
+
+    public WorkloadRoutingDataSource(Map<Workload.Type, ? extends DataSource> pools) {
+        for (Workload.Type type : Workload.Type.values()) {
+            if (!pools.containsKey(type)) {
+                throw new IllegalArgumentException("No connection pool for workload " + type);
+            }
+        }
+        this.pools = new EnumMap<>(pools);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return pools.get(WorkloadContext.current()).getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return pools.get(WorkloadContext.current()).getConnection(username, password);
+    }
+}
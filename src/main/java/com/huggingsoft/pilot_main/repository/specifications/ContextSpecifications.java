@@ -0,0 +1,135 @@
+package com.huggingsoft.pilot_main.repository.specifications;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hsoft.model.entities.v1.Transaction;
+import com.hsoft.model.entities.v1.TransactionItem;
+import com.huggingsoft.pilot_main.repository.configurations.JsonbFunctionContributor;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Filters on the free-form {@code context} map of an entity, compiled to JSONB containment
+ * ({@code context @> '{...}'}) so that the {@code jsonb_path_ops} GIN index on the column serves them.
+ * <p>
+ * Keys are ANDed. A dotted key addresses a nested object ({@code a.b=1} matches {@code {"a": {"b": 1}}}).
+ * Query parameters are strings, so a value that reads as a JSON number or boolean matches either its
+ * string or its typed form. All unambiguous filters are merged into a single document, so the common
+ * case is one index probe.
+ */
+public final class ContextSpecifications {
+
+    private static final String CONTEXT = "context";
+    private static final JsonNodeFactory JSON = JsonNodeFactory.instance;
+
+    private ContextSpecifications() {
+        // Utility class
+    }
+
+    /**
+     * Matches entities whose {@code context} contains every filter.
+     *
+     * @param filters Attribute key (dot-separated path) to value; empty matches everything.
+     */
+    public static <T> Specification<T> contextContains(Map<String, String> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return null;
+        }
+        List<List<String>> documents = documents(filters);
+        return (root, query, cb) -> containment(cb, root.get(CONTEXT), documents);
+    }
+
+    /**
+     * Matches transactions with at least one item whose {@code context} contains every filter.
+     *
+     * @param filters Attribute key (dot-separated path) to value; empty matches everything.
+     */
+    public static Specification<Transaction> itemContextContains(Map<String, String> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return null;
+        }
+        List<List<String>> documents = documents(filters);
+        return (root, query, cb) -> {
+            // Semi-join: the item index finds the matching items, without duplicating transactions
+            Subquery<Integer> items = query.subquery(Integer.class);
+            Root<TransactionItem> item = items.from(TransactionItem.class);
+            items.select(cb.literal(1))
+                    .where(cb.equal(item.get("transaction"), root), containment(cb, item.get(CONTEXT), documents));
+            return cb.exists(items);
+        };
+    }
+
+    private static Predicate containment(CriteriaBuilder cb, Expression<?> context, List<List<String>> documents) {
+        List<Predicate> all = new ArrayList<>(documents.size());
+        for (List<String> alternatives : documents) {
+            List<Predicate> any = new ArrayList<>(alternatives.size());
+            for (String document : alternatives) {
+                any.add(cb.isTrue(cb.function(JsonbFunctionContributor.JSONB_CONTAINS, Boolean.class,
+                        context, cb.literal(document))));
+            }
+            all.add(any.size() == 1 ? any.get(0) : cb.or(any.toArray(Predicate[]::new)));
+        }
+        return cb.and(all.toArray(Predicate[]::new));
+    }
+
+    /**
+     * Builds the containment documents: an AND of ORs, where the first entry holds every string-only filter
+     * and each number or boolean filter adds an OR of its string and typed forms.
+     */
+    private static List<List<String>> documents(Map<String, String> filters) {
+        ObjectNode merged = JSON.objectNode();
+        List<List<String>> documents = new ArrayList<>();
+        filters.forEach((key, value) -> {
+            JsonNode typed = typed(value);
+            if (typed == null) {
+                put(merged, key, JSON.textNode(value));
+            } else {
+                documents.add(List.of(document(key, JSON.textNode(value)), document(key, typed)));
+            }
+        });
+        if (!merged.isEmpty()) {
+            documents.add(0, List.of(merged.toString()));
+        }
+        return documents;
+    }
+
+    private static String document(String key, JsonNode value) {
+        ObjectNode document = JSON.objectNode();
+        put(document, key, value);
+        return document.toString();
+    }
+
+    private static void put(ObjectNode document, String key, JsonNode value) {
+        String[] path = key.split("\\.");
+        ObjectNode node = document;
+        for (int i = 0; i < path.length - 1; i++) {
+            JsonNode child = node.get(path[i]);
+            node = child instanceof ObjectNode object ? object : node.putObject(path[i]);
+        }
+        node.set(path[path.length - 1], value);
+    }
+
+    private static JsonNode typed(String value) {
+        if (value.equals("true") || value.equals("false")) {
+            return JSON.booleanNode(Boolean.parseBoolean(value));
+        }
+        if (!value.isEmpty() && (Character.isDigit(value.charAt(0)) || value.charAt(0) == '-')) {
+            try {
+                return JSON.numberNode(new BigDecimal(value));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -5,20 +5,39 @@ import com.hsoft.model.dto.v1.products.ProductResponseDTO;
 import com.hsoft.model.dto.v1.products.ProductStockResponseDTO;
 import com.hsoft.model.dto.v1.products.ProductUpdateRequestDTO;
 import com.hsoft.model.dto.v1.products.StockAdjustmentRequestDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductBulkUpdateRequestDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductBulkUpdateResultDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductImportResultDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductSkuLookupDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductSuggestionDTO;
+import com.huggingsoft.pilot_main.service.dto.StockCorrectionDTO;
+import com.huggingsoft.pilot_main.service.dto.VersionedDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 // --- Product Service ---
 public interface ProductService {
     ProductResponseDTO createProduct(Object principal, ProductCreateRequestDTO request);
-    Page<ProductResponseDTO> findProducts(Object principal, String category, Boolean isActive, String search, Pageable pageable);
+    Page<ProductResponseDTO> findProducts(Object principal, String category, Boolean isActive, String search, Map<String, String> contextFilters, Pageable pageable);
     ProductResponseDTO findProductById(Object principal, UUID productId);
-    ProductResponseDTO updateProduct(Object principal, UUID productId, ProductUpdateRequestDTO request);
+    Optional<String> findProductVersion(Object principal, UUID productId);
+    VersionedDTO<ProductResponseDTO> updateProduct(Object principal, UUID productId, ProductUpdateRequestDTO request, String ifMatch);
     void updateProductStatus(Object principal, UUID productId, boolean isActive);
     void deleteProduct(Object principal, UUID productId);
     ProductStockResponseDTO adjustStock(Object principal, UUID productId, StockAdjustmentRequestDTO request);
+    List<ProductStockResponseDTO> correctStock(Object principal, List<StockCorrectionDTO> corrections);
     List<ProductStockResponseDTO> findStockLevelsByIds(Object principal, List<UUID> ids);
+    SseEmitter streamStockChanges(Object principal, String lastEventId);
+    ProductImportResultDTO importProducts(Object principal, InputStream csv);
+    ProductBulkUpdateResultDTO bulkUpdateProducts(Object principal, ProductBulkUpdateRequestDTO request);
+    List<ProductSuggestionDTO> suggestProducts(Object principal, String query, int limit);
+    ProductSkuLookupDTO findProductBySku(Object principal, String sku);
+    List<ProductSkuLookupDTO> findProductsBySkus(Object principal, List<String> skus);
 }
@@ -6,10 +6,13 @@ import com.hsoft.model.dto.v1.transactions.TransactionSummaryResponseDTO;
 import com.hsoft.model.dto.v1.transactions.TransactionUpdateRequestDTO;
 import com.hsoft.model.types.v1.TransactionStatus;
 import com.hsoft.model.types.v1.TransactionType;
+import com.huggingsoft.pilot_main.service.dto.VersionedDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 // --- Transaction Service ---
@@ -18,8 +21,10 @@ public interface TransactionService {
     TransactionDetailResponseDTO createPurchase(Object principal, TransactionCreateRequestDTO request);
     Page<TransactionSummaryResponseDTO> findTransactions(Object principal, TransactionType type, TransactionStatus status,
                                                          UUID clientId, UUID providerId, OffsetDateTime dateFrom,
-                                                         OffsetDateTime dateTo, String referenceNumber, Pageable pageable);
+                                                         OffsetDateTime dateTo, String referenceNumber, Map<String, String> contextFilters,
+                                                         Map<String, String> itemContextFilters, Pageable pageable);
     TransactionDetailResponseDTO findTransactionById(Object principal, UUID transactionId);
-    TransactionDetailResponseDTO updateTransaction(Object principal, UUID transactionId, TransactionUpdateRequestDTO request);
+    Optional<String> findTransactionVersion(Object principal, UUID transactionId);
+    VersionedDTO<TransactionDetailResponseDTO> updateTransaction(Object principal, UUID transactionId, TransactionUpdateRequestDTO request, String ifMatch);
     TransactionDetailResponseDTO cancelTransaction(Object principal, UUID transactionId /*, reason? */);
 }
@@ -0,0 +1,226 @@
+package com.huggingsoft.pilot_main.service.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.huggingsoft.pilot_main.service.events.CacheInvalidatedEvent;
+import com.huggingsoft.pilot_main.service.events.ProductCatalogInvalidatedEvent;
+import com.huggingsoft.pilot_main.service.events.ProductChangedEvent;
+import com.huggingsoft.pilot_main.service.events.StockChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Carries {@link CacheInvalidatedEvent}s between application instances over PostgreSQL LISTEN/NOTIFY.
+ * <p>
+ * Invalidations (and the product change events in-memory indexes keep themselves current from) are sent
+ * with {@code pg_notify} just before the publishing transaction commits. PostgreSQL delivers a notification
+ * only when its transaction commits, so other instances never drop entries for a change that was rolled back,
+ * and identical notifications within one transaction are delivered once.
+ * <p>
+ * Product and stock changes are sent as {@link CacheInvalidatedEvent.Scope#ENTITY ENTITY} invalidations with the
+ * product ID, so receivers refresh just those entries. Deletions and SKU changes (a receiver cannot find the old
+ * SKU) and stock changes touching many products invalidate the tenant instead.
+ * <p>
+ * Each instance listens on a dedicated connection opened outside the pool (a pooler in transaction mode
+ * would lose the LISTEN) and republishes received invalidations as local events; its own are skipped, since
+ * local listeners already applied them. Notifications sent while the listener is disconnected are lost, so
+ * after every reconnect all caches are flushed with {@link CacheInvalidatedEvent#all()}.
+ * <p>
+ * To try it locally, start a second instance with {@code --server.port=8081}, query a tenant's products on
+ * both, change a product on one and watch the other log the invalidation at DEBUG.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+    private static final int MAX_ENTITY_INVALIDATIONS = 50; // Per stock change; more products invalidate the tenant
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    // Identifies this instance as origin of a notification
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile boolean running;
+    private volatile Connection listenerConnection;
+
+    @Value("${cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.invalidation.channel:pilot_cache_invalidation}")
+    private String channel;
+
+    @Value("${cache.invalidation.poll-ms:10000}")
+    private int pollMs;
+
+    @Value("${cache.invalidation.reconnect-max-seconds:30}")
+    private long reconnectMaxSeconds;
+
+    // --- Sending ---
+    // A failing notify fails the commit: the database is unreachable at that point anyway.
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        send(event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.changeType() == ProductChangedEvent.ChangeType.DELETED || event.previousSku() != null) {
+            send(CacheInvalidatedEvent.tenant(CacheInvalidatedEvent.PRODUCT, event.tenantId()));
+        } else {
+            send(CacheInvalidatedEvent.entity(CacheInvalidatedEvent.PRODUCT, event.tenantId(), event.productId()));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onStockChanged(StockChangedEvent event) {
+        if (event.levels().size() > MAX_ENTITY_INVALIDATIONS) {
+            send(CacheInvalidatedEvent.tenant(CacheInvalidatedEvent.PRODUCT, event.tenantId()));
+            return;
+        }
+        for (StockChangedEvent.Level level : event.levels()) {
+            send(CacheInvalidatedEvent.entity(CacheInvalidatedEvent.PRODUCT, event.tenantId(), level.productId()));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onCatalogInvalidated(ProductCatalogInvalidatedEvent event) {
+        send(CacheInvalidatedEvent.tenant(CacheInvalidatedEvent.PRODUCT, event.tenantId()));
+    }
+
+    private void send(CacheInvalidatedEvent event) {
+        if (!enabled) return;
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(new Message(nodeId, event));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Runs on the transaction's connection, so the notification is part of the transaction
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, payload);
+        meterRegistry.counter("cache.invalidation.sent", "scope", event.scope().name()).increment();
+    }
+
+    // --- Receiving ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Cross-instance cache invalidation is disabled");
+            return;
+        }
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("Invalid cache.invalidation.channel: " + channel);
+        }
+        running = true;
+        Thread.ofPlatform().daemon().name("cache-invalidation-listener").start(this::listen);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        closeQuietly(listenerConnection); // Unblocks a pending wait for notifications
+    }
+
+    private void listen() {
+        boolean gap = false;
+        int failures = 0;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                listenerConnection = connection;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                log.info("Listening for cache invalidations on channel {}", channel);
+                failures = 0;
+                if (gap) {
+                    // Invalidations sent while no connection was listening are lost: start over from the database
+                    meterRegistry.counter("cache.invalidation.gaps").increment();
+                    eventPublisher.publishEvent(CacheInvalidatedEvent.all());
+                    gap = false;
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMs);
+                    if (notifications == null || notifications.length == 0) {
+                        if (!connection.isValid(5)) {
+                            throw new SQLException("Cache invalidation listener connection is no longer valid");
+                        }
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receive(notification.getParameter());
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) break;
+                gap = true;
+                long delayMs = Math.min(reconnectMaxSeconds * 1000, 500L << Math.min(failures++, 10));
+                log.warn("Cache invalidation listener failed; reconnecting in {} ms", delayMs, e);
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+            } finally {
+                listenerConnection = null;
+            }
+        }
+        log.info("Cache invalidation listener stopped");
+    }
+
+    private void receive(String payload) {
+        Message message;
+        try {
+            message = objectMapper.readValue(payload, Message.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", payload);
+            return;
+        }
+        if (nodeId.equals(message.origin()) || message.event() == null) {
+            return;
+        }
+        log.debug("Cache invalidation from {}: {}", message.origin(), message.event());
+        meterRegistry.counter("cache.invalidation.received", "scope", message.event().scope().name()).increment();
+        eventPublisher.publishEvent(message.event());
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) return;
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Error closing the cache invalidation listener connection", e);
+        }
+    }
+
+    /** Notification payload (JSON, well below the 8000 byte NOTIFY limit). */
+    record Message(String origin, CacheInvalidatedEvent event) {}
+}
@@ -0,0 +1,51 @@
+package com.huggingsoft.pilot_main.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A set-based change applied to every product matching a filter.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkUpdateRequestDTO {
+    /** Which products to change. At least one criterion is required; criteria are combined with AND. */
+    private Filter filter;
+    private Operation operation;
+    /** Percentage for PRICE_PERCENT (e.g., 8 for +8%, -10 for -10%) or amount for PRICE_AMOUNT. */
+    private BigDecimal value;
+    /** New category for SET_CATEGORY. */
+    private String category;
+
+    public enum Operation {
+        /** Changes the sale price by a percentage, keeping each price's scale. */
+        PRICE_PERCENT,
+        /** Adds an amount (may be negative) to the sale price. */
+        PRICE_AMOUNT,
+        SET_CATEGORY,
+        ACTIVATE,
+        DEACTIVATE
+    }
+
+    /**
+     * Same semantics as the product list filters.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Filter {
+        private String category;
+        private Boolean isActive;
+        /** Case-insensitive substring of name or SKU. */
+        private String search;
+        private List<UUID> ids;
+    }
+}
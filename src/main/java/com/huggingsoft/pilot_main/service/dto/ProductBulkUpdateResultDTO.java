@@ -0,0 +1,19 @@
+package com.huggingsoft.pilot_main.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk product update. Matched products that were not updated either already had
+ * the requested value or would have ended up with a negative price.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkUpdateResultDTO {
+    private long matchedCount;
+    private long updatedCount;
+}
@@ -0,0 +1,36 @@
+package com.huggingsoft.pilot_main.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import: how many rows were created and why the others were rejected.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultDTO {
+    private long totalRows;
+    private long importedCount;
+    private long rejectedCount;
+    private List<RowError> errors;
+    /** True when more rows were rejected than are listed in {@link #errors}. */
+    private boolean errorsTruncated;
+
+    /**
+     * A rejected CSV row. Line numbers are 1-based and count the header line.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String sku;
+        private String message;
+    }
+}
@@ -0,0 +1,23 @@
+package com.huggingsoft.pilot_main.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Result of an exact SKU lookup (e.g., from a barcode scan).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSkuLookupDTO {
+    private UUID productId;
+    private String sku;
+    private BigDecimal salePrice;
+    private Integer currentStock;
+}
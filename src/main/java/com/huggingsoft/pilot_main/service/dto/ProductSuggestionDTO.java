@@ -0,0 +1,23 @@
+package com.huggingsoft.pilot_main.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Lightweight product suggestion returned by the typeahead endpoint.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionDTO {
+    private UUID productId;
+    private String sku;
+    private String name;
+    private BigDecimal salePrice;
+}
@@ -0,0 +1,23 @@
+package com.huggingsoft.pilot_main.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * One line of a multi-product stock correction (e.g., after a physical count).
+ * Exactly one of {@code adjustment} (relative) or {@code absoluteCount} (counted level) must be set.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockCorrectionDTO {
+    private UUID productId;
+    private Integer adjustment;
+    private Integer absoluteCount;
+    private String reason;
+}
@@ -0,0 +1,16 @@
+package com.huggingsoft.pilot_main.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A response body together with the ETag of the entity version it was built from.
+ * Returned by updates, so the client can send its next If-Match without another GET.
+ */
+@Data
+@AllArgsConstructor
+public class VersionedDTO<T> {
+    private T body;
+    /** The quoted strong ETag of the written version (see {@code VersionTags}). */
+    private String etag;
+}
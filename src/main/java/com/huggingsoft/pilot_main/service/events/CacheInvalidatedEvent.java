@@ -0,0 +1,53 @@
+package com.huggingsoft.pilot_main.service.events;
+
+import java.util.UUID;
+
+/**
+ * Tells in-memory caches to drop entries, on this instance and (through the invalidation bus) on every other.
+ * Publish it from the transaction that changed the data; it is delivered on commit and discarded on rollback.
+ * Listeners should consume it with {@code @TransactionalEventListener(fallbackExecution = true)}: events
+ * received from other instances and gap flushes are published outside any transaction.
+ *
+ * @param scope      What the invalidation covers.
+ * @param entityType The kind of data ({@link #PRODUCT}, {@link #USER}, ...); null means all of the tenant's data.
+ * @param tenantId   The owning main user ID; null for {@link Scope#ALL}.
+ * @param entityId   The changed entity's ID, for {@link Scope#ENTITY}; otherwise null.
+ */
+public record CacheInvalidatedEvent(Scope scope, String entityType, UUID tenantId, UUID entityId) {
+
+    public static final String PRODUCT = "product";
+    public static final String USER = "user";
+    public static final String REPORT = "report";
+
+    public enum Scope {
+        /** One entity of a tenant. */
+        ENTITY,
+        /** All of a tenant's data of one type, or all of the tenant's data. */
+        TENANT,
+        /** Everything; published after a gap in which invalidations may have been missed. */
+        ALL
+    }
+
+    public static CacheInvalidatedEvent entity(String entityType, UUID tenantId, UUID entityId) {
+        return new CacheInvalidatedEvent(Scope.ENTITY, entityType, tenantId, entityId);
+    }
+
+    public static CacheInvalidatedEvent tenant(String entityType, UUID tenantId) {
+        return new CacheInvalidatedEvent(Scope.TENANT, entityType, tenantId, null);
+    }
+
+    public static CacheInvalidatedEvent tenant(UUID tenantId) {
+        return tenant(null, tenantId);
+    }
+
+    public static CacheInvalidatedEvent all() {
+        return new CacheInvalidatedEvent(Scope.ALL, null, null, null);
+    }
+
+    /**
+     * Whether caches of {@code type} are affected.
+     */
+    public boolean affects(String type) {
+        return scope == Scope.ALL || entityType == null || entityType.equals(type);
+    }
+}
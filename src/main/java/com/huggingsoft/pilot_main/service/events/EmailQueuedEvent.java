@@ -0,0 +1,8 @@
+package com.huggingsoft.pilot_main.service.events;
+
+/**
+ * Published when an email is written to the outbox. Consumed after commit to deliver it right away
+ * instead of waiting for the next outbox poll.
+ */
+public record EmailQueuedEvent() {
+}
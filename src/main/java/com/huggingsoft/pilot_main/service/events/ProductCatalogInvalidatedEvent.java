@@ -0,0 +1,13 @@
+package com.huggingsoft.pilot_main.service.events;
+
+import java.util.UUID;
+
+/**
+ * Published when many of a tenant's products change at once through set-based SQL (bulk import or update),
+ * bypassing per-product {@link ProductChangedEvent}s. In-memory product indexes drop the tenant and rebuild lazily.
+ * Listeners should consume it with {@code @TransactionalEventListener} (after commit).
+ *
+ * @param tenantId The owning main user ID.
+ */
+public record ProductCatalogInvalidatedEvent(UUID tenantId) {
+}
@@ -0,0 +1,37 @@
+package com.huggingsoft.pilot_main.service.events;
+
+import com.hsoft.model.entities.v1.Product;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Published by the product service whenever a product is created, updated, (de)activated or deleted.
+ * Carries a snapshot of the fields in-memory indexes need, so listeners never have to reload the entity.
+ * Listeners should consume it with {@code @TransactionalEventListener} (after commit).
+ *
+ * @param tenantId     The owning main user ID.
+ * @param productId    The product ID.
+ * @param sku          The SKU after the change.
+ * @param previousSku  The SKU before the change, when it changed; otherwise null.
+ * @param name         The product name after the change.
+ * @param salePrice    The sale price after the change.
+ * @param currentStock The stock level after the change.
+ * @param active       Whether the product is active after the change.
+ * @param changeType   What happened to the product.
+ */
+public record ProductChangedEvent(UUID tenantId, UUID productId, String sku, String previousSku, String name,
+                                  BigDecimal salePrice, int currentStock, boolean active, ChangeType changeType) {
+
+    public enum ChangeType { CREATED, UPDATED, DELETED }
+
+    public static ProductChangedEvent of(ChangeType changeType, Product product, String previousSku) {
+        return new ProductChangedEvent(product.getUser().getUserId(), product.getProductId(), product.getSku(),
+                previousSku, product.getName(), product.getSalePrice(), product.getCurrentStock(),
+                product.isActive(), changeType);
+    }
+
+    public static ProductChangedEvent of(ChangeType changeType, Product product) {
+        return of(changeType, product, null);
+    }
+}
@@ -0,0 +1,16 @@
+package com.huggingsoft.pilot_main.service.events;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Published when a sale is recorded or cancelled, with the quantity sold per product.
+ * Used to rank search suggestions by recent sales.
+ *
+ * @param tenantId   The owning main user ID.
+ * @param quantities Quantity sold, keyed by product ID; negative when the sale is cancelled.
+ * @param soldAt     The sale's transaction date.
+ */
+public record ProductSalesRecordedEvent(UUID tenantId, Map<UUID, Integer> quantities, OffsetDateTime soldAt) {
+}
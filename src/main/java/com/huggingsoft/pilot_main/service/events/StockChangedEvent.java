@@ -0,0 +1,42 @@
+package com.huggingsoft.pilot_main.service.events;
+
+import com.hsoft.model.entities.v1.Product;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Published whenever stock levels change (sales, purchases, cancellations, manual adjustments),
+ * with the resulting level of every affected product. Levels are absolute, so applying the same
+ * event twice (or an older one after a snapshot) is harmless.
+ * Listeners should consume it with {@code @TransactionalEventListener} (after commit).
+ *
+ * @param tenantId The owning main user ID.
+ * @param levels   The stock level after the change of each affected product.
+ * @param source   What caused the change.
+ */
+public record StockChangedEvent(UUID tenantId, List<Level> levels, Source source) {
+
+    public enum Source { SALE, PURCHASE, CANCELLATION, ADJUSTMENT }
+
+    /**
+     * @param productId    The product ID.
+     * @param sku          The product SKU (may be null), so SKU-keyed caches can apply the change.
+     * @param currentStock The stock level after the change.
+     */
+    public record Level(UUID productId, String sku, int currentStock) {}
+
+    /**
+     * Builds the event from the (already updated) products. A product listed more than once counts once.
+     */
+    public static StockChangedEvent of(UUID tenantId, Collection<Product> products, Source source) {
+        Map<UUID, Level> levels = new LinkedHashMap<>();
+        for (Product product : products) {
+            levels.put(product.getProductId(), new Level(product.getProductId(), product.getSku(), product.getCurrentStock()));
+        }
+        return new StockChangedEvent(tenantId, List.copyOf(levels.values()), source);
+    }
+}
@@ -85,7 +85,7 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
-    @Transactional // Ensure token saving and potential email sending are atomic (if not async)
+    @Transactional // Token and outbox email are committed atomically
     public void requestPasswordReset(String email) {
         Optional<User> userOpt = userRepository.findByEmailIgnoreCase(email);
         if (userOpt.isPresent()) {
@@ -107,17 +107,9 @@ public class AuthServiceImpl implements AuthService {
             // matching what your frontend expects.
             String resetLink = passwordResetBaseUrl + "?token=" + token; // Example using query param
 
-            // 4. Send Email using the EmailService
-            try {
-                emailService.sendPasswordResetEmail(user.getEmail(), user.getUsername(), resetLink);
-                log.info("Password reset email initiated for {}", email);
-            } catch (Exception e) {
-                // Log error, but don't reveal failure to the user initiating the request
-                // to prevent user enumeration attacks. The request itself is still 'accepted'.
-                log.error("Failed to send password reset email to {} during request processing: {}", email, e.getMessage());
-                // If email sending MUST succeed for the operation to be considered complete,
-                // re-throw a specific exception here. Otherwise, logging is often sufficient.
-            }
+            // 4. Queue the Email using the EmailService (outbox: committed with the token, delivered after commit)
+            emailService.sendPasswordResetEmail(user.getEmail(), user.getUsername(), resetLink);
+            log.info("Password reset email queued for {}", email);
         } else {
             log.warn("Password reset requested for non-existent email: {}", email);
             // No error thrown to the caller
@@ -7,12 +7,16 @@ import com.hsoft.model.entities.v1.Client;
 import com.hsoft.model.entities.v1.User;
 import com.hsoft.model.mappers.ClientMapper;
 import com.huggingsoft.pilot_main.repository.ClientRepository;
+import com.huggingsoft.pilot_main.repository.TransactionArchiveRepository;
 import com.huggingsoft.pilot_main.repository.TransactionRepository;
 import com.huggingsoft.pilot_main.repository.UserRepository;
+import com.huggingsoft.pilot_main.repository.specifications.ContextSpecifications;
 import com.huggingsoft.pilot_main.service.ClientService;
+import com.huggingsoft.pilot_main.service.dto.VersionedDTO;
 import com.huggingsoft.pilot_main.service.exceptions.DataConflictException;
 import com.huggingsoft.pilot_main.service.exceptions.ResourceNotFoundException;
 import com.huggingsoft.pilot_main.service.exceptions.UnauthorizedOperationException;
+import com.huggingsoft.pilot_main.service.utils.VersionTags;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -21,6 +25,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 // --- Client Service Implementation (Similar pattern to Product) ---
@@ -32,6 +38,7 @@ public class ClientServiceImpl implements ClientService {
     private final ClientRepository clientRepository;
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository; // For delete check
+    private final TransactionArchiveRepository transactionArchiveRepository; // Archived transactions reference clients too
     private final ClientMapper clientMapper;
 
     // TODO: implement this method
@@ -57,6 +64,16 @@ public class ClientServiceImpl implements ClientService {
         return client;
     }
 
+    // Same as findClientForUser, but locks the row until the transaction ends (If-Match updates)
+    private Client lockClientForUser(User user, UUID clientId) {
+        Client client = clientRepository.findByIdForUpdate(clientId)
+                .orElseThrow(() -> new ResourceNotFoundException("Client not found with ID: " + clientId));
+        if (!client.getUser().getUserId().equals(user.getUserId())) {
+            throw new UnauthorizedOperationException("Client does not belong to the authenticated user.");
+        }
+        return client;
+    }
+
     @Override
     @Transactional
     public ClientResponseDTO createClient(Object principal, ClientCreateRequestDTO request) {
@@ -69,7 +86,7 @@ public class ClientServiceImpl implements ClientService {
     }
 
     @Override
-    public Page<ClientResponseDTO> findClients(Object principal, Boolean isActive, String search, Pageable pageable) {
+    public Page<ClientResponseDTO> findClients(Object principal, Boolean isActive, String search, Map<String, String> contextFilters, Pageable pageable) {
         User mainUser = getMainUserFromPrincipal(principal);
         Specification<Client> spec = Specification.where(ClientSpecifications.belongsToUser(mainUser));
         if (isActive != null) {
@@ -78,6 +95,9 @@ public class ClientServiceImpl implements ClientService {
         if (StringUtils.hasText(search)) {
             spec = spec.and(ClientSpecifications.nameOrNitOrEmailContains(search));
         }
+        if (!contextFilters.isEmpty()) {
+            spec = spec.and(ContextSpecifications.contextContains(contextFilters));
+        }
         Page<Client> clientPage = clientRepository.findAll(spec, pageable);
         return clientPage.map(clientMapper::clientToClientResponseDTO);
     }
@@ -89,11 +109,20 @@ public class ClientServiceImpl implements ClientService {
         return clientMapper.clientToClientResponseDTO(client);
     }
 
+    @Override
+    public Optional<String> findClientVersion(Object principal, UUID clientId) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        // Version-only query: no entity load or mapping needed to answer conditional requests
+        return clientRepository.findUpdatedAtByIdAndUserId(clientId, mainUser.getUserId())
+                .map(updatedAt -> VersionTags.of(clientId, updatedAt));
+    }
+
     @Override
     @Transactional
-    public ClientResponseDTO updateClient(Object principal, UUID clientId, ClientUpdateRequestDTO request) {
+    public VersionedDTO<ClientResponseDTO> updateClient(Object principal, UUID clientId, ClientUpdateRequestDTO request, String ifMatch) {
         User mainUser = getMainUserFromPrincipal(principal);
-        Client client = findClientForUser(mainUser, clientId);
+        Client client = lockClientForUser(mainUser, clientId); // Concurrent updates wait here
+        VersionTags.requireMatch(ifMatch, VersionTags.of(clientId, client.getUpdatedAt())); // If-Match, checked under the row lock
         // Update allowed fields
         if (request.getName() != null) client.setName(request.getName());
         if (request.getNit() != null) client.setNit(request.getNit()); // Add uniqueness check if needed
@@ -102,8 +131,11 @@ public class ClientServiceImpl implements ClientService {
         if (request.getAddress() != null) client.setAddress(request.getAddress());
         if (request.getContext() != null) client.getContext().putAll(request.getContext());
 
-        Client updatedClient = clientRepository.save(client);
-        return clientMapper.clientToClientResponseDTO(updatedClient);
+        Client updatedClient = clientRepository.saveAndFlush(client);
+        // Tag of the stored version: the row is still locked, so no other update can have happened in between
+        String etag = clientRepository.findUpdatedAtByIdAndUserId(clientId, mainUser.getUserId())
+                .map(updatedAt -> VersionTags.of(clientId, updatedAt)).orElseThrow();
+        return new VersionedDTO<>(clientMapper.clientToClientResponseDTO(updatedClient), etag);
     }
 
     @Override
@@ -120,8 +152,9 @@ public class ClientServiceImpl implements ClientService {
     public void deleteClient(Object principal, UUID clientId) {
         User mainUser = getMainUserFromPrincipal(principal);
         Client client = findClientForUser(mainUser, clientId);
-        // Check if client used in transactions
-        long usageCount = transactionRepository.count((root, query, cb) -> cb.equal(root.get("client"), client)); // Example spec count
+        // Check if client used in transactions, live or archived (live first: a batch archived in between is counted twice, never missed)
+        long usageCount = transactionRepository.count((root, query, cb) -> cb.equal(root.get("client"), client))
+                + transactionArchiveRepository.countArchivedByClient(mainUser.getUserId(), clientId);
         if(usageCount > 0) {
             throw new DataConflictException("Cannot delete client: It is referenced in " + usageCount + " transaction(s). Consider deactivating instead.");
         }
@@ -0,0 +1,55 @@
+package com.huggingsoft.pilot_main.service.impl;
+
+import com.huggingsoft.pilot_main.repository.EmailOutboxRepository;
+import com.huggingsoft.pilot_main.service.EmailService;
+import com.huggingsoft.pilot_main.service.events.EmailQueuedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.util.HtmlUtils;
+
+/**
+ * Implementation of EmailService using the transactional outbox: emails are written to {@code email_outbox}
+ * in the caller's transaction and delivered by {@code EmailOutboxDispatcher} after commit.
+ * Callers never wait on the email provider, and an email exists if and only if its transaction committed.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxEmailService implements EmailService {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${sendgrid.from-name:}")
+    private String fromName;
+
+    @Override
+    @Transactional // Joins the caller's transaction
+    public void sendPasswordResetEmail(String toEmail, String username, String resetLink) {
+        String appName = fromName == null || fromName.isBlank() ? null : fromName;
+        String subject = "Reset Your Password - " + (appName != null ? appName : "Your Application");
+
+        // --- Build HTML Content (Consider using a templating engine like Thymeleaf for complex emails) ---
+        String htmlContent = String.format("""
+                <html>
+                <body>
+                    <p>Hi %s,</p>
+                    <p>You requested a password reset for your account.</p>
+                    <p>Please click the link below to set a new password. This link will expire in 1 hour.</p>
+                    <p><a href="%s">Reset Password</a></p>
+                    <p>If you did not request a password reset, please ignore this email.</p>
+                    <p>Thanks,<br/>The %s Team</p>
+                </body>
+                </html>
+                """,
+                HtmlUtils.htmlEscape(username), // Personalize with username
+                HtmlUtils.htmlEscape(resetLink), // The secure link
+                HtmlUtils.htmlEscape(appName != null ? appName : "Application") // From name
+        );
+
+        outboxRepository.enqueue(toEmail, subject, htmlContent);
+        eventPublisher.publishEvent(new EmailQueuedEvent());
+    }
+}
@@ -8,25 +8,60 @@ import com.hsoft.model.dto.v1.products.StockAdjustmentRequestDTO;
 import com.hsoft.model.entities.v1.Product;
 import com.hsoft.model.entities.v1.User;
 import com.hsoft.model.mappers.ProductMapper;
+import com.huggingsoft.pilot_main.repository.ProductBulkRepository;
 import com.huggingsoft.pilot_main.repository.ProductRepository;
+import com.huggingsoft.pilot_main.repository.TransactionArchiveRepository;
 import com.huggingsoft.pilot_main.repository.TransactionItemRepository;
 import com.huggingsoft.pilot_main.repository.UserRepository;
+import com.huggingsoft.pilot_main.repository.routing.Workload;
+import com.huggingsoft.pilot_main.repository.specifications.ContextSpecifications;
 import com.huggingsoft.pilot_main.service.ProductService;
+import com.huggingsoft.pilot_main.service.dto.ProductBulkUpdateRequestDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductBulkUpdateResultDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductImportResultDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductSkuLookupDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductSuggestionDTO;
+import com.huggingsoft.pilot_main.service.dto.StockCorrectionDTO;
+import com.huggingsoft.pilot_main.service.dto.VersionedDTO;
+import com.huggingsoft.pilot_main.service.events.ProductCatalogInvalidatedEvent;
+import com.huggingsoft.pilot_main.service.events.ProductChangedEvent;
+import com.huggingsoft.pilot_main.service.events.ProductChangedEvent.ChangeType;
+import com.huggingsoft.pilot_main.service.events.StockChangedEvent;
 import com.huggingsoft.pilot_main.service.exceptions.BusinessRuleViolationException;
 import com.huggingsoft.pilot_main.service.exceptions.DataConflictException;
 import com.huggingsoft.pilot_main.service.exceptions.ResourceNotFoundException;
 import com.huggingsoft.pilot_main.service.exceptions.UnauthorizedOperationException;
+import com.huggingsoft.pilot_main.service.search.ProductSearchIndex;
+import com.huggingsoft.pilot_main.service.search.SkuLookupIndex;
+import com.huggingsoft.pilot_main.service.stream.StockStreamBroadcaster;
+import com.huggingsoft.pilot_main.service.utils.VersionTags;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -36,10 +71,21 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class ProductServiceImpl implements ProductService {
 
+    private static final Logger log = LoggerFactory.getLogger(ProductServiceImpl.class);
+
     private final ProductRepository productRepository;
     private final UserRepository userRepository; // Needed to get main user
     private final TransactionItemRepository transactionItemRepository; // Needed for delete check
+    private final TransactionArchiveRepository transactionArchiveRepository; // Archived items reference products too
     private final ProductMapper productMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final SkuLookupIndex skuLookupIndex;
+    private final StockStreamBroadcaster stockStreamBroadcaster;
+    private final ProductBulkRepository productBulkRepository; // Set-based JDBC for bulk operations
+    private final ApplicationEventPublisher eventPublisher; // Keeps in-memory product indexes current after commit
+
+    @Value("${products.import.max-errors:1000}")
+    private int maxImportErrors;
 
     // --- Helper Methods (Get Main User) ---
     private User getMainUserFromPrincipal(Object principal) {
@@ -65,26 +111,40 @@ public class ProductServiceImpl implements ProductService {
         return product;
     }
 
+    // Same as findProductForUser, but locks the row until the transaction ends (If-Match updates)
+    private Product lockProductForUser(User user, UUID productId) {
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + productId));
+        if (!product.getUser().getUserId().equals(user.getUserId())) {
+            throw new UnauthorizedOperationException("Product does not belong to the authenticated user.");
+        }
+        return product;
+    }
+
     // --- Public Methods ---
     @Override
     @Transactional
     public ProductResponseDTO createProduct(Object principal, ProductCreateRequestDTO request) {
         User mainUser = getMainUserFromPrincipal(principal);
 
-        // Check SKU uniqueness for this user
-        if (StringUtils.hasText(request.getSku()) && productRepository.existsByUserAndSkuIgnoreCase(mainUser, request.getSku())) {
-            throw new DataConflictException("SKU already exists for this user: " + request.getSku());
+        // Check SKU uniqueness for this user (under the SKU lock until commit, as imports do)
+        if (StringUtils.hasText(request.getSku())) {
+            productBulkRepository.lockSkus(mainUser.getUserId());
+            if (productRepository.existsByUserAndSkuIgnoreCase(mainUser, request.getSku())) {
+                throw new DataConflictException("SKU already exists for this user: " + request.getSku());
+            }
         }
 
         Product product = productMapper.productCreateRequestDTOToProduct(request);
         product.setUser(mainUser); // Set owner
 
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(ChangeType.CREATED, savedProduct));
         return productMapper.productToProductResponseDTO(savedProduct);
     }
 
     @Override
-    public Page<ProductResponseDTO> findProducts(Object principal, String category, Boolean isActive, String search, Pageable pageable) {
+    public Page<ProductResponseDTO> findProducts(Object principal, String category, Boolean isActive, String search, Map<String, String> contextFilters, Pageable pageable) {
         User mainUser = getMainUserFromPrincipal(principal);
 
         Specification<Product> spec = Specification.where(ProductSpecifications.belongsToUser(mainUser));
@@ -97,6 +157,9 @@ public class ProductServiceImpl implements ProductService {
         if (StringUtils.hasText(search)) {
             spec = spec.and(ProductSpecifications.nameOrSkuContains(search));
         }
+        if (!contextFilters.isEmpty()) {
+            spec = spec.and(ContextSpecifications.contextContains(contextFilters));
+        }
 
         Page<Product> productPage = productRepository.findAll(spec, pageable);
         return productPage.map(productMapper::productToProductResponseDTO);
@@ -109,14 +172,26 @@ public class ProductServiceImpl implements ProductService {
         return productMapper.productToProductResponseDTO(product);
     }
 
+    @Override
+    public Optional<String> findProductVersion(Object principal, UUID productId) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        // Version-only query: no entity load or mapping needed to answer conditional requests
+        return productRepository.findUpdatedAtByIdAndUserId(productId, mainUser.getUserId())
+                .map(updatedAt -> VersionTags.of(productId, updatedAt));
+    }
+
     @Override
     @Transactional
-    public ProductResponseDTO updateProduct(Object principal, UUID productId, ProductUpdateRequestDTO request) {
+    public VersionedDTO<ProductResponseDTO> updateProduct(Object principal, UUID productId, ProductUpdateRequestDTO request, String ifMatch) {
         User mainUser = getMainUserFromPrincipal(principal);
-        Product product = findProductForUser(mainUser, productId); // Verifies ownership
+        Product product = lockProductForUser(mainUser, productId); // Verifies ownership; concurrent updates wait here
+        VersionTags.requireMatch(ifMatch, VersionTags.of(productId, product.getUpdatedAt())); // If-Match, checked under the row lock
+
+        String previousSku = product.getSku();
 
         // Check SKU uniqueness if changed
         if (StringUtils.hasText(request.getSku()) && !request.getSku().equalsIgnoreCase(product.getSku())) {
+            productBulkRepository.lockSkus(mainUser.getUserId());
             if (productRepository.existsByUserAndSkuIgnoreCase(mainUser, request.getSku())) {
                 throw new DataConflictException("SKU already exists for this user: " + request.getSku());
             }
@@ -134,8 +209,13 @@ public class ProductServiceImpl implements ProductService {
             product.getContext().putAll(request.getContext());
         }
 
-        Product updatedProduct = productRepository.save(product);
-        return productMapper.productToProductResponseDTO(updatedProduct);
+        Product updatedProduct = productRepository.saveAndFlush(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(ChangeType.UPDATED, updatedProduct,
+                previousSku != null && !previousSku.equals(updatedProduct.getSku()) ? previousSku : null));
+        // Tag of the stored version: the row is still locked, so no other update can have happened in between
+        String etag = productRepository.findUpdatedAtByIdAndUserId(productId, mainUser.getUserId())
+                .map(updatedAt -> VersionTags.of(productId, updatedAt)).orElseThrow();
+        return new VersionedDTO<>(productMapper.productToProductResponseDTO(updatedProduct), etag);
     }
 
     @Override
@@ -145,6 +225,7 @@ public class ProductServiceImpl implements ProductService {
         Product product = findProductForUser(mainUser, productId); // Verifies ownership
         product.setActive(isActive);
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(ChangeType.UPDATED, product));
     }
 
     @Override
@@ -153,13 +234,15 @@ public class ProductServiceImpl implements ProductService {
         User mainUser = getMainUserFromPrincipal(principal);
         Product product = findProductForUser(mainUser, productId); // Verifies ownership
 
-        // Check if product is used in transactions
-        long usageCount = transactionItemRepository.countByProductProductId(productId);
+        // Check if product is used in transactions, live or archived (live first: a batch archived in between is counted twice, never missed)
+        long usageCount = transactionItemRepository.countByProductProductId(productId)
+                + transactionArchiveRepository.countArchivedByProduct(mainUser.getUserId(), productId);
         if (usageCount > 0) {
             throw new DataConflictException("Cannot delete product: It is referenced in " + usageCount + " transaction(s). Consider deactivating instead.");
         }
 
         productRepository.delete(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(ChangeType.DELETED, product));
     }
 
     @Override
@@ -178,6 +261,8 @@ public class ProductServiceImpl implements ProductService {
 
         product.setCurrentStock(newStock);
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(ChangeType.UPDATED, product));
+        eventPublisher.publishEvent(StockChangedEvent.of(mainUser.getUserId(), List.of(product), StockChangedEvent.Source.ADJUSTMENT));
 
         // Log the adjustment reason? Depends on requirements.
         // log.info("Stock adjusted for product {} by {}, new stock: {}, reason: {}", productId, request.getAdjustment(), newStock, request.getReason());
@@ -185,6 +270,61 @@ public class ProductServiceImpl implements ProductService {
         return new ProductStockResponseDTO(productId, newStock);
     }
 
+    @Override
+    @Transactional
+    public List<ProductStockResponseDTO> correctStock(Object principal, List<StockCorrectionDTO> corrections) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        if (corrections == null || corrections.isEmpty()) {
+            throw new BusinessRuleViolationException("At least one stock correction is required.");
+        }
+        List<UUID> productIds = new ArrayList<>(corrections.size());
+        List<Integer> adjustments = new ArrayList<>(corrections.size());
+        List<Integer> absoluteCounts = new ArrayList<>(corrections.size());
+        for (StockCorrectionDTO correction : corrections) {
+            if (correction.getProductId() == null) {
+                throw new BusinessRuleViolationException("Every stock correction needs a productId.");
+            }
+            if ((correction.getAdjustment() == null) == (correction.getAbsoluteCount() == null)) {
+                throw new BusinessRuleViolationException("Stock correction for product " + correction.getProductId() + " must set exactly one of adjustment or absoluteCount.");
+            }
+            if (correction.getAbsoluteCount() != null && correction.getAbsoluteCount() < 0) {
+                throw new BusinessRuleViolationException("Counted stock cannot be negative for product " + correction.getProductId() + ".");
+            }
+            if (productIds.contains(correction.getProductId())) {
+                throw new BusinessRuleViolationException("Product " + correction.getProductId() + " appears more than once in the correction list.");
+            }
+            productIds.add(correction.getProductId());
+            adjustments.add(correction.getAdjustment());
+            absoluteCounts.add(correction.getAbsoluteCount());
+        }
+
+        // One statement locks, validates and updates every row; nothing is written if any check fails
+        List<ProductBulkRepository.StockCorrection> results =
+                productBulkRepository.correctStock(mainUser.getUserId(), productIds, adjustments, absoluteCounts);
+        if (results.size() < productIds.size()) {
+            List<UUID> found = results.stream().map(ProductBulkRepository.StockCorrection::productId).toList();
+            throw new ResourceNotFoundException("Products not found or not owned by user: " + productIds.stream().filter(id -> !found.contains(id)).toList());
+        }
+        List<String> negative = results.stream()
+                .filter(r -> r.newStock() < 0)
+                .map(r -> r.productId() + " (current: " + r.previousStock() + ", result: " + r.newStock() + ")")
+                .toList();
+        if (!negative.isEmpty()) {
+            throw new BusinessRuleViolationException("Stock level cannot be negative for: " + String.join(", ", negative));
+        }
+
+        log.info("Applied {} stock corrections for user {}", results.size(), mainUser.getUserId());
+        corrections.stream()
+                .filter(c -> StringUtils.hasText(c.getReason()))
+                .forEach(c -> log.debug("Stock correction for product {}: {}", c.getProductId(), c.getReason()));
+        eventPublisher.publishEvent(new StockChangedEvent(mainUser.getUserId(), results.stream()
+                .map(r -> new StockChangedEvent.Level(r.productId(), r.sku(), r.newStock()))
+                .toList(), StockChangedEvent.Source.ADJUSTMENT));
+        return results.stream()
+                .map(r -> new ProductStockResponseDTO(r.productId(), r.newStock()))
+                .collect(Collectors.toList());
+    }
+
     @Override
     public List<ProductStockResponseDTO> findStockLevelsByIds(Object principal, List<UUID> ids) {
         User mainUser = getMainUserFromPrincipal(principal);
@@ -194,6 +334,142 @@ public class ProductServiceImpl implements ProductService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional
+    @Workload(Workload.Type.BACKGROUND) // A large COPY holds its connection for a while
+    public ProductImportResultDTO importProducts(Object principal, InputStream csv) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        List<String> columns = readImportHeader(reader);
+
+        ProductBulkRepository.ImportOutcome outcome;
+        try {
+            outcome = productBulkRepository.importCsv(mainUser.getUserId(), columns, reader, maxImportErrors);
+        } catch (DataAccessException e) {
+            // COPY aborts on structurally broken CSV (e.g., a row with too many fields); nothing is imported
+            throw new BusinessRuleViolationException("Invalid CSV: " + e.getMostSpecificCause().getMessage());
+        }
+        if (outcome.importedRows() > 0) {
+            eventPublisher.publishEvent(new ProductCatalogInvalidatedEvent(mainUser.getUserId()));
+        }
+
+        long rejectedCount = outcome.totalRows() - outcome.importedRows();
+        return ProductImportResultDTO.builder()
+                .totalRows(outcome.totalRows())
+                .importedCount(outcome.importedRows())
+                .rejectedCount(rejectedCount)
+                .errors(outcome.rejected().stream()
+                        .map(r -> new ProductImportResultDTO.RowError(r.line(), r.sku(), r.error()))
+                        .collect(Collectors.toList()))
+                .errorsTruncated(rejectedCount > outcome.rejected().size())
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public ProductBulkUpdateResultDTO bulkUpdateProducts(Object principal, ProductBulkUpdateRequestDTO request) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        ProductBulkUpdateRequestDTO.Filter filter = request.getFilter();
+        if (filter == null || (!StringUtils.hasText(filter.getCategory()) && filter.getIsActive() == null
+                && !StringUtils.hasText(filter.getSearch()) && (filter.getIds() == null || filter.getIds().isEmpty()))) {
+            throw new BusinessRuleViolationException("Bulk update requires at least one filter criterion (category, isActive, search or ids).");
+        }
+        if (request.getOperation() == null) {
+            throw new BusinessRuleViolationException("Bulk update operation is required.");
+        }
+        ProductBulkRepository.Selection selection = new ProductBulkRepository.Selection(
+                StringUtils.hasText(filter.getCategory()) ? filter.getCategory() : null,
+                filter.getIsActive(),
+                StringUtils.hasText(filter.getSearch()) ? filter.getSearch() : null,
+                filter.getIds() == null || filter.getIds().isEmpty() ? null : filter.getIds());
+
+        UUID userId = mainUser.getUserId();
+        ProductBulkRepository.UpdateOutcome outcome = switch (request.getOperation()) {
+            case PRICE_PERCENT -> productBulkRepository.adjustSalePricesByPercent(userId, selection, requireBulkValue(request));
+            case PRICE_AMOUNT -> productBulkRepository.adjustSalePricesByAmount(userId, selection, requireBulkValue(request));
+            case SET_CATEGORY -> {
+                if (!StringUtils.hasText(request.getCategory())) {
+                    throw new BusinessRuleViolationException("Category is required for SET_CATEGORY.");
+                }
+                yield productBulkRepository.updateCategory(userId, selection, request.getCategory());
+            }
+            case ACTIVATE -> productBulkRepository.updateActive(userId, selection, true);
+            case DEACTIVATE -> productBulkRepository.updateActive(userId, selection, false);
+        };
+        if (outcome.updated() > 0) {
+            eventPublisher.publishEvent(new ProductCatalogInvalidatedEvent(userId));
+        }
+        return new ProductBulkUpdateResultDTO(outcome.matched(), outcome.updated());
+    }
+
+    private static BigDecimal requireBulkValue(ProductBulkUpdateRequestDTO request) {
+        if (request.getValue() == null) {
+            throw new BusinessRuleViolationException("Value is required for " + request.getOperation() + ".");
+        }
+        return request.getValue();
+    }
+
+    // Maps the CSV header to staging columns; accepts snake_case or camelCase names in any order
+    private static List<String> readImportHeader(BufferedReader reader) {
+        String header;
+        try {
+            header = reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the uploaded CSV", e);
+        }
+        if (header == null || header.isBlank()) {
+            throw new BusinessRuleViolationException("CSV is empty; the first line must name the columns.");
+        }
+        List<String> columns = new ArrayList<>();
+        for (String field : header.replace("\uFEFF", "").split(",")) {
+            String column = field.strip().replace("\"", "")
+                    .replaceAll("([a-z])([A-Z])", "$1_$2")
+                    .replace(' ', '_')
+                    .toLowerCase(Locale.ROOT);
+            if (!ProductBulkRepository.IMPORT_COLUMNS.contains(column)) {
+                throw new BusinessRuleViolationException("Unknown CSV column: '" + field.strip() + "'. Expected: " + ProductBulkRepository.IMPORT_COLUMNS);
+            }
+            if (columns.contains(column)) {
+                throw new BusinessRuleViolationException("Duplicate CSV column: '" + field.strip() + "'.");
+            }
+            columns.add(column);
+        }
+        for (String required : List.of("sku", "name", "sale_price")) {
+            if (!columns.contains(required)) {
+                throw new BusinessRuleViolationException("Missing required CSV column: '" + required + "'.");
+            }
+        }
+        return columns;
+    }
+
+    @Override
+    public SseEmitter streamStockChanges(Object principal, String lastEventId) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        return stockStreamBroadcaster.subscribe(mainUser.getUserId(), lastEventId);
+    }
+
+    @Override
+    public List<ProductSuggestionDTO> suggestProducts(Object principal, String query, int limit) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        return productSearchIndex.suggest(mainUser.getUserId(), query, limit);
+    }
+
+    @Override
+    public ProductSkuLookupDTO findProductBySku(Object principal, String sku) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        return skuLookupIndex.find(mainUser.getUserId(), sku)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with SKU: " + sku));
+    }
+
+    @Override
+    public List<ProductSkuLookupDTO> findProductsBySkus(Object principal, List<String> skus) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        return skus.stream()
+                .map(sku -> skuLookupIndex.find(mainUser.getUserId(), sku))
+                .flatMap(Optional::stream) // Unknown SKUs are omitted
+                .collect(Collectors.toList());
+    }
+
     // --- Mappers ---
 //    private Product mapToProductEntity(ProductCreateRequestDTO dto) {
 //        Product product = new Product();
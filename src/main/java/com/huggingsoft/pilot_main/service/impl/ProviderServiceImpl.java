@@ -7,10 +7,15 @@ import com.hsoft.model.entities.v1.Provider;
 import com.hsoft.model.entities.v1.User;
 import com.hsoft.model.mappers.ProviderMapper;
 import com.huggingsoft.pilot_main.repository.ProviderRepository;
+import com.huggingsoft.pilot_main.repository.TransactionArchiveRepository;
 import com.huggingsoft.pilot_main.repository.TransactionRepository;
 import com.huggingsoft.pilot_main.repository.UserRepository;
 import com.huggingsoft.pilot_main.service.ProviderService;
+import com.huggingsoft.pilot_main.service.dto.VersionedDTO;
 import com.huggingsoft.pilot_main.service.exceptions.DataConflictException;
+import com.huggingsoft.pilot_main.service.exceptions.ResourceNotFoundException;
+import com.huggingsoft.pilot_main.service.exceptions.UnauthorizedOperationException;
+import com.huggingsoft.pilot_main.service.utils.VersionTags;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -19,6 +24,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.util.Optional;
 import java.util.UUID;
 
 // --- Provider Service Implementation (Similar pattern to Client) ---
@@ -30,6 +36,7 @@ public class ProviderServiceImpl implements ProviderService {
     private final ProviderRepository providerRepository;
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
+    private final TransactionArchiveRepository transactionArchiveRepository; // Archived transactions reference providers too
     private final ProviderMapper providerMapper;
 
     // Helper method to get main user
@@ -37,6 +44,16 @@ public class ProviderServiceImpl implements ProviderService {
     // Helper to find provider and verify ownership
     private Provider findProviderForUser(User user, UUID providerId) { /* ... */ return null;}
 
+    // Locks the provider row until the transaction ends (If-Match updates)
+    private Provider lockProviderForUser(User user, UUID providerId) {
+        Provider provider = providerRepository.findByIdForUpdate(providerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Provider not found with ID: " + providerId));
+        if (!provider.getUser().getUserId().equals(user.getUserId())) {
+            throw new UnauthorizedOperationException("Provider does not belong to the authenticated user.");
+        }
+        return provider;
+    }
+
     @Override
     @Transactional
     public ProviderResponseDTO createProvider(Object principal, ProviderCreateRequestDTO request) {
@@ -67,11 +84,20 @@ public class ProviderServiceImpl implements ProviderService {
         return providerMapper.providerToProviderResponseDTO(provider);
     }
 
+    @Override
+    public Optional<String> findProviderVersion(Object principal, UUID providerId) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        // Version-only query: no entity load or mapping needed to answer conditional requests
+        return providerRepository.findUpdatedAtByIdAndUserId(providerId, mainUser.getUserId())
+                .map(updatedAt -> VersionTags.of(providerId, updatedAt));
+    }
+
     @Override
     @Transactional
-    public ProviderResponseDTO updateProvider(Object principal, UUID providerId, ProviderUpdateRequestDTO request) {
+    public VersionedDTO<ProviderResponseDTO> updateProvider(Object principal, UUID providerId, ProviderUpdateRequestDTO request, String ifMatch) {
         User mainUser = getMainUserFromPrincipal(principal);
-        Provider provider = findProviderForUser(mainUser, providerId);
+        Provider provider = lockProviderForUser(mainUser, providerId); // Concurrent updates wait here
+        VersionTags.requireMatch(ifMatch, VersionTags.of(providerId, provider.getUpdatedAt())); // If-Match, checked under the row lock
         // Check NIT uniqueness if changed
         if (StringUtils.hasText(request.getNit()) && !request.getNit().equals(provider.getNit())) {
             if (providerRepository.existsByUserAndNit(mainUser, request.getNit())) {
@@ -82,8 +108,11 @@ public class ProviderServiceImpl implements ProviderService {
         // Update other fields
         // ...
         if (request.getContext() != null) provider.getContext().putAll(request.getContext());
-        Provider updatedProvider = providerRepository.save(provider);
-        return providerMapper.providerToProviderResponseDTO(updatedProvider);
+        Provider updatedProvider = providerRepository.saveAndFlush(provider);
+        // Tag of the stored version: the row is still locked, so no other update can have happened in between
+        String etag = providerRepository.findUpdatedAtByIdAndUserId(providerId, mainUser.getUserId())
+                .map(updatedAt -> VersionTags.of(providerId, updatedAt)).orElseThrow();
+        return new VersionedDTO<>(providerMapper.providerToProviderResponseDTO(updatedProvider), etag);
     }
 
     @Override
@@ -100,8 +129,9 @@ public class ProviderServiceImpl implements ProviderService {
     public void deleteProvider(Object principal, UUID providerId) {
         User mainUser = getMainUserFromPrincipal(principal);
         Provider provider = findProviderForUser(mainUser, providerId);
-        // Check if provider used in transactions
-        long usageCount = transactionRepository.count((root, query, cb) -> cb.equal(root.get("provider"), provider));
+        // Check if provider used in transactions, live or archived (live first: a batch archived in between is counted twice, never missed)
+        long usageCount = transactionRepository.count((root, query, cb) -> cb.equal(root.get("provider"), provider))
+                + transactionArchiveRepository.countArchivedByProvider(mainUser.getUserId(), providerId);
         if(usageCount > 0) {
             throw new DataConflictException("Cannot delete provider: It is referenced in " + usageCount + " transaction(s). Consider deactivating instead.");
         }
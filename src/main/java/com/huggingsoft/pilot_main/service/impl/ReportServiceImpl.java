@@ -9,74 +9,228 @@ import com.hsoft.model.entities.v1.User;
 import com.hsoft.model.mappers.ClientMapper;
 import com.hsoft.model.mappers.ProductMapper;
 import com.hsoft.model.types.v1.TransactionType;
+import com.huggingsoft.pilot_main.repository.ClientRepository;
 import com.huggingsoft.pilot_main.repository.ProductRepository;
 import com.huggingsoft.pilot_main.repository.TransactionRepository;
 import com.huggingsoft.pilot_main.repository.UserRepository;
+import com.huggingsoft.pilot_main.repository.routing.Workload;
+import com.huggingsoft.pilot_main.repository.routing.WorkloadContext;
 import com.huggingsoft.pilot_main.service.ReportService;
+import com.huggingsoft.pilot_main.service.exceptions.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 // --- Report Service Implementation (Skeleton) ---
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
+@Workload(Workload.Type.REPORTING) // Report scans must not take connections from checkout
 public class ReportServiceImpl implements ReportService {
 
     private final TransactionRepository transactionRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final ClientRepository clientRepository;
+    private final PlatformTransactionManager transactionManager;
     // Inject EntityManager if needing complex Criteria API aggregations/projections
     private final ClientMapper clientMapper; // Assuming a mapper for Client entity to DTO conversion
     private final ProductMapper productMapper; // Assuming a mapper for Product entity to DTO conversion
 
-    // Helper method to get main user
-    private User getMainUserFromPrincipal(Object principal) { /* ... */ return null;}
+    // Large sales reports are split into month-aligned sub-ranges aggregated concurrently
+    @Value("${reports.sales.max-fan-out:4}")
+    private int maxFanOut;
+    @Value("${reports.sales.parallel-min-months:6}")
+    private int parallelMinMonths;
 
+    private ExecutorService reportExecutor;
+    private TransactionTemplate readOnlyTransaction;
 
-    @Override
-    public Object generateSalesReport(Object principal, OffsetDateTime dateFrom, OffsetDateTime dateTo, String groupBy) {
-        User mainUser = getMainUserFromPrincipal(principal);
+    @PostConstruct
+    void init() {
+        this.reportExecutor = Executors.newFixedThreadPool(Math.max(1, maxFanOut),
+                Thread.ofPlatform().name("sales-report-", 0).daemon(true).factory());
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Live and archived sums are separate statements; one snapshot for both, so a transaction the archiver
+        // moves in between is counted exactly once
+        this.readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
 
-        // 1. Build Specification based on user, dates, type=SALE
-        Specification<Transaction> spec = Specification.where((r, q, cb) -> cb.equal(r.get("user"), mainUser));
-        spec = spec.and((r,q,cb) -> cb.equal(r.get("transactionType"), TransactionType.SALE));
-        spec = spec.and((r,q,cb) -> cb.greaterThanOrEqualTo(r.get("transactionDate"), dateFrom));
-        spec = spec.and((r,q,cb) -> cb.lessThanOrEqualTo(r.get("transactionDate"), dateTo));
-        // Maybe filter by status=COMPLETED?
-        // spec = spec.and((r,q,cb) -> cb.equal(r.get("status"), TransactionStatus.COMPLETED));
+    @PreDestroy
+    void shutdown() {
+        reportExecutor.shutdownNow();
+    }
+
+    // Helper method to get main user (same placeholder lookup as TransactionServiceImpl;
+    // reports of sub-users cover their main account)
+    private User getMainUserFromPrincipal(Object principal) {
+        // Replace with your actual logic based on Spring Security Principal
+        String username = "dummyUser"; // Placeholder
+        User user = userRepository.findByUsernameIgnoreCase(username)
+                .orElseThrow(() -> new ResourceNotFoundException("Authenticated user not found"));
+        return user.getParentUser() != null ? user.getParentUser() : user;
+    }
 
 
-        // 2. Fetch data (potentially with joins via Specification or EntityGraph if needed)
-        List<Transaction> sales = transactionRepository.findAll(spec); // Or use Criteria API directly with EntityManager for aggregations
+    /**
+     * Every database step of a sales report runs on the report executor in its own read-only transaction, never
+     * on the request thread: there, the open-in-view EntityManager would keep its reporting connection until the
+     * response is written, so concurrent reports would each hold a connection while waiting for their sub-ranges
+     * and exhaust the pool. The executor has {@code maxFanOut} threads, so sales reports use at most that many
+     * reporting connections in total, and a task never waits for another.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Object generateSalesReport(Object principal, OffsetDateTime dateFrom, OffsetDateTime dateTo, String groupBy) {
+        User mainUser = await(inReportTransaction(() -> getMainUserFromPrincipal(principal)));
 
-        // 3. Process/Aggregate data based on `groupBy`
-        // Example: Group by client
+        // 1. Split [dateFrom, dateTo] into month-aligned, half-open sub-ranges.
+        //    dateTo is inclusive in the API; timestamps are stored with microsecond precision.
+        List<DateRange> ranges = splitByMonths(dateFrom, dateTo.plus(1, ChronoUnit.MICROS));
+
+        // 2. Aggregate each sub-range in the database and merge the partial results.
+        //    Sums are BigDecimal and counts are longs, so merging is exact.
+        //    Archived transactions are aggregated alongside the live ones (an index range scan, empty for recent ranges).
+        UUID userId = mainUser.getUserId();
+        String sale = TransactionType.SALE.name();
         if ("client".equalsIgnoreCase(groupBy)) {
-            Map<ClientSummaryResponseDTO, BigDecimal> salesByClient = sales.stream()
-                    .filter(tx -> tx.getClient() != null)
-                    .collect(Collectors.groupingBy(
-                            tx -> clientMapper.clientToClientSummaryResponseDTO(tx.getClient()), // Use mapper
-                            Collectors.reducing(BigDecimal.ZERO, Transaction::getTotalAmount, BigDecimal::add)
-                    ));
-            return salesByClient; // Return map or list of custom DTOs
+            Map<UUID, BigDecimal> totalsByClient = aggregate(ranges,
+                    range -> concat(
+                            transactionRepository.sumTotalsByClientBetween(mainUser, TransactionType.SALE, range.from(), range.to()),
+                            transactionRepository.sumArchivedTotalsByClientBetween(userId, sale, range.from(), range.to())),
+                    ReportServiceImpl::mergeClientTotals);
+            return await(inReportTransaction(() -> {
+                Map<ClientSummaryResponseDTO, BigDecimal> salesByClient = new HashMap<>();
+                for (Client client : clientRepository.findAllById(totalsByClient.keySet())) {
+                    salesByClient.put(clientMapper.clientToClientSummaryResponseDTO(client), totalsByClient.get(client.getClientId()));
+                }
+                return salesByClient; // Return map or list of custom DTOs
+            }));
         } else { // Default: Just total sales
-            BigDecimal totalSales = sales.stream()
-                    .map(Transaction::getTotalAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            return Map.of("totalSales", totalSales, "count", sales.size());
+            SalesTotals totals = aggregate(ranges,
+                    range -> List.of(
+                            transactionRepository.sumTotalsBetween(mainUser, TransactionType.SALE, range.from(), range.to()),
+                            transactionRepository.sumArchivedTotalsBetween(userId, sale, range.from(), range.to())),
+                    ReportServiceImpl::mergeTotals);
+            return Map.of("totalSales", totals.totalAmount(), "count", totals.count());
         }
         // Implement other groupBy options (product, day, etc.)
     }
 
+    /**
+     * Runs {@code query} for every sub-range and folds the partial results with {@code merger}.
+     * Sub-ranges run concurrently on the report executor, each in its own read-only transaction
+     * (and therefore on its own connection).
+     */
+    private <P, R> R aggregate(List<DateRange> ranges, Function<DateRange, P> query, BiFunction<R, P, R> merger) {
+        List<CompletableFuture<P>> partials = ranges.stream()
+                .map(range -> inReportTransaction(() -> query.apply(range)))
+                .toList();
+        R result = null;
+        for (CompletableFuture<P> partial : partials) {
+            result = merger.apply(result, await(partial));
+        }
+        return result;
+    }
+
+    private <T> CompletableFuture<T> inReportTransaction(Supplier<T> work) {
+        Workload.Type workload = WorkloadContext.current(); // Thread-bound, so passed on to the executor
+        return CompletableFuture.supplyAsync(() -> WorkloadContext.callAs(workload,
+                () -> readOnlyTransaction.execute(status -> work.get())), reportExecutor);
+    }
+
+    // Rethrows a task's exception as is, so service exceptions keep their HTTP status
+    private static <T> T await(CompletableFuture<T> task) {
+        try {
+            return task.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    static SalesTotals mergeTotals(SalesTotals acc, List<TransactionRepository.AmountTotals> partial) {
+        SalesTotals merged = acc != null ? acc : new SalesTotals(BigDecimal.ZERO, 0L);
+        for (TransactionRepository.AmountTotals row : partial) {
+            merged = new SalesTotals(merged.totalAmount().add(row.getTotalAmount()), merged.count() + row.getTransactionCount());
+        }
+        return merged;
+    }
+
+    static Map<UUID, BigDecimal> mergeClientTotals(Map<UUID, BigDecimal> acc, List<TransactionRepository.ClientAmountTotals> partial) {
+        Map<UUID, BigDecimal> merged = acc != null ? acc : new HashMap<>();
+        for (TransactionRepository.ClientAmountTotals row : partial) {
+            merged.merge(row.getClientId(), row.getTotalAmount(), BigDecimal::add);
+        }
+        return merged;
+    }
+
+    private static <T> List<T> concat(List<T> live, List<T> archived) {
+        if (archived.isEmpty()) return live;
+        List<T> all = new ArrayList<>(live);
+        all.addAll(archived);
+        return all;
+    }
+
+    /**
+     * Splits the half-open range [from, to) into at most {@code maxFanOut} contiguous sub-ranges whose
+     * inner boundaries fall on the first day of a month. Ranges shorter than {@code parallelMinMonths}
+     * months are returned as a single range.
+     */
+    List<DateRange> splitByMonths(OffsetDateTime from, OffsetDateTime to) {
+        List<OffsetDateTime> boundaries = new ArrayList<>();
+        OffsetDateTime boundary = from.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+        while (boundary.isBefore(to)) {
+            boundaries.add(boundary);
+            boundary = boundary.plusMonths(1);
+        }
+        int months = boundaries.size() + 1;
+        if (months < parallelMinMonths || maxFanOut < 2) {
+            return List.of(new DateRange(from, to));
+        }
+
+        int chunks = Math.min(maxFanOut, months);
+        List<DateRange> ranges = new ArrayList<>(chunks);
+        OffsetDateTime start = from;
+        for (int i = 1; i < chunks; i++) {
+            // Spread the month boundaries evenly across the chunks
+            OffsetDateTime end = boundaries.get((int) ((long) i * months / chunks) - 1);
+            ranges.add(new DateRange(start, end));
+            start = end;
+        }
+        ranges.add(new DateRange(start, to));
+        return ranges;
+    }
+
     @Override
     public Object generateInventoryReport(Object principal, String category, Integer minStock, Integer maxStock) {
         User mainUser = getMainUserFromPrincipal(principal);
@@ -107,4 +261,8 @@ public class ReportServiceImpl implements ReportService {
         static Specification<Product> belongsToUser(User user) { return (root, query, cb) -> cb.equal(root.get("user"), user); }
         static Specification<Product> hasCategory(String category) { return (root, query, cb) -> cb.equal(cb.lower(root.get("category")), category.toLowerCase()); }
     }
+
+    record DateRange(OffsetDateTime from, OffsetDateTime to) {}
+
+    record SalesTotals(BigDecimal totalAmount, long count) {}
 }
@@ -27,13 +27,20 @@ import com.hsoft.model.types.v1.TransactionType;
 import com.huggingsoft.pilot_main.repository.ClientRepository;
 import com.huggingsoft.pilot_main.repository.ProductRepository;
 import com.huggingsoft.pilot_main.repository.ProviderRepository;
+import com.huggingsoft.pilot_main.repository.TransactionArchiveRepository;
 import com.huggingsoft.pilot_main.repository.TransactionRepository;
 import com.huggingsoft.pilot_main.repository.UserRepository;
+import com.huggingsoft.pilot_main.repository.specifications.ContextSpecifications;
 import com.huggingsoft.pilot_main.service.TransactionService;
+import com.huggingsoft.pilot_main.service.dto.VersionedDTO;
+import com.huggingsoft.pilot_main.service.events.ProductSalesRecordedEvent;
+import com.huggingsoft.pilot_main.service.events.StockChangedEvent;
 import com.huggingsoft.pilot_main.service.exceptions.BusinessRuleViolationException;
 import com.huggingsoft.pilot_main.service.exceptions.ResourceNotFoundException;
 import com.huggingsoft.pilot_main.service.exceptions.UnauthorizedOperationException;
+import com.huggingsoft.pilot_main.service.utils.VersionTags;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -47,7 +54,9 @@ import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
 // --- Transaction Service Implementation ---
@@ -58,6 +67,7 @@ import java.util.UUID;
 public class TransactionServiceImpl implements TransactionService {
 
     private final TransactionRepository transactionRepository;
+    private final TransactionArchiveRepository transactionArchiveRepository; // Read-through for archived transactions
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
     private final ClientRepository clientRepository;
@@ -69,11 +79,21 @@ public class TransactionServiceImpl implements TransactionService {
     private final ClientMapper clientMapper;
     private final ProviderMapper providerMapper;
     private final ProductMapper productMapper;
+    private final ApplicationEventPublisher eventPublisher; // Sales ranking and stock stream, after commit
+
+    // Helper method to get main user (sub-users record transactions on behalf of their main account)
+    private User getMainUserFromPrincipal(Object principal) {
+        User user = getCreatorUserFromPrincipal(principal);
+        return user.getParentUser() != null ? user.getParentUser() : user;
+    }
 
-    // Helper method to get main user
-    private User getMainUserFromPrincipal(Object principal) { /* ... */ return null;}
     // Helper method to get the actual user performing the action (main or sub)
-    private User getCreatorUserFromPrincipal(Object principal) { /* ... */ return null;}
+    private User getCreatorUserFromPrincipal(Object principal) {
+        // Replace with your actual logic based on Spring Security Principal
+        String username = "dummyUser"; // Placeholder
+        return userRepository.findByUsernameIgnoreCase(username)
+                .orElseThrow(() -> new ResourceNotFoundException("Authenticated user not found"));
+    }
 
 
     @Override
@@ -98,6 +118,9 @@ public class TransactionServiceImpl implements TransactionService {
         calculateTransactionTotal(transaction);
 
         Transaction savedTransaction = transactionRepository.save(transaction);
+        eventPublisher.publishEvent(new ProductSalesRecordedEvent(mainUser.getUserId(), quantitiesByProduct(savedTransaction, 1),
+                savedTransaction.getTransactionDate()));
+        eventPublisher.publishEvent(StockChangedEvent.of(mainUser.getUserId(), stockedProducts(savedTransaction), StockChangedEvent.Source.SALE));
         return transactionMapper.transactionToTransactionDetailResponseDTO(savedTransaction);
     }
 
@@ -123,6 +146,7 @@ public class TransactionServiceImpl implements TransactionService {
         calculateTransactionTotal(transaction);
 
         Transaction savedTransaction = transactionRepository.save(transaction);
+        eventPublisher.publishEvent(StockChangedEvent.of(mainUser.getUserId(), stockedProducts(savedTransaction), StockChangedEvent.Source.PURCHASE));
         return transactionMapper.transactionToTransactionDetailResponseDTO(savedTransaction);
     }
 
@@ -168,7 +192,22 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setItems(items); // Set the processed items on the transaction
     }
 
-    private void calculateTransactionTotal(Transaction transaction) {
+    private static Map<UUID, Integer> quantitiesByProduct(Transaction transaction, int sign) {
+        Map<UUID, Integer> quantities = new HashMap<>();
+        for (TransactionItem item : transaction.getItems()) {
+            quantities.merge(item.getProduct().getProductId(), sign * item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private static List<Product> stockedProducts(Transaction transaction) {
+        return transaction.getItems().stream()
+                .map(TransactionItem::getProduct)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    static void calculateTransactionTotal(Transaction transaction) {
         BigDecimal total = transaction.getItems().stream()
                 .map(TransactionItem::getSubtotal)
                 .filter(Objects::nonNull)
@@ -179,15 +218,21 @@ public class TransactionServiceImpl implements TransactionService {
     // --- Find Methods ---
     @Override
     @Transactional(readOnly=true)
-    public Page<TransactionSummaryResponseDTO> findTransactions(Object principal, TransactionType type, TransactionStatus status, UUID clientId, UUID providerId, OffsetDateTime dateFrom, OffsetDateTime dateTo, String referenceNumber, Pageable pageable) {
+    public Page<TransactionSummaryResponseDTO> findTransactions(Object principal, TransactionType type, TransactionStatus status, UUID clientId, UUID providerId, OffsetDateTime dateFrom, OffsetDateTime dateTo, String referenceNumber, Map<String, String> contextFilters, Map<String, String> itemContextFilters, Pageable pageable) {
         User mainUser = getMainUserFromPrincipal(principal);
         Specification<Transaction> spec = buildTransactionSpecification(mainUser, type, status, clientId, providerId, dateFrom, dateTo, referenceNumber);
+        if (!contextFilters.isEmpty()) {
+            spec = spec.and(ContextSpecifications.contextContains(contextFilters));
+        }
+        if (!itemContextFilters.isEmpty()) {
+            spec = spec.and(ContextSpecifications.itemContextContains(itemContextFilters));
+        }
         Page<Transaction> transactionPage = transactionRepository.findAll(spec, pageable);
         // Map to Summary DTO - Requires fetching client/provider names potentially
         return transactionPage.map(transactionMapper::transactionToTransactionSummaryResponseDTO); // Implement mapping
     }
 
-    private Specification<Transaction> buildTransactionSpecification(User mainUser, TransactionType type, TransactionStatus status, UUID clientId, UUID providerId, OffsetDateTime dateFrom, OffsetDateTime dateTo, String referenceNumber) {
+    static Specification<Transaction> buildTransactionSpecification(User mainUser, TransactionType type, TransactionStatus status, UUID clientId, UUID providerId, OffsetDateTime dateFrom, OffsetDateTime dateTo, String referenceNumber) {
         Specification<Transaction> spec = Specification.where((root, query, cb) -> cb.equal(root.get("user"), mainUser));
 
         if (type != null) {
@@ -220,6 +265,7 @@ public class TransactionServiceImpl implements TransactionService {
     public TransactionDetailResponseDTO findTransactionById(Object principal, UUID transactionId) {
         User mainUser = getMainUserFromPrincipal(principal);
         Transaction transaction = transactionRepository.findDetailedByTransactionId(transactionId) // Use EntityGraph fetch
+                .or(() -> transactionArchiveRepository.findArchived(transactionId)) // Old transactions live in the archive
                 .orElseThrow(() -> new ResourceNotFoundException("Transaction not found with ID: " + transactionId));
 
         // Verify ownership
@@ -229,16 +275,27 @@ public class TransactionServiceImpl implements TransactionService {
         return transactionMapper.transactionToTransactionDetailResponseDTO(transaction);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> findTransactionVersion(Object principal, UUID transactionId) {
+        User mainUser = getMainUserFromPrincipal(principal);
+        // Version-only query: no entity load or mapping needed to answer conditional requests
+        return transactionRepository.findUpdatedAtByIdAndUserId(transactionId, mainUser.getUserId())
+                .or(() -> transactionArchiveRepository.findArchivedUpdatedAt(transactionId, mainUser.getUserId()))
+                .map(updatedAt -> VersionTags.of(transactionId, updatedAt));
+    }
+
     // --- Update/Cancel ---
     @Override
-    public TransactionDetailResponseDTO updateTransaction(Object principal, UUID transactionId, TransactionUpdateRequestDTO request) {
+    public VersionedDTO<TransactionDetailResponseDTO> updateTransaction(Object principal, UUID transactionId, TransactionUpdateRequestDTO request, String ifMatch) {
         User mainUser = getMainUserFromPrincipal(principal);
-        Transaction transaction = transactionRepository.findById(transactionId)
+        Transaction transaction = transactionRepository.findByIdForUpdate(transactionId) // Concurrent updates wait here
                 .orElseThrow(() -> new ResourceNotFoundException("Transaction not found with ID: " + transactionId));
 
         if (!transaction.getUser().getUserId().equals(mainUser.getUserId())) {
             throw new UnauthorizedOperationException("Transaction does not belong to the authenticated user.");
         }
+        VersionTags.requireMatch(ifMatch, VersionTags.of(transactionId, transaction.getUpdatedAt())); // If-Match, checked under the row lock
 
         // Update allowed fields
         if (request.getStatus() != null) transaction.setStatus(request.getStatus());
@@ -249,9 +306,12 @@ public class TransactionServiceImpl implements TransactionService {
         // IMPORTANT: Do NOT allow changing items, client, provider, totalAmount etc. here.
         //            Use specific actions like cancelTransaction or create adjustments.
 
-        Transaction updatedTransaction = transactionRepository.save(transaction);
+        Transaction updatedTransaction = transactionRepository.saveAndFlush(transaction);
+        // Tag of the stored version: the row is still locked, so no other update can have happened in between
+        String etag = transactionRepository.findUpdatedAtByIdAndUserId(transactionId, mainUser.getUserId())
+                .map(updatedAt -> VersionTags.of(transactionId, updatedAt)).orElseThrow();
         // Re-fetch with graph or map carefully if needed for response
-        return transactionMapper.transactionToTransactionDetailResponseDTO(updatedTransaction);
+        return new VersionedDTO<>(transactionMapper.transactionToTransactionDetailResponseDTO(updatedTransaction), etag);
     }
 
     @Override
@@ -290,6 +350,11 @@ public class TransactionServiceImpl implements TransactionService {
         transaction.setStatus(TransactionStatus.CANCELLED);
         // Add cancellation reason/notes if provided
         Transaction savedTransaction = transactionRepository.save(transaction);
+        if (isSale) { // No longer counts towards the products' recent sales
+            eventPublisher.publishEvent(new ProductSalesRecordedEvent(mainUser.getUserId(), quantitiesByProduct(savedTransaction, -1),
+                    savedTransaction.getTransactionDate()));
+        }
+        eventPublisher.publishEvent(StockChangedEvent.of(mainUser.getUserId(), stockedProducts(savedTransaction), StockChangedEvent.Source.CANCELLATION));
         return transactionMapper.transactionToTransactionDetailResponseDTO(savedTransaction);
     }
 
@@ -7,13 +7,16 @@ import com.hsoft.model.dto.v1.users.UserResponseDTO;
 import com.hsoft.model.dto.v1.users.UserUpdateRequestDTO;
 import com.hsoft.model.entities.v1.User;
 import com.hsoft.model.mappers.UserMapper;
+import com.huggingsoft.pilot_main.repository.TenantPurgeRepository;
 import com.huggingsoft.pilot_main.repository.UserRepository;
 import com.huggingsoft.pilot_main.service.UserService;
+import com.huggingsoft.pilot_main.service.events.CacheInvalidatedEvent;
 import com.huggingsoft.pilot_main.service.exceptions.BusinessRuleViolationException;
 import com.huggingsoft.pilot_main.service.exceptions.DataConflictException;
 import com.huggingsoft.pilot_main.service.exceptions.ResourceNotFoundException;
 import com.huggingsoft.pilot_main.service.exceptions.UnauthorizedOperationException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
@@ -33,6 +36,8 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final UserMapper userMapper; // Assuming a mapper for User entity to DTO conversion
+    private final TenantPurgeRepository tenantPurgeRepository; // Tenant data is purged in the background
+    private final ApplicationEventPublisher eventPublisher;
     // Inject other repositories if needed for checks (e.g., TransactionRepository)
 
     // --- Helper Methods ---
@@ -136,8 +141,11 @@ public class UserServiceImpl implements UserService {
     public void deleteMainAccount(String principal) {
         User mainUser = getMainUserFromPrincipal(principal);
         // Add pre-delete checks if needed (e.g., ensure no active subscriptions?)
-        // Be aware of cascade deletes defined in entities (products, clients etc. might be deleted too)
-        userRepository.delete(mainUser);
+        // Only mark the tenant as deleted here (no more logins); a cascading delete of a large tenant in this
+        // transaction would hold locks for minutes. TenantPurgeJob removes the data in small batches.
+        userRepository.deactivateTenant(mainUser.getUserId());
+        tenantPurgeRepository.requestPurge(mainUser.getUserId());
+        eventPublisher.publishEvent(CacheInvalidatedEvent.tenant(mainUser.getUserId())); // Drop cached data on every instance
     }
 
     // --- Sub-User Management ---
@@ -0,0 +1,155 @@
+package com.huggingsoft.pilot_main.service.mail;
+
+import com.huggingsoft.pilot_main.repository.EmailOutboxRepository;
+import com.huggingsoft.pilot_main.repository.routing.Workload;
+import com.huggingsoft.pilot_main.repository.routing.WorkloadContext;
+import com.huggingsoft.pilot_main.service.events.EmailQueuedEvent;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers emails from the outbox.
+ * <p>
+ * Due emails are claimed in batches and sent concurrently over the shared HTTP client. Transient failures
+ * are retried with exponential backoff (with jitter, or the provider's Retry-After); permanent rejections
+ * and emails out of attempts are moved to the DEAD state. If the provider refuses our credentials, the
+ * emails keep their attempts and dispatching pauses for {@code email.outbox.auth-pause-seconds}, so a bad or
+ * rotated API key delays email instead of killing it. Runs on a poll interval and right after a
+ * transaction that queued an email commits. Several instances may dispatch at once: claims skip rows
+ * another dispatcher holds.
+ */
+@Component
+@RequiredArgsConstructor
+public class EmailOutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private final EmailOutboxRepository outboxRepository;
+    private final SendGridMailSender mailSender;
+
+    private final AtomicBoolean dispatching = new AtomicBoolean();
+    private volatile Instant pausedUntil = Instant.MIN;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.retry-base-seconds:30}")
+    private long retryBaseSeconds;
+
+    @Value("${email.outbox.retry-max-seconds:3600}")
+    private long retryMaxSeconds;
+
+    @Value("${email.outbox.in-flight-seconds:120}")
+    private long inFlightSeconds;
+
+    @Value("${email.outbox.auth-pause-seconds:300}")
+    private long authPauseSeconds;
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-ms:5000}")
+    public void poll() {
+        dispatchDue();
+    }
+
+    @TransactionalEventListener
+    public void onEmailQueued(EmailQueuedEvent event) {
+        Thread.ofVirtual().name("email-outbox-dispatch").start(this::dispatchDue); // Don't delay the request thread
+    }
+
+    /**
+     * Sends due emails until none is left. Returns immediately if a dispatch is already running on this instance,
+     * or while dispatching is paused after an auth failure.
+     *
+     * @return The number of emails sent.
+     */
+    public int dispatchDue() {
+        if (paused() || !dispatching.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            return WorkloadContext.callAs(Workload.Type.BACKGROUND, this::dispatchBatches);
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+    private int dispatchBatches() {
+        int sent = 0;
+        try {
+            List<OutboundEmail> batch;
+            do {
+                batch = outboxRepository.claimDue(batchSize, Duration.ofSeconds(inFlightSeconds));
+                sent += deliver(batch);
+            } while (batch.size() == batchSize && !paused());
+        } catch (RuntimeException e) {
+            log.warn("Email outbox dispatch failed; retrying on the next poll", e);
+        }
+        return sent;
+    }
+
+    private int deliver(List<OutboundEmail> batch) {
+        if (batch.isEmpty()) return 0;
+        List<CompletableFuture<SendResult>> results = batch.stream().map(mailSender::sendAsync).toList();
+        List<Long> sent = new ArrayList<>(batch.size());
+        String authError = null;
+        for (int i = 0; i < batch.size(); i++) {
+            OutboundEmail email = batch.get(i);
+            SendResult result = results.get(i).join();
+            switch (result.outcome()) {
+                case SENT -> sent.add(email.id());
+                case RETRY -> {
+                    if (email.attempts() >= maxAttempts) {
+                        log.error("Giving up on email {} to {} after {} attempts: {}", email.id(), email.recipient(), email.attempts(), result.error());
+                        outboxRepository.markDead(email.id(), result.error());
+                    } else {
+                        Duration delay = result.retryAfter() != null ? result.retryAfter() : backoff(email.attempts());
+                        log.warn("Email {} to {} failed (attempt {}), retrying in {} s: {}", email.id(), email.recipient(),
+                                email.attempts(), delay.toSeconds(), result.error());
+                        outboxRepository.reschedule(email.id(), delay, result.error());
+                    }
+                }
+                case REJECTED -> {
+                    log.error("Email {} to {} was rejected: {}", email.id(), email.recipient(), result.error());
+                    outboxRepository.markDead(email.id(), result.error());
+                }
+                case UNAUTHORIZED -> {
+                    outboxRepository.release(email.id(), Duration.ofSeconds(authPauseSeconds), result.error());
+                    authError = result.error();
+                }
+            }
+        }
+        if (authError != null) {
+            pausedUntil = Instant.now().plusSeconds(authPauseSeconds);
+            log.error("Email provider refused the API key; pausing email dispatch for {} s: {}", authPauseSeconds, authError);
+        }
+        outboxRepository.markSent(sent);
+        log.debug("Email outbox batch: {} of {} sent", sent.size(), batch.size());
+        return sent.size();
+    }
+
+    boolean paused() {
+        return Instant.now().isBefore(pausedUntil);
+    }
+
+    // Exponential backoff with jitter: random in [d / 2, d] where d = base * 2^(attempts - 1), capped
+    Duration backoff(int attempts) {
+        long exponential = retryBaseSeconds << Math.min(Math.max(attempts - 1, 0), 20);
+        long ceiling = Math.min(exponential, retryMaxSeconds);
+        return Duration.ofSeconds(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+    }
+}
@@ -0,0 +1,13 @@
+package com.huggingsoft.pilot_main.service.mail;
+
+/**
+ * An email claimed from the outbox for delivery.
+ *
+ * @param id        Outbox row ID.
+ * @param recipient Recipient address.
+ * @param subject   Subject line.
+ * @param htmlBody  HTML content.
+ * @param attempts  Delivery attempts so far, including the current one.
+ */
+public record OutboundEmail(long id, String recipient, String subject, String htmlBody, int attempts) {
+}
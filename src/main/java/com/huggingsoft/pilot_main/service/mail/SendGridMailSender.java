@@ -0,0 +1,132 @@
+package com.huggingsoft.pilot_main.service.mail;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Delivers emails through the SendGrid v3 Mail Send API.
+ * <p>
+ * Uses one shared JDK {@link HttpClient}, which keeps connections to SendGrid open (HTTP/2 multiplexed
+ * where available), so a batch of emails is sent concurrently without a TLS handshake per email.
+ * Responses are classified into {@link SendResult}s; retry policy is left to the caller.
+ */
+@Component
+public class SendGridMailSender {
+
+    private static final Logger log = LoggerFactory.getLogger(SendGridMailSender.class);
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final URI sendUri;
+    private final String apiKey;
+    private final String fromEmailAddress;
+    private final String fromName;
+    private final Duration timeout;
+
+    public SendGridMailSender(
+            ObjectMapper objectMapper,
+            @Value("${sendgrid.base-url:https://api.sendgrid.com}") String baseUrl,
+            @Value("${sendgrid.api-key}") String apiKey,
+            @Value("${sendgrid.from-email}") String fromEmailAddress,
+            @Value("${sendgrid.from-name:}") String fromName, // Optional fromName
+            @Value("${sendgrid.timeout-ms:10000}") long timeoutMs
+    ) {
+        this.objectMapper = objectMapper;
+        this.sendUri = URI.create(baseUrl.replaceAll("/+$", "") + "/v3/mail/send");
+        this.apiKey = apiKey;
+        this.fromEmailAddress = fromEmailAddress;
+        this.fromName = (fromName == null || fromName.trim().isEmpty()) ? null : fromName; // Use null if name is empty
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+        log.info("SendGridMailSender initialized. Endpoint: {}, From Email: {}", sendUri, fromEmailAddress);
+    }
+
+    /**
+     * Sends one email. Never completes exceptionally: failures are reported as {@link SendResult}s.
+     *
+     * @param email The email to send.
+     * @return The outcome, once SendGrid has answered (or the request failed).
+     */
+    public CompletableFuture<SendResult> sendAsync(OutboundEmail email) {
+        HttpRequest request = HttpRequest.newBuilder(sendUri)
+                .timeout(timeout)
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body(email)))
+                .build();
+        log.debug("Sending email {} via SendGrid to: {}, Subject: {}", email.id(), email.recipient(), email.subject());
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(SendGridMailSender::classify)
+                .exceptionally(e -> SendResult.retry("SendGrid request failed: " + rootMessage(e), null));
+    }
+
+    static SendResult classify(HttpResponse<String> response) {
+        int status = response.statusCode();
+        if (status >= 200 && status < 300) {
+            return SendResult.sent();
+        }
+        String error = "SendGrid API request failed with status code " + status + ": " + abbreviate(response.body());
+        if (status == 429 || status >= 500) {
+            Duration retryAfter = response.headers().firstValue("Retry-After")
+                    .flatMap(SendGridMailSender::parseSeconds)
+                    .orElse(null);
+            return SendResult.retry(error, retryAfter);
+        }
+        if (status == 401 || status == 403) {
+            return SendResult.unauthorized(error); // Bad or revoked API key, not this email's fault
+        }
+        return SendResult.rejected(error);
+    }
+
+    private String body(OutboundEmail email) {
+        ObjectNode mail = objectMapper.createObjectNode();
+        mail.putArray("personalizations").addObject().putArray("to").addObject().put("email", email.recipient());
+        ObjectNode from = mail.putObject("from").put("email", fromEmailAddress);
+        if (fromName != null) {
+            from.put("name", fromName);
+        }
+        mail.put("subject", email.subject());
+        mail.putArray("content").addObject().put("type", "text/html").put("value", email.htmlBody());
+        try {
+            return objectMapper.writeValueAsString(mail);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Optional<Duration> parseSeconds(String value) {
+        try {
+            return Optional.of(Duration.ofSeconds(Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            return Optional.empty(); // HTTP-date form; fall back to the caller's backoff
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getClass().getSimpleName() + (root.getMessage() != null ? ": " + root.getMessage() : "");
+    }
+
+    private static String abbreviate(String body) {
+        return body == null || body.length() <= 500 ? body : body.substring(0, 500) + "...";
+    }
+}
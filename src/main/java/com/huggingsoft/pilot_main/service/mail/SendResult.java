@@ -0,0 +1,40 @@
+package com.huggingsoft.pilot_main.service.mail;
+
+import java.time.Duration;
+
+/**
+ * Outcome of one delivery attempt.
+ *
+ * @param outcome    What happened.
+ * @param retryAfter Delay requested by the provider (e.g., Retry-After on 429), or null.
+ * @param error      Failure description, null when sent.
+ */
+public record SendResult(Outcome outcome, Duration retryAfter, String error) {
+
+    public enum Outcome {
+        /** Accepted by the provider. */
+        SENT,
+        /** Transient failure (network, throttling, 5xx); try again later. */
+        RETRY,
+        /** Permanently refused (4xx other than throttling and auth); retrying cannot help. */
+        REJECTED,
+        /** Our credentials were refused (401/403): nothing can be sent until the API key is fixed. */
+        UNAUTHORIZED
+    }
+
+    public static SendResult sent() {
+        return new SendResult(Outcome.SENT, null, null);
+    }
+
+    public static SendResult retry(String error, Duration retryAfter) {
+        return new SendResult(Outcome.RETRY, retryAfter, error);
+    }
+
+    public static SendResult rejected(String error) {
+        return new SendResult(Outcome.REJECTED, null, error);
+    }
+
+    public static SendResult unauthorized(String error) {
+        return new SendResult(Outcome.UNAUTHORIZED, null, error);
+    }
+}
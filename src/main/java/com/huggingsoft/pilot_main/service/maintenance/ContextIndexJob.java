@@ -0,0 +1,78 @@
+package com.huggingsoft.pilot_main.service.maintenance;
+
+import com.huggingsoft.pilot_main.repository.ContextIndexRepository;
+import com.huggingsoft.pilot_main.repository.ContextIndexRepository.ContextIndex;
+import com.huggingsoft.pilot_main.repository.ContextIndexRepository.State;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Ensures the GIN indexes behind the {@code context.<key>} list filters exist.
+ * <p>
+ * Missing indexes are built with {@code CREATE INDEX CONCURRENTLY}, so existing tables stay writable
+ * during the build. A build interrupted by a restart leaves an invalid index that PostgreSQL maintains but
+ * never uses; since the job lease guarantees no other instance is building, such an index is dropped and
+ * rebuilt. Once all indexes are valid a run costs one catalog lookup per table.
+ */
+@Component
+@RequiredArgsConstructor
+public class ContextIndexJob implements HousekeepingJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ContextIndexJob.class);
+
+    private final ContextIndexRepository indexRepository;
+
+    @Value("${context-indexes.cron:0 */10 * * * *}")
+    private String cron;
+
+    // A build cannot renew the lease midway, so the lease must outlast the build on the largest table
+    @Value("${context-indexes.lease-minutes:180}")
+    private long leaseMinutes;
+
+    @Override
+    public String name() {
+        return "context-indexes";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    @Override
+    public Duration leaseDuration() {
+        return Duration.ofMinutes(leaseMinutes);
+    }
+
+    /**
+     * @return The number of indexes built.
+     */
+    @Override
+    public long run(JobContext context) {
+        long built = 0;
+        for (ContextIndex index : indexRepository.indexes()) {
+            State state = indexRepository.state(index);
+            if (state == State.VALID) {
+                continue;
+            }
+            if (state == State.INVALID) {
+                log.warn("Index {} is invalid (interrupted build); rebuilding it", index.name());
+                indexRepository.drop(index);
+            }
+            long started = System.nanoTime();
+            indexRepository.create(index);
+            built++;
+            log.info("Built index {} on {} in {} s", index.name(), index.table(),
+                    Duration.ofNanos(System.nanoTime() - started).toSeconds());
+            if (!context.checkpoint(Duration.ZERO)) {
+                break;
+            }
+        }
+        return built;
+    }
+}
@@ -0,0 +1,50 @@
+package com.huggingsoft.pilot_main.service.maintenance;
+
+import com.huggingsoft.pilot_main.repository.EmailOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * Deletes sent emails from the outbox once they are past the retention period. Dead emails are kept.
+ */
+@Component
+@RequiredArgsConstructor
+public class EmailOutboxCleanupJob implements HousekeepingJob {
+
+    private final EmailOutboxRepository outboxRepository;
+
+    @Value("${email.outbox.cleanup-cron:0 0 * * * *}")
+    private String cron;
+
+    @Value("${email.outbox.sent-retention-days:7}")
+    private int retentionDays;
+
+    @Value("${email.outbox.cleanup-batch-size:1000}")
+    private int batchSize;
+
+    @Override
+    public String name() {
+        return "email-outbox-cleanup";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    @Override
+    public long run(JobContext context) {
+        OffsetDateTime cutoff = OffsetDateTime.now().minusDays(retentionDays);
+        long total = 0;
+        int deleted;
+        do {
+            deleted = outboxRepository.deleteSentBefore(cutoff, batchSize); // Auto-commit: one short transaction per chunk
+            total += deleted;
+        } while (deleted == batchSize && context.checkpoint(Duration.ZERO));
+        return total;
+    }
+}
@@ -0,0 +1,65 @@
+package com.huggingsoft.pilot_main.service.maintenance;
+
+import com.hsoft.model.entities.v1.PasswordResetToken;
+import com.huggingsoft.pilot_main.repository.PasswordResetTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Deletes expired password reset tokens in chunks.
+ */
+@Component
+@RequiredArgsConstructor
+public class ExpiredResetTokensJob implements HousekeepingJob {
+
+    private final PasswordResetTokenRepository passwordResetTokenRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${maintenance.reset-tokens.cron:0 */15 * * * *}")
+    private String cron;
+
+    @Value("${maintenance.reset-tokens.batch-size:500}")
+    private int batchSize;
+
+    private TransactionTemplate batchTransaction;
+
+    @PostConstruct
+    void init() {
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public String name() {
+        return "expired-reset-tokens";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    @Override
+    public long run(JobContext context) {
+        OffsetDateTime now = OffsetDateTime.now();
+        long total = 0;
+        int deleted;
+        do {
+            deleted = batchTransaction.execute(status -> {
+                List<PasswordResetToken> expired = passwordResetTokenRepository.findByExpiryDateBefore(now, PageRequest.ofSize(batchSize));
+                passwordResetTokenRepository.deleteAllInBatch(expired); // One DELETE statement per chunk
+                return expired.size();
+            });
+            total += deleted;
+        } while (deleted == batchSize && context.checkpoint(Duration.ZERO));
+        return total;
+    }
+}
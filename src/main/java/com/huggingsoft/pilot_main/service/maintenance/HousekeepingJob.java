@@ -0,0 +1,45 @@
+package com.huggingsoft.pilot_main.service.maintenance;
+
+import java.time.Duration;
+
+/**
+ * A periodic housekeeping task run by {@link MaintenanceScheduler}.
+ * <p>
+ * Runs are guarded by a database lease named after the job, so across all application instances at
+ * most one run of a job is in progress. Jobs should work in bounded chunks (each in its own short
+ * transaction) and call {@link JobContext#checkpoint} between chunks.
+ */
+public interface HousekeepingJob {
+
+    /**
+     * @return Unique job name, used as lease key and metrics tag.
+     */
+    String name();
+
+    /**
+     * @return Spring cron expression of the schedule, or {@code "-"} to disable the job.
+     */
+    String cron();
+
+    /**
+     * @return How long a lease lasts without a checkpoint; must exceed the duration of one chunk.
+     */
+    default Duration leaseDuration() {
+        return Duration.ofMinutes(10);
+    }
+
+    /**
+     * @return Minimum time between the starts of two runs, across all instances.
+     */
+    default Duration minimumInterval() {
+        return Duration.ofSeconds(30);
+    }
+
+    /**
+     * Runs the job once, while holding its lease.
+     *
+     * @param context Lease checkpointing for chunked work.
+     * @return The number of rows affected.
+     */
+    long run(JobContext context);
+}
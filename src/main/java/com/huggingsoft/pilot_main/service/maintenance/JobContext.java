@@ -0,0 +1,18 @@
+package com.huggingsoft.pilot_main.service.maintenance;
+
+import java.time.Duration;
+
+/**
+ * Handed to a running {@link HousekeepingJob} to pace its chunks and keep its lease.
+ */
+public interface JobContext {
+
+    /**
+     * Called between chunks: pauses for {@code pause} (leaving room for regular traffic and autovacuum),
+     * then renews the job's lease when needed.
+     *
+     * @param pause Throttling delay, may be zero.
+     * @return false if the job must stop: its lease was lost or the application is shutting down.
+     */
+    boolean checkpoint(Duration pause);
+}
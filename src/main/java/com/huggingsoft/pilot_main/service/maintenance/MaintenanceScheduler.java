@@ -0,0 +1,150 @@
+package com.huggingsoft.pilot_main.service.maintenance;
+
+import com.huggingsoft.pilot_main.repository.JobLeaseRepository;
+import com.huggingsoft.pilot_main.repository.routing.Workload;
+import com.huggingsoft.pilot_main.repository.routing.WorkloadContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules every {@link HousekeepingJob} bean on its cron expression and runs it under a database lease,
+ * so that with several application instances each run happens on exactly one of them.
+ * <p>
+ * Per job, the outcome is published as metrics ({@code maintenance.job.duration} timer tagged with the
+ * outcome, {@code maintenance.job.rows} counter, and {@code maintenance.job.last.duration} /
+ * {@code maintenance.job.last.rows} gauges) and recorded in {@code job_leases}.
+ */
+@Component
+@RequiredArgsConstructor
+public class MaintenanceScheduler implements SchedulingConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(MaintenanceScheduler.class);
+
+    private final List<HousekeepingJob> jobs;
+    private final JobLeaseRepository leaseRepository;
+    private final MeterRegistry meterRegistry;
+
+    // Identifies this instance as lease owner; unique even for several instances on one host
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    private final Map<String, LastRun> lastRuns = new ConcurrentHashMap<>();
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        for (HousekeepingJob job : jobs) {
+            if (Scheduled.CRON_DISABLED.equals(job.cron())) {
+                log.info("Housekeeping job {} is disabled", job.name());
+                continue;
+            }
+            LastRun lastRun = lastRuns.computeIfAbsent(job.name(), name -> new LastRun());
+            Gauge.builder("maintenance.job.last.duration", lastRun.durationMs, AtomicLong::get)
+                    .tag("job", job.name()).baseUnit("milliseconds")
+                    .description("Duration of the last run of a housekeeping job on this instance")
+                    .register(meterRegistry);
+            Gauge.builder("maintenance.job.last.rows", lastRun.rows, AtomicLong::get)
+                    .tag("job", job.name())
+                    .description("Rows affected by the last run of a housekeeping job on this instance")
+                    .register(meterRegistry);
+            registrar.addCronTask(() -> WorkloadContext.runAs(Workload.Type.BACKGROUND, () -> runOnce(job)), job.cron());
+        }
+    }
+
+    /**
+     * Runs a job now if no instance currently holds its lease.
+     *
+     * @return true if the job ran on this instance.
+     */
+    public boolean runOnce(HousekeepingJob job) {
+        if (!leaseRepository.tryAcquire(job.name(), owner, job.leaseDuration())) {
+            log.debug("Housekeeping job {} is running elsewhere or ran recently; skipping", job.name());
+            return false;
+        }
+        Lease lease = new Lease(job);
+        long started = System.nanoTime();
+        long rows = 0;
+        String error = null;
+        try {
+            rows = job.run(lease);
+        } catch (RuntimeException e) {
+            error = String.valueOf(e.getMessage());
+            log.warn("Housekeeping job {} failed", job.name(), e);
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            record(job, elapsed, rows, error == null ? "success" : "failure");
+            try {
+                leaseRepository.release(job.name(), owner, job.minimumInterval(), TimeUnit.NANOSECONDS.toMillis(elapsed), rows, error);
+            } catch (RuntimeException e) {
+                log.warn("Could not release the lease of housekeeping job {}; it expires on its own", job.name(), e);
+            }
+        }
+        if (rows > 0) {
+            log.info("Housekeeping job {} affected {} rows in {} ms", job.name(), rows,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+        return true;
+    }
+
+    private void record(HousekeepingJob job, long elapsedNanos, long rows, String outcome) {
+        Timer.builder("maintenance.job.duration").tag("job", job.name()).tag("outcome", outcome)
+                .register(meterRegistry).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("maintenance.job.rows").tag("job", job.name())
+                .register(meterRegistry).increment(rows);
+        LastRun lastRun = lastRuns.computeIfAbsent(job.name(), name -> new LastRun());
+        lastRun.durationMs.set(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        lastRun.rows.set(rows);
+    }
+
+    private record LastRun(AtomicLong durationMs, AtomicLong rows) {
+        LastRun() {
+            this(new AtomicLong(), new AtomicLong());
+        }
+    }
+
+    /** The lease of one run; renewed at checkpoints once half of it has elapsed. */
+    private final class Lease implements JobContext {
+        private final HousekeepingJob job;
+        private long renewedAt = System.nanoTime();
+
+        Lease(HousekeepingJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public boolean checkpoint(Duration pause) {
+            try {
+                if (!pause.isZero()) {
+                    Thread.sleep(pause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            if (System.nanoTime() - renewedAt < job.leaseDuration().toNanos() / 2) {
+                return true;
+            }
+            if (!leaseRepository.renew(job.name(), owner, job.leaseDuration())) {
+                log.warn("Housekeeping job {} lost its lease; stopping", job.name());
+                return false;
+            }
+            renewedAt = System.nanoTime();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.huggingsoft.pilot_main.service.maintenance;
+
+import com.huggingsoft.pilot_main.repository.TenantPurgeRepository;
+import com.huggingsoft.pilot_main.repository.TenantPurgeRepository.PurgeState;
+import com.huggingsoft.pilot_main.repository.TenantPurgeRepository.Step;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Removes the data of deleted tenants in the background.
+ * <p>
+ * {@code deleteMainAccount} only deactivates the tenant and registers it in {@code tenant_purge}. This job
+ * claims registered purges one at a time and deletes their rows in small batches, each batch in its own
+ * transaction together with its progress update, with a {@link JobContext#checkpoint} between batches. Locks
+ * stay short, WAL is spread out, and a purge interrupted by a restart resumes at its recorded step once its
+ * per-tenant lease expires.
+ */
+@Component
+@RequiredArgsConstructor
+public class TenantPurgeJob implements HousekeepingJob {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantPurgeJob.class);
+
+    private final TenantPurgeRepository purgeRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${tenants.purge.cron:0 * * * * *}")
+    private String cron;
+
+    @Value("${tenants.purge.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${tenants.purge.pause-ms:100}")
+    private long pauseMs;
+
+    @Value("${tenants.purge.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${tenants.purge.retry-seconds:900}")
+    private long retrySeconds;
+
+    private TransactionTemplate batchTransaction;
+
+    @PostConstruct
+    void init() {
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public String name() {
+        return "tenant-purge";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    /**
+     * Purges registered tenants until none is left to claim.
+     *
+     * @return The number of rows deleted.
+     */
+    @Override
+    public long run(JobContext context) {
+        long deleted = 0;
+        Optional<PurgeState> claimed;
+        while ((claimed = batchTransaction.execute(status -> purgeRepository.claimNext(lease()))).isPresent()) {
+            PurgeOutcome outcome = purge(claimed.get(), context);
+            deleted += outcome.deletedRows();
+            if (!outcome.finished()) {
+                break; // Interrupted or failed: the purge is picked up again once its lease expires
+            }
+        }
+        return deleted;
+    }
+
+    private PurgeOutcome purge(PurgeState state, JobContext context) {
+        UUID tenantId = state.tenantId();
+        log.info("Purging tenant {} from step {} (attempt {}, {} rows deleted so far)",
+                tenantId, state.step(), state.attempts(), state.deletedRows());
+        long deleted = 0;
+        Step step = state.step();
+        try {
+            while (step != null) {
+                Step current = step;
+                int rows = batchTransaction.execute(status -> {
+                    int n = purgeRepository.deleteBatch(current, tenantId, batchSize);
+                    Step resumeAt = n < batchSize ? current.next() : current;
+                    if (resumeAt == null) {
+                        purgeRepository.finish(tenantId, n);
+                    } else {
+                        purgeRepository.recordProgress(tenantId, resumeAt, n, lease());
+                    }
+                    return n;
+                });
+                deleted += rows;
+                if (rows < batchSize) {
+                    log.debug("Tenant {} purge: step {} complete", tenantId, current);
+                    step = current.next();
+                }
+                if (step != null && !context.checkpoint(Duration.ofMillis(pauseMs))) {
+                    log.info("Tenant {} purge interrupted at step {}; it resumes after the lease expires", tenantId, step);
+                    return new PurgeOutcome(deleted, false);
+                }
+            }
+            log.info("Purged tenant {}: {} rows deleted", tenantId, state.deletedRows() + deleted);
+            return new PurgeOutcome(deleted, true);
+        } catch (RuntimeException e) {
+            log.warn("Tenant {} purge failed at step {}; retrying in {} s", tenantId, step, retrySeconds, e);
+            batchTransaction.executeWithoutResult(status ->
+                    purgeRepository.recordFailure(tenantId, String.valueOf(e.getMessage()), Duration.ofSeconds(retrySeconds)));
+            return new PurgeOutcome(deleted, false);
+        }
+    }
+
+    private Duration lease() {
+        return Duration.ofSeconds(leaseSeconds);
+    }
+
+    private record PurgeOutcome(long deletedRows, boolean finished) {}
+}
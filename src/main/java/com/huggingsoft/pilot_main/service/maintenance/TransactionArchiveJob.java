@@ -0,0 +1,73 @@
+package com.huggingsoft.pilot_main.service.maintenance;
+
+import com.huggingsoft.pilot_main.repository.TransactionArchiveRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * Moves closed transactions older than the archive horizon out of the live tables, keeping the hot
+ * transaction and item tables (and their indexes) limited to recent activity.
+ * <p>
+ * Work is done in small batches, each in its own short transaction, so locks are held briefly and
+ * autovacuum can reclaim the freed space while the job runs.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionArchiveJob implements HousekeepingJob {
+
+    private final TransactionArchiveRepository archiveRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${transactions.archive.cron:0 30 3 * * *}")
+    private String cron;
+
+    @Value("${transactions.archive.horizon-days:730}")
+    private int horizonDays;
+
+    @Value("${transactions.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${transactions.archive.pause-ms:200}")
+    private long pauseMs;
+
+    private TransactionTemplate batchTransaction;
+
+    @PostConstruct
+    void init() {
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public String name() {
+        return "transaction-archive";
+    }
+
+    @Override
+    public String cron() {
+        return cron;
+    }
+
+    /**
+     * Archives every closed transaction dated before now minus the horizon.
+     *
+     * @return The number of transactions moved to the archive.
+     */
+    @Override
+    public long run(JobContext context) {
+        OffsetDateTime cutoff = OffsetDateTime.now().minusDays(horizonDays);
+        long total = 0;
+        int moved;
+        do {
+            moved = batchTransaction.execute(status -> archiveRepository.archiveBatch(cutoff, batchSize));
+            total += moved;
+        } while (moved == batchSize && context.checkpoint(Duration.ofMillis(pauseMs)));
+        return total;
+    }
+}
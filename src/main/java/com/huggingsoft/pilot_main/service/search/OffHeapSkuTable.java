@@ -0,0 +1,308 @@
+package com.huggingsoft.pilot_main.service.search;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Open-addressing (linear probing) hash table of (tenant, normalized SKU) -> product id, sale price and stock,
+ * stored entirely in direct (off-heap) memory so that millions of entries add almost nothing to GC work.
+ * <p>
+ * Each slot is a fixed 64-byte record; SKU bytes live in a separate append-only arena and are compared
+ * on lookup, so hash collisions never return the wrong product. Removed slots become tombstones; both
+ * tombstones and orphaned arena bytes are reclaimed when the table is rehashed.
+ * <p>
+ * Thread-safe: lookups share a read lock, mutations take the write lock.
+ */
+final class OffHeapSkuTable {
+
+    // Slot layout (bytes)
+    private static final int HASH = 0;            // long: 0 = empty, 1 = tombstone
+    private static final int TENANT_MSB = 8;      // long
+    private static final int TENANT_LSB = 16;     // long
+    private static final int PRODUCT_MSB = 24;    // long
+    private static final int PRODUCT_LSB = 32;    // long
+    private static final int PRICE_UNSCALED = 40; // long
+    private static final int PRICE_SCALE = 48;    // int, NO_PRICE when the price is null or does not fit a long
+    private static final int STOCK = 52;          // int
+    private static final int SKU_OFFSET = 56;     // int, offset into the arena
+    private static final int SKU_LENGTH = 60;     // int
+    private static final int SLOT_SIZE = 64;
+
+    private static final long EMPTY = 0L;
+    private static final long TOMBSTONE = 1L;
+    private static final int NO_PRICE = Integer.MIN_VALUE;
+    private static final double MAX_LOAD = 0.6;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE / SLOT_SIZE;
+
+    /** Value stored for a (tenant, SKU) key. */
+    record Value(UUID productId, BigDecimal salePrice, int currentStock) {}
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private ByteBuffer slots;
+    private ByteBuffer arena;
+    private int capacity;   // Always a power of two
+    private int live;
+    private int tombstones;
+
+    OffHeapSkuTable(int initialCapacity) {
+        this.capacity = Integer.highestOneBit(Math.max(16, initialCapacity - 1)) << 1;
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        this.arena = ByteBuffer.allocateDirect(capacity * 16);
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Approximate off-heap footprint in bytes. */
+    long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) slots.capacity() + arena.capacity();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Value get(UUID tenantId, String normalizedSku) {
+        byte[] sku = normalizedSku.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(tenantId, sku);
+        lock.readLock().lock();
+        try {
+            int slot = find(hash, tenantId, sku);
+            return slot < 0 ? null : readValue(slot * SLOT_SIZE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(UUID tenantId, String normalizedSku, Value value) {
+        byte[] sku = normalizedSku.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(tenantId, sku);
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash, tenantId, sku);
+            if (slot >= 0) {
+                writeValue(slot * SLOT_SIZE, value); // Same key: the SKU bytes are already in the arena
+                return;
+            }
+            if (live + tombstones + 1 > capacity * MAX_LOAD) {
+                // Grow when mostly live; otherwise a same-size rehash is enough to clear tombstones
+                rehash(live + 1 > capacity * MAX_LOAD / 2 ? capacity * 2 : capacity);
+            }
+            insert(hash, tenantId, sku, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates only the stock of an existing entry, leaving its price untouched.
+     * Does nothing if the SKU is absent or now maps to a different product.
+     */
+    boolean updateStock(UUID tenantId, String normalizedSku, UUID productId, int currentStock) {
+        byte[] sku = normalizedSku.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(tenantId, sku);
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash, tenantId, sku);
+            if (slot < 0) {
+                return false;
+            }
+            int base = slot * SLOT_SIZE;
+            if (slots.getLong(base + PRODUCT_MSB) != productId.getMostSignificantBits()
+                    || slots.getLong(base + PRODUCT_LSB) != productId.getLeastSignificantBits()) {
+                return false;
+            }
+            slots.putInt(base + STOCK, currentStock);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean remove(UUID tenantId, String normalizedSku) {
+        byte[] sku = normalizedSku.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(tenantId, sku);
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash, tenantId, sku);
+            if (slot < 0) {
+                return false;
+            }
+            slots.putLong(slot * SLOT_SIZE + HASH, TOMBSTONE);
+            live--;
+            tombstones++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every entry of the given tenant keys in one pass. Scans the whole table, so callers batch
+     * the keys and run it off the request path.
+     */
+    int removeTenants(Set<UUID> tenantIds) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                int base = slot * SLOT_SIZE;
+                if (isOccupied(slots.getLong(base + HASH))
+                        && tenantIds.contains(new UUID(slots.getLong(base + TENANT_MSB), slots.getLong(base + TENANT_LSB)))) {
+                    slots.putLong(base + HASH, TOMBSTONE);
+                    removed++;
+                }
+            }
+            live -= removed;
+            tombstones += removed;
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- Internals (callers hold the lock) ---
+
+    private int find(long hash, UUID tenantId, byte[] sku) {
+        int mask = capacity - 1;
+        for (int slot = (int) hash & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int base = slot * SLOT_SIZE;
+            long stored = slots.getLong(base + HASH);
+            if (stored == EMPTY) {
+                return -1;
+            }
+            if (stored == hash
+                    && slots.getLong(base + TENANT_MSB) == tenantId.getMostSignificantBits()
+                    && slots.getLong(base + TENANT_LSB) == tenantId.getLeastSignificantBits()
+                    && skuEquals(base, sku)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long hash, UUID tenantId, byte[] sku, Value value) {
+        int mask = capacity - 1;
+        int slot = (int) hash & mask;
+        while (isOccupied(slots.getLong(slot * SLOT_SIZE + HASH))) {
+            slot = (slot + 1) & mask;
+        }
+        int base = slot * SLOT_SIZE;
+        if (slots.getLong(base + HASH) == TOMBSTONE) {
+            tombstones--;
+        }
+        slots.putLong(base + HASH, hash);
+        slots.putLong(base + TENANT_MSB, tenantId.getMostSignificantBits());
+        slots.putLong(base + TENANT_LSB, tenantId.getLeastSignificantBits());
+        slots.putInt(base + SKU_OFFSET, appendToArena(sku));
+        slots.putInt(base + SKU_LENGTH, sku.length);
+        writeValue(base, value);
+        live++;
+    }
+
+    private void rehash(int newCapacity) {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("SKU index capacity exceeded: " + newCapacity + " slots");
+        }
+        ByteBuffer oldSlots = slots;
+        ByteBuffer oldArena = arena;
+        int oldCapacity = capacity;
+
+        capacity = newCapacity;
+        slots = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+        arena = ByteBuffer.allocateDirect(Math.max(oldArena.position(), newCapacity * 16));
+        live = 0;
+        tombstones = 0;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int base = slot * SLOT_SIZE;
+            long hash = oldSlots.getLong(base + HASH);
+            if (!isOccupied(hash)) continue;
+            UUID tenantId = new UUID(oldSlots.getLong(base + TENANT_MSB), oldSlots.getLong(base + TENANT_LSB));
+            byte[] sku = new byte[oldSlots.getInt(base + SKU_LENGTH)];
+            oldArena.get(oldSlots.getInt(base + SKU_OFFSET), sku);
+            insert(hash, tenantId, sku, readValue(oldSlots, base));
+        }
+    }
+
+    private int appendToArena(byte[] sku) {
+        if (arena.remaining() < sku.length) {
+            long grown = Math.max((long) arena.capacity() * 2, (long) arena.position() + sku.length);
+            if (grown > Integer.MAX_VALUE) {
+                throw new IllegalStateException("SKU arena capacity exceeded");
+            }
+            ByteBuffer bigger = ByteBuffer.allocateDirect((int) grown);
+            bigger.put(arena.flip());
+            arena = bigger;
+        }
+        int offset = arena.position();
+        arena.put(sku);
+        return offset;
+    }
+
+    private boolean skuEquals(int base, byte[] sku) {
+        if (slots.getInt(base + SKU_LENGTH) != sku.length) {
+            return false;
+        }
+        int offset = slots.getInt(base + SKU_OFFSET);
+        for (int i = 0; i < sku.length; i++) {
+            if (arena.get(offset + i) != sku[i]) return false;
+        }
+        return true;
+    }
+
+    private void writeValue(int base, Value value) {
+        slots.putLong(base + PRODUCT_MSB, value.productId().getMostSignificantBits());
+        slots.putLong(base + PRODUCT_LSB, value.productId().getLeastSignificantBits());
+        BigDecimal price = value.salePrice();
+        if (price != null && price.unscaledValue().bitLength() < 64) {
+            slots.putLong(base + PRICE_UNSCALED, price.unscaledValue().longValue());
+            slots.putInt(base + PRICE_SCALE, price.scale());
+        } else {
+            slots.putLong(base + PRICE_UNSCALED, 0L);
+            slots.putInt(base + PRICE_SCALE, NO_PRICE);
+        }
+        slots.putInt(base + STOCK, value.currentStock());
+    }
+
+    private Value readValue(int base) {
+        return readValue(slots, base);
+    }
+
+    private static Value readValue(ByteBuffer slots, int base) {
+        UUID productId = new UUID(slots.getLong(base + PRODUCT_MSB), slots.getLong(base + PRODUCT_LSB));
+        int scale = slots.getInt(base + PRICE_SCALE);
+        BigDecimal price = scale == NO_PRICE ? null
+                : new BigDecimal(BigInteger.valueOf(slots.getLong(base + PRICE_UNSCALED)), scale);
+        return new Value(productId, price, slots.getInt(base + STOCK));
+    }
+
+    private static long hash(UUID tenantId, byte[] sku) {
+        long h = 0xcbf29ce484222325L ^ tenantId.getMostSignificantBits() * 31 ^ tenantId.getLeastSignificantBits();
+        for (byte b : sku) {
+            h = (h ^ b) * 0x100000001b3L; // FNV-1a
+        }
+        // murmur3 fmix64 to spread the low bits used for the slot index
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return isOccupied(h) ? h : h + 2; // Never collide with the EMPTY/TOMBSTONE markers
+    }
+
+    private static boolean isOccupied(long hash) {
+        return hash != EMPTY && hash != TOMBSTONE;
+    }
+}
@@ -0,0 +1,473 @@
+package com.huggingsoft.pilot_main.service.search;
+
+import com.hsoft.model.types.v1.TransactionStatus;
+import com.hsoft.model.types.v1.TransactionType;
+import com.huggingsoft.pilot_main.repository.ProductRepository;
+import com.huggingsoft.pilot_main.repository.TransactionItemRepository;
+import com.huggingsoft.pilot_main.repository.routing.PrimaryReads;
+import com.huggingsoft.pilot_main.repository.routing.Workload;
+import com.huggingsoft.pilot_main.repository.routing.WorkloadContext;
+import com.huggingsoft.pilot_main.service.dto.ProductSuggestionDTO;
+import com.huggingsoft.pilot_main.service.events.CacheInvalidatedEvent;
+import com.huggingsoft.pilot_main.service.events.ProductCatalogInvalidatedEvent;
+import com.huggingsoft.pilot_main.service.events.ProductChangedEvent;
+import com.huggingsoft.pilot_main.service.events.ProductSalesRecordedEvent;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-tenant in-memory typeahead index over product name and SKU.
+ * <p>
+ * Every position of the (lower-cased) name and SKU is indexed as a trigram, and every word start
+ * as a one- and two-character prefix. Queries of three or more characters intersect the trigram
+ * posting lists and verify the substring; shorter queries match word (and SKU) prefixes only.
+ * Results are ranked by match quality (name prefix, SKU prefix, word prefix, substring), then by
+ * units sold in the recent-sales window.
+ * <p>
+ * A tenant's index is built lazily on its first query and kept current from
+ * {@link ProductChangedEvent} and {@link ProductSalesRecordedEvent} after commit.
+ * Only active products are indexed. Sales counters are recounted on a schedule so that sales leaving the
+ * window stop counting; between recounts they follow recorded and cancelled sales.
+ * <p>
+ * The build runs outside the tenant map: a {@link CompletableFuture} is registered first, so concurrent queries
+ * of the same tenant wait for one build, and other tenants are never blocked by it. Changes committed while a
+ * build is running wait for it as well and are applied on top of the result.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+    private static final char PREFIX_MARKER = '\u0001'; // Distinguishes word-prefix grams from trigrams
+
+    private final ProductRepository productRepository;
+    private final TransactionItemRepository transactionItemRepository;
+
+    private final Map<UUID, CompletableFuture<TenantIndex>> tenants = new ConcurrentHashMap<>();
+
+    @Value("${products.search.max-tenants:1000}")
+    private int maxTenants;
+
+    @Value("${products.search.recent-sales-days:30}")
+    private int recentSalesDays;
+
+    /**
+     * Returns up to {@code limit} suggestions for the query, building the tenant's index if needed.
+     * Must be called within a (read-only) transaction the first time a tenant is queried.
+     */
+    public List<ProductSuggestionDTO> suggest(UUID tenantId, String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        TenantIndex index = index(tenantId);
+        index.lastAccess = System.nanoTime();
+        evictIfNeeded();
+        return index.search(normalized, limit);
+    }
+
+    private TenantIndex index(UUID tenantId) {
+        CompletableFuture<TenantIndex> future = tenants.get(tenantId);
+        if (future == null) {
+            CompletableFuture<TenantIndex> building = new CompletableFuture<>();
+            future = tenants.putIfAbsent(tenantId, building);
+            if (future == null) {
+                try {
+                    building.complete(build(tenantId));
+                } catch (RuntimeException e) {
+                    tenants.remove(tenantId, building); // The next query tries again
+                    building.completeExceptionally(e);
+                    throw e;
+                }
+                future = building;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e; // Another query's failed build
+        }
+    }
+
+    // Runs a change against a tenant's index if it is loaded or being built (after the build completes)
+    private void ifIndexed(UUID tenantId, Consumer<TenantIndex> change) {
+        CompletableFuture<TenantIndex> future = tenants.get(tenantId);
+        if (future == null) {
+            return;
+        }
+        TenantIndex index;
+        try {
+            index = future.join();
+        } catch (CompletionException e) {
+            return; // Failed build: nothing to keep current
+        }
+        change.accept(index);
+    }
+
+    /**
+     * Drops a tenant's index; it is rebuilt on the next query.
+     */
+    public void evict(UUID tenantId) {
+        tenants.remove(tenantId);
+    }
+
+    /**
+     * Drops every tenant index.
+     */
+    public void evictAll() {
+        tenants.clear();
+    }
+
+    @TransactionalEventListener
+    public void onCatalogInvalidated(ProductCatalogInvalidatedEvent event) {
+        evict(event.tenantId());
+    }
+
+    // Also receives invalidations from other instances, where the change itself is not known here
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        if (event.scope() == CacheInvalidatedEvent.Scope.ALL) {
+            evictAll();
+        } else if (event.affects(CacheInvalidatedEvent.PRODUCT)) {
+            if (event.scope() == CacheInvalidatedEvent.Scope.ENTITY && event.entityId() != null) {
+                refresh(event.tenantId(), event.entityId());
+            } else {
+                evict(event.tenantId());
+            }
+        }
+    }
+
+    // Re-reads one product instead of rebuilding the tenant (stock changes on other instances arrive this way).
+    // The read goes to the primary: a replica may not have replayed the change that sent the invalidation.
+    private void refresh(UUID tenantId, UUID productId) {
+        ifIndexed(tenantId, index -> PrimaryReads.call(() -> productRepository.findActiveSearchEntryById(productId, tenantId))
+                .ifPresentOrElse(
+                        entry -> index.upsert(productId, entry.getSku(), entry.getName(), entry.getSalePrice()),
+                        () -> index.remove(productId)));
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        ifIndexed(event.tenantId(), index -> {
+            if (event.changeType() == ProductChangedEvent.ChangeType.DELETED || !event.active()) {
+                index.remove(event.productId());
+            } else {
+                index.upsert(event.productId(), event.sku(), event.name(), event.salePrice());
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public void onSalesRecorded(ProductSalesRecordedEvent event) {
+        if (event.soldAt() != null && event.soldAt().isBefore(recentSalesSince())) {
+            return; // Backdated sale, or cancellation of one that no longer counts
+        }
+        ifIndexed(event.tenantId(), index -> event.quantities().forEach(index::addSales));
+    }
+
+    /**
+     * Recounts the recent sales of every built tenant index from the database, dropping sales that left the
+     * window. An event applied while a tenant is recounted may be lost or counted twice until the next run;
+     * the counters only rank suggestions.
+     */
+    @Scheduled(fixedDelayString = "${products.search.recent-sales-recount:1h}",
+            initialDelayString = "${products.search.recent-sales-recount:1h}")
+    public void recountRecentSales() {
+        WorkloadContext.runAs(Workload.Type.BACKGROUND, () -> tenants.forEach((tenantId, future) -> {
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                return; // A build in flight counts from the database anyway
+            }
+            try {
+                future.join().resetSales(recentSales(tenantId));
+            } catch (RuntimeException e) {
+                log.warn("Recounting recent sales of tenant {} failed; keeping the current counts", tenantId, e);
+            }
+        }));
+    }
+
+    private Map<UUID, Long> recentSales(UUID tenantId) {
+        Map<UUID, Long> sales = new HashMap<>();
+        for (TransactionItemRepository.ProductQuantity sold : transactionItemRepository.sumQuantitiesByProductSince(
+                tenantId, TransactionType.SALE, TransactionStatus.CANCELLED, recentSalesSince())) {
+            sales.put(sold.getProductId(), sold.getQuantity());
+        }
+        return sales;
+    }
+
+    private OffsetDateTime recentSalesSince() {
+        return OffsetDateTime.now().minusDays(recentSalesDays);
+    }
+
+    private TenantIndex build(UUID tenantId) {
+        long start = System.nanoTime();
+        TenantIndex index = new TenantIndex();
+        for (ProductRepository.SearchEntry entry : productRepository.findActiveSearchEntriesByUserId(tenantId)) {
+            index.upsert(entry.getProductId(), entry.getSku(), entry.getName(), entry.getSalePrice());
+        }
+        recentSales(tenantId).forEach(index::addSales);
+        log.info("Built product search index for tenant {} ({} products) in {} ms",
+                tenantId, index.size(), (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    private void evictIfNeeded() {
+        while (tenants.size() > maxTenants) {
+            // Builds in flight are not candidates: they are about to be used
+            Optional<Map.Entry<UUID, CompletableFuture<TenantIndex>>> oldest = tenants.entrySet().stream()
+                    .filter(e -> e.getValue().isDone() && !e.getValue().isCompletedExceptionally())
+                    .min(Comparator.comparingLong(e -> e.getValue().join().lastAccess));
+            if (oldest.isEmpty()) {
+                return;
+            }
+            tenants.remove(oldest.get().getKey(), oldest.get().getValue());
+        }
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.strip().toLowerCase(Locale.ROOT);
+    }
+
+    // --- Index structures ---
+
+    private static final class Entry {
+        final UUID productId;
+        final String sku;
+        final String name;
+        final String skuKey;
+        final String nameKey;
+        final BigDecimal salePrice;
+        volatile long recentSales;
+
+        Entry(UUID productId, String sku, String name, BigDecimal salePrice, long recentSales) {
+            this.productId = productId;
+            this.sku = sku;
+            this.name = name;
+            this.skuKey = normalize(sku);
+            this.nameKey = normalize(name);
+            this.salePrice = salePrice;
+            this.recentSales = recentSales;
+        }
+
+        /** Match quality: 4 name prefix, 3 SKU prefix, 2 word prefix, 1 substring, 0 no match. */
+        int matchTier(String query) {
+            if (nameKey.startsWith(query)) return 4;
+            if (skuKey.startsWith(query)) return 3;
+            for (int i = nameKey.indexOf(' '); i >= 0; i = nameKey.indexOf(' ', i + 1)) {
+                if (nameKey.startsWith(query, i + 1)) return 2;
+            }
+            if (query.length() >= 3 && (nameKey.contains(query) || skuKey.contains(query))) return 1;
+            return 0;
+        }
+    }
+
+    private record Candidate(Entry entry, int tier) {}
+
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparingInt(Candidate::tier)
+            .thenComparingLong(c -> c.entry().recentSales)
+            .thenComparing(c -> c.entry().nameKey, Comparator.reverseOrder());
+
+    /** Growable sorted list of slot numbers; slots are always appended in increasing order. */
+    private static final class Postings {
+        int[] slots = new int[4];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        boolean contains(int slot) {
+            return Arrays.binarySearch(slots, 0, size, slot) >= 0;
+        }
+    }
+
+    private static final class TenantIndex {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final List<Entry> entries = new ArrayList<>();          // slot -> entry, null once removed
+        private final Map<UUID, Integer> slotByProduct = new HashMap<>();
+        private final Map<String, Postings> postings = new HashMap<>();
+        private int removed;
+        volatile long lastAccess = System.nanoTime();
+
+        int size() {
+            return slotByProduct.size();
+        }
+
+        void upsert(UUID productId, String sku, String name, BigDecimal salePrice) {
+            lock.writeLock().lock();
+            try {
+                long sales = 0;
+                Integer previous = slotByProduct.remove(productId);
+                if (previous != null) {
+                    sales = entries.get(previous).recentSales;
+                    entries.set(previous, null);
+                    removed++;
+                }
+                append(new Entry(productId, sku, name, salePrice, sales));
+                if (removed > 1024 && removed > slotByProduct.size()) {
+                    compact();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(UUID productId) {
+            lock.writeLock().lock();
+            try {
+                Integer slot = slotByProduct.remove(productId);
+                if (slot != null) {
+                    entries.set(slot, null);
+                    removed++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void addSales(UUID productId, long quantity) {
+            lock.readLock().lock();
+            try {
+                Integer slot = slotByProduct.get(productId);
+                if (slot != null) {
+                    Entry entry = entries.get(slot);
+                    entry.recentSales = Math.max(0, entry.recentSales + quantity); // Ranking hint only; a lost update is harmless
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void resetSales(Map<UUID, Long> sales) {
+            lock.readLock().lock(); // Like addSales: counters are not part of the structure
+            try {
+                for (Entry entry : entries) {
+                    if (entry != null) {
+                        entry.recentSales = sales.getOrDefault(entry.productId, 0L);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<ProductSuggestionDTO> search(String query, int limit) {
+            lock.readLock().lock();
+            try {
+                PriorityQueue<Candidate> top = new PriorityQueue<>(limit + 1, RANKING);
+                for (int slot : candidateSlots(query)) {
+                    Entry entry = entries.get(slot);
+                    if (entry == null) continue;
+                    int tier = entry.matchTier(query);
+                    if (tier == 0) continue;
+                    top.offer(new Candidate(entry, tier));
+                    if (top.size() > limit) top.poll();
+                }
+                List<ProductSuggestionDTO> result = new ArrayList<>(top.size());
+                while (!top.isEmpty()) {
+                    Entry e = top.poll().entry();
+                    result.add(new ProductSuggestionDTO(e.productId, e.sku, e.name, e.salePrice));
+                }
+                return result.reversed();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private int[] candidateSlots(String query) {
+            if (query.length() < 3) {
+                Postings p = postings.get(PREFIX_MARKER + query);
+                return p == null ? new int[0] : Arrays.copyOf(p.slots, p.size);
+            }
+            List<Postings> lists = new ArrayList<>();
+            for (String gram : trigrams(query)) {
+                Postings p = postings.get(gram);
+                if (p == null) return new int[0];
+                lists.add(p);
+            }
+            lists.sort(Comparator.comparingInt(p -> p.size));
+            Postings smallest = lists.get(0);
+            int[] out = new int[smallest.size];
+            int n = 0;
+            outer:
+            for (int i = 0; i < smallest.size; i++) {
+                int slot = smallest.slots[i];
+                for (int j = 1; j < lists.size(); j++) {
+                    if (!lists.get(j).contains(slot)) continue outer;
+                }
+                out[n++] = slot;
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        private void append(Entry entry) {
+            int slot = entries.size();
+            entries.add(entry);
+            slotByProduct.put(entry.productId, slot);
+            Set<String> grams = new HashSet<>();
+            grams.addAll(trigrams(entry.nameKey));
+            grams.addAll(trigrams(entry.skuKey));
+            addWordPrefixes(grams, entry.nameKey);
+            addWordPrefixes(grams, entry.skuKey);
+            for (String gram : grams) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(slot);
+            }
+        }
+
+        private void compact() {
+            List<Entry> live = entries.stream().filter(e -> e != null).toList();
+            entries.clear();
+            slotByProduct.clear();
+            postings.clear();
+            removed = 0;
+            live.forEach(this::append);
+        }
+
+        private static Set<String> trigrams(String text) {
+            Set<String> grams = new HashSet<>();
+            for (int i = 0; i + 3 <= text.length(); i++) {
+                grams.add(text.substring(i, i + 3));
+            }
+            return grams;
+        }
+
+        private static void addWordPrefixes(Set<String> grams, String text) {
+            for (int i = 0; i < text.length(); i++) {
+                if (i == 0 || text.charAt(i - 1) == ' ') {
+                    grams.add(PREFIX_MARKER + text.substring(i, i + 1));
+                    if (i + 2 <= text.length()) {
+                        grams.add(PREFIX_MARKER + text.substring(i, i + 2));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.huggingsoft.pilot_main.service.search;
+
+import com.huggingsoft.pilot_main.repository.ProductRepository;
+import com.huggingsoft.pilot_main.repository.routing.PrimaryReads;
+import com.huggingsoft.pilot_main.service.dto.ProductSkuLookupDTO;
+import com.huggingsoft.pilot_main.service.events.CacheInvalidatedEvent;
+import com.huggingsoft.pilot_main.service.events.ProductCatalogInvalidatedEvent;
+import com.huggingsoft.pilot_main.service.events.ProductChangedEvent;
+import com.huggingsoft.pilot_main.service.events.StockChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Exact SKU -> product lookup for barcode scanning, backed by an {@link OffHeapSkuTable}.
+ * <p>
+ * A tenant's SKUs are loaded on its first lookup and then kept in sync from
+ * {@link ProductChangedEvent} and {@link StockChangedEvent} after commit. SKUs are matched case-insensitively,
+ * consistent with the per-tenant SKU uniqueness check.
+ * <p>
+ * Loads run outside the tenant map: a {@link Generation} is registered first, so concurrent lookups of the same
+ * tenant wait for one load and other tenants are never blocked by it; changes committed meanwhile are applied
+ * once it completes. Each load writes its entries under a fresh table key, so evicting a tenant only has to
+ * unregister its generation: the next lookup loads a new one, and the old entries (including those of a load
+ * still running) are removed by a background scan and are never read again. At most
+ * {@code products.sku-index.max-tenants} tenants are kept; beyond that the least recently used one is evicted.
+ */
+@Component
+@RequiredArgsConstructor
+public class SkuLookupIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SkuLookupIndex.class);
+
+    private final ProductRepository productRepository;
+
+    // Current generation of each tenant whose SKUs are in the table (or being loaded)
+    private final Map<UUID, Generation> generations = new ConcurrentHashMap<>();
+    // Table keys of retired generations, waiting for the cleanup scan
+    private final Queue<UUID> retiredKeys = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean cleanupScheduled = new AtomicBoolean();
+
+    @Value("${products.sku-index.initial-capacity:65536}")
+    private int initialCapacity;
+
+    @Value("${products.sku-index.max-tenants:1000}")
+    private int maxTenants;
+
+    private OffHeapSkuTable table;
+    private ExecutorService cleanupExecutor;
+
+    @PostConstruct
+    void init() {
+        this.table = new OffHeapSkuTable(initialCapacity);
+        this.cleanupExecutor = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("sku-index-cleanup").daemon(true).factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cleanupExecutor.shutdownNow();
+    }
+
+    /**
+     * Looks up a SKU for a tenant, loading the tenant's SKUs if needed.
+     * Must be called within a (read-only) transaction the first time a tenant is queried.
+     */
+    public Optional<ProductSkuLookupDTO> find(UUID tenantId, String sku) {
+        String normalized = normalize(sku);
+        if (normalized.isEmpty()) {
+            return Optional.empty();
+        }
+        OffHeapSkuTable.Value value;
+        while (true) {
+            Generation generation = loaded(tenantId);
+            generation.lastAccess = System.nanoTime();
+            value = table.get(generation.key, normalized);
+            // A miss only counts if the generation was still current: once retired, its entries may be half removed
+            if (value != null || generations.get(tenantId) == generation) {
+                break;
+            }
+        }
+        evictIfNeeded();
+        return value == null ? Optional.empty()
+                : Optional.of(new ProductSkuLookupDTO(value.productId(), sku, value.salePrice(), value.currentStock()));
+    }
+
+    /**
+     * Drops a tenant's SKUs; they are reloaded on the next lookup.
+     */
+    public void evict(UUID tenantId) {
+        Generation generation = generations.remove(tenantId);
+        if (generation != null) {
+            // A load in flight keeps writing under its key until it completes; remove the entries after that
+            generation.loaded.whenComplete((ignored, e) -> retire(generation));
+        }
+    }
+
+    /**
+     * Drops every tenant's SKUs.
+     */
+    public void evictAll() {
+        generations.keySet().forEach(this::evict); // The cleanup scan removes all of them in one pass
+    }
+
+    @TransactionalEventListener
+    public void onCatalogInvalidated(ProductCatalogInvalidatedEvent event) {
+        evict(event.tenantId());
+    }
+
+    // Also receives invalidations from other instances, where the change itself is not known here
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        if (event.scope() == CacheInvalidatedEvent.Scope.ALL) {
+            evictAll();
+        } else if (event.affects(CacheInvalidatedEvent.PRODUCT)) {
+            if (event.scope() == CacheInvalidatedEvent.Scope.ENTITY && event.entityId() != null) {
+                refresh(event.tenantId(), event.entityId());
+            } else {
+                evict(event.tenantId());
+            }
+        }
+    }
+
+    // Re-reads one product's SKU entry. Its old SKU is not known here, so SKU changes and deletions
+    // are sent as tenant invalidations (see CacheInvalidationBus).
+    private void refresh(UUID tenantId, UUID productId) {
+        if (!generations.containsKey(tenantId)) {
+            return;
+        }
+        // Read before taking the generation's monitor, which an eviction may be waiting for. From the primary:
+        // this runs right after the commit (often on the listener thread), a replica may not have it yet
+        PrimaryReads.call(() -> productRepository.findSkuEntryById(productId, tenantId)).ifPresent(entry -> ifLoaded(tenantId, key ->
+                table.put(key, normalize(entry.getSku()),
+                        new OffHeapSkuTable.Value(productId, entry.getSalePrice(), entry.getCurrentStock()))));
+    }
+
+    @TransactionalEventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        ifLoaded(event.tenantId(), key -> {
+            if (event.previousSku() != null) {
+                table.remove(key, normalize(event.previousSku()));
+            }
+            String sku = normalize(event.sku());
+            if (!sku.isEmpty()) {
+                if (event.changeType() == ProductChangedEvent.ChangeType.DELETED) {
+                    table.remove(key, sku);
+                } else {
+                    table.put(key, sku, new OffHeapSkuTable.Value(event.productId(), event.salePrice(), event.currentStock()));
+                }
+            }
+        });
+    }
+
+    @TransactionalEventListener
+    public void onStockChanged(StockChangedEvent event) {
+        ifLoaded(event.tenantId(), key -> {
+            for (StockChangedEvent.Level level : event.levels()) {
+                String sku = normalize(level.sku());
+                if (!sku.isEmpty()) {
+                    table.updateStock(key, sku, level.productId(), level.currentStock());
+                }
+            }
+        });
+    }
+
+    private Generation loaded(UUID tenantId) {
+        Generation generation = generations.get(tenantId);
+        if (generation == null) {
+            Generation created = new Generation();
+            generation = generations.putIfAbsent(tenantId, created);
+            if (generation == null) {
+                generation = created;
+                try {
+                    load(tenantId, created.key);
+                } catch (RuntimeException e) {
+                    generations.remove(tenantId, created); // The next lookup tries again
+                    created.loaded.completeExceptionally(e);
+                    retire(created); // Drops what was loaded so far
+                    throw e;
+                }
+                created.loaded.complete(null);
+            }
+        }
+        try {
+            generation.loaded.join();
+            return generation;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e; // Another lookup's failed load
+        }
+    }
+
+    // Runs a change on the tenant's entries if it is loaded or being loaded (after the load completes, so it
+    // lands on top). Dropped if the generation is retired meanwhile: its entries are being removed.
+    private void ifLoaded(UUID tenantId, Consumer<UUID> change) {
+        Generation generation = generations.get(tenantId);
+        if (generation == null || !generation.loaded.handle((ignored, e) -> e == null).join()) {
+            return; // Not loaded, or the load failed: it is reloaded from the database anyway
+        }
+        synchronized (generation) {
+            if (!generation.retired) {
+                change.accept(generation.key);
+            }
+        }
+    }
+
+    private void retire(Generation generation) {
+        synchronized (generation) { // Waits for a change in progress, so nothing is written after the cleanup
+            if (generation.retired) {
+                return;
+            }
+            generation.retired = true;
+        }
+        retiredKeys.add(generation.key);
+        if (cleanupScheduled.compareAndSet(false, true)) {
+            cleanupExecutor.execute(this::removeRetired);
+        }
+    }
+
+    // Cleanup thread: one table scan for every generation retired since the last one
+    private void removeRetired() {
+        cleanupScheduled.set(false); // Keys retired from now on schedule another run
+        Set<UUID> keys = new HashSet<>();
+        for (UUID key; (key = retiredKeys.poll()) != null; ) {
+            keys.add(key);
+        }
+        if (!keys.isEmpty()) {
+            long start = System.nanoTime();
+            int removed = table.removeTenants(keys);
+            log.debug("Removed {} SKUs of {} retired tenant loads in {} ms", removed, keys.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void evictIfNeeded() {
+        while (generations.size() > maxTenants) {
+            // Loads in flight are not candidates: they are about to be used
+            Optional<UUID> oldest = generations.entrySet().stream()
+                    .filter(e -> e.getValue().loaded.isDone() && !e.getValue().loaded.isCompletedExceptionally())
+                    .min(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .map(Map.Entry::getKey);
+            if (oldest.isEmpty()) {
+                return;
+            }
+            evict(oldest.get()); // Cheap here: the table scan runs on the cleanup thread
+        }
+    }
+
+    private void load(UUID tenantId, UUID key) {
+        long start = System.nanoTime();
+        int count = 0;
+        for (ProductRepository.SkuEntry entry : productRepository.findSkuEntriesByUserId(tenantId)) {
+            table.put(key, normalize(entry.getSku()),
+                    new OffHeapSkuTable.Value(entry.getProductId(), entry.getSalePrice(), entry.getCurrentStock()));
+            count++;
+        }
+        log.info("Loaded {} SKUs for tenant {} in {} ms (index: {} entries, {} KiB off-heap)", count, tenantId,
+                (System.nanoTime() - start) / 1_000_000, table.size(), table.offHeapBytes() / 1024);
+    }
+
+    private static String normalize(String sku) {
+        return sku == null ? "" : sku.strip().toLowerCase(Locale.ROOT);
+    }
+
+    // One load of a tenant's SKUs; its entries are stored under a random key, never reused after eviction
+    private static final class Generation {
+        final UUID key = UUID.randomUUID();
+        final CompletableFuture<Void> loaded = new CompletableFuture<>();
+        volatile long lastAccess = System.nanoTime();
+        boolean retired; // Guarded by the generation's monitor
+    }
+}
@@ -0,0 +1,325 @@
+package com.huggingsoft.pilot_main.service.stream;
+
+import com.hsoft.model.dto.v1.products.ProductStockResponseDTO;
+import com.huggingsoft.pilot_main.repository.ProductRepository;
+import com.huggingsoft.pilot_main.repository.routing.PrimaryReads;
+import com.huggingsoft.pilot_main.service.events.StockChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes stock level changes to connected terminals over Server-Sent Events.
+ * <p>
+ * {@link StockChangedEvent}s are coalesced per tenant (latest level per product) and flushed as one
+ * numbered {@code stock} event every flush interval. Each tenant keeps the most recent batches in a
+ * replay buffer, so a client reconnecting with {@code Last-Event-ID} receives exactly what it missed.
+ * Batches keep being published into the replay buffer while a tenant has no subscribers, until the channel
+ * is dropped after {@code idle-retention-seconds}; a later channel has a new epoch, so resuming from an
+ * event of a dropped channel gets a snapshot.
+ * <p>
+ * Every subscriber has a bounded queue drained by its own sender task, so a slow client never delays
+ * the others. When its queue overflows (or its Last-Event-ID is no longer in the replay buffer) the
+ * backlog is dropped and the client gets a {@code snapshot} event with the current level of every
+ * active product instead; levels are absolute, so deltas following a snapshot can always be applied.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockStreamBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(StockStreamBroadcaster.class);
+    static final String STOCK_EVENT = "stock";
+    static final String SNAPSHOT_EVENT = "snapshot";
+
+    private final ProductRepository productRepository;
+
+    // Event ids are "<epoch>:<sequence>", the epoch naming one channel of this process: ids issued by a
+    // previous process or by a dropped channel never resume, they get a snapshot
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong channelCount = new AtomicLong();
+    private final Map<UUID, TenantChannel> channels = new ConcurrentHashMap<>();
+
+    @Value("${products.stock-stream.flush-interval-ms:250}")
+    private long flushIntervalMs;
+
+    @Value("${products.stock-stream.replay-size:512}")
+    private int replaySize;
+
+    @Value("${products.stock-stream.subscriber-buffer:64}")
+    private int subscriberBuffer;
+
+    @Value("${products.stock-stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${products.stock-stream.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${products.stock-stream.idle-retention-seconds:300}")
+    private long idleRetentionSeconds;
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService sender;
+
+    @PostConstruct
+    void init() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("stock-stream-flush").daemon(true).factory());
+        this.sender = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stock-stream-send-", 0).factory());
+        scheduler.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(s -> s.emitter.complete()));
+        sender.shutdownNow();
+    }
+
+    /**
+     * Opens a stream for a tenant. Without a resumable {@code lastEventId} the first event is a snapshot.
+     *
+     * @param tenantId    The owning main user ID.
+     * @param lastEventId The Last-Event-ID header sent by a reconnecting client, may be null.
+     * @return The emitter to return from the controller.
+     */
+    public SseEmitter subscribe(UUID tenantId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber;
+        while (true) {
+            TenantChannel channel = channels.computeIfAbsent(tenantId,
+                    id -> new TenantChannel(id, bootId + "." + Long.toString(channelCount.incrementAndGet(), 36)));
+            synchronized (channel) {
+                if (channel.closed) continue; // Lost a race with idle cleanup; take the fresh channel
+                subscriber = new Subscriber(channel, emitter);
+                // Under the channel lock no batch can be published between the replay and the registration
+                List<Batch> missed = channel.replaySince(lastEventId);
+                if (missed == null) {
+                    subscriber.needsSnapshot = true;
+                } else {
+                    missed.forEach(subscriber::enqueue);
+                }
+                channel.subscribers.add(subscriber);
+                break;
+            }
+        }
+        Subscriber registered = subscriber;
+        emitter.onCompletion(registered::close);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> registered.close());
+        registered.schedule();
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onStockChanged(StockChangedEvent event) {
+        TenantChannel channel = channels.get(event.tenantId());
+        if (channel == null) {
+            return; // Nobody is (or recently was) listening for this tenant
+        }
+        synchronized (channel) {
+            for (StockChangedEvent.Level level : event.levels()) {
+                channel.pending.put(level.productId(), level.currentStock());
+            }
+        }
+    }
+
+    private void flushAll() {
+        long now = System.nanoTime();
+        for (TenantChannel channel : channels.values()) {
+            List<Subscriber> ready;
+            synchronized (channel) {
+                if (channel.subscribers.isEmpty() && now - channel.idleSince > TimeUnit.SECONDS.toNanos(idleRetentionSeconds)) {
+                    channel.closed = true;
+                    channels.remove(channel.tenantId, channel);
+                    continue;
+                }
+                // Published even without subscribers, so a client reconnecting within the retention can resume
+                if (channel.pending.isEmpty()) continue;
+                Batch batch = new Batch(++channel.sequence, Map.copyOf(channel.pending));
+                channel.pending.clear();
+                channel.replay.addLast(batch);
+                if (channel.replay.size() > replaySize) {
+                    channel.replay.removeFirst();
+                }
+                ready = new ArrayList<>(channel.subscribers);
+                ready.forEach(s -> s.enqueue(batch));
+            }
+            ready.forEach(Subscriber::schedule);
+        }
+    }
+
+    private void heartbeat() {
+        for (TenantChannel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.heartbeatDue.set(true);
+                subscriber.schedule();
+            }
+        }
+    }
+
+    // --- Per-tenant state ---
+
+    private record Batch(long sequence, Map<UUID, Integer> levels) {}
+
+    /** Guarded by its own monitor, except {@code subscribers} which is also iterated lock-free. */
+    private static final class TenantChannel {
+        final UUID tenantId;
+        final String epoch;
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final Map<UUID, Integer> pending = new HashMap<>();
+        final ArrayDeque<Batch> replay = new ArrayDeque<>();
+        long sequence;
+        long idleSince = System.nanoTime();
+        boolean closed;
+
+        TenantChannel(UUID tenantId, String epoch) {
+            this.tenantId = tenantId;
+            this.epoch = epoch;
+        }
+
+        /** Batches after the event {@code lastEventId}, or null when the client must start from a snapshot. */
+        List<Batch> replaySince(String lastEventId) {
+            Long lastSequence = parseSequence(lastEventId);
+            if (lastSequence == null || lastSequence > sequence) return null;
+            if (lastSequence < sequence && (replay.isEmpty() || replay.peekFirst().sequence() > lastSequence + 1)) {
+                return null; // Fell out of the replay buffer
+            }
+            return replay.stream().filter(b -> b.sequence() > lastSequence).toList();
+        }
+
+        String eventId(long sequence) {
+            return epoch + ":" + sequence;
+        }
+
+        // Null for ids of another channel or process
+        private Long parseSequence(String lastEventId) {
+            if (lastEventId == null) return null;
+            int separator = lastEventId.indexOf(':');
+            if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) return null;
+            try {
+                return Long.parseLong(lastEventId.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        synchronized void remove(Subscriber subscriber) {
+            if (subscribers.remove(subscriber) && subscribers.isEmpty()) {
+                idleSince = System.nanoTime();
+            }
+        }
+    }
+
+    private final class Subscriber {
+        final TenantChannel channel;
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<Batch> queue = new ArrayBlockingQueue<>(Math.max(1, subscriberBuffer));
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        volatile boolean needsSnapshot;
+        volatile boolean closed;
+
+        Subscriber(TenantChannel channel, SseEmitter emitter) {
+            this.channel = channel;
+            this.emitter = emitter;
+        }
+
+        /** Called under the channel lock. On overflow the backlog is replaced by a snapshot. */
+        void enqueue(Batch batch) {
+            if (!needsSnapshot && !queue.offer(batch)) {
+                needsSnapshot = true;
+                queue.clear();
+            }
+        }
+
+        void schedule() {
+            if (!closed && draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        void close() {
+            closed = true;
+            channel.remove(this);
+        }
+
+        private void drain() {
+            try {
+                while (!closed) {
+                    if (needsSnapshot) {
+                        sendSnapshot();
+                    } else {
+                        Batch batch = queue.poll();
+                        if (batch == null) break;
+                        send(STOCK_EVENT, batch.sequence(), batch.levels().entrySet().stream()
+                                .map(e -> new ProductStockResponseDTO(e.getKey(), e.getValue()))
+                                .toList());
+                    }
+                }
+                if (!closed && heartbeatDue.getAndSet(false)) {
+                    emitter.send(SseEmitter.event().comment("keepalive"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Stock stream subscriber of tenant {} disconnected: {}", channel.tenantId, e.getMessage());
+                close();
+            } catch (RuntimeException e) {
+                log.warn("Stock stream subscriber of tenant {} failed", channel.tenantId, e);
+                close();
+                emitter.completeWithError(e);
+            } finally {
+                draining.set(false);
+            }
+            if (!closed && (needsSnapshot || !queue.isEmpty())) {
+                schedule(); // Work that arrived after the last poll
+            }
+        }
+
+        private void sendSnapshot() throws IOException {
+            long sequence;
+            synchronized (channel) {
+                // Every batch up to this sequence is committed on the primary, so the query below (pinned to the
+                // primary; a replica may not have replayed them yet) reflects all of them
+                sequence = channel.sequence;
+                queue.clear();
+                needsSnapshot = false;
+            }
+            List<ProductStockResponseDTO> levels = PrimaryReads.call(
+                            () -> productRepository.findActiveStockLevelsByUserId(channel.tenantId)).stream()
+                    .map(l -> new ProductStockResponseDTO(l.getProductId(), l.getCurrentStock()))
+                    .toList();
+            send(SNAPSHOT_EVENT, sequence, levels);
+        }
+
+        private void send(String name, long sequence, List<ProductStockResponseDTO> levels) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(channel.eventId(sequence))
+                    .name(name)
+                    .data(levels, MediaType.APPLICATION_JSON));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.huggingsoft.pilot_main.service.utils;
+
+import com.huggingsoft.pilot_main.service.exceptions.BusinessRuleViolationException;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts context attribute filters ({@code context.<key>=<value>}) from the query parameters of a list
+ * endpoint. Keys may be dot-separated paths into nested objects.
+ * <p>
+ * The number of filters and the size of keys and values are capped, so a request cannot build an
+ * arbitrarily large containment document.
+ */
+public final class ContextFilters {
+
+    /** Prefix of filters on the entity's own context. */
+    public static final String CONTEXT = "context.";
+    /** Prefix of filters on the context of a transaction's items. */
+    public static final String ITEM_CONTEXT = "item.context.";
+
+    private static final int MAX_FILTERS = 10;
+    private static final int MAX_VALUE_LENGTH = 256;
+    private static final Pattern KEY = Pattern.compile("[A-Za-z0-9_-]{1,64}(\\.[A-Za-z0-9_-]{1,64}){0,3}");
+
+    private ContextFilters() {
+        // Utility class
+    }
+
+    /**
+     * Collects the parameters starting with {@code prefix}, keyed by the rest of the parameter name.
+     *
+     * @param params All query parameters of the request (first value of each).
+     * @param prefix {@link #CONTEXT} or {@link #ITEM_CONTEXT}.
+     * @return Attribute key to value, sorted by key; empty if there is no such parameter.
+     * @throws BusinessRuleViolationException if a key or value is malformed, or there are too many filters.
+     */
+    public static Map<String, String> fromQuery(Map<String, String> params, String prefix) {
+        Map<String, String> filters = null;
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (!param.getKey().startsWith(prefix)) {
+                continue;
+            }
+            String key = param.getKey().substring(prefix.length());
+            String value = param.getValue() == null ? "" : param.getValue();
+            if (!KEY.matcher(key).matches()) {
+                throw new BusinessRuleViolationException("Invalid context filter key: " + param.getKey());
+            }
+            if (value.length() > MAX_VALUE_LENGTH) {
+                throw new BusinessRuleViolationException("Context filter value too long: " + param.getKey());
+            }
+            if (filters == null) {
+                filters = new TreeMap<>();
+            }
+            filters.put(key, value);
+        }
+        if (filters == null) {
+            return Collections.emptyMap();
+        }
+        if (filters.size() > MAX_FILTERS) {
+            throw new BusinessRuleViolationException("At most " + MAX_FILTERS + " context filters are allowed");
+        }
+        for (String key : filters.keySet()) {
+            for (int dot = key.indexOf('.'); dot > 0; dot = key.indexOf('.', dot + 1)) {
+                if (filters.containsKey(key.substring(0, dot))) {
+                    throw new BusinessRuleViolationException("Conflicting context filters: " + key.substring(0, dot) + " and " + key);
+                }
+            }
+        }
+        return filters;
+    }
+}
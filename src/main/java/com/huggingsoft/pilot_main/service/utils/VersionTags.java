@@ -0,0 +1,66 @@
+package com.huggingsoft.pilot_main.service.utils;
+
+import com.huggingsoft.pilot_main.service.exceptions.PreconditionFailedException;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Builds and compares strong entity tags (ETags) derived from an entity's ID and last update timestamp.
+ * The same tag is used for conditional GETs (If-None-Match) and optimistic concurrency on updates (If-Match).
+ */
+public final class VersionTags {
+
+    private VersionTags() {
+        // Utility class
+    }
+
+    /**
+     * Builds the quoted strong ETag for an entity version.
+     *
+     * @param id        The entity ID.
+     * @param updatedAt The entity's last update timestamp.
+     * @return The ETag value, including the surrounding quotes.
+     */
+    public static String of(UUID id, OffsetDateTime updatedAt) {
+        long micros = updatedAt == null ? 0L
+                : ChronoUnit.MICROS.between(Instant.EPOCH, updatedAt.toInstant()); // DB precision
+        return "\"" + id + "-" + Long.toString(micros, 36) + "\"";
+    }
+
+    /**
+     * Checks whether a conditional header (If-Match or If-None-Match) matches the current tag.
+     * Handles the {@code *} wildcard and comma-separated lists; weak tags ({@code W/"..."}) never match.
+     *
+     * @param header     The raw header value, may be null.
+     * @param currentTag The current quoted ETag.
+     * @return true if any listed tag equals the current one.
+     */
+    public static boolean matches(String header, String currentTag) {
+        if (header == null || header.isBlank()) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String tag = candidate.strip();
+            if (tag.equals("*") || tag.equals(currentTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Enforces an If-Match precondition. A missing header means the client did not ask for a check.
+     *
+     * @param ifMatch    The raw If-Match header value, may be null.
+     * @param currentTag The current quoted ETag of the entity.
+     * @throws PreconditionFailedException if the header is present and does not match.
+     */
+    public static void requireMatch(String ifMatch, String currentTag) {
+        if (ifMatch != null && !matches(ifMatch, currentTag)) {
+            throw new PreconditionFailedException("Resource has been modified (current ETag: " + currentTag + ").");
+        }
+    }
+}
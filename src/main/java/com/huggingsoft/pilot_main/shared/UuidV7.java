@@ -0,0 +1,41 @@
+package com.huggingsoft.pilot_main.shared;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered UUIDs (version 7, RFC 9562): a 48-bit Unix millisecond timestamp, a 12-bit
+ * counter that keeps IDs monotonic within a millisecond (per JVM), and 62 random bits.
+ * <p>
+ * Consecutive IDs sort next to each other, so inserts append to the right edge of B-tree indexes
+ * instead of touching random pages. The random part uses {@link ThreadLocalRandom}: IDs are unique,
+ * not secret (every lookup checks ownership).
+ */
+public final class UuidV7 {
+
+    // (millis << 12) | counter of the last issued ID
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private UuidV7() {
+        // Utility class
+    }
+
+    public static UUID next() {
+        long now = System.currentTimeMillis();
+        long previous;
+        long current;
+        do {
+            previous = LAST.get();
+            // A clock going backwards or more than 4096 IDs in one millisecond keep counting past the
+            // previous value (borrowing from the timestamp), so IDs never go backwards
+            current = now > (previous >>> 12) ? now << 12 : previous + 1;
+        } while (!LAST.compareAndSet(previous, current));
+
+        long millis = current >>> 12;
+        long counter = current & 0xFFFL;
+        long msb = (millis << 16) | 0x7000L | counter;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L; // Variant 10
+        return new UUID(msb, lsb);
+    }
+}
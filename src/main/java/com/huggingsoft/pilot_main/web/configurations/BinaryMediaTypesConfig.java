@@ -0,0 +1,71 @@
+package com.huggingsoft.pilot_main.web.configurations;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Adds Jackson Smile ({@code application/x-jackson-smile}) and CBOR ({@code application/cbor})
+ * to content negotiation, for API clients that move large pages and would rather not pay for JSON text.
+ * <p>
+ * Both converters are built from Boot's {@link Jackson2ObjectMapperBuilder}, so they share the JSON
+ * mapper's modules and settings (dates, naming, inclusion) and the same DTOs serialize unchanged.
+ * They replace the plain Smile and CBOR converters MVC registers when the dataformat modules are present,
+ * in place, so the JSON converter stays first: clients sending {@code Accept: *}{@code /*} or no Accept
+ * header keep getting JSON, and binary is only used when explicitly requested.
+ * <p>
+ * The three bodies of a resource differ byte for byte, so ETags are made representation-specific by
+ * {@link RepresentationETagFilter}, and responses vary on Accept.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class BinaryMediaTypesConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        replace(converters, new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.getObject().factory(new SmileFactory()).build()));
+        replace(converters, new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.getObject().factory(new CBORFactory()).build()));
+    }
+
+    // Negotiation takes the first converter that can write a type, so a default one left earlier would win
+    private static void replace(List<HttpMessageConverter<?>> converters, HttpMessageConverter<?> converter) {
+        boolean replaced = false;
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i).getClass() == converter.getClass()) {
+                converters.set(i, converter);
+                replaced = true;
+            }
+        }
+        if (!replaced) {
+            converters.add(converter);
+        }
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // The body depends on Accept, so shared caches must not serve one representation for another
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return true;
+            }
+        }).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,177 @@
+package com.huggingsoft.pilot_main.web.configurations;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Makes API ETags representation-specific. The JSON, Smile and CBOR bodies of one entity version differ byte
+ * for byte, so they must not share a strong ETag (see {@link BinaryMediaTypesConfig}).
+ * <p>
+ * The representation is resolved from Accept the way the message converters are ordered: JSON unless Smile or
+ * CBOR is preferred. Then
+ * <ul>
+ *   <li>an ETag set by a controller gets a {@code .smile} or {@code .cbor} suffix inside the quotes;</li>
+ *   <li>If-None-Match tags of this representation reach the controller without the suffix, and tags of another
+ *       representation are dropped, so they never match;</li>
+ *   <li>If-Match tags reach the controller without any suffix: an update is conditional on the version the
+ *       client read, in whichever representation it read it.</li>
+ * </ul>
+ * Controllers and {@code VersionTags} keep working with the plain version tag.
+ */
+@Component
+public class RepresentationETagFilter extends OncePerRequestFilter {
+
+    private static final Map<MediaType, String> BINARY_SUFFIXES = Map.of(
+            MediaType.parseMediaType("application/x-jackson-smile"), ".smile",
+            MediaType.parseMediaType("application/cbor"), ".cbor");
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String suffix = suffixFor(request.getHeader(HttpHeaders.ACCEPT));
+        filterChain.doFilter(new ConditionalRequest(request, suffix), new TaggedResponse(response, suffix));
+    }
+
+    // "" for JSON
+    static String suffixFor(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return "";
+        }
+        List<MediaType> types;
+        try {
+            types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+            MimeTypeUtils.sortBySpecificity(types); // Quality first, as content negotiation does
+        } catch (IllegalArgumentException e) {
+            return ""; // Unparseable or too long; negotiation rejects the request anyway
+        }
+        for (MediaType type : types) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return ""; // Includes wildcards: JSON is the first converter
+            }
+            for (Map.Entry<MediaType, String> binary : BINARY_SUFFIXES.entrySet()) {
+                if (type.isCompatibleWith(binary.getKey())) {
+                    return binary.getValue();
+                }
+            }
+        }
+        return "";
+    }
+
+    static String withSuffix(String etag, String suffix) {
+        int closingQuote = etag.lastIndexOf('"');
+        return suffix.isEmpty() || closingQuote <= 0 ? etag
+                : etag.substring(0, closingQuote) + suffix + etag.substring(closingQuote);
+    }
+
+    // The tag's representation suffix ("" for JSON), or null if the value is not a quoted tag
+    private static String suffixOf(String tag) {
+        if (tag.length() < 2 || !tag.endsWith("\"")) {
+            return null;
+        }
+        for (String suffix : BINARY_SUFFIXES.values()) {
+            if (tag.endsWith(suffix + "\"")) {
+                return suffix;
+            }
+        }
+        return "";
+    }
+
+    private static String withoutSuffix(String tag, String suffix) {
+        return tag.substring(0, tag.length() - 1 - suffix.length()) + "\"";
+    }
+
+    private static final class ConditionalRequest extends HttpServletRequestWrapper {
+
+        private final String suffix;
+
+        ConditionalRequest(HttpServletRequest request, String suffix) {
+            super(request);
+            this.suffix = suffix;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (!isConditional(name)) {
+                return super.getHeader(name);
+            }
+            List<String> values = Collections.list(super.getHeaders(name)); // All lines, as one list
+            return values.isEmpty() ? null
+                    : rewrite(String.join(", ", values), HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name));
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (!isConditional(name)) {
+                return super.getHeaders(name);
+            }
+            String value = getHeader(name);
+            return value == null ? Collections.emptyEnumeration() : Collections.enumeration(List.of(value));
+        }
+
+        private static boolean isConditional(String name) {
+            return HttpHeaders.IF_MATCH.equalsIgnoreCase(name) || HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name);
+        }
+
+        private String rewrite(String header, boolean sameRepresentationOnly) {
+            List<String> tags = new ArrayList<>();
+            for (String candidate : header.split(",")) {
+                String tag = candidate.strip();
+                String tagSuffix = suffixOf(tag);
+                if (tagSuffix == null) {
+                    tags.add(tag); // "*" or not a tag
+                } else if (!sameRepresentationOnly || tagSuffix.equals(suffix)) {
+                    tags.add(withoutSuffix(tag, tagSuffix));
+                }
+            }
+            return tags.isEmpty() ? null : String.join(", ", tags);
+        }
+    }
+
+    private static final class TaggedResponse extends HttpServletResponseWrapper {
+
+        private final String suffix;
+
+        TaggedResponse(HttpServletResponse response, String suffix) {
+            super(response);
+            this.suffix = suffix;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            super.setHeader(name, tagged(name, value));
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            super.addHeader(name, tagged(name, value));
+        }
+
+        private String tagged(String name, String value) {
+            return value != null && HttpHeaders.ETAG.equalsIgnoreCase(name) ? withSuffix(value, suffix) : value;
+        }
+    }
+}
@@ -7,12 +7,14 @@ import com.hsoft.model.dto.v1.users.PasswordResetRequestDTO;
 import com.hsoft.model.dto.v1.users.RegisterRequestDTO;
 import com.hsoft.model.dto.v1.users.UserResponseDTO;
 import com.huggingsoft.pilot_main.service.AuthService;
+import com.huggingsoft.pilot_main.web.ratelimit.RequestRateLimiter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -26,6 +28,7 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final AuthService authService;
+    private final RequestRateLimiter rateLimiter; // Checked before any hashing or email work
 
     @PostMapping("/register")
     @Operation(summary = "Register a new main user account")
@@ -33,9 +36,12 @@ public class AuthController {
             @ApiResponse(responseCode = "201", description = "User registered successfully",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserResponseDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data (validation errors)", content = @Content),
-            @ApiResponse(responseCode = "409", description = "Username or email already exists", content = @Content)
+            @ApiResponse(responseCode = "409", description = "Username or email already exists", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many requests (see Retry-After)", content = @Content)
     })
-    public ResponseEntity<UserResponseDTO> registerMainAccount(@Valid @RequestBody RegisterRequestDTO registerRequest) {
+    public ResponseEntity<UserResponseDTO> registerMainAccount(@Valid @RequestBody RegisterRequestDTO registerRequest,
+                                                               HttpServletRequest httpRequest) {
+        rateLimiter.check("register", httpRequest.getRemoteAddr(), registerRequest.getEmail());
         UserResponseDTO registeredUser = authService.registerMainUser(registerRequest);
         // Consider returning location header: .created(URI.create("/api/v1/users/" + registeredUser.getUserId()))
         return ResponseEntity.status(HttpStatus.CREATED).body(registeredUser);
@@ -47,9 +53,11 @@ public class AuthController {
             @ApiResponse(responseCode = "200", description = "Login successful",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoginResponseDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content),
-            @ApiResponse(responseCode = "401", description = "Invalid credentials", content = @Content)
+            @ApiResponse(responseCode = "401", description = "Invalid credentials", content = @Content),
+            @ApiResponse(responseCode = "429", description = "Too many requests (see Retry-After)", content = @Content)
     })
-    public ResponseEntity<LoginResponseDTO> login(@Valid @RequestBody LoginRequestDTO loginRequest) {
+    public ResponseEntity<LoginResponseDTO> login(@Valid @RequestBody LoginRequestDTO loginRequest, HttpServletRequest httpRequest) {
+        rateLimiter.check("login", httpRequest.getRemoteAddr(), loginRequest.getUsernameOrEmail());
         LoginResponseDTO loginResponse = authService.login(loginRequest);
         return ResponseEntity.ok(loginResponse);
     }
@@ -70,9 +78,11 @@ public class AuthController {
     @Operation(summary = "Request a password reset link via email")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "202", description = "Password reset request accepted (email will be sent if user exists)"),
-            @ApiResponse(responseCode = "400", description = "Invalid email format")
+            @ApiResponse(responseCode = "400", description = "Invalid email format"),
+            @ApiResponse(responseCode = "429", description = "Too many requests (see Retry-After)")
     })
-    public ResponseEntity<Void> requestPasswordReset(@Valid @RequestBody PasswordResetRequestDTO request) {
+    public ResponseEntity<Void> requestPasswordReset(@Valid @RequestBody PasswordResetRequestDTO request, HttpServletRequest httpRequest) {
+        rateLimiter.check("password-reset", httpRequest.getRemoteAddr(), request.getEmail());
         authService.requestPasswordReset(request.getEmail());
         // Always return 202 to prevent user enumeration
         return ResponseEntity.accepted().build();
@@ -5,6 +5,9 @@ import com.hsoft.model.dto.v1.clients.ClientResponseDTO;
 import com.hsoft.model.dto.v1.clients.ClientUpdateRequestDTO;
 import com.hsoft.model.dto.v1.commons.StatusUpdateRequestDTO;
 import com.huggingsoft.pilot_main.service.ClientService;
+import com.huggingsoft.pilot_main.service.dto.VersionedDTO;
+import com.huggingsoft.pilot_main.service.utils.ContextFilters;
+import com.huggingsoft.pilot_main.service.utils.VersionTags;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -18,10 +21,13 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -62,11 +68,14 @@ public class ClientController {
     @Parameter(in = ParameterIn.QUERY, name = "sort", description = "Sort criteria (e.g., 'name,asc')", schema = @Schema(type = "string"))
     @Parameter(in = ParameterIn.QUERY, name = "isActive", description = "Filter by active status", schema = @Schema(type = "boolean"))
     @Parameter(in = ParameterIn.QUERY, name = "search", description = "Search term (name, NIT, email)", schema = @Schema(type = "string"))
+    @Parameter(in = ParameterIn.QUERY, name = "context.{key}", description = "Filter by a context attribute, e.g. context.color=red (repeatable, ANDed; dotted keys address nested attributes)", schema = @Schema(type = "string"))
     public ResponseEntity<Page<ClientResponseDTO>> listClients(
             @Parameter(hidden = true) Pageable pageable,
             @RequestParam(required = false) Boolean isActive,
-            @RequestParam(required = false) String search) {
-        Page<ClientResponseDTO> clients = clientService.findClients(getCurrentUserPrincipal(), isActive, search, pageable);
+            @RequestParam(required = false) String search,
+            @Parameter(hidden = true) @RequestParam Map<String, String> params) {
+        Page<ClientResponseDTO> clients = clientService.findClients(getCurrentUserPrincipal(), isActive, search,
+                ContextFilters.fromQuery(params, ContextFilters.CONTEXT), pageable);
         return ResponseEntity.ok(clients);
     }
 
@@ -75,26 +84,39 @@ public class ClientController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Client found",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified (If-None-Match matched the current ETag)", content = @Content),
             @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
             @ApiResponse(responseCode = "404", description = "Client not found or doesn't belong to user", content = @Content)
     })
-    public ResponseEntity<ClientResponseDTO> getClientById(@PathVariable UUID clientId) {
+    public ResponseEntity<ClientResponseDTO> getClientById(
+            @PathVariable UUID clientId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<String> etag = clientService.findClientVersion(getCurrentUserPrincipal(), clientId);
+        if (etag.isPresent() && VersionTags.matches(ifNoneMatch, etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+        }
         ClientResponseDTO client = clientService.findClientById(getCurrentUserPrincipal(), clientId);
-        return ResponseEntity.ok(client);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        etag.ifPresent(response::eTag);
+        return response.body(client);
     }
 
     @PatchMapping("/{clientId}")
     @Operation(summary = "Update details of a specific client")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Client updated successfully",
+            @ApiResponse(responseCode = "200", description = "Client updated successfully (ETag header holds the new version)",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientResponseDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content),
             @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
-            @ApiResponse(responseCode = "404", description = "Client not found", content = @Content)
+            @ApiResponse(responseCode = "404", description = "Client not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag", content = @Content)
     })
-    public ResponseEntity<ClientResponseDTO> updateClient(@PathVariable UUID clientId, @Valid @RequestBody ClientUpdateRequestDTO updateRequest) {
-        ClientResponseDTO updatedClient = clientService.updateClient(getCurrentUserPrincipal(), clientId, updateRequest);
-        return ResponseEntity.ok(updatedClient);
+    public ResponseEntity<ClientResponseDTO> updateClient(
+            @PathVariable UUID clientId,
+            @Valid @RequestBody ClientUpdateRequestDTO updateRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VersionedDTO<ClientResponseDTO> updatedClient = clientService.updateClient(getCurrentUserPrincipal(), clientId, updateRequest, ifMatch);
+        return ResponseEntity.ok().eTag(updatedClient.getEtag()).body(updatedClient.getBody());
     }
 
     @PatchMapping("/{clientId}/status")
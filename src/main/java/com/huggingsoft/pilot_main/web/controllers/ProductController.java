@@ -7,6 +7,15 @@ import com.hsoft.model.dto.v1.products.ProductStockResponseDTO;
 import com.hsoft.model.dto.v1.products.ProductUpdateRequestDTO;
 import com.hsoft.model.dto.v1.products.StockAdjustmentRequestDTO;
 import com.huggingsoft.pilot_main.service.ProductService;
+import com.huggingsoft.pilot_main.service.dto.ProductBulkUpdateRequestDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductBulkUpdateResultDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductImportResultDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductSkuLookupDTO;
+import com.huggingsoft.pilot_main.service.dto.ProductSuggestionDTO;
+import com.huggingsoft.pilot_main.service.dto.StockCorrectionDTO;
+import com.huggingsoft.pilot_main.service.dto.VersionedDTO;
+import com.huggingsoft.pilot_main.service.utils.ContextFilters;
+import com.huggingsoft.pilot_main.service.utils.VersionTags;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -20,10 +29,16 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.List; // For potential bulk stock query
 
@@ -58,6 +73,23 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdProduct);
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    @Operation(summary = "Bulk import products from CSV",
+            description = "The body is streamed into the database with PostgreSQL COPY. The header line names the columns: " +
+                    "sku, name and sale_price are required; description, purchase_price, current_stock, unit_of_measure " +
+                    "and category are optional (camelCase names are accepted too). Valid rows are created; the others " +
+                    "are reported with their line number.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import processed; see the error report for rejected rows",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductImportResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Missing/unknown header columns or malformed CSV", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content)
+    })
+    public ResponseEntity<ProductImportResultDTO> importProducts(InputStream csv) {
+        ProductImportResultDTO result = productService.importProducts(getCurrentUserPrincipal(), csv);
+        return ResponseEntity.ok(result);
+    }
+
     @GetMapping
     @Operation(summary = "List products for the current user's main account")
     @ApiResponses(value = {
@@ -69,12 +101,54 @@ public class ProductController {
     @Parameter(in = ParameterIn.QUERY, name = "category", description = "Filter by category", schema = @Schema(type = "string"))
     @Parameter(in = ParameterIn.QUERY, name = "isActive", description = "Filter by active status", schema = @Schema(type = "boolean"))
     @Parameter(in = ParameterIn.QUERY, name = "search", description = "Search term (name, SKU)", schema = @Schema(type = "string"))
+    @Parameter(in = ParameterIn.QUERY, name = "context.{key}", description = "Filter by a context attribute, e.g. context.color=red (repeatable, ANDed; dotted keys address nested attributes)", schema = @Schema(type = "string"))
     public ResponseEntity<Page<ProductResponseDTO>> listProducts(
             @Parameter(hidden = true) Pageable pageable,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) Boolean isActive,
-            @RequestParam(required = false) String search) {
-        Page<ProductResponseDTO> products = productService.findProducts(getCurrentUserPrincipal(), category, isActive, search, pageable);
+            @RequestParam(required = false) String search,
+            @Parameter(hidden = true) @RequestParam Map<String, String> params) {
+        Page<ProductResponseDTO> products = productService.findProducts(getCurrentUserPrincipal(), category, isActive, search,
+                ContextFilters.fromQuery(params, ContextFilters.CONTEXT), pageable);
+        return ResponseEntity.ok(products);
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Typeahead suggestions by product name or SKU, served from an in-memory index")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Suggestions retrieved (best match first)"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content)
+    })
+    @Parameter(in = ParameterIn.QUERY, name = "q", description = "Search text; fewer than 3 characters match word and SKU prefixes only", required = true, schema = @Schema(type = "string"))
+    @Parameter(in = ParameterIn.QUERY, name = "limit", description = "Maximum number of suggestions", schema = @Schema(type = "integer", defaultValue = "10"))
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<ProductSuggestionDTO> suggestions = productService.suggestProducts(getCurrentUserPrincipal(), q, Math.min(limit, 50));
+        return ResponseEntity.ok(suggestions);
+    }
+
+    @GetMapping("/by-sku/{sku}")
+    @Operation(summary = "Resolve an exact SKU (e.g., a scanned barcode) to its product, price and stock")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Product found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductSkuLookupDTO.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+            @ApiResponse(responseCode = "404", description = "No product with this SKU", content = @Content)
+    })
+    public ResponseEntity<ProductSkuLookupDTO> getProductBySku(@PathVariable String sku) {
+        ProductSkuLookupDTO product = productService.findProductBySku(getCurrentUserPrincipal(), sku);
+        return ResponseEntity.ok(product);
+    }
+
+    @GetMapping("/by-sku")
+    @Operation(summary = "Resolve several exact SKUs at once; unknown SKUs are omitted")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content)
+    })
+    public ResponseEntity<List<ProductSkuLookupDTO>> getProductsBySkus(@RequestParam List<String> skus) {
+        List<ProductSkuLookupDTO> products = productService.findProductsBySkus(getCurrentUserPrincipal(), skus);
         return ResponseEntity.ok(products);
     }
 
@@ -83,27 +157,55 @@ public class ProductController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Product found",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified (If-None-Match matched the current ETag)", content = @Content),
             @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
             @ApiResponse(responseCode = "404", description = "Product not found or doesn't belong to user", content = @Content)
     })
-    public ResponseEntity<ProductResponseDTO> getProductById(@PathVariable UUID productId) {
+    public ResponseEntity<ProductResponseDTO> getProductById(
+            @PathVariable UUID productId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<String> etag = productService.findProductVersion(getCurrentUserPrincipal(), productId);
+        if (etag.isPresent() && VersionTags.matches(ifNoneMatch, etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+        }
         ProductResponseDTO product = productService.findProductById(getCurrentUserPrincipal(), productId);
-        return ResponseEntity.ok(product);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        etag.ifPresent(response::eTag);
+        return response.body(product);
+    }
+
+    @PatchMapping("/bulk")
+    @Operation(summary = "Apply one change to every product matching a filter",
+            description = "Runs as a single set-based UPDATE: percentage or amount change of the sale price, category " +
+                    "reassignment, or (de)activation. The filter needs at least one criterion.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products updated",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductBulkUpdateResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Missing filter, operation or value", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content)
+    })
+    public ResponseEntity<ProductBulkUpdateResultDTO> bulkUpdateProducts(@RequestBody ProductBulkUpdateRequestDTO updateRequest) {
+        ProductBulkUpdateResultDTO result = productService.bulkUpdateProducts(getCurrentUserPrincipal(), updateRequest);
+        return ResponseEntity.ok(result);
     }
 
     @PatchMapping("/{productId}")
     @Operation(summary = "Update details of a specific product")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Product updated successfully",
+            @ApiResponse(responseCode = "200", description = "Product updated successfully (ETag header holds the new version)",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProductResponseDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content),
             @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
             @ApiResponse(responseCode = "404", description = "Product not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag", content = @Content),
             @ApiResponse(responseCode = "409", description = "Updated SKU already exists", content = @Content)
     })
-    public ResponseEntity<ProductResponseDTO> updateProduct(@PathVariable UUID productId, @Valid @RequestBody ProductUpdateRequestDTO updateRequest) {
-        ProductResponseDTO updatedProduct = productService.updateProduct(getCurrentUserPrincipal(), productId, updateRequest);
-        return ResponseEntity.ok(updatedProduct);
+    public ResponseEntity<ProductResponseDTO> updateProduct(
+            @PathVariable UUID productId,
+            @Valid @RequestBody ProductUpdateRequestDTO updateRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VersionedDTO<ProductResponseDTO> updatedProduct = productService.updateProduct(getCurrentUserPrincipal(), productId, updateRequest, ifMatch);
+        return ResponseEntity.ok().eTag(updatedProduct.getEtag()).body(updatedProduct.getBody());
     }
 
     @PatchMapping("/{productId}/status")
@@ -148,6 +250,22 @@ public class ProductController {
         return ResponseEntity.ok(updatedStock);
     }
 
+    @PatchMapping("/stock")
+    @Operation(summary = "Apply stock corrections to many products at once (e.g., after a physical count)",
+            description = "Each correction sets either a relative adjustment or an absolute counted level. All corrections " +
+                    "are applied in one transaction and one statement; if any product is unknown or would end up with " +
+                    "negative stock, nothing is changed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Corrections applied; returns every new stock level"),
+            @ApiResponse(responseCode = "400", description = "Invalid corrections or negative resulting stock", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
+            @ApiResponse(responseCode = "404", description = "One or more products not found", content = @Content)
+    })
+    public ResponseEntity<List<ProductStockResponseDTO>> correctStock(@RequestBody List<StockCorrectionDTO> corrections) {
+        List<ProductStockResponseDTO> stockLevels = productService.correctStock(getCurrentUserPrincipal(), corrections);
+        return ResponseEntity.ok(stockLevels);
+    }
+
     // Optional: Endpoint for getting just stock for multiple products
     @GetMapping("/stock")
     @Operation(summary = "Get current stock levels for multiple products")
@@ -159,4 +277,19 @@ public class ProductController {
         List<ProductStockResponseDTO> stockLevels = productService.findStockLevelsByIds(getCurrentUserPrincipal(), ids);
         return ResponseEntity.ok(stockLevels);
     }
+
+    @GetMapping(value = "/stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream stock level changes (Server-Sent Events)",
+            description = "Emits a 'snapshot' event with every active product's stock, then 'stock' events with the new level " +
+                    "of each changed product. Reconnect with Last-Event-ID to resume; a 'snapshot' is sent again when " +
+                    "the missed events are no longer available or the client falls too far behind.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream opened",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)),
+            @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content)
+    })
+    public SseEmitter streamStockChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return productService.streamStockChanges(getCurrentUserPrincipal(), lastEventId);
+    }
 }
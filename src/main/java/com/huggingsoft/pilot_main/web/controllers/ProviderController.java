@@ -5,6 +5,8 @@ import com.hsoft.model.dto.v1.providers.ProviderCreateRequestDTO;
 import com.hsoft.model.dto.v1.providers.ProviderResponseDTO;
 import com.hsoft.model.dto.v1.providers.ProviderUpdateRequestDTO;
 import com.huggingsoft.pilot_main.service.ProviderService;
+import com.huggingsoft.pilot_main.service.dto.VersionedDTO;
+import com.huggingsoft.pilot_main.service.utils.VersionTags;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -18,10 +20,12 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -75,27 +79,40 @@ public class ProviderController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Provider found",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProviderResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified (If-None-Match matched the current ETag)", content = @Content),
             @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
             @ApiResponse(responseCode = "404", description = "Provider not found or doesn't belong to user", content = @Content)
     })
-    public ResponseEntity<ProviderResponseDTO> getProviderById(@PathVariable UUID providerId) {
+    public ResponseEntity<ProviderResponseDTO> getProviderById(
+            @PathVariable UUID providerId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<String> etag = providerService.findProviderVersion(getCurrentUserPrincipal(), providerId);
+        if (etag.isPresent() && VersionTags.matches(ifNoneMatch, etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+        }
         ProviderResponseDTO provider = providerService.findProviderById(getCurrentUserPrincipal(), providerId);
-        return ResponseEntity.ok(provider);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        etag.ifPresent(response::eTag);
+        return response.body(provider);
     }
 
     @PatchMapping("/{providerId}")
     @Operation(summary = "Update details of a specific provider")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Provider updated successfully",
+            @ApiResponse(responseCode = "200", description = "Provider updated successfully (ETag header holds the new version)",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProviderResponseDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content),
             @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
             @ApiResponse(responseCode = "404", description = "Provider not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag", content = @Content),
             @ApiResponse(responseCode = "409", description = "Updated NIT already exists", content = @Content)
     })
-    public ResponseEntity<ProviderResponseDTO> updateProvider(@PathVariable UUID providerId, @Valid @RequestBody ProviderUpdateRequestDTO updateRequest) {
-        ProviderResponseDTO updatedProvider = providerService.updateProvider(getCurrentUserPrincipal(), providerId, updateRequest);
-        return ResponseEntity.ok(updatedProvider);
+    public ResponseEntity<ProviderResponseDTO> updateProvider(
+            @PathVariable UUID providerId,
+            @Valid @RequestBody ProviderUpdateRequestDTO updateRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VersionedDTO<ProviderResponseDTO> updatedProvider = providerService.updateProvider(getCurrentUserPrincipal(), providerId, updateRequest, ifMatch);
+        return ResponseEntity.ok().eTag(updatedProvider.getEtag()).body(updatedProvider.getBody());
     }
 
     @PatchMapping("/{providerId}/status")
@@ -7,6 +7,9 @@ import com.hsoft.model.dto.v1.transactions.TransactionUpdateRequestDTO;
 import com.hsoft.model.types.v1.TransactionStatus;
 import com.hsoft.model.types.v1.TransactionType;
 import com.huggingsoft.pilot_main.service.TransactionService;
+import com.huggingsoft.pilot_main.service.dto.VersionedDTO;
+import com.huggingsoft.pilot_main.service.utils.ContextFilters;
+import com.huggingsoft.pilot_main.service.utils.VersionTags;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -21,11 +24,14 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -85,6 +91,8 @@ public class TransactionController {
     @Parameter(in = ParameterIn.QUERY, name = "dateFrom", description = "Filter transactions from this date (ISO 8601 format)", schema = @Schema(type = "string", format = "date-time"))
     @Parameter(in = ParameterIn.QUERY, name = "dateTo", description = "Filter transactions up to this date (ISO 8601 format)", schema = @Schema(type = "string", format = "date-time"))
     @Parameter(in = ParameterIn.QUERY, name = "referenceNumber", description = "Search by reference number", schema = @Schema(type = "string"))
+    @Parameter(in = ParameterIn.QUERY, name = "context.{key}", description = "Filter by a context attribute, e.g. context.color=red (repeatable, ANDed; dotted keys address nested attributes)", schema = @Schema(type = "string"))
+    @Parameter(in = ParameterIn.QUERY, name = "item.context.{key}", description = "Only transactions with an item whose context attribute matches, e.g. item.context.lot=A7 (repeatable, ANDed within one item)", schema = @Schema(type = "string"))
     public ResponseEntity<Page<TransactionSummaryResponseDTO>> listTransactions(
             @Parameter(hidden = true) Pageable pageable,
             @RequestParam(required = false) TransactionType type,
@@ -93,9 +101,11 @@ public class TransactionController {
             @RequestParam(required = false) UUID providerId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime dateFrom,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime dateTo,
-            @RequestParam(required = false) String referenceNumber) {
+            @RequestParam(required = false) String referenceNumber,
+            @Parameter(hidden = true) @RequestParam Map<String, String> params) {
         Page<TransactionSummaryResponseDTO> transactions = transactionService.findTransactions(
-                getCurrentUserPrincipal(), type, status, clientId, providerId, dateFrom, dateTo, referenceNumber, pageable);
+                getCurrentUserPrincipal(), type, status, clientId, providerId, dateFrom, dateTo, referenceNumber,
+                ContextFilters.fromQuery(params, ContextFilters.CONTEXT), ContextFilters.fromQuery(params, ContextFilters.ITEM_CONTEXT), pageable);
         return ResponseEntity.ok(transactions);
     }
 
@@ -104,26 +114,39 @@ public class TransactionController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transaction found",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionDetailResponseDTO.class))),
+            @ApiResponse(responseCode = "304", description = "Not modified (If-None-Match matched the current ETag)", content = @Content),
             @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
             @ApiResponse(responseCode = "404", description = "Transaction not found or doesn't belong to user", content = @Content)
     })
-    public ResponseEntity<TransactionDetailResponseDTO> getTransactionById(@PathVariable UUID transactionId) {
+    public ResponseEntity<TransactionDetailResponseDTO> getTransactionById(
+            @PathVariable UUID transactionId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<String> etag = transactionService.findTransactionVersion(getCurrentUserPrincipal(), transactionId);
+        if (etag.isPresent() && VersionTags.matches(ifNoneMatch, etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag.get()).build();
+        }
         TransactionDetailResponseDTO transaction = transactionService.findTransactionById(getCurrentUserPrincipal(), transactionId);
-        return ResponseEntity.ok(transaction);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        etag.ifPresent(response::eTag);
+        return response.body(transaction);
     }
 
     @PatchMapping("/{transactionId}")
     @Operation(summary = "Update limited details of a specific transaction (e.g., status, notes, context)")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Transaction updated successfully",
+            @ApiResponse(responseCode = "200", description = "Transaction updated successfully (ETag header holds the new version)",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionDetailResponseDTO.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data or update not allowed", content = @Content),
             @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
-            @ApiResponse(responseCode = "404", description = "Transaction not found", content = @Content)
+            @ApiResponse(responseCode = "404", description = "Transaction not found", content = @Content),
+            @ApiResponse(responseCode = "412", description = "If-Match does not match the current ETag", content = @Content)
     })
-    public ResponseEntity<TransactionDetailResponseDTO> updateTransaction(@PathVariable UUID transactionId, @Valid @RequestBody TransactionUpdateRequestDTO updateRequest) {
-        TransactionDetailResponseDTO updatedTransaction = transactionService.updateTransaction(getCurrentUserPrincipal(), transactionId, updateRequest);
-        return ResponseEntity.ok(updatedTransaction);
+    public ResponseEntity<TransactionDetailResponseDTO> updateTransaction(
+            @PathVariable UUID transactionId,
+            @Valid @RequestBody TransactionUpdateRequestDTO updateRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VersionedDTO<TransactionDetailResponseDTO> updatedTransaction = transactionService.updateTransaction(getCurrentUserPrincipal(), transactionId, updateRequest, ifMatch);
+        return ResponseEntity.ok().eTag(updatedTransaction.getEtag()).body(updatedTransaction.getBody());
     }
 
     @PostMapping("/{transactionId}/cancel")
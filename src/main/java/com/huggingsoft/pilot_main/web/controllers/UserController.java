@@ -126,7 +126,7 @@ public class UserController {
     @DeleteMapping("/me")
     @Operation(summary = "Delete the current authenticated main user account (Main User Only)")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "204", description = "Account deleted successfully"),
+            @ApiResponse(responseCode = "204", description = "Account deleted; its data is removed in the background"),
             @ApiResponse(responseCode = "401", description = "Unauthorized", content = @Content),
             @ApiResponse(responseCode = "403", description = "Forbidden (not a main user or cannot delete)", content = @Content)
             // Consider 400 if confirmation (e.g., password) is required and missing/invalid
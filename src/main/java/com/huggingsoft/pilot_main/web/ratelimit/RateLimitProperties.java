@@ -0,0 +1,44 @@
+package com.huggingsoft.pilot_main.web.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Rate limits of the unauthenticated auth endpoints ({@code rate-limit.*}).
+ *
+ * @param enabled       Master switch.
+ * @param sweepInterval How often fully replenished (idle) buckets are dropped.
+ * @param maxKeys       Most tracked keys; when full, new keys trigger a sweep and are rejected if nothing is idle.
+ * @param endpoints     Limits per endpoint name (e.g. {@code login}); endpoints without an entry are unlimited.
+ */
+@ConfigurationProperties(prefix = "rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("60s") Duration sweepInterval,
+        @DefaultValue("100000") int maxKeys,
+        Map<String, Endpoint> endpoints) {
+
+    public RateLimitProperties {
+        endpoints = endpoints != null ? Map.copyOf(endpoints) : Map.of();
+    }
+
+    /**
+     * @param perIp      Limit per client IP address, or null for none.
+     * @param perAccount Limit per account identifier (username or email), or null for none.
+     */
+    public record Endpoint(Limit perIp, Limit perAccount) {}
+
+    /**
+     * A token bucket: {@code burst} requests at once, refilled at {@code ratePerMinute}.
+     */
+    public record Limit(double ratePerMinute, @DefaultValue("1") int burst) {
+
+        /** Nanoseconds to earn one request. */
+        long intervalNanos() {
+            return (long) (60_000_000_000L / ratePerMinute);
+        }
+    }
+}
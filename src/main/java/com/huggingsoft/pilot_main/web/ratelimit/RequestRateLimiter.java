@@ -0,0 +1,134 @@
+package com.huggingsoft.pilot_main.web.ratelimit;
+
+import com.huggingsoft.pilot_main.service.exceptions.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process rate limiter for expensive unauthenticated endpoints (BCrypt, emails), keyed by client IP
+ * and by account identifier, with limits per endpoint from {@link RateLimitProperties}.
+ * <p>
+ * Each bucket is a token bucket in GCRA form: a single "theoretical arrival time" updated with a CAS loop,
+ * so checks are lock-free. Buckets live in a
+ * {@link ConcurrentHashMap} (internally striped); a bucket whose arrival time has passed is indistinguishable
+ * from a new one, so idle buckets are swept periodically.
+ * <p>
+ * The map holds at most {@code maxKeys} buckets. A request that needs a new bucket while the map is full
+ * triggers a sweep, at most once per second; if no bucket is idle (many keys attacked at once), the request is
+ * rejected until one is. Requests with an existing bucket are never affected, so signed-up users and known
+ * addresses keep their own limits during such a flood.
+ * <p>
+ * Call {@link #check} before doing any work for the request: a rejected call costs one map lookup.
+ */
+@Component
+@RequiredArgsConstructor
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RequestRateLimiter {
+
+    private static final long INLINE_SWEEP_SPACING_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicLong nextInlineSweep = new AtomicLong(System.nanoTime());
+
+    /**
+     * Takes one request from the endpoint's IP bucket and then its account bucket.
+     *
+     * @param endpoint Endpoint name as configured under {@code rate-limit.endpoints}.
+     * @param clientIp Client address, may be null.
+     * @param account  Account identifier from the request (username or email), may be null.
+     * @throws RateLimitExceededException when either limit is exhausted.
+     */
+    public void check(String endpoint, String clientIp, String account) {
+        if (!properties.enabled()) return;
+        RateLimitProperties.Endpoint limits = properties.endpoints().get(endpoint);
+        if (limits == null) return;
+        // IP first: a flood from one address is stopped before it can burn the victim account's budget
+        acquire(endpoint, "ip", clientIp, limits.perIp());
+        acquire(endpoint, "account", account == null ? null : account.trim().toLowerCase(Locale.ROOT), limits.perAccount());
+    }
+
+    private void acquire(String endpoint, String dimension, String value, RateLimitProperties.Limit limit) {
+        if (limit == null || value == null || value.isEmpty()) return;
+        long waitNanos = tryAcquire(endpoint + '|' + dimension + '|' + value, limit, System.nanoTime());
+        if (waitNanos > 0) {
+            meterRegistry.counter("auth.rate_limit.rejected", "endpoint", endpoint, "dimension", dimension).increment();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+            throw new RateLimitExceededException("Too many requests; retry in " + retryAfter + " s", retryAfter);
+        }
+    }
+
+    /**
+     * GCRA: a request is allowed when the bucket's arrival time, advanced by one emission interval, stays within
+     * {@code burst} intervals of now.
+     *
+     * @return 0 if allowed, otherwise the nanoseconds until the request would be allowed.
+     */
+    long tryAcquire(String key, RateLimitProperties.Limit limit, long now) {
+        AtomicLong arrival = buckets.get(key);
+        if (arrival == null) {
+            if (buckets.size() >= properties.maxKeys()) {
+                sweepInline(now);
+                if (buckets.size() >= properties.maxKeys()) {
+                    // Fail closed: no idle bucket to make room for this key before the next sweep
+                    return Math.max(1, nextInlineSweep.get() - now);
+                }
+            }
+            arrival = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long interval = limit.intervalNanos();
+        long tolerance = interval * limit.burst();
+        while (true) {
+            long current = arrival.get();
+            long next = (current - now > 0 ? current : now) + interval; // nanoTime values compare by difference
+            long excess = next - now - tolerance;
+            if (excess > 0) {
+                return excess;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval:60s}")
+    public void sweepIdle() {
+        sweep(System.nanoTime());
+    }
+
+    // Full map: one O(n) sweep per second at most, however many requests find it full
+    private void sweepInline(long now) {
+        long due = nextInlineSweep.get();
+        if (due - now <= 0 && nextInlineSweep.compareAndSet(due, now + INLINE_SWEEP_SPACING_NANOS)) {
+            sweep(now);
+        }
+    }
+
+    // A bucket is full again once its arrival time is in the past; dropping it loses nothing.
+    // A request racing the removal may update a dropped bucket; at worst it is not counted once.
+    private void sweep(long now) {
+        if (sweeping.compareAndSet(false, true)) {
+            try {
+                buckets.values().removeIf(arrival -> arrival.get() - now <= 0);
+            } finally {
+                sweeping.set(false);
+            }
+        }
+    }
+
+    int trackedKeys() {
+        return buckets.size();
+    }
+}
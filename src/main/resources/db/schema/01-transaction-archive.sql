@@ -0,0 +1,20 @@
+-- Cold storage for closed transactions older than transactions.archive.horizon-days (see TransactionArchiveJob).
+-- One row per transaction: the original transaction row and its item rows are kept as jsonb documents
+-- (lz4-compressed when TOASTed), next to the few columns reports filter and aggregate on.
+-- Statements must stay idempotent: the script runs on every startup (spring.sql.init).
+CREATE TABLE IF NOT EXISTS transaction_archive (
+    transaction_id   uuid PRIMARY KEY,
+    user_id          uuid NOT NULL,
+    client_id        uuid,
+    transaction_type text NOT NULL,
+    status           text NOT NULL,
+    transaction_date timestamptz NOT NULL,
+    total_amount     numeric NOT NULL,
+    archived_at      timestamptz NOT NULL DEFAULT now(),
+    transaction      jsonb NOT NULL COMPRESSION lz4,
+    items            jsonb NOT NULL COMPRESSION lz4
+) WITH (fillfactor = 100);
+
+-- Report aggregates (per tenant and date range); rows are never updated, so index-only scans stay cheap
+CREATE INDEX IF NOT EXISTS transaction_archive_user_date_idx
+    ON transaction_archive (user_id, transaction_date) INCLUDE (transaction_type, total_amount, client_id);
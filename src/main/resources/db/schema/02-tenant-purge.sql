@@ -0,0 +1,16 @@
+-- Deleted tenants (main accounts) whose data is being removed by TenantPurgeJob.
+-- The row is the purge's progress record: the job resumes at `step` after a restart, and the
+-- row is kept once finished_at is set as a record of the deletion.
+CREATE TABLE IF NOT EXISTS tenant_purge (
+    tenant_id    uuid PRIMARY KEY,
+    requested_at timestamptz NOT NULL DEFAULT now(),
+    step         text NOT NULL,
+    deleted_rows bigint NOT NULL DEFAULT 0,
+    attempts     integer NOT NULL DEFAULT 0,
+    lease_until  timestamptz,
+    last_error   text,
+    updated_at   timestamptz NOT NULL DEFAULT now(),
+    finished_at  timestamptz
+);
+
+CREATE INDEX IF NOT EXISTS tenant_purge_pending_idx ON tenant_purge (requested_at) WHERE finished_at IS NULL;
@@ -0,0 +1,12 @@
+-- One row per housekeeping job (see MaintenanceScheduler). A node runs a job only while it holds the
+-- job's lease, so several instances never run the same job at once; the last run's outcome is kept.
+CREATE TABLE IF NOT EXISTS job_leases (
+    job_name         text PRIMARY KEY,
+    owner            text,
+    lease_until      timestamptz NOT NULL,
+    last_started_at  timestamptz,
+    last_finished_at timestamptz,
+    last_duration_ms bigint,
+    last_rows        bigint,
+    last_error       text
+);
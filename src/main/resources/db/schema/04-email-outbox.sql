@@ -0,0 +1,18 @@
+-- Outgoing emails, written in the transaction of the business operation that triggers them and
+-- delivered by EmailOutboxDispatcher. status: PENDING -> SENT, or DEAD after too many failed attempts.
+-- The body (which may contain secrets such as reset links) is dropped once the email is sent.
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id              bigint GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    recipient       text NOT NULL,
+    subject         text NOT NULL,
+    html_body       text,
+    status          text NOT NULL DEFAULT 'PENDING',
+    attempts        integer NOT NULL DEFAULT 0,
+    next_attempt_at timestamptz NOT NULL DEFAULT now(),
+    last_error      text,
+    created_at      timestamptz NOT NULL DEFAULT now(),
+    sent_at         timestamptz
+);
+
+CREATE INDEX IF NOT EXISTS email_outbox_due_idx ON email_outbox (next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS email_outbox_sent_idx ON email_outbox (sent_at) WHERE status = 'SENT';
@@ -0,0 +1,56 @@
+package com.huggingsoft.pilot_main;
+
+import com.huggingsoft.pilot_main.repository.TenantPurgeRepository;
+import com.huggingsoft.pilot_main.repository.TenantPurgeRepository.Step;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.UUID;
+
+/**
+ * Base class of the Spring Boot tests that need a database: they run against one throwaway PostgreSQL
+ * container, started once per test JVM and shared by all cached application contexts. The schema is
+ * created by Hibernate and the {@code db/schema} scripts, so {@code test} needs Docker but no local database.
+ * <p>
+ * Tests that write data remove it afterwards with {@link #purgeTenant}, so test classes do not see each
+ * other's fixtures.
+ */
+public abstract class PostgresIntegrationTest {
+
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16");
+
+    static {
+        POSTGRES.start(); // Stopped by the Testcontainers reaper when the JVM exits
+    }
+
+    @Autowired
+    private TenantPurgeRepository tenantPurgeRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        // Every pool (oltp, reporting, background) is built from spring.datasource.*
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+    }
+
+    /**
+     * Deletes every row of a tenant, including the main user, with the tenant purge steps.
+     */
+    protected void purgeTenant(UUID tenantId) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (Step step = Step.values()[0]; step != null; step = step.next()) {
+            Step current = step;
+            while (transaction.execute(status -> tenantPurgeRepository.deleteBatch(current, tenantId, 1000)) == 1000) {
+                // Next batch
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.huggingsoft.pilot_main.querybudget;
+
+import com.hsoft.model.dto.v1.transactions.TransactionCreateRequestDTO;
+import com.hsoft.model.dto.v1.transactions.TransactionItemCreateRequestDTO;
+import com.hsoft.model.entities.v1.Client;
+import com.hsoft.model.entities.v1.Product;
+import com.hsoft.model.entities.v1.User;
+import com.huggingsoft.pilot_main.PostgresIntegrationTest;
+import com.huggingsoft.pilot_main.repository.ClientRepository;
+import com.huggingsoft.pilot_main.repository.ProductRepository;
+import com.huggingsoft.pilot_main.repository.UserRepository;
+import com.huggingsoft.pilot_main.service.TransactionService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement budgets of the endpoints most exposed to N+1 queries when the hs-model-pilot mappings change
+ * (a lazy association touched by a mapper, a missing fetch in an entity graph).
+ * <p>
+ * Each test declares its budget with {@link QueryBudget} and is run with small and large inputs (page size,
+ * items per transaction, clients in a report), so a per-row query exceeds the budget. Runs with {@code test}
+ * against a throwaway PostgreSQL container; run it alone with {@code ./gradlew queryBudgetTest}. The fixture is
+ * removed after the class. When a budget fails, the executed statements are listed.
+ * <p>
+ * Provider and user endpoints are not covered yet: their services do not resolve the principal.
+ */
+@Tag("query-budget")
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(QueryBudgetConfiguration.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EndpointQueryBudgetTest extends PostgresIntegrationTest {
+
+    private static final String USERNAME = "dummyUser"; // The placeholder principal the services resolve
+    private static final int CLIENTS = 20;
+    private static final int PRODUCTS = 10;
+    private static final int SALES = 60;
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private TransactionService transactionService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ClientRepository clientRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private final List<UUID> clientIds = new ArrayList<>();
+    private final List<UUID> productIds = new ArrayList<>();
+    private OffsetDateTime fixtureStart;
+    private UUID tenantId;
+
+    @BeforeAll
+    void createFixture() {
+        fixtureStart = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User user = userRepository.findByUsernameIgnoreCase(USERNAME).orElseGet(() -> {
+                User created = new User();
+                created.setUsername(USERNAME);
+                created.setEmail(USERNAME + "@budget.local");
+                created.setPasswordHash("not-a-real-hash");
+                created.setActive(true);
+                created.setContext(new HashMap<>());
+                return userRepository.save(created);
+            });
+            tenantId = user.getUserId();
+            String run = Long.toString(System.currentTimeMillis(), 36);
+            for (int i = 0; i < CLIENTS; i++) {
+                Client client = new Client();
+                client.setUser(user);
+                client.setName("Budget client " + run + "-" + i);
+                client.setNit("CF");
+                client.setActive(true);
+                clientIds.add(clientRepository.save(client).getClientId());
+            }
+            for (int i = 0; i < PRODUCTS; i++) {
+                Product product = new Product();
+                product.setUser(user);
+                product.setSku("BUDGET-" + run + "-" + i);
+                product.setName("Budget product " + i);
+                product.setPurchasePrice(BigDecimal.ONE);
+                product.setSalePrice(BigDecimal.ONE);
+                product.setCurrentStock(1_000_000);
+                product.setUnitOfMeasure("unidad");
+                product.setActive(true);
+                product.setContext(new HashMap<>());
+                productIds.add(productRepository.save(product).getProductId());
+            }
+        });
+        for (int i = 0; i < SALES; i++) {
+            createSale(clientIds.get(i % CLIENTS), 1 + i % 3); // Every client has sales
+        }
+    }
+
+    @AfterAll
+    void removeFixture() {
+        if (tenantId != null) {
+            purgeTenant(tenantId);
+        }
+    }
+
+    @ParameterizedTest(name = "page size {0}")
+    @ValueSource(ints = {1, 50})
+    @QueryBudget(3) // User, page, count
+    void listProducts(int pageSize, StatementRecorder statements) throws Throwable {
+        statements.measure(() -> mockMvc.perform(get("/api/v1/products")
+                        .param("size", Integer.toString(pageSize)))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @QueryBudget(4) // Version check (user, updated_at), then user and product
+    void getProduct(StatementRecorder statements) throws Throwable {
+        statements.measure(() -> mockMvc.perform(get("/api/v1/products/{id}", productIds.get(0)))
+                .andExpect(status().isOk()));
+    }
+
+    @ParameterizedTest(name = "{0} products")
+    @ValueSource(ints = {1, PRODUCTS})
+    @QueryBudget(2) // User, products by ID
+    void stockLevels(int products, StatementRecorder statements) throws Throwable {
+        String[] ids = productIds.subList(0, products).stream().map(UUID::toString).toArray(String[]::new);
+        statements.measure(() -> mockMvc.perform(get("/api/v1/products/stock").param("ids", ids))
+                .andExpect(status().isOk()));
+    }
+
+    @ParameterizedTest(name = "page size {0}")
+    @ValueSource(ints = {1, 50})
+    @QueryBudget(3) // User, page, count
+    void listClients(int pageSize, StatementRecorder statements) throws Throwable {
+        statements.measure(() -> mockMvc.perform(get("/api/v1/clients")
+                        .param("size", Integer.toString(pageSize)))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @QueryBudget(4) // Version check (user, updated_at), then user and client
+    void getClient(StatementRecorder statements) throws Throwable {
+        statements.measure(() -> mockMvc.perform(get("/api/v1/clients/{id}", clientIds.get(0)))
+                .andExpect(status().isOk()));
+    }
+
+    @ParameterizedTest(name = "page size {0}")
+    @ValueSource(ints = {1, 50})
+    @QueryBudget(3) // User, page, count
+    void listTransactions(int pageSize, StatementRecorder statements) throws Throwable {
+        statements.measure(() -> mockMvc.perform(get("/api/v1/transactions")
+                        .param("size", Integer.toString(pageSize))
+                        .param("dateFrom", fixtureStart.toString()))
+                .andExpect(status().isOk()));
+    }
+
+    @ParameterizedTest(name = "{0} items")
+    @ValueSource(ints = {1, 5})
+    @QueryBudget(4) // Version check (user, updated_at), then user and the transaction with its graph
+    void getTransaction(int items, StatementRecorder statements) throws Throwable {
+        UUID transactionId = createSale(clientIds.get(0), items);
+        statements.measure(() -> mockMvc.perform(get("/api/v1/transactions/{id}", transactionId))
+                .andExpect(status().isOk()));
+    }
+
+    @ParameterizedTest(name = "{0} items")
+    @ValueSource(ints = {1, 5})
+    @QueryBudget(6) // User, transaction with items and products, product update batch, transaction update, notify
+    void cancelTransaction(int items, StatementRecorder statements) throws Throwable {
+        UUID transactionId = createSale(clientIds.get(0), items);
+        statements.measure(() -> mockMvc.perform(post("/api/v1/transactions/{id}/cancel", transactionId))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @QueryBudget(5) // User, live and archived totals by client (one sub-range), clients by ID
+    void salesReportByClient(StatementRecorder statements) throws Throwable {
+        statements.measure(() -> mockMvc.perform(get("/api/v1/reports/sales")
+                        .param("dateFrom", fixtureStart.toString())
+                        .param("dateTo", OffsetDateTime.now(ZoneOffset.UTC).plusMinutes(1).toString())
+                        .param("groupBy", "client"))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @QueryBudget(3) // User, live and archived totals (one sub-range)
+    void salesReportTotals(StatementRecorder statements) throws Throwable {
+        statements.measure(() -> mockMvc.perform(get("/api/v1/reports/sales")
+                        .param("dateFrom", fixtureStart.toString())
+                        .param("dateTo", OffsetDateTime.now(ZoneOffset.UTC).plusMinutes(1).toString()))
+                .andExpect(status().isOk()));
+    }
+
+    @Test
+    @QueryBudget(2) // User, products
+    void inventoryReport(StatementRecorder statements) throws Throwable {
+        statements.measure(() -> mockMvc.perform(get("/api/v1/reports/inventory"))
+                .andExpect(status().isOk()));
+    }
+
+    private UUID createSale(UUID clientId, int items) {
+        List<TransactionItemCreateRequestDTO> lines = new ArrayList<>();
+        for (UUID productId : productIds.subList(0, items)) {
+            TransactionItemCreateRequestDTO item = new TransactionItemCreateRequestDTO();
+            item.setProductId(productId);
+            item.setQuantity(1);
+            item.setUnitPrice(BigDecimal.ONE);
+            lines.add(item);
+        }
+        TransactionCreateRequestDTO request = new TransactionCreateRequestDTO();
+        request.setClientId(clientId);
+        request.setItems(lines);
+        request.setReferenceNumber("BUDGET");
+        return transactionService.createSale(USERNAME, request).getTransactionId();
+    }
+}
@@ -0,0 +1,21 @@
+package com.huggingsoft.pilot_main.querybudget;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the maximum number of JDBC statements each call measured by a test method may execute
+ * (see {@link StatementRecorder#measure}). A JDBC batch counts as one statement.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(QueryBudgetExtension.class)
+public @interface QueryBudget {
+
+    /** Maximum statements per measured call. */
+    int value();
+}
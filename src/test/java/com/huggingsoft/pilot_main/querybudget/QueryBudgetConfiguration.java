@@ -0,0 +1,35 @@
+package com.huggingsoft.pilot_main.querybudget;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application's (primary) DataSource so every statement is reported to the {@link StatementRecorder}.
+ */
+@TestConfiguration
+public class QueryBudgetConfiguration {
+
+    @Bean
+    static StatementRecorder statementRecorder() {
+        return new StatementRecorder();
+    }
+
+    @Bean
+    static BeanPostProcessor statementCountingDataSource(ObjectProvider<StatementRecorder> recorder) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create(dataSource).name("query-budget")
+                            .listener(recorder.getObject()).build();
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package com.huggingsoft.pilot_main.querybudget;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+/**
+ * Supplies the {@link StatementRecorder} to {@link QueryBudget} test methods and fails the test when a
+ * measured call exceeds the budget, listing the statements it executed.
+ */
+class QueryBudgetExtension implements ParameterResolver, AfterEachCallback {
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == StatementRecorder.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        StatementRecorder recorder = recorder(extensionContext);
+        recorder.reset();
+        return recorder;
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        int budget = AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), QueryBudget.class)
+                .orElseThrow().value();
+        List<StatementRecorder.Measurement> measurements = recorder(context).measurements();
+        if (context.getExecutionException().isPresent()) {
+            return; // The test failed on its own
+        }
+        if (measurements.isEmpty()) {
+            throw new AssertionFailedError(context.getDisplayName() + " declares a query budget but measured no call");
+        }
+        for (StatementRecorder.Measurement measurement : measurements) {
+            if (measurement.count() > budget) {
+                throw new AssertionFailedError(String.format("%s executed %d statements, budget is %d:%n  %s",
+                        context.getDisplayName(), measurement.count(), budget,
+                        String.join(System.lineSeparator() + "  ", measurement.statements())));
+            }
+        }
+    }
+
+    private static StatementRecorder recorder(ExtensionContext context) {
+        return SpringExtension.getApplicationContext(context).getBean(StatementRecorder.class);
+    }
+}
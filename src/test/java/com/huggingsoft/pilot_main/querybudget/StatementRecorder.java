@@ -0,0 +1,68 @@
+package com.huggingsoft.pilot_main.querybudget;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Records the statements executed through the application DataSource while a call is measured, on any
+ * thread (report sub-ranges run on an executor). Measurements must not overlap.
+ */
+public class StatementRecorder implements QueryExecutionListener {
+
+    private final List<String> current = Collections.synchronizedList(new ArrayList<>());
+    private final List<Measurement> measurements = new ArrayList<>();
+    private volatile boolean recording;
+
+    /**
+     * Runs {@code call} and records the statements it executes.
+     */
+    public Measurement measure(Executable call) throws Throwable {
+        current.clear();
+        recording = true;
+        try {
+            call.execute();
+        } finally {
+            recording = false;
+        }
+        Measurement measurement = new Measurement(List.copyOf(current));
+        measurements.add(measurement);
+        return measurement;
+    }
+
+    List<Measurement> measurements() {
+        return List.copyOf(measurements);
+    }
+
+    void reset() {
+        measurements.clear();
+        current.clear();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (!recording) return;
+        String sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+        current.add(execInfo.isBatch() ? "[batch x" + execInfo.getBatchSize() + "] " + sql : sql);
+    }
+
+    /**
+     * The statements of one measured call, in execution order.
+     */
+    public record Measurement(List<String> statements) {
+
+        public int count() {
+            return statements.size();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.huggingsoft.pilot_main.service.impl;
+
+import com.huggingsoft.pilot_main.service.impl.ReportServiceImpl.DateRange;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * How {@link ReportServiceImpl#splitByMonths} cuts a sales report range into the sub-ranges aggregated
+ * concurrently. Whatever the split, the sub-ranges must tile [from, to) exactly: a gap or an overlap would
+ * drop or double-count sales.
+ */
+class ReportServiceImplSplitTest {
+
+    private static final ZoneOffset PLUS_2 = ZoneOffset.ofHours(2);
+
+    @Test
+    void rangeShorterThanParallelMinMonthsIsNotSplit() {
+        OffsetDateTime from = at(2024, 1, 15, 10);
+        OffsetDateTime to = at(2024, 5, 20, 0); // Five calendar months touched
+
+        List<DateRange> ranges = service(4, 6).splitByMonths(from, to);
+
+        assertThat(ranges).containsExactly(new DateRange(from, to));
+    }
+
+    @Test
+    void fanOutBelowTwoDisablesSplitting() {
+        OffsetDateTime from = at(2024, 1, 1, 0);
+        OffsetDateTime to = at(2025, 1, 1, 0);
+
+        assertThat(service(1, 2).splitByMonths(from, to)).containsExactly(new DateRange(from, to));
+    }
+
+    @Test
+    void innerBoundariesFallOnTheFirstOfTheMonth() {
+        OffsetDateTime from = at(2024, 1, 15, 10); // Partial first month
+        OffsetDateTime to = at(2024, 5, 1, 0); // Exclusive, exactly on a month start
+
+        List<DateRange> ranges = service(4, 2).splitByMonths(from, to);
+
+        assertTiles(ranges, from, to);
+        assertThat(ranges).extracting(DateRange::to).containsExactly(
+                at(2024, 2, 1, 0), at(2024, 3, 1, 0), at(2024, 4, 1, 0), to); // No empty range after May 1
+        assertThat(ranges).extracting(DateRange::from)
+                .allSatisfy(start -> assertThat(start.getOffset()).isEqualTo(PLUS_2)); // Months of the caller's offset
+    }
+
+    @Test
+    void fewerMonthsThanFanOutGivesOneRangePerMonth() {
+        OffsetDateTime from = at(2024, 2, 10, 0);
+        OffsetDateTime to = at(2024, 4, 10, 0);
+
+        List<DateRange> ranges = service(8, 2).splitByMonths(from, to);
+
+        assertTiles(ranges, from, to);
+        assertThat(ranges).extracting(DateRange::to).containsExactly(at(2024, 3, 1, 0), at(2024, 4, 1, 0), to);
+    }
+
+    @Test
+    void monthsAreSpreadAcrossChunksWhenTheyDoNotDivideEvenly() {
+        OffsetDateTime from = at(2024, 1, 1, 0);
+        OffsetDateTime to = at(2024, 11, 1, 0); // Ten months over four chunks
+
+        List<DateRange> ranges = service(4, 2).splitByMonths(from, to);
+
+        assertTiles(ranges, from, to);
+        assertThat(ranges).extracting(range -> ChronoUnit.MONTHS.between(range.from(), range.to()))
+                .containsExactly(2L, 3L, 2L, 3L);
+    }
+
+    @Test
+    void inclusiveEndAtMidnightKeepsItsOwnSubRange() {
+        // generateSalesReport passes dateTo + 1 µs: a sale stamped exactly at dateTo must still be counted
+        OffsetDateTime from = at(2024, 1, 1, 0);
+        OffsetDateTime dateTo = at(2024, 3, 1, 0);
+        OffsetDateTime to = dateTo.plus(1, ChronoUnit.MICROS);
+
+        List<DateRange> ranges = service(4, 2).splitByMonths(from, to);
+
+        assertTiles(ranges, from, to);
+        assertThat(ranges.get(ranges.size() - 1)).isEqualTo(new DateRange(dateTo, to));
+    }
+
+    private static void assertTiles(List<DateRange> ranges, OffsetDateTime from, OffsetDateTime to) {
+        assertThat(ranges).isNotEmpty();
+        assertThat(ranges.get(0).from()).isEqualTo(from);
+        assertThat(ranges.get(ranges.size() - 1).to()).isEqualTo(to);
+        for (int i = 0; i < ranges.size(); i++) {
+            assertThat(ranges.get(i).from()).isBefore(ranges.get(i).to());
+            if (i > 0) {
+                assertThat(ranges.get(i).from()).isEqualTo(ranges.get(i - 1).to());
+            }
+        }
+    }
+
+    private static ReportServiceImpl service(int maxFanOut, int parallelMinMonths) {
+        ReportServiceImpl service = new ReportServiceImpl(null, null, null, null, null, null, null); // Only the split is used
+        ReflectionTestUtils.setField(service, "maxFanOut", maxFanOut);
+        ReflectionTestUtils.setField(service, "parallelMinMonths", parallelMinMonths);
+        return service;
+    }
+
+    private static OffsetDateTime at(int year, int month, int day, int hour) {
+        return OffsetDateTime.of(year, month, day, hour, 0, 0, 0, PLUS_2);
+    }
+}
@@ -0,0 +1,101 @@
+package com.huggingsoft.pilot_main.service.impl;
+
+import com.hsoft.model.entities.v1.User;
+import com.huggingsoft.pilot_main.PostgresIntegrationTest;
+import com.huggingsoft.pilot_main.repository.UserRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * More concurrent sales reports than the reporting pool has connections, each fanning out over several
+ * sub-ranges. Every report must complete: a request thread that held a reporting connection while waiting for
+ * its sub-ranges would starve the pool, and the sub-range queries would time out waiting for a connection.
+ */
+@SpringBootTest(properties = {
+        "workloads.reporting.hikari.maximum-pool-size=6",
+        "workloads.reporting.hikari.connection-timeout=5000", // Starvation fails fast instead of after 30 s
+        "reports.sales.max-fan-out=4",
+        "reports.sales.parallel-min-months=2"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SalesReportConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final String USERNAME = "dummyUser"; // The placeholder principal the services resolve
+    private static final int REPORTS = 12;
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepository;
+
+    private UUID tenantId;
+
+    @BeforeAll
+    void createTenant() {
+        User user = userRepository.findByUsernameIgnoreCase(USERNAME).orElseGet(() -> {
+            User created = new User();
+            created.setUsername(USERNAME);
+            created.setEmail(USERNAME + "@reports.local");
+            created.setPasswordHash("not-a-real-hash");
+            created.setActive(true);
+            created.setContext(new HashMap<>());
+            return userRepository.save(created);
+        });
+        tenantId = user.getUserId();
+    }
+
+    @AfterAll
+    void removeTenant() {
+        if (tenantId != null) {
+            purgeTenant(tenantId);
+        }
+    }
+
+    @ParameterizedTest(name = "groupBy={0}")
+    @ValueSource(strings = {"total", "client"})
+    void concurrentReportsDoNotStarveThePool(String groupBy) throws Exception {
+        OffsetDateTime dateTo = OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime dateFrom = dateTo.minusMonths(12); // Four sub-ranges per report
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(REPORTS);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < REPORTS; i++) {
+                statuses.add(clients.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(get("/api/v1/reports/sales")
+                                    .param("dateFrom", dateFrom.toString())
+                                    .param("dateTo", dateTo.toString())
+                                    .param("groupBy", groupBy))
+                            .andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> status : statuses) {
+                assertEquals(200, status.get());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+}
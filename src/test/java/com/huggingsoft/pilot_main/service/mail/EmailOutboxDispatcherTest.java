@@ -0,0 +1,238 @@
+package com.huggingsoft.pilot_main.service.mail;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.huggingsoft.pilot_main.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Retry, backoff, dead-letter and auth-pause transitions of {@link EmailOutboxDispatcher}, against an in-memory
+ * outbox and a sender that answers with canned {@link SendResult}s. Time does not pass on its own: a rescheduled
+ * email is claimable again only after {@link InMemoryOutbox#makeAllDue()}.
+ */
+class EmailOutboxDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BASE_SECONDS = 30;
+    private static final long RETRY_MAX_SECONDS = 100;
+    private static final long AUTH_PAUSE_SECONDS = 300;
+
+    private final InMemoryOutbox outbox = new InMemoryOutbox();
+    private final StubSender sender = new StubSender();
+    private final EmailOutboxDispatcher dispatcher = new EmailOutboxDispatcher(outbox, sender);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(dispatcher, "retryBaseSeconds", RETRY_BASE_SECONDS);
+        ReflectionTestUtils.setField(dispatcher, "retryMaxSeconds", RETRY_MAX_SECONDS);
+        ReflectionTestUtils.setField(dispatcher, "inFlightSeconds", 120L);
+        ReflectionTestUtils.setField(dispatcher, "authPauseSeconds", AUTH_PAUSE_SECONDS);
+    }
+
+    @Test
+    void sendsEveryDueEmailAcrossBatches() {
+        outbox.add(5);
+        sender.answer(email -> SendResult.sent());
+
+        assertThat(dispatcher.dispatchDue()).isEqualTo(5);
+        assertThat(outbox.rows.values()).allSatisfy(row -> assertThat(row.status).isEqualTo("SENT"));
+        assertThat(outbox.claims).isEqualTo(3); // 2 + 2 + 1; a short batch ends the dispatch
+    }
+
+    @Test
+    void transientFailuresBackOffExponentially() {
+        outbox.add(1);
+        sender.answer(email -> SendResult.retry("503", null));
+
+        dispatcher.dispatchDue();
+        Row row = outbox.rows.get(1L);
+        assertThat(row.status).isEqualTo("PENDING");
+        assertThat(row.attempts).isEqualTo(1);
+        assertThat(row.delay).isBetween(Duration.ofSeconds(15), Duration.ofSeconds(30));
+        assertThat(row.lastError).isEqualTo("503");
+
+        outbox.makeAllDue();
+        dispatcher.dispatchDue();
+        assertThat(row.attempts).isEqualTo(2);
+        assertThat(row.delay).isBetween(Duration.ofSeconds(30), Duration.ofSeconds(60));
+    }
+
+    @Test
+    void providerRetryAfterReplacesBackoff() {
+        outbox.add(1);
+        sender.answer(email -> SendResult.retry("429", Duration.ofSeconds(17)));
+
+        dispatcher.dispatchDue();
+
+        assertThat(outbox.rows.get(1L).delay).isEqualTo(Duration.ofSeconds(17));
+    }
+
+    @Test
+    void failureOnTheLastAttemptIsDeadLettered() {
+        outbox.add(1);
+        sender.answer(email -> SendResult.retry("timeout", null));
+        Row row = outbox.rows.get(1L);
+
+        for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+            dispatcher.dispatchDue();
+            assertThat(row.status).isEqualTo("PENDING");
+            outbox.makeAllDue();
+        }
+        dispatcher.dispatchDue();
+
+        assertThat(row.status).isEqualTo("DEAD");
+        assertThat(row.attempts).isEqualTo(MAX_ATTEMPTS);
+        assertThat(row.lastError).isEqualTo("timeout");
+    }
+
+    @Test
+    void rejectedEmailIsDeadLetteredAtOnce() {
+        outbox.add(2);
+        sender.answer(email -> email.id() == 1 ? SendResult.rejected("400 invalid recipient") : SendResult.sent());
+
+        assertThat(dispatcher.dispatchDue()).isEqualTo(1);
+
+        assertThat(outbox.rows.get(1L).status).isEqualTo("DEAD");
+        assertThat(outbox.rows.get(1L).attempts).isEqualTo(1);
+        assertThat(outbox.rows.get(2L).status).isEqualTo("SENT");
+    }
+
+    @Test
+    void authFailurePausesDispatchWithoutSpendingAttempts() {
+        outbox.add(4);
+        sender.answer(email -> SendResult.unauthorized("401 bad key"));
+
+        assertThat(dispatcher.dispatchDue()).isZero();
+
+        assertThat(outbox.claims).isEqualTo(1); // The second batch is not claimed once paused
+        for (long id = 1; id <= 2; id++) {
+            Row row = outbox.rows.get(id);
+            assertThat(row.status).isEqualTo("PENDING");
+            assertThat(row.attempts).isZero();
+            assertThat(row.delay).isEqualTo(Duration.ofSeconds(AUTH_PAUSE_SECONDS));
+        }
+
+        // While paused, nothing is claimed even if emails are due
+        outbox.makeAllDue();
+        assertThat(dispatcher.dispatchDue()).isZero();
+        assertThat(outbox.claims).isEqualTo(1);
+
+        // The key is fixed and the pause is over: everything goes out, none was dead-lettered
+        ReflectionTestUtils.setField(dispatcher, "pausedUntil", Instant.now().minusSeconds(1));
+        sender.answer(email -> SendResult.sent());
+        assertThat(dispatcher.dispatchDue()).isEqualTo(4);
+        assertThat(outbox.rows.values()).allSatisfy(row -> assertThat(row.status).isEqualTo("SENT"));
+    }
+
+    @Test
+    void backoffIsJitteredAndCapped() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(dispatcher.backoff(1)).isBetween(Duration.ofSeconds(15), Duration.ofSeconds(30));
+            assertThat(dispatcher.backoff(3)).isBetween(Duration.ofSeconds(50), Duration.ofSeconds(RETRY_MAX_SECONDS));
+            assertThat(dispatcher.backoff(1_000)).isBetween(Duration.ofSeconds(50), Duration.ofSeconds(RETRY_MAX_SECONDS));
+        }
+    }
+
+    private static final class Row {
+        String status = "PENDING";
+        int attempts;
+        boolean due = true;
+        Duration delay;
+        String lastError;
+    }
+
+    /** The outbox table's state machine, without the clock: rescheduling only records the delay. */
+    private static final class InMemoryOutbox extends EmailOutboxRepository {
+
+        final Map<Long, Row> rows = new LinkedHashMap<>();
+        int claims;
+
+        InMemoryOutbox() {
+            super(null);
+        }
+
+        void add(int count) {
+            for (int i = 0; i < count; i++) {
+                rows.put((long) rows.size() + 1, new Row());
+            }
+        }
+
+        void makeAllDue() {
+            rows.values().forEach(row -> row.due = true);
+        }
+
+        @Override
+        public List<OutboundEmail> claimDue(int limit, Duration inFlight) {
+            claims++;
+            List<OutboundEmail> claimed = new ArrayList<>();
+            for (Map.Entry<Long, Row> entry : rows.entrySet()) {
+                Row row = entry.getValue();
+                if (claimed.size() < limit && row.status.equals("PENDING") && row.due) {
+                    row.due = false;
+                    row.attempts++;
+                    claimed.add(new OutboundEmail(entry.getKey(), "user" + entry.getKey() + "@example.com",
+                            "Reset", "<p>Hi</p>", row.attempts));
+                }
+            }
+            return claimed;
+        }
+
+        @Override
+        public void markSent(Collection<Long> ids) {
+            ids.forEach(id -> rows.get(id).status = "SENT");
+        }
+
+        @Override
+        public void reschedule(long id, Duration delay, String error) {
+            Row row = rows.get(id);
+            row.delay = delay;
+            row.lastError = error;
+        }
+
+        @Override
+        public void release(long id, Duration delay, String error) {
+            reschedule(id, delay, error);
+            rows.get(id).attempts--;
+        }
+
+        @Override
+        public void markDead(long id, String error) {
+            Row row = rows.get(id);
+            row.status = "DEAD";
+            row.lastError = error;
+        }
+    }
+
+    private static final class StubSender extends SendGridMailSender {
+
+        private volatile Function<OutboundEmail, SendResult> answer;
+
+        StubSender() {
+            super(new ObjectMapper(), "http://127.0.0.1:9", "test-key", "noreply@example.com", "", 1_000);
+        }
+
+        void answer(Function<OutboundEmail, SendResult> answer) {
+            this.answer = answer;
+        }
+
+        @Override
+        public CompletableFuture<SendResult> sendAsync(OutboundEmail email) {
+            return CompletableFuture.completedFuture(answer.apply(email));
+        }
+    }
+}
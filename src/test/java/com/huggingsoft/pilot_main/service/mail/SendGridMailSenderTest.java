@@ -0,0 +1,133 @@
+package com.huggingsoft.pilot_main.service.mail;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link SendGridMailSender} against a local stub of the SendGrid Mail Send endpoint.
+ */
+class SendGridMailSenderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> received = new CopyOnWriteArrayList<>();
+    private final AtomicReference<String> authorization = new AtomicReference<>();
+    private final AtomicInteger status = new AtomicInteger(202);
+    private final AtomicReference<String> retryAfter = new AtomicReference<>();
+
+    private HttpServer server;
+    private SendGridMailSender sender;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v3/mail/send", exchange -> {
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            received.add(objectMapper.readTree(exchange.getRequestBody()));
+            if (retryAfter.get() != null) {
+                exchange.getResponseHeaders().add("Retry-After", retryAfter.get());
+            }
+            byte[] body = (status.get() == 202 ? "" : "{\"errors\":[{\"message\":\"stub\"}]}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status.get(), body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        sender = new SendGridMailSender(objectMapper, "http://127.0.0.1:" + server.getAddress().getPort() + "/",
+                "test-key", "noreply@example.com", "Pilot", 5_000);
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void sendsMailSendRequest() {
+        SendResult result = sender.sendAsync(email()).join();
+
+        assertThat(result.outcome()).isEqualTo(SendResult.Outcome.SENT);
+        assertThat(authorization.get()).isEqualTo("Bearer test-key");
+        JsonNode mail = received.get(0);
+        assertThat(mail.at("/personalizations/0/to/0/email").asText()).isEqualTo("user@example.com");
+        assertThat(mail.at("/from/email").asText()).isEqualTo("noreply@example.com");
+        assertThat(mail.at("/from/name").asText()).isEqualTo("Pilot");
+        assertThat(mail.at("/subject").asText()).isEqualTo("Reset");
+        assertThat(mail.at("/content/0/type").asText()).isEqualTo("text/html");
+        assertThat(mail.at("/content/0/value").asText()).isEqualTo("<p>Hi</p>");
+    }
+
+    @Test
+    void throttlingIsRetriedAfterTheRequestedDelay() {
+        status.set(429);
+        retryAfter.set("17");
+
+        SendResult result = sender.sendAsync(email()).join();
+
+        assertThat(result.outcome()).isEqualTo(SendResult.Outcome.RETRY);
+        assertThat(result.retryAfter()).isEqualTo(Duration.ofSeconds(17));
+    }
+
+    @Test
+    void serverErrorsAreRetried() {
+        status.set(503);
+
+        SendResult result = sender.sendAsync(email()).join();
+
+        assertThat(result.outcome()).isEqualTo(SendResult.Outcome.RETRY);
+        assertThat(result.retryAfter()).isNull();
+        assertThat(result.error()).contains("503");
+    }
+
+    @Test
+    void clientErrorsAreRejected() {
+        status.set(400);
+
+        SendResult result = sender.sendAsync(email()).join();
+
+        assertThat(result.outcome()).isEqualTo(SendResult.Outcome.REJECTED);
+        assertThat(result.error()).contains("400").contains("stub");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {401, 403})
+    void refusedCredentialsAreNotBlamedOnTheEmail(int code) {
+        status.set(code);
+
+        SendResult result = sender.sendAsync(email()).join();
+
+        assertThat(result.outcome()).isEqualTo(SendResult.Outcome.UNAUTHORIZED);
+        assertThat(result.error()).contains(String.valueOf(code));
+    }
+
+    @Test
+    void unreachableServerIsRetried() {
+        server.stop(0);
+
+        SendResult result = sender.sendAsync(email()).join();
+
+        assertThat(result.outcome()).isEqualTo(SendResult.Outcome.RETRY);
+    }
+
+    private static OutboundEmail email() {
+        return new OutboundEmail(1L, "user@example.com", "Reset", "<p>Hi</p>", 1);
+    }
+}
@@ -0,0 +1,362 @@
+package com.huggingsoft.pilot_main.stress;
+
+import com.hsoft.model.dto.v1.products.StockAdjustmentRequestDTO;
+import com.hsoft.model.dto.v1.transactions.TransactionCreateRequestDTO;
+import com.hsoft.model.dto.v1.transactions.TransactionItemCreateRequestDTO;
+import com.hsoft.model.entities.v1.Client;
+import com.hsoft.model.entities.v1.Product;
+import com.hsoft.model.entities.v1.Provider;
+import com.hsoft.model.entities.v1.User;
+import com.hsoft.model.types.v1.TransactionStatus;
+import com.hsoft.model.types.v1.TransactionType;
+import com.huggingsoft.pilot_main.repository.ClientRepository;
+import com.huggingsoft.pilot_main.repository.ProductRepository;
+import com.huggingsoft.pilot_main.repository.ProviderRepository;
+import com.huggingsoft.pilot_main.repository.UserRepository;
+import com.huggingsoft.pilot_main.service.ProductService;
+import com.huggingsoft.pilot_main.service.TransactionService;
+import com.huggingsoft.pilot_main.service.exceptions.BusinessRuleViolationException;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrency stress harness for the stock write paths (sales, purchases, cancellations, manual adjustments).
+ * <p>
+ * Hundreds of threads hammer a handful of hot products through the real services, retrying lock and
+ * serialization failures (deadlocks included) like a client would. Afterwards every product must satisfy
+ * {@code final stock = initial + purchases - sales + adjustments}, counting only non-cancelled transactions;
+ * a lost update shows up as a mismatch. Throughput, latency percentiles, retries and deadlocks are printed.
+ * The run also fails on any error other than expected business rejections and retried lock failures, and when
+ * an operation type completed less than a tenth of its share of the mix (a run where everything fails would
+ * otherwise satisfy the invariant trivially).
+ * <p>
+ * Runs against the PostgreSQL configured in application.properties (tables are created if missing) and
+ * is excluded from {@code test}. Run it with {@code ./gradlew stressTest}, tuning it with system properties:
+ * {@code -Dstress.threads=200 -Dstress.operations=20000 -Dstress.products=5
+ * -Dstress.mix=sale:50,purchase:25,cancel:10,adjust:15 -Dstress.max-retries=5}.
+ */
+@Tag("stress")
+@SpringBootTest(properties = "spring.jpa.hibernate.ddl-auto=update")
+class StockConcurrencyStressTest {
+
+    private static final String USERNAME = "dummyUser"; // The placeholder principal the services resolve
+    private static final int INITIAL_STOCK = 1_000_000;
+
+    enum Op { SALE, PURCHASE, CANCEL, ADJUST }
+
+    @Autowired private TransactionService transactionService;
+    @Autowired private ProductService productService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ProductRepository productRepository;
+    @Autowired private ClientRepository clientRepository;
+    @Autowired private ProviderRepository providerRepository;
+    @Autowired private EntityManager entityManager;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private final int threads = Integer.getInteger("stress.threads", 200);
+    private final int operations = Integer.getInteger("stress.operations", 20_000);
+    private final int productCount = Integer.getInteger("stress.products", 5);
+    private final int maxRetries = Integer.getInteger("stress.max-retries", 5);
+    private final Map<Op, Integer> mix = parseMix(System.getProperty("stress.mix", "sale:50,purchase:25,cancel:10,adjust:15"));
+
+    private final Map<Op, List<Long>> latencies = new EnumMap<>(Op.class);
+    private final Map<Op, LongAdder> completed = new EnumMap<>(Op.class);
+    private final Map<Op, LongAdder> rejected = new EnumMap<>(Op.class);
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder deadlocks = new LongAdder();
+    private final LongAdder gaveUp = new LongAdder();
+    private final Map<UUID, LongAdder> adjustments = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<UUID> cancellable = new ConcurrentLinkedQueue<>();
+    private final Map<String, AtomicInteger> unexpected = new ConcurrentHashMap<>();
+
+    @Test
+    void stockStaysConsistentUnderConcurrentWrites() throws Exception {
+        for (Op op : Op.values()) {
+            latencies.put(op, Collections.synchronizedList(new ArrayList<>()));
+            completed.put(op, new LongAdder());
+            rejected.put(op, new LongAdder());
+        }
+        Fixture fixture = new TransactionTemplate(transactionManager).execute(status -> createFixture());
+        fixture.productIds().forEach(id -> adjustments.put(id, new LongAdder()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(operations);
+        for (int i = 0; i < operations; i++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    runOne(fixture);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        boolean finished = done.await(30, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - began;
+        pool.shutdownNow();
+        assertTrue(finished, "Operations still running after 30 minutes");
+
+        List<String> violations = checkInvariant(fixture);
+        printReport(elapsedNanos, violations);
+        assertTrue(violations.isEmpty(), "Stock invariant violated (lost updates) for " + violations.size()
+                + " product(s):\n" + String.join("\n", violations));
+        assertTrue(unexpected.isEmpty(), "Unexpected errors: " + unexpected);
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        mix.forEach((op, weight) -> {
+            long expected = (long) operations * weight / totalWeight;
+            assertTrue(completed.get(op).sum() >= Math.max(1, expected / 10),
+                    op + " completed " + completed.get(op).sum() + " times, expected about " + expected);
+        });
+    }
+
+    // --- Workload ---
+
+    private void runOne(Fixture fixture) {
+        Op op = pickOp();
+        UUID toCancel = null;
+        if (op == Op.CANCEL) {
+            toCancel = cancellable.poll();
+            if (toCancel == null) {
+                op = Op.SALE; // Nothing to cancel yet; counted as the sale it is
+            }
+        }
+        long startedAt = System.nanoTime();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                execute(op, fixture, toCancel); // A retried cancellation retries the same transaction
+                completed.get(op).increment();
+                break;
+            } catch (BusinessRuleViolationException e) {
+                rejected.get(op).increment(); // e.g. insufficient stock, already cancelled: expected outcomes
+                break;
+            } catch (RuntimeException e) {
+                boolean deadlock = isDeadlock(e);
+                if (deadlock) deadlocks.increment();
+                if ((deadlock || e instanceof ConcurrencyFailureException) && attempt < maxRetries) {
+                    retries.increment();
+                    sleepQuietly(ThreadLocalRandom.current().nextLong(1, 10L << attempt)); // Jittered backoff
+                    continue;
+                }
+                if (deadlock || e instanceof ConcurrencyFailureException) {
+                    gaveUp.increment();
+                } else {
+                    unexpected.computeIfAbsent(e.getClass().getSimpleName() + ": " + e.getMessage(), k -> new AtomicInteger())
+                            .incrementAndGet();
+                }
+                break;
+            }
+        }
+        latencies.get(op).add(System.nanoTime() - startedAt);
+    }
+
+    private void execute(Op op, Fixture fixture, UUID toCancel) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (op) {
+            case SALE -> {
+                var created = transactionService.createSale(USERNAME, transactionRequest(fixture, fixture.clientId(), null));
+                cancellable.add(created.getTransactionId());
+            }
+            case PURCHASE -> {
+                var created = transactionService.createPurchase(USERNAME, transactionRequest(fixture, null, fixture.providerId()));
+                cancellable.add(created.getTransactionId());
+            }
+            case CANCEL -> transactionService.cancelTransaction(USERNAME, toCancel);
+            case ADJUST -> {
+                UUID productId = fixture.productIds().get(random.nextInt(fixture.productIds().size()));
+                int delta = random.nextInt(-5, 6);
+                StockAdjustmentRequestDTO request = new StockAdjustmentRequestDTO();
+                request.setAdjustment(delta);
+                request.setReason("stress");
+                productService.adjustStock(USERNAME, productId, request);
+                adjustments.get(productId).add(delta); // Only after commit
+            }
+        }
+    }
+
+    // 1-3 distinct hot products in random order, so concurrent transactions lock rows in different orders
+    private TransactionCreateRequestDTO transactionRequest(Fixture fixture, UUID clientId, UUID providerId) {
+        List<UUID> products = new ArrayList<>(fixture.productIds());
+        Collections.shuffle(products, ThreadLocalRandom.current());
+        List<TransactionItemCreateRequestDTO> items = new ArrayList<>();
+        for (UUID productId : products.subList(0, Math.min(products.size(), ThreadLocalRandom.current().nextInt(1, 4)))) {
+            TransactionItemCreateRequestDTO item = new TransactionItemCreateRequestDTO();
+            item.setProductId(productId);
+            item.setQuantity(ThreadLocalRandom.current().nextInt(1, 5));
+            item.setUnitPrice(BigDecimal.ONE);
+            items.add(item);
+        }
+        TransactionCreateRequestDTO request = new TransactionCreateRequestDTO();
+        request.setClientId(clientId);
+        request.setProviderId(providerId);
+        request.setItems(items);
+        request.setReferenceNumber("STRESS");
+        return request;
+    }
+
+    private Op pickOp() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int roll = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Op, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) return entry.getKey();
+        }
+        return Op.SALE;
+    }
+
+    // --- Fixture and verification ---
+
+    private record Fixture(List<UUID> productIds, UUID clientId, UUID providerId) {}
+
+    private Fixture createFixture() {
+        User user = userRepository.findByUsernameIgnoreCase(USERNAME).orElseGet(() -> {
+            User created = new User();
+            created.setUsername(USERNAME);
+            created.setEmail(USERNAME + "@stress.local");
+            created.setPasswordHash("not-a-real-hash");
+            created.setActive(true);
+            created.setContext(new HashMap<>());
+            return userRepository.save(created);
+        });
+        String run = Long.toString(System.currentTimeMillis(), 36);
+
+        Client client = new Client();
+        client.setUser(user);
+        client.setName("Stress client " + run);
+        client.setNit("CF");
+        client.setActive(true);
+        Provider provider = new Provider();
+        provider.setUser(user);
+        provider.setName("Stress provider " + run);
+        provider.setNit("STRESS-" + run);
+        provider.setActive(true);
+
+        List<UUID> productIds = new ArrayList<>();
+        for (int i = 0; i < productCount; i++) {
+            Product product = new Product();
+            product.setUser(user);
+            product.setSku("STRESS-" + run + "-" + i);
+            product.setName("Hot product " + i);
+            product.setPurchasePrice(BigDecimal.ONE);
+            product.setSalePrice(BigDecimal.ONE);
+            product.setCurrentStock(INITIAL_STOCK);
+            product.setUnitOfMeasure("unidad");
+            product.setActive(true);
+            product.setContext(new HashMap<>());
+            productIds.add(productRepository.save(product).getProductId());
+        }
+        return new Fixture(productIds, clientRepository.save(client).getClientId(), providerRepository.save(provider).getProviderId());
+    }
+
+    private List<String> checkInvariant(Fixture fixture) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Map<UUID, Long> net = new HashMap<>();
+            List<Object[]> rows = entityManager.createQuery(
+                            "SELECT ti.product.productId, t.transactionType, SUM(ti.quantity) " +
+                                    "FROM TransactionItem ti JOIN ti.transaction t " +
+                                    "WHERE t.status <> :cancelled AND ti.product.productId IN :ids " +
+                                    "GROUP BY ti.product.productId, t.transactionType", Object[].class)
+                    .setParameter("cancelled", TransactionStatus.CANCELLED)
+                    .setParameter("ids", fixture.productIds())
+                    .getResultList();
+            for (Object[] row : rows) {
+                long quantity = ((Number) row[2]).longValue();
+                net.merge((UUID) row[0], row[1] == TransactionType.PURCHASE ? quantity : -quantity, Long::sum);
+            }
+            List<String> violations = new ArrayList<>();
+            for (UUID productId : fixture.productIds()) {
+                long expected = INITIAL_STOCK + net.getOrDefault(productId, 0L) + adjustments.get(productId).sum();
+                int actual = productRepository.findById(productId).orElseThrow().getCurrentStock();
+                if (actual != expected) {
+                    violations.add(productId + ": expected " + expected + ", actual " + actual
+                            + " (drift " + (actual - expected) + ")");
+                }
+            }
+            return violations;
+        });
+    }
+
+    private void printReport(long elapsedNanos, List<String> violations) {
+        long total = completed.values().stream().mapToLong(LongAdder::sum).sum()
+                + rejected.values().stream().mapToLong(LongAdder::sum).sum();
+        StringBuilder report = new StringBuilder("\n=== Stock concurrency stress report ===\n");
+        report.append(String.format("threads=%d operations=%d hotProducts=%d mix=%s%n", threads, operations, productCount, mix));
+        report.append(String.format("elapsed=%.1fs throughput=%.0f ops/s%n",
+                elapsedNanos / 1e9, total / (elapsedNanos / 1e9)));
+        for (Op op : Op.values()) {
+            List<Long> samples;
+            synchronized (latencies.get(op)) {
+                samples = new ArrayList<>(latencies.get(op));
+            }
+            Collections.sort(samples);
+            report.append(String.format("%-8s ok=%-6d rejected=%-6d p50=%6.1fms p99=%6.1fms max=%6.1fms%n", op,
+                    completed.get(op).sum(), rejected.get(op).sum(),
+                    percentile(samples, 0.50), percentile(samples, 0.99), percentile(samples, 1.0)));
+        }
+        report.append(String.format("retries=%d deadlocks=%d gaveUpAfterRetries=%d%n", retries.sum(), deadlocks.sum(), gaveUp.sum()));
+        unexpected.forEach((error, count) -> report.append("unexpected x").append(count).append(": ").append(error).append('\n'));
+        report.append(violations.isEmpty() ? "invariant: OK\n" : "invariant: VIOLATED for " + violations.size() + " product(s)\n");
+        System.out.println(report);
+    }
+
+    private static double percentile(List<Long> sortedNanos, double p) {
+        if (sortedNanos.isEmpty()) return 0;
+        int index = (int) Math.ceil(p * sortedNanos.size()) - 1;
+        return sortedNanos.get(Math.max(0, index)) / 1e6;
+    }
+
+    private static boolean isDeadlock(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql && "40P01".equals(sql.getSQLState())) return true;
+        }
+        return false;
+    }
+
+    private static Map<Op, Integer> parseMix(String spec) {
+        Map<Op, Integer> weights = new EnumMap<>(Op.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            weights.put(Op.valueOf(kv[0].strip().toUpperCase()), Integer.parseInt(kv[1].strip()));
+        }
+        return weights;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.huggingsoft.pilot_main.web.configurations;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Representation resolution and the ETag rewriting of {@link RepresentationETagFilter}.
+ */
+class RepresentationETagFilterTest {
+
+    private static final String TAG = "\"0d9c-kf3\"";
+
+    private final RepresentationETagFilter filter = new RepresentationETagFilter();
+
+    @Test
+    void resolvesTheRepresentationLikeContentNegotiation() {
+        assertThat(RepresentationETagFilter.suffixFor(null)).isEmpty();
+        assertThat(RepresentationETagFilter.suffixFor("*/*")).isEmpty();
+        assertThat(RepresentationETagFilter.suffixFor("application/json")).isEmpty();
+        assertThat(RepresentationETagFilter.suffixFor("application/cbor")).isEqualTo(".cbor");
+        assertThat(RepresentationETagFilter.suffixFor("application/json;q=0.5, application/x-jackson-smile")).isEqualTo(".smile");
+        assertThat(RepresentationETagFilter.suffixFor("application/cbor;q=0.5, application/json")).isEmpty();
+        assertThat(RepresentationETagFilter.suffixFor("*/*, application/cbor")).isEqualTo(".cbor"); // More specific first
+        assertThat(RepresentationETagFilter.suffixFor("not a media type")).isEmpty();
+    }
+
+    @Test
+    void binaryResponsesGetTheirOwnTag() throws Exception {
+        MockHttpServletResponse response = run(request("application/cbor"), (req, res) -> res.setHeader(HttpHeaders.ETAG, TAG));
+
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"0d9c-kf3.cbor\"");
+    }
+
+    @Test
+    void jsonResponsesKeepThePlainTag() throws Exception {
+        MockHttpServletResponse response = run(request("application/json"), (req, res) -> res.setHeader(HttpHeaders.ETAG, TAG));
+
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(TAG);
+    }
+
+    @Test
+    void ifNoneMatchOnlyMatchesTheSameRepresentation() throws Exception {
+        MockHttpServletRequest request = request("application/cbor");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, TAG); // A JSON body the client cached
+        AtomicReference<String> seen = new AtomicReference<>("unset");
+
+        run(request, (req, res) -> seen.set(req.getHeader(HttpHeaders.IF_NONE_MATCH)));
+        assertThat(seen.get()).isNull();
+
+        request = request("application/cbor");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"0d9c-kf3.smile\"");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"0d9c-kf3.cbor\"");
+        run(request, (req, res) -> seen.set(req.getHeader(HttpHeaders.IF_NONE_MATCH)));
+        assertThat(seen.get()).isEqualTo(TAG);
+    }
+
+    @Test
+    void ifMatchComparesVersionsAcrossRepresentations() throws Exception {
+        MockHttpServletRequest request = request("application/json");
+        request.addHeader(HttpHeaders.IF_MATCH, "\"0d9c-kf3.smile\""); // Read as Smile, updated as JSON
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        run(request, (req, res) -> seen.set(req.getHeader(HttpHeaders.IF_MATCH)));
+
+        assertThat(seen.get()).isEqualTo(TAG);
+    }
+
+    @Test
+    void wildcardIsPassedOn() throws Exception {
+        MockHttpServletRequest request = request("application/cbor");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "*");
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        run(request, (req, res) -> seen.set(req.getHeader(HttpHeaders.IF_NONE_MATCH)));
+
+        assertThat(seen.get()).isEqualTo("*");
+    }
+
+    private MockHttpServletResponse run(MockHttpServletRequest request, Handler handler) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> handler.handle((HttpServletRequest) req, (HttpServletResponse) res));
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String accept) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/products/0d9c");
+        request.addHeader(HttpHeaders.ACCEPT, accept);
+        return request;
+    }
+
+    private interface Handler {
+        void handle(HttpServletRequest request, HttpServletResponse response);
+    }
+}
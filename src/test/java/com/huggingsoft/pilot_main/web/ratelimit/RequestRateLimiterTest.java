@@ -0,0 +1,134 @@
+package com.huggingsoft.pilot_main.web.ratelimit;
+
+import com.huggingsoft.pilot_main.service.exceptions.RateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Token bucket arithmetic, Retry-After rounding and bucket sweeping of {@link RequestRateLimiter}.
+ * Times are passed explicitly, offset from {@link System#nanoTime()} like the limiter's own clock.
+ */
+class RequestRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final RateLimitProperties.Limit ONE_PER_SECOND_BURST_3 = new RateLimitProperties.Limit(60, 3);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void allowsBurstThenRejectsForOneInterval() {
+        RequestRateLimiter limiter = limiter(100);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("k", ONE_PER_SECOND_BURST_3, now)).isZero();
+        }
+        assertThat(limiter.tryAcquire("k", ONE_PER_SECOND_BURST_3, now)).isEqualTo(SECOND);
+        assertThat(limiter.tryAcquire("other", ONE_PER_SECOND_BURST_3, now)).isZero(); // Buckets are per key
+    }
+
+    @Test
+    void refillsOneRequestPerInterval() {
+        RequestRateLimiter limiter = limiter(100);
+        long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("k", ONE_PER_SECOND_BURST_3, now);
+        }
+
+        assertThat(limiter.tryAcquire("k", ONE_PER_SECOND_BURST_3, now + SECOND / 2)).isEqualTo(SECOND / 2);
+        assertThat(limiter.tryAcquire("k", ONE_PER_SECOND_BURST_3, now + SECOND)).isZero();
+        assertThat(limiter.tryAcquire("k", ONE_PER_SECOND_BURST_3, now + SECOND)).isEqualTo(SECOND);
+        // Idle for longer than the burst takes: the bucket is full again, not fuller
+        long later = now + 60 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("k", ONE_PER_SECOND_BURST_3, later)).isZero();
+        }
+        assertThat(limiter.tryAcquire("k", ONE_PER_SECOND_BURST_3, later)).isPositive();
+    }
+
+    @Test
+    void roundsRetryAfterUpToWholeSeconds() {
+        // 7 per minute: one request every 8.57 s
+        RequestRateLimiter limiter = limiter(100, new RateLimitProperties.Endpoint(null, new RateLimitProperties.Limit(7, 1)));
+        limiter.check("login", "10.0.0.1", "Alice");
+
+        assertThatThrownBy(() -> limiter.check("login", "10.0.0.1", " alice "))
+                .isInstanceOfSatisfying(RateLimitExceededException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(9));
+        assertThat(meterRegistry.counter("auth.rate_limit.rejected", "endpoint", "login", "dimension", "account").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void sweepDropsOnlyReplenishedBuckets() {
+        RequestRateLimiter limiter = limiter(100);
+        long now = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("idle-" + i, ONE_PER_SECOND_BURST_3, now - 60 * SECOND);
+        }
+        limiter.tryAcquire("active", ONE_PER_SECOND_BURST_3, now);
+        assertThat(limiter.trackedKeys()).isEqualTo(11);
+
+        limiter.sweepIdle();
+
+        assertThat(limiter.trackedKeys()).isEqualTo(1);
+    }
+
+    @Test
+    void fullMapSweepsIdleBucketsForNewKeys() {
+        RequestRateLimiter limiter = limiter(2);
+        long now = System.nanoTime() + 2 * SECOND; // Past the first inline sweep's due time
+        limiter.tryAcquire("idle-1", ONE_PER_SECOND_BURST_3, now - 60 * SECOND);
+        limiter.tryAcquire("idle-2", ONE_PER_SECOND_BURST_3, now - 60 * SECOND);
+
+        assertThat(limiter.tryAcquire("new", ONE_PER_SECOND_BURST_3, now)).isZero();
+        assertThat(limiter.trackedKeys()).isEqualTo(1);
+    }
+
+    @Test
+    void fullMapWithActiveBucketsRejectsNewKeysOnly() {
+        RequestRateLimiter limiter = limiter(2);
+        long now = System.nanoTime() + 2 * SECOND;
+        limiter.tryAcquire("active-1", ONE_PER_SECOND_BURST_3, now);
+        limiter.tryAcquire("active-2", ONE_PER_SECOND_BURST_3, now);
+
+        long wait = limiter.tryAcquire("new", ONE_PER_SECOND_BURST_3, now);
+
+        assertThat(wait).isPositive().isLessThanOrEqualTo(SECOND); // Until the next sweep may run
+        assertThat(limiter.trackedKeys()).isEqualTo(2);
+        assertThat(limiter.tryAcquire("active-1", ONE_PER_SECOND_BURST_3, now)).isZero();
+    }
+
+    @Test
+    void fullMapSweepsAtMostOncePerSecond() {
+        RequestRateLimiter limiter = limiter(2);
+        RateLimitProperties.Limit tenPerSecond = new RateLimitProperties.Limit(600, 1);
+        long now = System.nanoTime() + 2 * SECOND;
+        limiter.tryAcquire("active-1", tenPerSecond, now);
+        limiter.tryAcquire("active-2", tenPerSecond, now);
+        assertThat(limiter.tryAcquire("new", tenPerSecond, now)).isPositive(); // Sweeps, frees nothing
+
+        // Both buckets are replenished half a second later, but the next sweep is not due yet
+        assertThat(limiter.tryAcquire("new", tenPerSecond, now + SECOND / 2)).isEqualTo(SECOND / 2);
+        assertThat(limiter.trackedKeys()).isEqualTo(2);
+
+        assertThat(limiter.tryAcquire("new", tenPerSecond, now + SECOND)).isZero();
+        assertThat(limiter.trackedKeys()).isEqualTo(1);
+    }
+
+    private RequestRateLimiter limiter(int maxKeys) {
+        return limiter(maxKeys, new RateLimitProperties.Endpoint(ONE_PER_SECOND_BURST_3, ONE_PER_SECOND_BURST_3));
+    }
+
+    private RequestRateLimiter limiter(int maxKeys, RateLimitProperties.Endpoint login) {
+        return new RequestRateLimiter(new RateLimitProperties(true, Duration.ofSeconds(60), maxKeys, Map.of("login", login)),
+                meterRegistry);
+    }
+}